@@ -0,0 +1,87 @@
+package com.shulkerking.benchmarks;
+
+import com.shulkerking.managers.CooldownManager;
+import com.shulkerking.managers.ShulkerInventoryManager;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recognising shulkers and telling them apart, done on every click and open
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class IdentificationBenchmark {
+
+    private CooldownManager cooldowns;
+    private ShulkerInventoryManager inventories;
+    private ItemStack plain;
+    private ItemStack decorated;
+    private ItemStack copy;
+    private ItemStack other;
+    private ItemStack stone;
+
+    @Setup
+    public void setup(PluginState state) {
+        cooldowns = state.getPlugin().getCooldownManager();
+        inventories = state.getPlugin().getInventoryManager();
+        plain = PluginState.fullShulker();
+        copy = plain.clone();
+        decorated = PluginState.fullShulker();
+        ItemMeta meta = decorated.getItemMeta();
+        meta.setDisplayName("§6Storage");
+        meta.setLore(Arrays.asList("§7Tools and food", "§7Cooldown: 3s"));
+        meta.setCustomModelData(7);
+        decorated.setItemMeta(meta);
+        other = PluginState.fullShulker();
+        other.setType(Material.RED_SHULKER_BOX);
+        stone = new ItemStack(Material.STONE, 64);
+    }
+
+    @Benchmark
+    public String identifierPlain() {
+        return cooldowns.getItemIdentifier(plain);
+    }
+
+    @Benchmark
+    public String identifierDecorated() {
+        return cooldowns.getItemIdentifier(decorated);
+    }
+
+    @Benchmark
+    public boolean isShulkerBox() {
+        return inventories.isShulkerBox(plain);
+    }
+
+    @Benchmark
+    public boolean isShulkerBoxOther() {
+        return inventories.isShulkerBox(stone);
+    }
+
+    @Benchmark
+    public boolean isSameShulkerBox() {
+        return inventories.isSameShulkerBox(copy, plain);
+    }
+
+    @Benchmark
+    public boolean isSameShulkerBoxDifferent() {
+        return inventories.isSameShulkerBox(other, plain);
+    }
+}
@@ -0,0 +1,63 @@
+package com.shulkerking.benchmarks;
+
+import com.shulkerking.ShulkerKingPlugin;
+import com.shulkerking.testing.FakeItems;
+import com.shulkerking.testing.FakePlayer;
+import com.shulkerking.testing.PluginHarness;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * ShulkerKing enabled on the stand-in server from the test jar, one per
+ * benchmark run. Cooldowns, combat blocking and the work budget are off so
+ * a benchmark can open the same shulker again and again.
+ */
+@State(Scope.Benchmark)
+public class PluginState {
+
+    private PluginHarness harness;
+
+    @Setup(Level.Trial)
+    public void start() {
+        Map<String, Object> settings = new LinkedHashMap<>();
+        settings.put("cooldown.default", 0);
+        settings.put("pvp-block.enabled", false);
+        settings.put("work-budget.enabled", false);
+        harness = PluginHarness.start(settings);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        harness.close();
+    }
+
+    public ShulkerKingPlugin getPlugin() {
+        return harness.getPlugin();
+    }
+
+    public FakePlayer addPlayer(String name) {
+        return harness.getServer().addPlayer(name);
+    }
+
+    /**
+     * Shulker with every slot used, the worst case for decoding and saving
+     */
+    public static ItemStack fullShulker() {
+        Material[] materials = {Material.DIRT, Material.IRON_INGOT, Material.DIAMOND_SWORD, Material.BREAD,
+            Material.OAK_LOG, Material.ARROW, Material.EMERALD, Material.COBBLESTONE, Material.GOLD_INGOT};
+        ItemStack[] contents = new ItemStack[27];
+        for (int i = 0; i < contents.length; i++) {
+            Material material = materials[i % materials.length];
+            contents[i] = new ItemStack(material, Math.min(material.getMaxStackSize(), i + 1));
+        }
+        return FakeItems.shulker(Material.SHULKER_BOX, contents);
+    }
+}
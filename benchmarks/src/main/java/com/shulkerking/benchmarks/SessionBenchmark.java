@@ -0,0 +1,92 @@
+package com.shulkerking.benchmarks;
+
+import com.shulkerking.managers.ShulkerInventoryManager;
+import com.shulkerking.testing.FakePlayer;
+import org.bukkit.block.ShulkerBox;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.BlockStateMeta;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding a held shulker into a session inventory and saving it back
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SessionBenchmark {
+
+    private ShulkerInventoryManager inventories;
+    private FakePlayer player;
+    private ItemStack held;
+
+    @Setup
+    public void setup(PluginState state) {
+        inventories = state.getPlugin().getInventoryManager();
+        player = state.addPlayer("bench");
+        player.getInventory().setItemInMainHand(PluginState.fullShulker());
+        held = player.getInventory().getItemInMainHand();
+    }
+
+    /**
+     * The decode phase of opening: item meta, block state and its contents
+     */
+    @Benchmark
+    public ItemStack[] decode() {
+        BlockStateMeta meta = (BlockStateMeta) held.getItemMeta();
+        return ((ShulkerBox) meta.getBlockState()).getInventory().getContents();
+    }
+
+    /**
+     * Open the held shulker and close it again, the close saves the contents
+     */
+    @Benchmark
+    public boolean openAndClose() {
+        boolean opened = inventories.openShulkerInventory(player.getPlayer(), held, true);
+        player.closeInventory();
+        return opened;
+    }
+
+    @Benchmark
+    public boolean save(OpenSession open) {
+        return inventories.saveShulkerContents(open.player, open.session, open.inventory);
+    }
+
+    /**
+     * Session kept open for the whole run, saved again on every call
+     */
+    @State(Scope.Thread)
+    public static class OpenSession {
+        private Player player;
+        private ShulkerInventoryManager.ShulkerSession session;
+        private Inventory inventory;
+
+        @Setup
+        public void open(PluginState state) {
+            FakePlayer fake = state.addPlayer("bench-open");
+            fake.getInventory().setItemInMainHand(PluginState.fullShulker());
+            player = fake.getPlayer();
+            ShulkerInventoryManager inventories = state.getPlugin().getInventoryManager();
+            if (!inventories.openShulkerInventory(player, fake.getInventory().getItemInMainHand(), true)) {
+                throw new IllegalStateException("Could not open the benchmark shulker");
+            }
+            session = inventories.getSession(player);
+            inventory = fake.getTopInventory();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.shulkerking.benchmarks;
+
+import com.shulkerking.managers.ColorManager;
+import com.shulkerking.managers.LocaleManager;
+import org.bukkit.entity.Player;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Message lookup and colouring, done for every message a player gets
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TextBenchmark {
+
+    private static final String HEX_TEXT = "&#FFAA00Шалкер &#55FF55открыт &7(&#5555FF27&7 слотов)";
+    private static final String LEGACY_TEXT = "&6[ShulkerKing] &cПодождите &e0.5&c сек. &7перед открытием";
+
+    private ColorManager colors;
+    private LocaleManager locales;
+    private Player player;
+
+    @Setup
+    public void setup(PluginState state) {
+        colors = state.getPlugin().getColorManager();
+        locales = state.getPlugin().getLocaleManager();
+        player = state.addPlayer("bench").getPlayer();
+    }
+
+    @Benchmark
+    public String colorizeHex() {
+        return colors.colorize(HEX_TEXT);
+    }
+
+    @Benchmark
+    public String colorizeLegacy() {
+        return colors.colorize(LEGACY_TEXT);
+    }
+
+    @Benchmark
+    public String messageForLocale() {
+        return locales.getMessage("ru_ru", "messages.cooldown-active");
+    }
+
+    @Benchmark
+    public String messageForPlayer() {
+        return locales.getMessage(player, "messages.item-changed");
+    }
+}
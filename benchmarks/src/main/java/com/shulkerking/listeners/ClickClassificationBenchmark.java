@@ -0,0 +1,96 @@
+package com.shulkerking.listeners;
+
+import com.shulkerking.benchmarks.PluginState;
+import com.shulkerking.managers.ShulkerInventoryManager;
+import com.shulkerking.testing.FakeItems;
+import com.shulkerking.testing.FakePlayer;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.bukkit.event.inventory.ClickType;
+import org.bukkit.event.inventory.InventoryAction;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.inventory.InventoryView;
+import org.bukkit.inventory.ItemStack;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Anti-dupe click rules of {@link InventoryListener} while a shulker is open.
+ * Only the classification runs, the events are never applied or saved.
+ * Lives in the listener package to reach the package-private method.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ClickClassificationBenchmark {
+
+    private InventoryListener listener;
+    private Player player;
+    private ShulkerInventoryManager.ShulkerSession session;
+    private InventoryClickEvent shulkerClick;
+    private InventoryClickEvent playerClick;
+    private InventoryClickEvent otherShulkerClick;
+    private InventoryClickEvent hotbarSwap;
+
+    @Setup
+    public void setup(PluginState state) {
+        listener = state.getPlugin().getInventoryListener();
+        FakePlayer fake = state.addPlayer("bench");
+        fake.getInventory().setItemInMainHand(PluginState.fullShulker());
+        fake.getInventory().setItem(9, new ItemStack(Material.COBBLESTONE, 64));
+        fake.getInventory().setItem(10, FakeItems.shulker(Material.RED_SHULKER_BOX, new ItemStack(Material.BREAD, 12)));
+        player = fake.getPlayer();
+        ShulkerInventoryManager inventories = state.getPlugin().getInventoryManager();
+        if (!inventories.openShulkerInventory(player, fake.getInventory().getItemInMainHand(), true)) {
+            throw new IllegalStateException("Could not open the benchmark shulker");
+        }
+        session = inventories.getSession(player);
+
+        InventoryView view = player.getOpenInventory();
+        // Pick up a stack inside the open shulker
+        shulkerClick = new InventoryClickEvent(view, InventoryType.SlotType.CONTAINER, 0,
+            ClickType.LEFT, InventoryAction.PICKUP_ALL);
+        // Pick up a stack from the player inventory, compared with the open shulker
+        playerClick = new InventoryClickEvent(view, InventoryType.SlotType.CONTAINER, fake.rawSlot(9),
+            ClickType.LEFT, InventoryAction.PICKUP_ALL);
+        // Shift-click another shulker, closes the open one
+        otherShulkerClick = new InventoryClickEvent(view, InventoryType.SlotType.CONTAINER, fake.rawSlot(10),
+            ClickType.SHIFT_LEFT, InventoryAction.MOVE_TO_OTHER_INVENTORY);
+        hotbarSwap = new InventoryClickEvent(view, InventoryType.SlotType.CONTAINER, 0,
+            ClickType.NUMBER_KEY, InventoryAction.HOTBAR_SWAP, 3);
+    }
+
+    @Benchmark
+    public String clickInShulker() {
+        return listener.classifyClick(shulkerClick, player, session);
+    }
+
+    @Benchmark
+    public String clickInPlayerInventory() {
+        return listener.classifyClick(playerClick, player, session);
+    }
+
+    @Benchmark
+    public String shiftClickOtherShulker() {
+        return listener.classifyClick(otherShulkerClick, player, session);
+    }
+
+    @Benchmark
+    public String hotbarSwap() {
+        return listener.classifyClick(hotbarSwap, player, session);
+    }
+}
@@ -4,12 +4,26 @@ import com.shulkerking.commands.ShulkerKingCommand;
 import com.shulkerking.listeners.InventoryListener;
 import com.shulkerking.listeners.PlayerInteractListener;
 import com.shulkerking.listeners.PlayerListener;
+import com.shulkerking.listeners.WorldListener;
 import com.shulkerking.managers.*;
 import org.bukkit.command.PluginCommand;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.plugin.PluginDescriptionFile;
 import org.bukkit.plugin.PluginManager;
 import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.plugin.java.JavaPluginLoader;
 
-import java.util.concurrent.CompletableFuture;
+import java.io.File;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 
 /**
@@ -24,6 +38,21 @@ import java.util.logging.Level;
  * - World restrictions
  * - Item blacklist system
  * 
+ * Threading model:
+ * - Player state (sessions, inventories, countdown lore, sound dedup) is only
+ *   touched from the thread that owns the player: the main thread, or the
+ *   entity's region thread on Folia. Work for a player is handed over through
+ *   {@link SchedulerManager}.
+ * - Stores read by the async cleanup task or by several region threads
+ *   (cooldowns, combat tags, sessions, permission snapshots, world policies)
+ *   are concurrent maps. Expired entries are removed only if they were not
+ *   replaced in the meantime.
+ * - Compiled settings are immutable snapshots behind volatile fields and are
+ *   swapped as a whole on reload. Configuration objects are replaced, never
+ *   modified, so reading them from another thread is safe.
+ * - Disable runs on the disabling thread. Persistence backends are drained
+ *   on helper threads that are waited for up to shutdown.timeout-ms.
+ * 
  * @author ShulkerKing Team
  * @version 2.0.0
  * @since 1.16.2
@@ -34,6 +63,15 @@ public final class ShulkerKingPlugin extends JavaPlugin {
     private static ShulkerKingPlugin instance;
     
     // Core managers - initialized in proper order
+    private SchedulerManager schedulerManager;
+    private ClockManager clockManager;
+    private DebugManager debugManager;
+    private MetricsManager metricsManager;
+    private FlightRecorderManager flightRecorderManager;
+    private ExporterManager exporterManager;
+    private SlowEventManager slowEventManager;
+    private LoadManager loadManager;
+    private WorkBudgetManager workBudgetManager;
     private LocaleManager localeManager;
     private ColorManager colorManager;
     private SoundManager soundManager;
@@ -42,7 +80,16 @@ public final class ShulkerKingPlugin extends JavaPlugin {
     private CombatManager combatManager;
     private CooldownManager cooldownManager;
     private CooldownDisplayManager cooldownDisplayManager;
+    private PermissionManager permissionManager;
     private ShulkerInventoryManager inventoryManager;
+    private JournalManager journalManager;
+    private AuditManager auditManager;
+    private RecorderManager recorderManager;
+    private ConfigWatchManager configWatchManager;
+    private InventoryListener inventoryListener;
+    
+    // Configuration parsed by the file watcher, replaces the default one until next reloadConfig()
+    private volatile FileConfiguration watchedConfig;
     
     // Performance: Cached configuration values
     private volatile boolean pvpBlockEnabled;
@@ -51,6 +98,17 @@ public final class ShulkerKingPlugin extends JavaPlugin {
     private volatile boolean debugEnabled;
     private volatile boolean visualCooldownEnabled;
     
+    public ShulkerKingPlugin() {
+        super();
+    }
+    
+    /**
+     * Used by tests to create the plugin outside of a plugin class loader
+     */
+    protected ShulkerKingPlugin(JavaPluginLoader loader, PluginDescriptionFile description, File dataFolder, File file) {
+        super(loader, description, dataFolder, file);
+    }
+    
     /**
      * Called after plugin is loaded but before enabled
      * Used for early initialization that doesn't depend on other plugins
@@ -137,6 +195,24 @@ public final class ShulkerKingPlugin extends JavaPlugin {
             
             // Step 5: Post-initialization tasks
             scheduleAsyncTasks();
+            clockManager.start();
+            loadManager.start();
+            workBudgetManager.start();
+            debugManager.start();
+            metricsManager.start();
+            flightRecorderManager.start();
+            exporterManager.start();
+            slowEventManager.start();
+            
+            // Step 6: Report sessions left open by a crash, start journal and audit writers
+            journalManager.start();
+            auditManager.start();
+            
+            // Step 7: Cache permissions of online players
+            permissionManager.start();
+            
+            // Step 8: Watch config and language files if enabled
+            configWatchManager.start();
             
             return true;
             
@@ -150,17 +226,49 @@ public final class ShulkerKingPlugin extends JavaPlugin {
      * Gracefully shutdown the plugin
      */
     private void shutdownPlugin() {
+        // Stop watching files before anything else is torn down
+        if (configWatchManager != null) {
+            configWatchManager.stop();
+        }
+        
+        if (permissionManager != null) {
+            permissionManager.stop();
+        }
+        
+        if (exporterManager != null) {
+            exporterManager.stop();
+        }
+        
+        if (slowEventManager != null) {
+            slowEventManager.stop();
+        }
+        
+        if (loadManager != null) {
+            loadManager.stop();
+        }
+        
+        if (workBudgetManager != null) {
+            workBudgetManager.stop();
+        }
+        
+        if (metricsManager != null) {
+            metricsManager.stop();
+        }
+        
         // Cancel all scheduled tasks
-        getServer().getScheduler().cancelTasks(this);
+        if (schedulerManager != null) {
+            schedulerManager.cancelAll();
+        }
         
         // Stop all active countdown tasks to prevent memory leaks
         if (cooldownDisplayManager != null) {
             cooldownDisplayManager.stopAllCountdowns();
         }
         
-        // Close all open shulker inventories
+        // Write open shulker inventories back to their items in one pass
+        int sessions = 0;
         if (inventoryManager != null) {
-            inventoryManager.closeAllInventories();
+            sessions = inventoryManager.flushAllSessions();
         }
         
         // Clear all runtime data
@@ -172,14 +280,55 @@ public final class ShulkerKingPlugin extends JavaPlugin {
             combatManager.clearAllCombat();
         }
         
-        // Save any pending data asynchronously
-        CompletableFuture.runAsync(() -> {
-            try {
-                saveConfig();
-            } catch (Exception e) {
-                getLogger().log(Level.WARNING, "Ошибка сохранения конфигурации:", e);
-            }
-        });
+        // Drain persistence backends, bounded so the stop never stalls
+        long deadline = System.currentTimeMillis() + getConfig().getLong("shutdown.timeout-ms", 5000L);
+        int records = 0;
+        if (journalManager != null) {
+            records += drainBackend("journal", journalManager::close, deadline);
+        }
+        if (auditManager != null) {
+            records += drainBackend("audit", auditManager::close, deadline);
+        }
+        if (recorderManager != null && recorderManager.isRecording()) {
+            records += drainBackend("recorder", recorderManager::stop, deadline);
+        }
+        records += drainBackend("config", () -> {
+            saveConfig();
+            return 1;
+        }, deadline);
+        
+        getLogger().info(String.format("Сохранено сессий шалкеров: %d, записей: %d", sessions, records));
+        
+        // Pass the last buffered debug lines to the log
+        if (debugManager != null) {
+            debugManager.stop();
+        }
+    }
+    
+    /**
+     * Run a backend flush on its own thread and wait for it until the deadline
+     * @param name backend name for logs
+     * @param drain flush action returning the number of written records
+     * @param deadline absolute time in milliseconds
+     * @return number of written records, 0 if the flush failed or timed out
+     */
+    private int drainBackend(String name, Callable<Integer> drain, long deadline) {
+        FutureTask<Integer> task = new FutureTask<>(drain);
+        Thread thread = new Thread(task, "ShulkerKing-Shutdown-" + name);
+        thread.setDaemon(true);
+        thread.start();
+        
+        try {
+            return task.get(Math.max(0L, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            thread.interrupt();
+            getLogger().warning("Backend " + name + " was not drained before shutdown.timeout-ms");
+        } catch (ExecutionException e) {
+            getLogger().log(Level.WARNING, "Ошибка сохранения " + name + ":", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return 0;
     }
     
     /**
@@ -208,6 +357,15 @@ public final class ShulkerKingPlugin extends JavaPlugin {
     private boolean initializeManagers() {
         try {
             // Core managers first (no dependencies)
+            schedulerManager = new SchedulerManager(this);
+            clockManager = new ClockManager(this);
+            loadManager = new LoadManager(this);
+            workBudgetManager = new WorkBudgetManager(this);
+            debugManager = new DebugManager(this);
+            metricsManager = new MetricsManager(this);
+            slowEventManager = new SlowEventManager(this);
+            flightRecorderManager = new FlightRecorderManager(this);
+            exporterManager = new ExporterManager(this);
             localeManager = new LocaleManager(this);
             colorManager = new ColorManager(this);
             soundManager = new SoundManager(this);
@@ -218,9 +376,15 @@ public final class ShulkerKingPlugin extends JavaPlugin {
             combatManager = new CombatManager(this);
             cooldownManager = new CooldownManager(this);
             cooldownDisplayManager = new CooldownDisplayManager(this);
+            permissionManager = new PermissionManager(this);
             
             // Inventory manager last (depends on others)
             inventoryManager = new ShulkerInventoryManager(this);
+            journalManager = new JournalManager(this);
+            auditManager = new AuditManager(this);
+            recorderManager = new RecorderManager(this);
+            
+            configWatchManager = new ConfigWatchManager(this);
             
             if (debugEnabled) {
                 debugLog("Все менеджеры успешно инициализированы");
@@ -241,8 +405,10 @@ public final class ShulkerKingPlugin extends JavaPlugin {
         PluginManager pluginManager = getServer().getPluginManager();
         
         pluginManager.registerEvents(new PlayerInteractListener(this), this);
-        pluginManager.registerEvents(new InventoryListener(this), this);
+        inventoryListener = new InventoryListener(this);
+        pluginManager.registerEvents(inventoryListener, this);
         pluginManager.registerEvents(new PlayerListener(this), this);
+        pluginManager.registerEvents(new WorldListener(this), this);
         
         if (debugEnabled) {
             debugLog("Слушатели событий зарегистрированы");
@@ -269,7 +435,7 @@ public final class ShulkerKingPlugin extends JavaPlugin {
      */
     private void scheduleAsyncTasks() {
         // Schedule periodic cleanup tasks
-        getServer().getScheduler().runTaskTimerAsynchronously(this, () -> {
+        schedulerManager.runAsyncTimer(() -> {
             if (cooldownManager != null) {
                 cooldownManager.cleanupExpiredCooldowns();
             }
@@ -288,31 +454,13 @@ public final class ShulkerKingPlugin extends JavaPlugin {
      */
     public void reloadPluginConfig() {
         try {
+            FileConfiguration previous = getConfig();
             reloadConfig();
-            cacheConfigValues();
+            // Language files are not covered by the settings diff, so always re-read them here
+            refreshAfterConfigChange(previous, true);
             
-            // Clear runtime data that might be affected by config changes
-            if (combatManager != null) {
-                combatManager.clearAllCombat();
-            }
-            if (cooldownManager != null) {
-                cooldownManager.clearAllCooldowns();
-            }
-            if (cooldownDisplayManager != null) {
-                cooldownDisplayManager.stopAllCountdowns();
-            }
-            if (localeManager != null) {
-                localeManager.reloadLanguages();
-            }
-            
-            // Restore visual cooldowns for online players
-            for (org.bukkit.entity.Player player : getServer().getOnlinePlayers()) {
-                for (org.bukkit.inventory.ItemStack item : player.getInventory().getContents()) {
-                    if (item != null && cooldownManager.hasCooldown(player, item)) {
-                        String itemIdentifier = cooldownManager.getItemIdentifier(item);
-                        cooldownDisplayManager.startVisualCountdown(player, itemIdentifier);
-                    }
-                }
+            if (configWatchManager != null) {
+                configWatchManager.restart();
             }
             
             getLogger().info("Конфигурация успешно перезагружена!");
@@ -323,6 +471,159 @@ public final class ShulkerKingPlugin extends JavaPlugin {
         }
     }
     
+    /**
+     * Swap in a configuration that was already parsed off the main thread
+     * @param config parsed configuration
+     */
+    public void applyConfig(FileConfiguration config) {
+        try {
+            FileConfiguration previous = getConfig();
+            watchedConfig = config;
+            refreshAfterConfigChange(previous, false);
+            getLogger().info("Конфигурация обновлена из файла");
+        } catch (Exception e) {
+            getLogger().log(Level.WARNING, "Ошибка при применении конфигурации:", e);
+        }
+    }
+    
+    /**
+     * Refresh cached values and only the subsystems whose settings changed.
+     * Running cooldowns, combat tags and countdowns are kept.
+     * @param previous configuration before the change
+     * @param reloadLanguages re-read language files even if language settings did not change
+     */
+    private void refreshAfterConfigChange(FileConfiguration previous, boolean reloadLanguages) {
+        FileConfiguration current = getConfig();
+        cacheConfigValues();
+        
+        // Combat tags only matter while PvP blocking is on
+        if (combatManager != null && !pvpBlockEnabled &&
+            isSectionChanged(previous, current, "pvp-block")) {
+            combatManager.clearAllCombat();
+        }
+        
+        // Running cooldowns keep their end time, new durations apply to the next open
+        if (cooldownManager != null && !cooldownEnabled &&
+            isSectionChanged(previous, current, "cooldown")) {
+            cooldownManager.clearAllCooldowns();
+        }
+        
+        // Restart countdowns in place when their display settings changed,
+        // or strip their lore when the display was turned off
+        if (cooldownDisplayManager != null &&
+            (!cooldownEnabled || isSectionChanged(previous, current, "cooldown.visual-display"))) {
+            cooldownDisplayManager.restartAllCountdowns();
+        }
+        
+        if (worldManager != null && (isSectionChanged(previous, current, "world-blacklist") ||
+            isSectionChanged(previous, current, "world-overrides") ||
+            isSectionChanged(previous, current, "settings"))) {
+            worldManager.reloadPolicies();
+        }
+        
+        boolean cooldownChanged = isSectionChanged(previous, current, "cooldown");
+        if (cooldownManager != null && cooldownChanged) {
+            cooldownManager.reloadTiers();
+        }
+        
+        // Cached cooldown times depend on cooldown and world settings
+        if (permissionManager != null && (cooldownChanged ||
+            isSectionChanged(previous, current, "world-overrides") ||
+            isSectionChanged(previous, current, "permissions"))) {
+            permissionManager.start();
+        }
+        
+        if (itemBlacklistManager != null && isSectionChanged(previous, current, "item-blacklist")) {
+            itemBlacklistManager.reloadBlacklist();
+        }
+        
+        if (soundManager != null && isSectionChanged(previous, current, "sounds")) {
+            soundManager.reloadSounds();
+        }
+        
+        if (debugManager != null && isSectionChanged(previous, current, "settings")) {
+            debugManager.start();
+        }
+        
+        if (flightRecorderManager != null && isSectionChanged(previous, current, "jfr")) {
+            flightRecorderManager.start();
+        }
+        
+        if (clockManager != null && isSectionChanged(previous, current, "clock")) {
+            clockManager.start();
+        }
+        
+        if (metricsManager != null && isSectionChanged(previous, current, "metrics")) {
+            metricsManager.start();
+        }
+        
+        if (journalManager != null && isSectionChanged(previous, current, "journal")) {
+            journalManager.reload();
+        }
+        
+        if (auditManager != null && isSectionChanged(previous, current, "audit")) {
+            auditManager.start();
+        }
+        
+        if (exporterManager != null && isSectionChanged(previous, current, "exporter")) {
+            exporterManager.start();
+        }
+        
+        if (slowEventManager != null && isSectionChanged(previous, current, "slow-events")) {
+            slowEventManager.start();
+        }
+        
+        if (loadManager != null && isSectionChanged(previous, current, "load")) {
+            loadManager.start();
+        }
+        
+        if (workBudgetManager != null && isSectionChanged(previous, current, "work-budget")) {
+            workBudgetManager.start();
+        }
+        
+        if (localeManager != null &&
+            (reloadLanguages || isSectionChanged(previous, current, "language"))) {
+            localeManager.reloadLanguages();
+        }
+    }
+    
+    /**
+     * Compare all leaf values under a path in two configurations
+     */
+    private static boolean isSectionChanged(FileConfiguration previous, FileConfiguration current, String path) {
+        return !flattenSection(previous, path).equals(flattenSection(current, path));
+    }
+    
+    private static Map<String, Object> flattenSection(FileConfiguration config, String path) {
+        Map<String, Object> values = new HashMap<>();
+        if (config == null) {
+            return values;
+        }
+        ConfigurationSection section = config.getConfigurationSection(path);
+        if (section == null) {
+            values.put(path, config.get(path));
+            return values;
+        }
+        for (String key : section.getKeys(true)) {
+            if (!section.isConfigurationSection(key)) {
+                values.put(key, section.get(key));
+            }
+        }
+        return values;
+    }
+    
+    @Override
+    public FileConfiguration getConfig() {
+        FileConfiguration config = watchedConfig;
+        return config != null ? config : super.getConfig();
+    }
+    
+    @Override
+    public void reloadConfig() {
+        watchedConfig = null;
+        super.reloadConfig();
+    }
+    
     /**
      * Get plugin instance for static access
      * @return plugin instance
@@ -331,6 +632,62 @@ public final class ShulkerKingPlugin extends JavaPlugin {
         return instance;
     }
     
+    public DebugManager getDebugManager() {
+        return debugManager;
+    }
+    
+    public InventoryListener getInventoryListener() {
+        return inventoryListener;
+    }
+    
+    public FlightRecorderManager getFlightRecorderManager() {
+        return flightRecorderManager;
+    }
+    
+    public ExporterManager getExporterManager() {
+        return exporterManager;
+    }
+    
+    public SlowEventManager getSlowEventManager() {
+        return slowEventManager;
+    }
+    
+    public LoadManager getLoadManager() {
+        return loadManager;
+    }
+    
+    public WorkBudgetManager getWorkBudgetManager() {
+        return workBudgetManager;
+    }
+    
+    public MetricsManager getMetricsManager() {
+        return metricsManager;
+    }
+    
+    public ClockManager getClockManager() {
+        return clockManager;
+    }
+    
+    public SchedulerManager getSchedulerManager() {
+        return schedulerManager;
+    }
+    
+    public PermissionManager getPermissionManager() {
+        return permissionManager;
+    }
+    
+    public JournalManager getJournalManager() {
+        return journalManager;
+    }
+    
+    public AuditManager getAuditManager() {
+        return auditManager;
+    }
+    
+    public RecorderManager getRecorderManager() {
+        return recorderManager;
+    }
+    
     public ShulkerInventoryManager getInventoryManager() {
         return inventoryManager;
     }
@@ -367,6 +724,10 @@ public final class ShulkerKingPlugin extends JavaPlugin {
         return cooldownDisplayManager;
     }
     
+    public ConfigWatchManager getConfigWatchManager() {
+        return configWatchManager;
+    }
+    
     /**
      * Get localized and colorized message for player
      * @param player target player
@@ -377,7 +738,14 @@ public final class ShulkerKingPlugin extends JavaPlugin {
         if (colorManager == null || localeManager == null) {
             return key; // Fallback during initialization
         }
-        return colorManager.colorize(localeManager.getMessage(player, key));
+        long phase = slowEventManager != null ? slowEventManager.startPhase() : 0L;
+        try {
+            return colorManager.colorize(localeManager.getMessage(player, key));
+        } finally {
+            if (slowEventManager != null) {
+                slowEventManager.endPhase(SlowEventManager.Phase.MESSAGES, phase);
+            }
+        }
     }
     
     /**
@@ -409,13 +777,84 @@ public final class ShulkerKingPlugin extends JavaPlugin {
     }
     
     /**
-     * Log debug message if debug mode is enabled
+     * Log debug message if debug mode is enabled.
+     * Messages go to the debug ring buffer and reach the log asynchronously.
+     * Use the template or supplier variants when the message has to be built.
      * @param message debug message
      */
     public void debugLog(String message) {
         if (isDebugEnabled()) {
-            getLogger().info("[DEBUG] " + message);
+            DebugManager debug = debugManager;
+            if (debug != null) {
+                debug.record(message);
+            } else {
+                getLogger().info("[DEBUG] " + message);
+            }
+        }
+    }
+    
+    /**
+     * Log debug message built only if debug mode is enabled
+     * @param message message supplier
+     */
+    public void debugLog(Supplier<String> message) {
+        if (isDebugEnabled()) {
+            debugLog(message.get());
+        }
+    }
+    
+    /**
+     * Log debug message, each {} in the template is replaced by the next argument
+     * only if debug mode is enabled. Placeholders without an argument are kept.
+     */
+    public void debugLog(String template, Object arg) {
+        if (isDebugEnabled()) {
+            debugLog(formatTemplate(template, 1, arg, null, null));
+        }
+    }
+    
+    public void debugLog(String template, Object arg1, Object arg2) {
+        if (isDebugEnabled()) {
+            debugLog(formatTemplate(template, 2, arg1, arg2, null));
+        }
+    }
+    
+    public void debugLog(String template, Object arg1, Object arg2, Object arg3) {
+        if (isDebugEnabled()) {
+            debugLog(formatTemplate(template, 3, arg1, arg2, arg3));
+        }
+    }
+    
+    // Primitive variants box only when debug mode is enabled
+    public void debugLog(String template, long arg) {
+        if (isDebugEnabled()) {
+            debugLog(formatTemplate(template, 1, arg, null, null));
+        }
+    }
+    
+    public void debugLog(String template, long arg1, long arg2) {
+        if (isDebugEnabled()) {
+            debugLog(formatTemplate(template, 2, arg1, arg2, null));
+        }
+    }
+    
+    public void debugLog(String template, boolean arg) {
+        if (isDebugEnabled()) {
+            debugLog(formatTemplate(template, 1, arg, null, null));
+        }
+    }
+    
+    private static String formatTemplate(String template, int argCount, Object arg1, Object arg2, Object arg3) {
+        StringBuilder result = new StringBuilder(template.length() + 32);
+        int argIndex = 0;
+        int from = 0;
+        int at;
+        while (argIndex < argCount && (at = template.indexOf("{}", from)) >= 0) {
+            result.append(template, from, at).append(argIndex == 0 ? arg1 : argIndex == 1 ? arg2 : arg3);
+            argIndex++;
+            from = at + 2;
         }
+        return result.append(template, from, template.length()).toString();
     }
     
     /**
@@ -432,6 +871,14 @@ public final class ShulkerKingPlugin extends JavaPlugin {
      */
     public String getManagerStatus() {
         StringBuilder status = new StringBuilder("Manager Status:\n");
+        status.append("- SchedulerManager: ").append(schedulerManager != null ?
+            (schedulerManager.isFolia() ? "FOLIA" : "BUKKIT") : "NULL").append("\n");
+        status.append("- ClockManager: ").append(clockManager != null ?
+            (clockManager.isTickBased() ? "TICK" : "WALL") : "NULL").append("\n");
+        status.append("- LoadManager: ").append(loadManager != null ? (loadManager.isEnabled() ?
+            String.format(Locale.ROOT, "%s (MSPT %.1f)", loadManager.getLevel(), loadManager.getMspt()) : "OFF") : "NULL").append("\n");
+        status.append("- WorkBudgetManager: ").append(workBudgetManager != null ? (workBudgetManager.isEnabled() ?
+            "ON (queued " + workBudgetManager.getQueuedCount() + ")" : "OFF") : "NULL").append("\n");
         status.append("- LocaleManager: ").append(localeManager != null ? "OK" : "NULL").append("\n");
         status.append("- ColorManager: ").append(colorManager != null ? "OK" : "NULL").append("\n");
         status.append("- SoundManager: ").append(soundManager != null ? "OK" : "NULL").append("\n");
@@ -440,7 +887,24 @@ public final class ShulkerKingPlugin extends JavaPlugin {
         status.append("- CombatManager: ").append(combatManager != null ? "OK" : "NULL").append("\n");
         status.append("- CooldownManager: ").append(cooldownManager != null ? "OK" : "NULL").append("\n");
         status.append("- CooldownDisplayManager: ").append(cooldownDisplayManager != null ? "OK" : "NULL").append("\n");
-        status.append("- InventoryManager: ").append(inventoryManager != null ? "OK" : "NULL");
+        status.append("- PermissionManager: ").append(permissionManager != null ? "OK" : "NULL").append("\n");
+        status.append("- InventoryManager: ").append(inventoryManager != null ? "OK" : "NULL").append("\n");
+        status.append("- JournalManager: ").append(journalManager != null ?
+            (journalManager.isEnabled() ? "ON" : "OFF") : "NULL").append("\n");
+        status.append("- MetricsManager: ").append(metricsManager != null ?
+            (metricsManager.isEnabled() ? "ON" : "OFF") : "NULL").append("\n");
+        status.append("- FlightRecorderManager: ").append(flightRecorderManager != null ?
+            (flightRecorderManager.isAvailable() ? "JFR" : "OFF") : "NULL").append("\n");
+        status.append("- ExporterManager: ").append(exporterManager != null ?
+            exporterManager.getMode() : "NULL").append("\n");
+        status.append("- SlowEventManager: ").append(slowEventManager != null ?
+            (slowEventManager.isEnabled() ? "ON" : "OFF") : "NULL").append("\n");
+        status.append("- AuditManager: ").append(auditManager != null ?
+            (auditManager.isEnabled() ? "ON" : "OFF") : "NULL").append("\n");
+        status.append("- RecorderManager: ").append(recorderManager != null ?
+            (recorderManager.isRecording() ? "RECORDING" : "OFF") : "NULL").append("\n");
+        status.append("- ConfigWatchManager: ").append(configWatchManager != null ?
+            (configWatchManager.isRunning() ? "WATCHING" : "OFF") : "NULL");
         return status.toString();
     }
 }
@@ -1,13 +1,25 @@
 package com.shulkerking.commands;
 
 import com.shulkerking.ShulkerKingPlugin;
+import com.shulkerking.managers.MetricsManager;
+import com.shulkerking.managers.RecorderManager;
+import com.shulkerking.managers.SlowEventManager;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
 public class ShulkerKingCommand implements CommandExecutor {
     
+    private static final int SLOW_EVENTS_SHOWN = 10;
+    private static final int STACK_FRAMES_SHOWN = 8;
+    
     private final ShulkerKingPlugin plugin;
     
     public ShulkerKingCommand(ShulkerKingPlugin plugin) {
@@ -60,7 +72,225 @@ public class ShulkerKingCommand implements CommandExecutor {
             return true;
         }
         
+        if (args[0].equalsIgnoreCase("debug") && args.length > 1 && args[1].equalsIgnoreCase("dump")) {
+            dumpDebugBuffer(sender, locale);
+            return true;
+        }
+        
+        if (args[0].equalsIgnoreCase("record") && args.length > 1
+            && (args[1].equalsIgnoreCase("start") || args[1].equalsIgnoreCase("stop"))) {
+            toggleRecording(sender, locale, args[1].equalsIgnoreCase("start"));
+            return true;
+        }
+        
+        if (args[0].equalsIgnoreCase("status")) {
+            sendStatus(sender, locale);
+            return true;
+        }
+        
+        if (args[0].equalsIgnoreCase("slow")) {
+            sendSlowEvents(sender, locale);
+            return true;
+        }
+        
+        if (args[0].equalsIgnoreCase("stats")) {
+            sendStats(sender, locale, args.length > 1 && args[1].equalsIgnoreCase("window"));
+            return true;
+        }
+        
         sender.sendMessage(plugin.getLocaleManager().getMessage(locale, "messages.unknown-command").replace("{label}", label));
         return true;
     }
+    
+    /**
+     * Write the debug ring buffer to a file off the main thread
+     */
+    private void dumpDebugBuffer(CommandSender sender, String locale) {
+        plugin.getSchedulerManager().runAsync(() -> {
+            String message;
+            try {
+                File file = plugin.getDebugManager().dump();
+                message = plugin.getLocaleManager().getMessage(locale, "messages.command.debug-dumped")
+                    .replace("{file}", file.getName());
+            } catch (IOException e) {
+                message = plugin.getLocaleManager().getMessage(locale, "messages.command.debug-dump-failed")
+                    .replace("{error}", String.valueOf(e.getMessage()));
+                plugin.getLogger().warning("Failed to dump debug buffer: " + e.getMessage());
+            }
+            String colored = plugin.getColorManager().colorize(message);
+            plugin.getSchedulerManager().runGlobal(() -> sender.sendMessage(colored));
+        });
+    }
+    
+    /**
+     * Start or stop the event capture off the main thread
+     */
+    private void toggleRecording(CommandSender sender, String locale, boolean start) {
+        plugin.getSchedulerManager().runAsync(() -> {
+            RecorderManager recorder = plugin.getRecorderManager();
+            String message;
+            try {
+                if (start) {
+                    File file = recorder.start();
+                    message = plugin.getLocaleManager().getMessage(locale, "messages.command.record-started")
+                        .replace("{file}", file.getName());
+                } else if (!recorder.isRecording()) {
+                    message = plugin.getLocaleManager().getMessage(locale, "messages.command.record-not-running");
+                } else {
+                    int events = recorder.stop();
+                    message = plugin.getLocaleManager().getMessage(locale, "messages.command.record-stopped")
+                        .replace("{file}", recorder.getCurrentFile().getName())
+                        .replace("{events}", String.valueOf(events));
+                }
+            } catch (IOException e) {
+                message = plugin.getLocaleManager().getMessage(locale, "messages.command.record-failed")
+                    .replace("{error}", String.valueOf(e.getMessage()));
+                plugin.getLogger().warning("Failed to start event capture: " + e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            String colored = plugin.getColorManager().colorize(message);
+            plugin.getSchedulerManager().runGlobal(() -> sender.sendMessage(colored));
+        });
+    }
+    
+    /**
+     * Print the manager status and the metrics exporter endpoint
+     */
+    private void sendStatus(CommandSender sender, String locale) {
+        sender.sendMessage(plugin.getColorManager().colorize(
+            plugin.getLocaleManager().getMessage(locale, "messages.command.status-header")
+                .replace("{exporter}", plugin.getExporterManager().getMode())));
+        for (String line : plugin.getManagerStatus().split("\n")) {
+            if (line.startsWith("- ")) {
+                sender.sendMessage(plugin.getColorManager().colorize("&7" + line));
+            }
+        }
+    }
+    
+    /**
+     * Print the last handlers that ran over budget with their phases and sampled stacks
+     */
+    private void sendSlowEvents(CommandSender sender, String locale) {
+        SlowEventManager slow = plugin.getSlowEventManager();
+        if (!slow.isEnabled()) {
+            sender.sendMessage(plugin.getColorManager().colorize(
+                plugin.getLocaleManager().getMessage(locale, "messages.command.slow-disabled")));
+            return;
+        }
+        
+        List<SlowEventManager.SlowEvent> events = slow.getRecent(SLOW_EVENTS_SHOWN);
+        sender.sendMessage(plugin.getColorManager().colorize(
+            plugin.getLocaleManager().getMessage(locale, "messages.command.slow-header")
+                .replace("{count}", String.valueOf(slow.getSlowEventsCount()))
+                .replace("{budget}", formatNanos(slow.getBudgetNanos()))));
+        long now = System.currentTimeMillis();
+        for (SlowEventManager.SlowEvent event : events) {
+            StringBuilder line = new StringBuilder(String.format(Locale.ROOT, "&e%s &7%s &f%s &8%ds ago",
+                formatNanos(event.getTotalNanos()), event.getProbe(),
+                event.getPlayer() != null ? event.getPlayer() : "-", (now - event.getTimestamp()) / 1000L));
+            for (SlowEventManager.Phase phase : SlowEventManager.Phase.values()) {
+                long nanos = event.getPhaseNanos(phase);
+                if (nanos > 0) {
+                    line.append(" &7").append(phase.getLabel()).append(" &f").append(formatNanos(nanos));
+                }
+            }
+            sender.sendMessage(plugin.getColorManager().colorize(line.toString()));
+            
+            StackTraceElement[] stack = event.getStack();
+            if (stack != null) {
+                for (int i = 0; i < stack.length && i < STACK_FRAMES_SHOWN; i++) {
+                    sender.sendMessage(plugin.getColorManager().colorize("  &8at " + stack[i]));
+                }
+            }
+        }
+    }
+    
+    /**
+     * Print latencies, rates, save counts and cache hit ratios
+     * @param window sliding window instead of everything since startup
+     */
+    private void sendStats(CommandSender sender, String locale, boolean window) {
+        MetricsManager metrics = plugin.getMetricsManager();
+        if (!metrics.isEnabled()) {
+            sender.sendMessage(plugin.getColorManager().colorize(
+                plugin.getLocaleManager().getMessage(locale, "messages.command.stats-disabled")));
+            return;
+        }
+        
+        MetricsManager.Snapshot snapshot = metrics.snapshot(window);
+        String header = plugin.getLocaleManager().getMessage(locale,
+            window ? "messages.command.stats-window" : "messages.command.stats-total")
+            .replace("{time}", TimeUnit.NANOSECONDS.toSeconds(snapshot.getElapsedNanos()) + "s");
+        sender.sendMessage(plugin.getColorManager().colorize(header));
+        
+        for (MetricsManager.Probe probe : MetricsManager.Probe.values()) {
+            MetricsManager.HistogramSnapshot histogram = snapshot.get(probe);
+            sender.sendMessage(plugin.getColorManager().colorize(String.format(Locale.ROOT,
+                "&7%s: &f%d &8(%.2f/s) &7p50 &f%s &7p99 &f%s &7max &f%s &7total &f%s",
+                probe.getLabel(), histogram.getCount(), snapshot.getRate(probe),
+                formatNanos(histogram.getPercentile(0.50)), formatNanos(histogram.getPercentile(0.99)),
+                formatNanos(histogram.getMax()), formatNanos(histogram.getTotal()))));
+            
+            MetricsManager.HistogramSnapshot allocations = snapshot.getAllocations(probe);
+            if (metrics.isAllocationTracking() && allocations.getCount() > 0) {
+                long budget = metrics.getAllocationBudget(probe);
+                long p99 = allocations.getPercentile(0.99);
+                sender.sendMessage(plugin.getColorManager().colorize(String.format(Locale.ROOT,
+                    "  &7alloc/op: mean &f%s &7p99 %s%s &7max &f%s%s",
+                    formatBytes(allocations.getMean()),
+                    budget >= 0 && p99 > budget ? "&c" : "&f", formatBytes(p99),
+                    formatBytes(allocations.getMax()), budget >= 0 ? " &8(budget " + formatBytes(budget) + ")" : "")));
+            }
+        }
+        
+        sender.sendMessage(plugin.getColorManager().colorize(String.format(Locale.ROOT,
+            "&7saves: &a%d &7ok, &c%d &7failed, &e%d &7throttled", snapshot.get(MetricsManager.Counter.SAVE_OK),
+            snapshot.get(MetricsManager.Counter.SAVE_FAILED), snapshot.get(MetricsManager.Counter.SAVE_THROTTLED))));
+        sender.sendMessage(plugin.getColorManager().colorize(String.format(Locale.ROOT,
+            "&7cache hits: &fpermissions %s&7, &fworlds %s",
+            formatRatio(snapshot.getRatio(MetricsManager.Counter.PERMISSION_CACHE_HIT, MetricsManager.Counter.PERMISSION_CACHE_MISS)),
+            formatRatio(snapshot.getRatio(MetricsManager.Counter.WORLD_CACHE_HIT, MetricsManager.Counter.WORLD_CACHE_MISS)))));
+        
+        // Per-player state should follow the online count, steady growth means a leak
+        sender.sendMessage(plugin.getColorManager().colorize(String.format(Locale.ROOT,
+            "&7state: &fonline %d&7, sessions %d, cooldowns %d, combat %d, countdowns %d, permissions %d, throttles %d, placements %d, sounds %d",
+            plugin.getServer().getOnlinePlayers().size(),
+            plugin.getInventoryManager().getActiveSessionsCount(),
+            plugin.getCooldownManager().getCooldownsCount(),
+            plugin.getCombatManager().getCombatPlayersCount(),
+            plugin.getCooldownDisplayManager().getActiveCountdownsCount(),
+            plugin.getPermissionManager().getSnapshotsCount(),
+            plugin.getInventoryListener().getThrottledPlayersCount(),
+            plugin.getInventoryManager().getPlacementActionsCount(),
+            plugin.getSoundManager().getTrackedPlayersCount())));
+    }
+    
+    private static String formatNanos(long nanos) {
+        if (nanos < 1_000L) {
+            return nanos + "ns";
+        }
+        if (nanos < 1_000_000L) {
+            return String.format(Locale.ROOT, "%.1fµs", nanos / 1_000.0);
+        }
+        if (nanos < 1_000_000_000L) {
+            return String.format(Locale.ROOT, "%.2fms", nanos / 1_000_000.0);
+        }
+        return String.format(Locale.ROOT, "%.2fs", nanos / 1_000_000_000.0);
+    }
+    
+    private static String formatBytes(long bytes) {
+        if (bytes < 1024L) {
+            return bytes + "B";
+        }
+        if (bytes < 1024L * 1024L) {
+            return String.format(Locale.ROOT, "%.1fKB", bytes / 1024.0);
+        }
+        return String.format(Locale.ROOT, "%.1fMB", bytes / (1024.0 * 1024.0));
+    }
+    
+    private static String formatRatio(double ratio) {
+        return ratio < 0 ? "-" : String.format(Locale.ROOT, "%.1f%%", ratio * 100.0);
+    }
 }
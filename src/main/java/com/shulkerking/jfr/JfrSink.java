@@ -0,0 +1,226 @@
+package com.shulkerking.jfr;
+
+import com.shulkerking.managers.FlightRecorderManager;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import org.bukkit.Material;
+import org.bukkit.block.Block;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+
+/**
+ * JFR implementation of the event sink.
+ * Loaded by FlightRecorderManager only when jdk.jfr is present, so nothing in
+ * the plugin links against jdk.jfr on JVMs without it.
+ */
+public class JfrSink implements FlightRecorderManager.Sink {
+
+    private final EventType openType;
+    private final EventType saveType;
+    private final EventType forcedCloseType;
+    private final EventType cooldownType;
+    private final EventType countdownType;
+    private final EventType placeType;
+
+    public JfrSink() {
+        FlightRecorder.register(OpenEvent.class);
+        FlightRecorder.register(SaveEvent.class);
+        FlightRecorder.register(ForcedCloseEvent.class);
+        FlightRecorder.register(CooldownDeniedEvent.class);
+        FlightRecorder.register(CountdownTickEvent.class);
+        FlightRecorder.register(ShiftPlaceEvent.class);
+        this.openType = EventType.getEventType(OpenEvent.class);
+        this.saveType = EventType.getEventType(SaveEvent.class);
+        this.forcedCloseType = EventType.getEventType(ForcedCloseEvent.class);
+        this.cooldownType = EventType.getEventType(CooldownDeniedEvent.class);
+        this.countdownType = EventType.getEventType(CountdownTickEvent.class);
+        this.placeType = EventType.getEventType(ShiftPlaceEvent.class);
+    }
+
+    @Override
+    public Object beginOpen() {
+        if (!openType.isEnabled()) {
+            return null;
+        }
+        OpenEvent event = new OpenEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void commitOpen(Object token, Player player, boolean mainHand, boolean opened) {
+        if (!(token instanceof OpenEvent)) {
+            return;
+        }
+        OpenEvent event = (OpenEvent) token;
+        event.end();
+        if (event.shouldCommit()) {
+            event.player = player.getName();
+            event.mainHand = mainHand;
+            event.opened = opened;
+            event.commit();
+        }
+    }
+
+    @Override
+    public Object beginSave() {
+        if (!saveType.isEnabled()) {
+            return null;
+        }
+        SaveEvent event = new SaveEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public boolean isSaveEnabled() {
+        return saveType.isEnabled();
+    }
+
+    @Override
+    public void commitSave(Object token, Player player, int changedSlots, boolean saved) {
+        if (!(token instanceof SaveEvent)) {
+            return;
+        }
+        SaveEvent event = (SaveEvent) token;
+        event.end();
+        if (event.shouldCommit()) {
+            event.player = player.getName();
+            event.changedSlots = changedSlots;
+            event.saved = saved;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void forcedClose(Player player, String reason) {
+        if (forcedCloseType.isEnabled()) {
+            ForcedCloseEvent event = new ForcedCloseEvent();
+            event.player = player.getName();
+            event.reason = reason;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void cooldownDenied(Player player, double remainingSeconds) {
+        if (cooldownType.isEnabled()) {
+            CooldownDeniedEvent event = new CooldownDeniedEvent();
+            event.player = player.getName();
+            event.remainingSeconds = remainingSeconds;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void countdownTick(Player player, double remainingSeconds) {
+        if (countdownType.isEnabled()) {
+            CountdownTickEvent event = new CountdownTickEvent();
+            event.player = player.getName();
+            event.remainingSeconds = remainingSeconds;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void shiftPlace(Player player, Block block, ItemStack[] contents) {
+        if (placeType.isEnabled()) {
+            ShiftPlaceEvent event = new ShiftPlaceEvent();
+            event.player = player.getName();
+            event.world = block.getWorld().getName();
+            event.x = block.getX();
+            event.y = block.getY();
+            event.z = block.getZ();
+            if (contents != null) {
+                for (ItemStack stack : contents) {
+                    if (stack != null && stack.getType() != Material.AIR) {
+                        event.items += stack.getAmount();
+                    }
+                }
+            }
+            event.commit();
+        }
+    }
+
+    @Name("shulkerking.SessionOpen")
+    @Label("Shulker Session Open")
+    @Category({"ShulkerKing", "Session"})
+    static class OpenEvent extends Event {
+        @Label("Player")
+        String player;
+        @Label("Main Hand")
+        boolean mainHand;
+        @Label("Opened")
+        boolean opened;
+    }
+
+    @Name("shulkerking.Save")
+    @Label("Shulker Save")
+    @Category({"ShulkerKing", "Session"})
+    static class SaveEvent extends Event {
+        @Label("Player")
+        String player;
+        @Label("Changed Slots")
+        @Description("Slots that differ from the contents stored in the item, -1 if the save failed")
+        int changedSlots;
+        @Label("Saved")
+        boolean saved;
+    }
+
+    @Name("shulkerking.ForcedClose")
+    @Label("Shulker Forced Close")
+    @Category({"ShulkerKing", "Session"})
+    @StackTrace(false)
+    static class ForcedCloseEvent extends Event {
+        @Label("Player")
+        String player;
+        @Label("Reason")
+        String reason;
+    }
+
+    @Name("shulkerking.CooldownDenied")
+    @Label("Shulker Cooldown Denied")
+    @Category({"ShulkerKing", "Cooldown"})
+    @StackTrace(false)
+    static class CooldownDeniedEvent extends Event {
+        @Label("Player")
+        String player;
+        @Label("Remaining Seconds")
+        double remainingSeconds;
+    }
+
+    @Name("shulkerking.CountdownTick")
+    @Label("Shulker Countdown Tick")
+    @Category({"ShulkerKing", "Cooldown"})
+    @StackTrace(false)
+    static class CountdownTickEvent extends Event {
+        @Label("Player")
+        String player;
+        @Label("Remaining Seconds")
+        double remainingSeconds;
+    }
+
+    @Name("shulkerking.ShiftPlace")
+    @Label("Shulker Shift-Place")
+    @Category({"ShulkerKing", "Placement"})
+    static class ShiftPlaceEvent extends Event {
+        @Label("Player")
+        String player;
+        @Label("World")
+        String world;
+        @Label("X")
+        int x;
+        @Label("Y")
+        int y;
+        @Label("Z")
+        int z;
+        @Label("Items")
+        int items;
+    }
+}
@@ -2,26 +2,38 @@ package com.shulkerking.listeners;
 
 import com.shulkerking.ShulkerKingPlugin;
 import com.shulkerking.holders.ShulkerInventoryHolder;
+import com.shulkerking.managers.MetricsManager;
 import com.shulkerking.managers.ShulkerInventoryManager;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.inventory.ClickType;
+import org.bukkit.event.inventory.InventoryAction;
 import org.bukkit.event.inventory.InventoryClickEvent;
 import org.bukkit.event.inventory.InventoryCloseEvent;
 import org.bukkit.event.inventory.InventoryDragEvent;
 import org.bukkit.event.inventory.InventoryMoveItemEvent;
 import org.bukkit.event.player.PlayerDropItemEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
 
+import java.util.EnumSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 
 public class InventoryListener implements Listener {
     
+    // Resolved once by name instead of name().contains() on every click
+    private static final Set<ClickType> DRAG_CLICKS = namesContaining(ClickType.class, "DRAG");
+    private static final Set<InventoryAction> MOVE_ACTIONS = namesContaining(InventoryAction.class, "MOVE");
+    private static final Set<InventoryAction> HOTBAR_ACTIONS = namesContaining(InventoryAction.class, "HOTBAR");
+    
     private final ShulkerKingPlugin plugin;
+    // Throttle state, each entry is only written from its player's thread
     private final Map<UUID, Long> lastSaveTime;
     private final Map<UUID, Long> lastClickTime;
     
@@ -32,7 +44,16 @@ public class InventoryListener implements Listener {
     }
     
     @EventHandler(priority = EventPriority.NORMAL)
+    @SuppressWarnings("try")
     public void onInventoryClick(InventoryClickEvent event) {
+        MetricsManager metrics = plugin.getMetricsManager();
+        try (MetricsManager.Scope scope = metrics.enter(MetricsManager.Probe.INVENTORY_CLICK, event.getWhoClicked())) {
+            plugin.getRecorderManager().recordClick(event);
+            handleInventoryClick(event);
+        }
+    }
+    
+    private void handleInventoryClick(InventoryClickEvent event) {
         if (!(event.getWhoClicked() instanceof Player)) {
             return;
         }
@@ -41,74 +62,20 @@ public class InventoryListener implements Listener {
         
         // МГНОВЕННАЯ защита от дупа - закрываем шалкер при любой попытке перемещения
         if (plugin.getInventoryManager().hasActiveSession(player)) {
-            ItemStack clickedItem = event.getCurrentItem();
-            ItemStack cursorItem = event.getCursor();
             ShulkerInventoryManager.ShulkerSession session = plugin.getInventoryManager().getSession(player);
-            
-            boolean shouldCloseShulker = false;
-            String reason = "";
-            
-            if (session != null) {
-                ItemStack currentShulker = session.isMainHand() ? 
-                    player.getInventory().getItemInMainHand() : 
-                    player.getInventory().getItemInOffHand();
-                
-                // 1. МГНОВЕННОЕ закрытие при hotkey действиях (цифры 1-9)
-                if (event.getHotbarButton() != -1) {
-                    shouldCloseShulker = true;
-                    reason = "hotkey movement detected";
-                }
-                
-                // 2. Любое взаимодействие с открытым шалкером в инвентаре игрока
-                if (!shouldCloseShulker && event.getClickedInventory() == player.getInventory()) {
-                    // Проверяем клик по открытому шалкеру
-                    if (clickedItem != null && plugin.getInventoryManager().isSameShulkerBox(clickedItem, currentShulker)) {
-                        shouldCloseShulker = true;
-                        reason = "clicked on open shulker";
-                    }
-                    
-                    // Проверяем перемещение курсором на открытый шалкер
-                    if (cursorItem != null && plugin.getInventoryManager().isSameShulkerBox(cursorItem, currentShulker)) {
-                        shouldCloseShulker = true;
-                        reason = "cursor item is open shulker";
-                    }
-                }
-                
-                // 3. Shift+click любого шалкера
-                if (!shouldCloseShulker && event.isShiftClick() && clickedItem != null && 
-                    plugin.getInventoryManager().isShulkerBox(clickedItem)) {
-                    shouldCloseShulker = true;
-                    reason = "shift-click shulker movement";
-                }
-                
-                // 4. Drag & Drop действия с шалкерами
-                if (!shouldCloseShulker && (event.getClick().name().contains("DRAG") || 
-                    event.getAction().name().contains("MOVE"))) {
-                    if ((clickedItem != null && plugin.getInventoryManager().isShulkerBox(clickedItem)) ||
-                        (cursorItem != null && plugin.getInventoryManager().isShulkerBox(cursorItem))) {
-                        shouldCloseShulker = true;
-                        reason = "drag/move shulker action";
-                    }
-                }
-                
-                // 5. Попытка поменять местами предметы в хотбаре
-                if (!shouldCloseShulker && event.getAction().name().contains("HOTBAR")) {
-                    shouldCloseShulker = true;
-                    reason = "hotbar swap action";
-                }
-            }
+            String reason = session != null ? classifyClick(event, player, session) : null;
             
             // МГНОВЕННОЕ закрытие без задержек
-            if (shouldCloseShulker) {
+            if (reason != null) {
                 event.setCancelled(true);
                 
                 // Закрываем шалкер немедленно
-                plugin.getInventoryManager().closeShulkerInventory(player);
+                plugin.getInventoryManager().closeShulkerInventory(player, reason);
                 
                 // Сообщение и звук
                 player.sendMessage(plugin.getMessage(player, "messages.shulker-closed-movement"));
                 plugin.getSoundManager().playBlockedSound(player);
-                plugin.debugLog("INSTANT CLOSE: " + reason + " for " + player.getName());
+                plugin.debugLog("INSTANT CLOSE: {} for {}", reason, player.getName());
                 
                 // Принудительно обновляем инвентарь
                 player.updateInventory();
@@ -125,26 +92,26 @@ public class InventoryListener implements Listener {
         
         // Проверяем, принадлежит ли holder этому игроку
         if (!holder.belongsTo(player)) {
-            plugin.debugLog("Holder doesn't belong to player: " + player.getName());
+            plugin.debugLog("Holder doesn't belong to player: {}", player.getName());
             event.setCancelled(true);
             return;
         }
         
         // Задержка в 1 тик для предотвращения спама кликов
         UUID playerId = player.getUniqueId();
-        long currentTime = System.currentTimeMillis();
+        long currentTime = plugin.getClockManager().currentMillis();
         Long lastClick = lastClickTime.get(playerId);
         
         if (lastClick != null && (currentTime - lastClick) < 50) { // 1 тик = ~50мс
             event.setCancelled(true);
-            plugin.debugLog("Click too fast, cancelled for " + player.getName());
+            plugin.debugLog("Click too fast, cancelled for {}", player.getName());
             return;
         }
         lastClickTime.put(playerId, currentTime);
         
         // Check if player has an active shulker session
         if (!plugin.getInventoryManager().hasActiveSession(player)) {
-            plugin.debugLog("No active session for " + player.getName());
+            plugin.debugLog("No active session for {}", player.getName());
             event.setCancelled(true);
             return;
         }
@@ -161,20 +128,23 @@ public class InventoryListener implements Listener {
         
         // If the shulker box is no longer in hand, close the inventory
         if (!plugin.getInventoryManager().isShulkerBox(currentItem)) {
-            plugin.getInventoryManager().closeShulkerInventory(player);
+            plugin.getInventoryManager().closeShulkerInventory(player, "item left hand");
             player.sendMessage(plugin.getMessage(player, "messages.item-changed"));
             event.setCancelled(true);
             return;
         }
         
+        // Journal the slots this click changes once it has been applied
+        plugin.getJournalManager().markDirty(player);
+        
         // Allow normal inventory interactions for the shulker GUI
         // Теперь проверяем через holder вместо title
         if (event.getInventory().getHolder() instanceof ShulkerInventoryHolder) {
             
-            // Throttle saves to prevent spam - max once per 100ms per player
+            // Throttle saves to prevent spam - max once per 100ms per player, less often under load
             Long lastSave = lastSaveTime.get(playerId);
             
-            if (lastSave == null || (currentTime - lastSave) > 100) {
+            if (lastSave == null || (currentTime - lastSave) > plugin.getLoadManager().getSaveThrottleMillis(100L)) {
                 lastSaveTime.put(playerId, currentTime);
                 
                 // Save contents immediately (synchronous to prevent race conditions)
@@ -185,6 +155,8 @@ public class InventoryListener implements Listener {
                         player, currentSession, event.getInventory()
                     );
                 }
+            } else {
+                plugin.getMetricsManager().increment(MetricsManager.Counter.SAVE_THROTTLED);
             }
         }
         
@@ -195,9 +167,10 @@ public class InventoryListener implements Listener {
         // Check if placing an item from cursor into shulker
         if (cursorItem != null && event.getInventory().getHolder() instanceof ShulkerInventoryHolder) {
             
-            // Check item blacklist
-            if (plugin.getItemBlacklistManager().isBlacklisted(cursorItem)) {
-                plugin.getItemBlacklistManager().handleBlacklistedItem(player, cursorItem, event);
+            // Check item blacklist (only when the cursor item goes into the shulker)
+            if (event.getClickedInventory() == event.getInventory() &&
+                plugin.getItemBlacklistManager().isBlacklisted(cursorItem)) {
+                plugin.getItemBlacklistManager().handleBlacklistedItem(player, cursorItem, event, true);
                 return;
             }
             
@@ -206,11 +179,18 @@ public class InventoryListener implements Listener {
                 event.setCancelled(true);
                 player.sendMessage(plugin.getMessage(player, "messages.no-nesting"));
                 plugin.getSoundManager().playBlockedSound(player);
-                plugin.debugLog("Prevented shulker box nesting for " + player.getName());
+                plugin.debugLog("Prevented shulker box nesting for {}", player.getName());
                 return;
             }
         }
         
+        // Check shift-click of a blacklisted item from player inventory into the shulker
+        if (event.isShiftClick() && clickedItem != null && event.getClickedInventory() == player.getInventory() &&
+            plugin.getItemBlacklistManager().isBlacklisted(clickedItem)) {
+            plugin.getItemBlacklistManager().handleBlacklistedItem(player, clickedItem, event, false);
+            return;
+        }
+        
         // Check if moving an item that's already in the shulker
         if (clickedItem != null && event.getInventory().getHolder() instanceof ShulkerInventoryHolder) {
             
@@ -218,13 +198,62 @@ public class InventoryListener implements Listener {
                 event.setCancelled(true);
                 player.sendMessage(plugin.getMessage(player, "messages.no-nesting"));
                 plugin.getSoundManager().playBlockedSound(player);
-                plugin.debugLog("Prevented shulker box nesting for " + player.getName());
+                plugin.debugLog("Prevented shulker box nesting for {}", player.getName());
+            }
+        }
+    }
+    
+    /**
+     * Anti-dupe rules for a click while the player has a shulker open
+     * @return why the open shulker has to be closed, null to let the click through
+     */
+    String classifyClick(InventoryClickEvent event, Player player, ShulkerInventoryManager.ShulkerSession session) {
+        ItemStack clickedItem = event.getCurrentItem();
+        ItemStack cursorItem = event.getCursor();
+        ItemStack currentShulker = session.isMainHand() ? 
+            player.getInventory().getItemInMainHand() : 
+            player.getInventory().getItemInOffHand();
+        
+        // 1. МГНОВЕННОЕ закрытие при hotkey действиях (цифры 1-9)
+        if (event.getHotbarButton() != -1) {
+            return "hotkey movement detected";
+        }
+        
+        // 2. Любое взаимодействие с открытым шалкером в инвентаре игрока
+        if (event.getClickedInventory() == player.getInventory()) {
+            // Проверяем перемещение курсором на открытый шалкер
+            if (cursorItem != null && plugin.getInventoryManager().isSameShulkerBox(cursorItem, currentShulker)) {
+                return "cursor item is open shulker";
             }
+            
+            // Проверяем клик по открытому шалкеру
+            if (clickedItem != null && plugin.getInventoryManager().isSameShulkerBox(clickedItem, currentShulker)) {
+                return "clicked on open shulker";
+            }
+        }
+        
+        // 3. Shift+click любого шалкера
+        if (event.isShiftClick() && clickedItem != null && plugin.getInventoryManager().isShulkerBox(clickedItem)) {
+            return "shift-click shulker movement";
+        }
+        
+        // 4. Drag & Drop действия с шалкерами
+        if ((DRAG_CLICKS.contains(event.getClick()) || MOVE_ACTIONS.contains(event.getAction())) &&
+            ((clickedItem != null && plugin.getInventoryManager().isShulkerBox(clickedItem)) ||
+             (cursorItem != null && plugin.getInventoryManager().isShulkerBox(cursorItem)))) {
+            return "drag/move shulker action";
+        }
+        
+        // 5. Попытка поменять местами предметы в хотбаре
+        if (HOTBAR_ACTIONS.contains(event.getAction())) {
+            return "hotbar swap action";
         }
+        return null;
     }
     
     @EventHandler(priority = EventPriority.NORMAL)
     public void onInventoryClose(InventoryCloseEvent event) {
+        plugin.getRecorderManager().recordClose(event);
         if (!(event.getPlayer() instanceof Player)) {
             return;
         }
@@ -237,7 +266,7 @@ public class InventoryListener implements Listener {
             
             // Проверяем, принадлежит ли holder этому игроку
             if (!holder.belongsTo(player)) {
-                plugin.debugLog("Close event: holder doesn't belong to player " + player.getName());
+                plugin.debugLog("Close event: holder doesn't belong to player {}", player.getName());
                 return;
             }
             
@@ -258,7 +287,16 @@ public class InventoryListener implements Listener {
     }
     
     @EventHandler(priority = EventPriority.HIGHEST)
+    @SuppressWarnings("try")
     public void onInventoryDrag(InventoryDragEvent event) {
+        MetricsManager metrics = plugin.getMetricsManager();
+        try (MetricsManager.Scope scope = metrics.enter(MetricsManager.Probe.INVENTORY_DRAG, event.getWhoClicked())) {
+            plugin.getRecorderManager().recordDrag(event);
+            handleInventoryDrag(event);
+        }
+    }
+    
+    private void handleInventoryDrag(InventoryDragEvent event) {
         if (!(event.getWhoClicked() instanceof Player)) {
             return;
         }
@@ -282,7 +320,7 @@ public class InventoryListener implements Listener {
         
         // If the shulker box is no longer in hand, close the inventory
         if (!plugin.getInventoryManager().isShulkerBox(currentItem)) {
-            plugin.getInventoryManager().closeShulkerInventory(player);
+            plugin.getInventoryManager().closeShulkerInventory(player, "item left hand");
             player.sendMessage(plugin.getMessage(player, "messages.item-changed"));
             event.setCancelled(true);
             return;
@@ -295,11 +333,11 @@ public class InventoryListener implements Listener {
             
             // Check item blacklist
             if (draggedItem != null && plugin.getItemBlacklistManager().isBlacklisted(draggedItem)) {
-                event.setCancelled(true);
-                player.sendMessage(plugin.getMessage(player, "messages.blacklisted-item"));
-                plugin.getSoundManager().playBlockedSound(player);
-                plugin.debugLog("Prevented blacklisted item drag for " + player.getName());
-                return;
+                plugin.getItemBlacklistManager().handleBlacklistedItem(player, draggedItem, event);
+                plugin.debugLog("Blacklisted item drag for {}", player.getName());
+                if (event.isCancelled()) {
+                    return;
+                }
             }
             
             // Prevent shulker box nesting
@@ -307,7 +345,7 @@ public class InventoryListener implements Listener {
                 event.setCancelled(true);
                 player.sendMessage(plugin.getMessage(player, "messages.no-nesting"));
                 plugin.getSoundManager().playBlockedSound(player);
-                plugin.debugLog("Prevented shulker box nesting via drag for " + player.getName());
+                plugin.debugLog("Prevented shulker box nesting via drag for {}", player.getName());
                 return;
             }
             
@@ -319,11 +357,20 @@ public class InventoryListener implements Listener {
                     player, currentSession, event.getInventory()
                 );
             }
+            plugin.getJournalManager().markDirty(player);
         }
     }
     
     @EventHandler(priority = EventPriority.HIGHEST)
+    @SuppressWarnings("try")
     public void onInventoryMoveItem(InventoryMoveItemEvent event) {
+        MetricsManager metrics = plugin.getMetricsManager();
+        try (MetricsManager.Scope scope = metrics.enter(MetricsManager.Probe.INVENTORY_MOVE_ITEM, null)) {
+            handleInventoryMoveItem(event);
+        }
+    }
+    
+    private void handleInventoryMoveItem(InventoryMoveItemEvent event) {
         // Prevent hoppers from moving items to/from shulker inventories
         if (event.getDestination().getSize() == 27 && 
             event.getDestination().getViewers().size() > 0) {
@@ -335,7 +382,7 @@ public class InventoryListener implements Listener {
                         event.getDestination().equals(player.getOpenInventory().getTopInventory())) {
                         
                         event.setCancelled(true);
-                        plugin.debugLog("Prevented hopper interaction with active shulker session for " + player.getName());
+                        plugin.debugLog("Prevented hopper interaction with active shulker session for {}", player.getName());
                         return;
                     }
                 }
@@ -353,7 +400,7 @@ public class InventoryListener implements Listener {
                         event.getSource().equals(player.getOpenInventory().getTopInventory())) {
                         
                         event.setCancelled(true);
-                        plugin.debugLog("Prevented hopper interaction with active shulker session for " + player.getName());
+                        plugin.debugLog("Prevented hopper interaction with active shulker session for {}", player.getName());
                         return;
                     }
                 }
@@ -367,6 +414,7 @@ public class InventoryListener implements Listener {
      */
     @EventHandler(priority = EventPriority.HIGHEST)
     public void onPlayerDropItem(PlayerDropItemEvent event) {
+        plugin.getRecorderManager().recordDrop(event);
         Player player = event.getPlayer();
         
         // Проверяем, есть ли у игрока активная сессия шалкера
@@ -375,7 +423,7 @@ public class InventoryListener implements Listener {
         }
         
         // КРИТИЧЕСКОЕ ИСПРАВЛЕНИЕ: Сначала принудительно сохраняем содержимое шалкера
-        plugin.debugLog("[ANTI-DUPE] Player " + player.getName() + " tried to drop item while shulker open - forcing save");
+        plugin.debugLog("[ANTI-DUPE] Player {} tried to drop item while shulker open - forcing save", player.getName());
         
         // Проверяем, открыт ли шалкер-инвентарь
         if (player.getOpenInventory() != null && 
@@ -388,10 +436,18 @@ public class InventoryListener implements Listener {
                 Inventory openInventory = player.getOpenInventory().getTopInventory();
                 
                 if (session != null && openInventory != null) {
-                    plugin.getInventoryManager().saveShulkerContents(player, session, openInventory);
-                    plugin.debugLog("[ANTI-DUPE] Successfully saved shulker contents before blocking drop for " + player.getName());
+                    // Выброшенный шалкер сессии уже не в руке, сохраняем в него самого,
+                    // отмена вернет именно этот стак в инвентарь. Выбрасывается только
+                    // основная рука, шалкер сессии во второй руке остается на месте
+                    ItemStack dropped = event.getItemDrop().getItemStack();
+                    ShulkerInventoryManager inventories = plugin.getInventoryManager();
+                    boolean thrownSession = session.isMainHand() &&
+                        !inventories.isSameShulkerBox(player.getInventory().getItemInMainHand(), session.getOriginalItem()) &&
+                        inventories.isSameShulkerBox(dropped, session.getOriginalItem());
+                    inventories.saveShulkerContents(player, session, openInventory, thrownSession ? dropped : null);
+                    plugin.debugLog("[ANTI-DUPE] Successfully saved shulker contents before blocking drop for {}", player.getName());
                 } else {
-                    plugin.debugLog("[ANTI-DUPE] WARNING: Could not get session or inventory for " + player.getName());
+                    plugin.debugLog("[ANTI-DUPE] WARNING: Could not get session or inventory for {}", player.getName());
                 }
             } catch (Exception e) {
                 plugin.getLogger().warning("[ANTI-DUPE] Failed to save shulker contents for " + player.getName() + ": " + e.getMessage());
@@ -401,12 +457,12 @@ public class InventoryListener implements Listener {
             event.setCancelled(true);
             player.sendMessage(plugin.getMessage(player, "messages.no-drop-while-shulker-open"));
             plugin.getSoundManager().playBlockedSound(player);
-            plugin.debugLog("[ANTI-DUPE] Prevented item drop while shulker open for " + player.getName());
+            plugin.debugLog("[ANTI-DUPE] Prevented item drop while shulker open for {}", player.getName());
             
             // ДОПОЛНИТЕЛЬНАЯ ЗАЩИТА: Обновляем предмет в руке игрока
-            plugin.getServer().getScheduler().runTaskLater(plugin, () -> {
+            plugin.getSchedulerManager().runForEntityLater(player, () -> {
                 player.updateInventory();
-                plugin.debugLog("[ANTI-DUPE] Updated inventory for " + player.getName() + " after blocking drop");
+                plugin.debugLog("[ANTI-DUPE] Updated inventory for {} after blocking drop", player.getName());
             }, 1L);
         }
     }
@@ -427,12 +483,37 @@ public class InventoryListener implements Listener {
         
         // Если у игрока была активная сессия с этим шалкером
         if (plugin.getInventoryManager().hasActiveSession(player)) {
-            plugin.debugLog("[ANTI-DUPE] Player " + player.getName() + " dropped shulker box while having active session");
+            plugin.debugLog("[ANTI-DUPE] Player {} dropped shulker box while having active session", player.getName());
             
             // Закрываем сессию и сохраняем содержимое
-            plugin.getInventoryManager().closeShulkerInventory(player);
+            plugin.getInventoryManager().closeShulkerInventory(player, "shulker dropped");
             player.sendMessage(plugin.getMessage(player, "messages.item-changed"));
-            plugin.debugLog("[ANTI-DUPE] Closed shulker session due to shulker box drop for " + player.getName());
+            plugin.debugLog("[ANTI-DUPE] Closed shulker session due to shulker box drop for {}", player.getName());
+        }
+    }
+    
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        // Drop throttle state so the maps do not grow with every player that ever joined
+        UUID playerId = event.getPlayer().getUniqueId();
+        lastSaveTime.remove(playerId);
+        lastClickTime.remove(playerId);
+    }
+    
+    /**
+     * Number of players with click or save throttle state
+     */
+    public int getThrottledPlayersCount() {
+        return Math.max(lastSaveTime.size(), lastClickTime.size());
+    }
+    
+    private static <E extends Enum<E>> Set<E> namesContaining(Class<E> type, String part) {
+        Set<E> values = EnumSet.noneOf(type);
+        for (E value : type.getEnumConstants()) {
+            if (value.name().contains(part)) {
+                values.add(value);
+            }
         }
+        return values;
     }
 }
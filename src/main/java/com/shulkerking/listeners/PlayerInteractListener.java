@@ -1,6 +1,9 @@
 package com.shulkerking.listeners;
 
 import com.shulkerking.ShulkerKingPlugin;
+import com.shulkerking.managers.MetricsManager;
+import com.shulkerking.managers.PermissionManager;
+import com.shulkerking.managers.WorldManager;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
@@ -19,7 +22,16 @@ public class PlayerInteractListener implements Listener {
     }
     
     @EventHandler(priority = EventPriority.NORMAL)
+    @SuppressWarnings("try")
     public void onPlayerInteract(PlayerInteractEvent event) {
+        MetricsManager metrics = plugin.getMetricsManager();
+        try (MetricsManager.Scope scope = metrics.enter(MetricsManager.Probe.INTERACT_OPEN, event.getPlayer())) {
+            plugin.getRecorderManager().recordInteract(event);
+            handlePlayerInteract(event);
+        }
+    }
+    
+    private void handlePlayerInteract(PlayerInteractEvent event) {
         if (event.getAction() != Action.RIGHT_CLICK_AIR && event.getAction() != Action.RIGHT_CLICK_BLOCK) {
             return;
         }
@@ -33,7 +45,8 @@ public class PlayerInteractListener implements Listener {
         }
         
         // Check if world is allowed
-        if (!plugin.getWorldManager().isWorldAllowed(player)) {
+        WorldManager.WorldPolicy policy = plugin.getWorldManager().getPolicy(player);
+        if (!policy.isAllowed()) {
             player.sendMessage(plugin.getWorldManager().getBlacklistMessage());
             plugin.getSoundManager().playBlockedSound(player);
             event.setCancelled(true);
@@ -42,28 +55,29 @@ public class PlayerInteractListener implements Listener {
         
         // Check hand permissions
         if (event.getHand() == EquipmentSlot.OFF_HAND) {
-            if (!plugin.getConfig().getBoolean("settings.offhand", true)) {
+            if (!policy.isOffhandAllowed()) {
                 player.sendMessage(plugin.getMessage(player, "messages.offhand-disabled"));
                 plugin.getSoundManager().playBlockedSound(player);
                 event.setCancelled(true);
                 return;
             }
         } else {
-            if (!plugin.getConfig().getBoolean("settings.main-hand", true)) {
+            if (!policy.isMainHandAllowed()) {
                 event.setCancelled(true);
                 return;
             }
         }
         
         // Check permissions
-        if (!player.hasPermission("shulkerking.open")) {
+        PermissionManager.PermissionSnapshot permissions = plugin.getPermissionManager().getSnapshot(player);
+        if (!permissions.has(PermissionManager.Node.OPEN)) {
             player.sendMessage(plugin.getMessage(player, "messages.no-permission-open"));
             plugin.getSoundManager().playBlockedSound(player);
             event.setCancelled(true);
             return;
         }
 
-        if (event.getHand() == EquipmentSlot.OFF_HAND && !player.hasPermission("shulkerking.offhand")) {
+        if (event.getHand() == EquipmentSlot.OFF_HAND && !permissions.has(PermissionManager.Node.OFFHAND)) {
             player.sendMessage(plugin.getMessage(player, "messages.no-permission-offhand"));
             plugin.getSoundManager().playBlockedSound(player);
             event.setCancelled(true);
@@ -73,6 +87,8 @@ public class PlayerInteractListener implements Listener {
         // Check cooldown for specific item
         if (plugin.getCooldownManager().hasCooldown(player, item)) {
             double remaining = plugin.getCooldownManager().getRemainingCooldown(player, item);
+            plugin.getFlightRecorderManager().events().cooldownDenied(player, remaining);
+            plugin.getMetricsManager().increment(MetricsManager.Counter.COOLDOWN_DENIED);
             String cooldownMsg = plugin.getMessage(player, "messages.cooldown-active")
                 .replace("{time}", String.format("%.1f", remaining));
             player.sendMessage(cooldownMsg);
@@ -82,8 +98,7 @@ public class PlayerInteractListener implements Listener {
         }
         
         // Check if player is in combat
-        if (plugin.getConfig().getBoolean("settings.pvp-block", false) && 
-            plugin.getCombatManager().isInCombat(player)) {
+        if (policy.isPvpBlock() && plugin.getCombatManager().isInCombat(player)) {
             player.sendMessage(plugin.getMessage(player, "messages.in-combat"));
             plugin.getSoundManager().playBlockedSound(player);
             event.setCancelled(true);
@@ -101,7 +116,7 @@ public class PlayerInteractListener implements Listener {
         plugin.getCooldownManager().setCooldown(player, item);
 
         // Start visual countdown
-        if (plugin.getConfig().getBoolean("cooldown.visual-display.enabled", true)) {
+        if (plugin.isVisualCooldownEnabled()) {
             String itemIdentifier = plugin.getCooldownManager().getItemIdentifier(item);
             plugin.getCooldownDisplayManager().startVisualCountdown(player, itemIdentifier);
         }
@@ -1,6 +1,12 @@
 package com.shulkerking.listeners;
 
 import com.shulkerking.ShulkerKingPlugin;
+import com.shulkerking.managers.AuditManager;
+import com.shulkerking.managers.MetricsManager;
+import com.shulkerking.managers.PermissionManager;
+import com.shulkerking.managers.SlowEventManager;
+import com.shulkerking.managers.WorkBudgetManager;
+import com.shulkerking.managers.WorldManager;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
@@ -12,6 +18,8 @@ import org.bukkit.event.player.PlayerDropItemEvent;
 import org.bukkit.event.player.PlayerInteractEvent;
 import org.bukkit.event.player.PlayerItemHeldEvent;
 import org.bukkit.event.entity.EntityPickupItemEvent;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.event.player.PlayerSwapHandItemsEvent;
 import org.bukkit.event.block.Action;
@@ -29,7 +37,16 @@ public class PlayerListener implements Listener {
     }
     
     @EventHandler(priority = EventPriority.MONITOR)
+    @SuppressWarnings("try")
     public void onPlayerDamage(EntityDamageEvent event) {
+        MetricsManager metrics = plugin.getMetricsManager();
+        try (MetricsManager.Scope scope = metrics.enter(MetricsManager.Probe.DAMAGE, event.getEntity())) {
+            plugin.getRecorderManager().recordDamage(event);
+            handlePlayerDamage(event);
+        }
+    }
+    
+    private void handlePlayerDamage(EntityDamageEvent event) {
         if (!(event.getEntity() instanceof Player)) {
             return;
         }
@@ -38,23 +55,31 @@ public class PlayerListener implements Listener {
         plugin.getCombatManager().markInCombat(player);
         
         // Close shulker inventory if player takes damage and PvP blocking is enabled
-        if (plugin.getConfig().getBoolean("settings.pvp-block", false) && 
+        if (plugin.getWorldManager().getPolicy(player).isPvpBlock() && 
             plugin.getInventoryManager().hasActiveSession(player)) {
-            plugin.getInventoryManager().closeShulkerInventory(player);
+            plugin.getInventoryManager().closeShulkerInventory(player, "damage");
             player.sendMessage(plugin.getMessage(player, "messages.in-combat"));
         }
     }
     
     @EventHandler(priority = EventPriority.MONITOR)
+    @SuppressWarnings("try")
     public void onPlayerDamageByEntity(EntityDamageByEntityEvent event) {
+        MetricsManager metrics = plugin.getMetricsManager();
+        try (MetricsManager.Scope scope = metrics.enter(MetricsManager.Probe.DAMAGE_BY_ENTITY, event.getEntity())) {
+            handlePlayerDamageByEntity(event);
+        }
+    }
+    
+    private void handlePlayerDamageByEntity(EntityDamageByEntityEvent event) {
         // Mark both attacker and victim in combat
         if (event.getDamager() instanceof Player) {
             Player attacker = (Player) event.getDamager();
             plugin.getCombatManager().markInCombat(attacker);
             
-            if (plugin.getConfig().getBoolean("settings.pvp-block", false) && 
+            if (plugin.getWorldManager().getPolicy(attacker).isPvpBlock() && 
                 plugin.getInventoryManager().hasActiveSession(attacker)) {
-                plugin.getInventoryManager().closeShulkerInventory(attacker);
+                plugin.getInventoryManager().closeShulkerInventory(attacker, "combat");
                 attacker.sendMessage(plugin.getMessage(attacker, "messages.in-combat"));
             }
         }
@@ -63,9 +88,9 @@ public class PlayerListener implements Listener {
             Player victim = (Player) event.getEntity();
             plugin.getCombatManager().markInCombat(victim);
             
-            if (plugin.getConfig().getBoolean("settings.pvp-block", false) && 
+            if (plugin.getWorldManager().getPolicy(victim).isPvpBlock() && 
                 plugin.getInventoryManager().hasActiveSession(victim)) {
-                plugin.getInventoryManager().closeShulkerInventory(victim);
+                plugin.getInventoryManager().closeShulkerInventory(victim, "combat");
                 victim.sendMessage(plugin.getMessage(victim, "messages.in-combat"));
             }
         }
@@ -80,8 +105,8 @@ public class PlayerListener implements Listener {
         
         // Close any active shulker session to prevent data loss
         if (plugin.getInventoryManager().hasActiveSession(player)) {
-            plugin.getInventoryManager().closeShulkerInventory(player);
-            plugin.debugLog("Closed shulker inventory for " + player.getName() + " due to death");
+            plugin.getInventoryManager().closeShulkerInventory(player, "death");
+            plugin.debugLog("Closed shulker inventory for {} due to death", player.getName());
         }
         
         // Remove from combat
@@ -94,16 +119,38 @@ public class PlayerListener implements Listener {
         
         // Close any active shulker session to prevent data loss
         if (plugin.getInventoryManager().hasActiveSession(player)) {
-            plugin.getInventoryManager().closeShulkerInventory(player);
-            plugin.debugLog("Closed shulker inventory for " + player.getName() + " due to quit");
+            plugin.getInventoryManager().closeShulkerInventory(player, "quit");
+            plugin.debugLog("Closed shulker inventory for {} due to quit", player.getName());
         }
         
         // Remove from combat
         plugin.getCombatManager().removeCombat(player);
+        plugin.getSoundManager().clearPlayer(player.getUniqueId());
+        plugin.getPermissionManager().invalidate(player.getUniqueId());
+        plugin.getInventoryManager().clearPlacementAction(player.getUniqueId());
+    }
+    
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        plugin.getPermissionManager().refresh(event.getPlayer());
+    }
+    
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerChangedWorld(PlayerChangedWorldEvent event) {
+        // Permissions and cooldown overrides may be per world
+        plugin.getPermissionManager().refresh(event.getPlayer());
     }
     
     @EventHandler(priority = EventPriority.HIGH)
+    @SuppressWarnings("try")
     public void onPlayerInteract(PlayerInteractEvent event) {
+        MetricsManager metrics = plugin.getMetricsManager();
+        try (MetricsManager.Scope scope = metrics.enter(MetricsManager.Probe.INTERACT_PLACE, event.getPlayer())) {
+            handlePlayerInteract(event);
+        }
+    }
+    
+    private void handlePlayerInteract(PlayerInteractEvent event) {
         Player player = event.getPlayer();
         ItemStack item = event.getItem();
         
@@ -114,13 +161,17 @@ public class PlayerListener implements Listener {
         
         // Check if shift+right-click and placement is enabled
         if (!player.isSneaking() || 
-            (event.getAction() != Action.RIGHT_CLICK_BLOCK && event.getAction() != Action.RIGHT_CLICK_AIR) ||
-            !plugin.getConfig().getBoolean("settings.shift-place", true)) {
+            (event.getAction() != Action.RIGHT_CLICK_BLOCK && event.getAction() != Action.RIGHT_CLICK_AIR)) {
+            return;
+        }
+        
+        WorldManager.WorldPolicy policy = plugin.getWorldManager().getPolicy(player);
+        if (!policy.isShiftPlaceAllowed()) {
             return;
         }
         
         // Check permissions
-        if (!player.hasPermission("shulkerking.place")) {
+        if (!plugin.getPermissionManager().has(player, PermissionManager.Node.PLACE)) {
             player.sendMessage(plugin.getMessage(player, "messages.no-permission-place"));
             event.setCancelled(true);
             return;
@@ -135,6 +186,7 @@ public class PlayerListener implements Listener {
             targetBlock = clickedBlock.getRelative(event.getBlockFace());
         } else if (event.getAction() == Action.RIGHT_CLICK_AIR) {
             // Use raytracing to find target block more accurately
+            long raytrace = plugin.getSlowEventManager().startPhase();
             org.bukkit.util.RayTraceResult result = player.getWorld().rayTraceBlocks(
                 player.getEyeLocation(), 
                 player.getEyeLocation().getDirection(), 
@@ -142,6 +194,7 @@ public class PlayerListener implements Listener {
                 org.bukkit.FluidCollisionMode.NEVER, 
                 true
             );
+            plugin.getSlowEventManager().endPhase(SlowEventManager.Phase.RAYTRACE, raytrace);
             
             if (result != null && result.getHitBlock() != null) {
                 // Place on the hit block's face
@@ -170,22 +223,20 @@ public class PlayerListener implements Listener {
         }
         
         // Check world blacklist
-        if (plugin.getConfig().getBoolean("world-blacklist.enabled", false)) {
-            if (plugin.getConfig().getStringList("world-blacklist.worlds").contains(player.getWorld().getName())) {
-                player.sendMessage(plugin.getMessage(player, "messages.world-blacklisted"));
-                event.setCancelled(true);
-                return;
-            }
+        if (!policy.isAllowed()) {
+            player.sendMessage(plugin.getMessage(player, "messages.world-blacklisted"));
+            event.setCancelled(true);
+            return;
         }
         
         // ИСПРАВЛЕНИЕ: Если у игрока есть активная сессия с этим шалкером, сначала сохраняем содержимое
-        plugin.debugLog("[PLACE] Checking for active session for " + player.getName());
+        plugin.debugLog("[PLACE] Checking for active session for {}", player.getName());
         if (plugin.getInventoryManager().hasActiveSession(player)) {
             plugin.debugLog("[PLACE] Found active session, closing and saving before placement");
-            plugin.getInventoryManager().closeShulkerInventory(player);
-            plugin.debugLog("[PLACE] Closed active shulker session before placement for " + player.getName());
+            plugin.getInventoryManager().closeShulkerInventory(player, "shift-place");
+            plugin.debugLog("[PLACE] Closed active shulker session before placement for {}", player.getName());
         } else {
-            plugin.debugLog("[PLACE] No active session found for " + player.getName());
+            plugin.debugLog("[PLACE] No active session found for {}", player.getName());
         }
         
         // Place the shulker box
@@ -193,6 +244,7 @@ public class PlayerListener implements Listener {
         targetBlock.setType(shulkerType);
         
         // Copy the shulker box data to the placed block
+        org.bukkit.inventory.ItemStack[] placedContents = null;
         if (targetBlock.getState() instanceof org.bukkit.block.ShulkerBox) {
             org.bukkit.block.ShulkerBox placedShulker = (org.bukkit.block.ShulkerBox) targetBlock.getState();
             
@@ -200,16 +252,19 @@ public class PlayerListener implements Listener {
                 org.bukkit.inventory.meta.BlockStateMeta meta = (org.bukkit.inventory.meta.BlockStateMeta) item.getItemMeta();
                 
                 // Получаем актуальное содержимое из BlockState
+                long decode = plugin.getSlowEventManager().startPhase();
                 org.bukkit.block.BlockState blockState = meta.getBlockState();
-                plugin.debugLog("[PLACE] Got BlockState: " + blockState.getClass().getSimpleName());
+                plugin.getSlowEventManager().endPhase(SlowEventManager.Phase.DECODE, decode);
+                plugin.debugLog(() -> "[PLACE] Got BlockState: " + blockState.getClass().getSimpleName());
                 
                 if (blockState instanceof org.bukkit.block.ShulkerBox) {
                     org.bukkit.block.ShulkerBox itemShulker = (org.bukkit.block.ShulkerBox) blockState;
-                    plugin.debugLog("[PLACE] Got ShulkerBox from item: " + itemShulker.getClass().getSimpleName());
+                    plugin.debugLog(() -> "[PLACE] Got ShulkerBox from item: " + itemShulker.getClass().getSimpleName());
                     
                     // Получаем содержимое инвентаря
                     org.bukkit.inventory.ItemStack[] contents = itemShulker.getInventory().getContents();
-                    plugin.debugLog("[PLACE] Got contents array with " + contents.length + " slots");
+                    placedContents = contents;
+                    plugin.debugLog("[PLACE] Got contents array with {} slots", contents.length);
                     
                     // Подсчитываем предметы для детального логирования
                     int itemCount = 0;
@@ -218,14 +273,16 @@ public class PlayerListener implements Listener {
                         if (stack != null && stack.getType() != Material.AIR) {
                             itemCount += stack.getAmount();
                             nonEmptySlots++;
-                            plugin.debugLog("[PLACE] Slot content: " + stack.getType() + " x" + stack.getAmount());
+                            if (plugin.isDebugEnabled()) {
+                                plugin.debugLog("[PLACE] Slot content: {} x{}", stack.getType(), stack.getAmount());
+                            }
                         }
                     }
-                    plugin.debugLog("[PLACE] Total items in shulker: " + itemCount + " items in " + nonEmptySlots + " non-empty slots");
+                    plugin.debugLog("[PLACE] Total items in shulker: {} items in {} non-empty slots", itemCount, nonEmptySlots);
                     
                     if (itemCount > 0) {
                         // Копируем содержимое в размещенный шалкер
-                        plugin.debugLog("[PLACE] Copying " + itemCount + " items to placed shulker");
+                        plugin.debugLog("[PLACE] Copying {} items to placed shulker", itemCount);
                         
                         // Альтернативный способ: копируем по одному предмету
                         org.bukkit.inventory.Inventory placedInventory = placedShulker.getInventory();
@@ -234,30 +291,36 @@ public class PlayerListener implements Listener {
                         for (int i = 0; i < contents.length && i < placedInventory.getSize(); i++) {
                             if (contents[i] != null && contents[i].getType() != Material.AIR) {
                                 placedInventory.setItem(i, contents[i].clone());
-                                plugin.debugLog("[PLACE] Copied slot " + i + ": " + contents[i].getType() + " x" + contents[i].getAmount());
+                                if (plugin.isDebugEnabled()) {
+                                    plugin.debugLog("[PLACE] Copied slot {}: {} x{}", i, contents[i].getType(), contents[i].getAmount());
+                                }
                             }
                         }
                         
-                        // Проверяем что содержимое действительно скопировалось
-                        int copiedCount = 0;
-                        for (org.bukkit.inventory.ItemStack stack : placedShulker.getInventory().getContents()) {
-                            if (stack != null && stack.getType() != Material.AIR) {
-                                copiedCount += stack.getAmount();
+                        // Проверяем что содержимое действительно скопировалось (пропускаем при нагрузке)
+                        if (!plugin.getLoadManager().isDegraded()) {
+                            long verify = plugin.getSlowEventManager().startPhase();
+                            int copiedCount = 0;
+                            for (org.bukkit.inventory.ItemStack stack : placedShulker.getInventory().getContents()) {
+                                if (stack != null && stack.getType() != Material.AIR) {
+                                    copiedCount += stack.getAmount();
+                                }
                             }
-                        }
-                        plugin.debugLog("[PLACE] Verification: " + copiedCount + " items copied to placed shulker");
+                            plugin.getSlowEventManager().endPhase(SlowEventManager.Phase.VERIFY, verify);
+                            plugin.debugLog("[PLACE] Verification: {} items copied to placed shulker", copiedCount);
                         
-                        if (copiedCount != itemCount) {
-                            plugin.getLogger().warning("[PLACE] WARNING: Item count mismatch! Original: " + itemCount + ", Copied: " + copiedCount);
+                            if (copiedCount != itemCount) {
+                                plugin.getLogger().warning("[PLACE] WARNING: Item count mismatch! Original: " + itemCount + ", Copied: " + copiedCount);
+                            }
                         }
                     } else {
-                        plugin.debugLog("[PLACE] Shulker box is empty, no items to copy for " + player.getName());
+                        plugin.debugLog("[PLACE] Shulker box is empty, no items to copy for {}", player.getName());
                     }
                     
                     // Копируем кастомное имя если есть
                     if (meta.hasDisplayName()) {
                         placedShulker.setCustomName(meta.getDisplayName());
-                        plugin.debugLog("Set custom name: " + meta.getDisplayName());
+                        plugin.debugLog("Set custom name: {}", meta.getDisplayName());
                     }
                     
                     // Создаем final копии для использования в лямбда
@@ -266,7 +329,7 @@ public class PlayerListener implements Listener {
                     final org.bukkit.inventory.ItemStack[] finalContents = contents.clone();
 
                     // НОВЫЙ ПОДХОД: Устанавливаем содержимое через отложенную задачу
-                    plugin.getServer().getScheduler().runTaskLater(plugin, () -> {
+                    plugin.getSchedulerManager().runAtLocationLater(finalTargetBlock.getLocation(), () -> {
                         if (finalTargetBlock.getState() instanceof org.bukkit.block.ShulkerBox) {
                             org.bukkit.block.ShulkerBox delayedShulker = (org.bukkit.block.ShulkerBox) finalTargetBlock.getState();
                             
@@ -282,36 +345,38 @@ public class PlayerListener implements Listener {
                             // Обновляем блок
                             delayedShulker.update();
                             
-                            plugin.debugLog("[PLACE] DELAYED: Set " + finalItemCount + " items to placed shulker");
+                            plugin.debugLog("[PLACE] DELAYED: Set {} items to placed shulker", finalItemCount);
                             
-                            // Финальная проверка через еще один тик
-                            plugin.getServer().getScheduler().runTaskLater(plugin, () -> {
-                                if (finalTargetBlock.getState() instanceof org.bukkit.block.ShulkerBox) {
-                                    org.bukkit.block.ShulkerBox verifyShulker = (org.bukkit.block.ShulkerBox) finalTargetBlock.getState();
-                                    int finalCount = 0;
-                                    for (org.bukkit.inventory.ItemStack stack : verifyShulker.getInventory().getContents()) {
-                                        if (stack != null && stack.getType() != Material.AIR) {
-                                            finalCount += stack.getAmount();
+                            // Финальная проверка через еще один тик, при нагрузке не планируется
+                            if (!plugin.getLoadManager().isDegraded()) {
+                                plugin.getWorkBudgetManager().submitAtLocation(finalTargetBlock.getLocation(), WorkBudgetManager.Priority.LOW, () -> {
+                                    if (finalTargetBlock.getState() instanceof org.bukkit.block.ShulkerBox) {
+                                        org.bukkit.block.ShulkerBox verifyShulker = (org.bukkit.block.ShulkerBox) finalTargetBlock.getState();
+                                        int finalCount = 0;
+                                        for (org.bukkit.inventory.ItemStack stack : verifyShulker.getInventory().getContents()) {
+                                            if (stack != null && stack.getType() != Material.AIR) {
+                                                finalCount += stack.getAmount();
+                                            }
+                                        }
+                                        plugin.debugLog("[PLACE] FINAL CHECK: Placed shulker contains {} items after delayed update", finalCount);
+                                        if (finalCount == 0 && finalItemCount > 0) {
+                                            plugin.getLogger().warning("[PLACE] CRITICAL: Items were still lost after delayed placement! Original: " + finalItemCount + ", Final: " + finalCount);
+                                        } else if (finalCount == finalItemCount) {
+                                            plugin.debugLog("[PLACE] SUCCESS: All items preserved during placement!");
                                         }
                                     }
-                                    plugin.debugLog("[PLACE] FINAL CHECK: Placed shulker contains " + finalCount + " items after delayed update");
-                                    if (finalCount == 0 && finalItemCount > 0) {
-                                        plugin.getLogger().warning("[PLACE] CRITICAL: Items were still lost after delayed placement! Original: " + finalItemCount + ", Final: " + finalCount);
-                                    } else if (finalCount == finalItemCount) {
-                                        plugin.debugLog("[PLACE] SUCCESS: All items preserved during placement!");
-                                    }
-                                }
-                            }, 1L);
+                                }, 1L);
+                            }
                         }
                     }, 1L);
                 } else {
-                    plugin.debugLog("Warning: Item meta does not contain valid ShulkerBox state for " + player.getName());
+                    plugin.debugLog("Warning: Item meta does not contain valid ShulkerBox state for {}", player.getName());
                 }
             } else {
-                plugin.debugLog("Warning: Item does not have BlockStateMeta for " + player.getName());
+                plugin.debugLog("Warning: Item does not have BlockStateMeta for {}", player.getName());
             }
         } else {
-            plugin.debugLog("Warning: Placed block is not a ShulkerBox for " + player.getName());
+            plugin.debugLog("Warning: Placed block is not a ShulkerBox for {}", player.getName());
         }
         
         // Mark this as a placement action to prevent false item-changed messages
@@ -324,21 +389,15 @@ public class PlayerListener implements Listener {
             player.getInventory().setItem(player.getInventory().getHeldItemSlot(), null);
         }
         
+        plugin.getAuditManager().log(AuditManager.Action.PLACE, player, item, null, placedContents, null);
+        plugin.getFlightRecorderManager().events().shiftPlace(player, targetBlock, placedContents);
+        
         // Play sound effect
-        if (plugin.getConfig().getBoolean("sounds.enabled", true)) {
-            String sound = plugin.getConfig().getString("sounds.place.sound", "BLOCK_STONE_PLACE");
-            try {
-                player.playSound(player.getLocation(), 
-                    org.bukkit.Sound.valueOf(sound), 
-                    (float) plugin.getConfig().getDouble("sounds.place.volume", 1.0),
-                    (float) plugin.getConfig().getDouble("sounds.place.pitch", 1.0));
-            } catch (IllegalArgumentException e) {
-                plugin.debugLog("Invalid sound: " + sound);
-            }
-        }
+        plugin.getSoundManager().playPlaceSound(player);
         
         player.sendMessage(plugin.getMessage(player, "messages.shulker-placed"));
-        plugin.debugLog("Player " + player.getName() + " placed shulker box at " + targetBlock.getLocation());
+        final Block placedBlock = targetBlock;
+        plugin.debugLog(() -> "Player " + player.getName() + " placed shulker box at " + placedBlock.getLocation());
     }
     
     @EventHandler(priority = EventPriority.HIGHEST)
@@ -348,9 +407,9 @@ public class PlayerListener implements Listener {
         // Check if player has an active shulker session
         if (plugin.getInventoryManager().hasActiveSession(player)) {
             // Close session when changing held item to prevent duplication
-            plugin.getInventoryManager().closeShulkerInventory(player);
+            plugin.getInventoryManager().closeShulkerInventory(player, "held item changed");
             player.sendMessage(plugin.getMessage(player, "messages.item-changed"));
-            plugin.debugLog("Closed shulker session due to item change for " + player.getName());
+            plugin.debugLog("Closed shulker session due to item change for {}", player.getName());
         }
     }
     
@@ -366,7 +425,7 @@ public class PlayerListener implements Listener {
         if (plugin.getInventoryManager().hasActiveSession(player)) {
             // Prevent item pickup during shulker session to avoid inventory conflicts
             event.setCancelled(true);
-            plugin.debugLog("Prevented item pickup during shulker session for " + player.getName());
+            plugin.debugLog("Prevented item pickup during shulker session for {}", player.getName());
         }
     }
     
@@ -377,9 +436,9 @@ public class PlayerListener implements Listener {
         // Check if player has an active shulker session
         if (plugin.getInventoryManager().hasActiveSession(player)) {
             // Close session when swapping hands to prevent duplication
-            plugin.getInventoryManager().closeShulkerInventory(player);
+            plugin.getInventoryManager().closeShulkerInventory(player, "hand swap");
             player.sendMessage(plugin.getMessage(player, "messages.item-changed"));
-            plugin.debugLog("Closed shulker session due to hand swap for " + player.getName());
+            plugin.debugLog("Closed shulker session due to hand swap for {}", player.getName());
         }
     }
 }
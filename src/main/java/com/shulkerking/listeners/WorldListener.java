@@ -0,0 +1,29 @@
+package com.shulkerking.listeners;
+
+import com.shulkerking.ShulkerKingPlugin;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.WorldLoadEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
+
+public class WorldListener implements Listener {
+    
+    private final ShulkerKingPlugin plugin;
+    
+    public WorldListener(ShulkerKingPlugin plugin) {
+        this.plugin = plugin;
+    }
+    
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onWorldLoad(WorldLoadEvent event) {
+        plugin.getWorldManager().updateWorld(event.getWorld());
+        plugin.debugLog("World policy created for {}", event.getWorld().getName());
+    }
+    
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onWorldUnload(WorldUnloadEvent event) {
+        plugin.getWorldManager().removeWorld(event.getWorld());
+        plugin.debugLog("World policy removed for {}", event.getWorld().getName());
+    }
+}
@@ -0,0 +1,328 @@
+package com.shulkerking.managers;
+
+import com.shulkerking.ShulkerKingPlugin;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Structured audit log of shulker activity.
+ * Events are put on a lock-free queue by the thread that owns the player and
+ * written as JSON lines to audit/audit.log by a background writer. The file is
+ * rotated by size and rotated files are gzipped.
+ */
+public class AuditManager {
+
+    /**
+     * Audited actions
+     */
+    public enum Action {
+        OPEN, SAVE, CLOSE, FORCED_CLOSE, PLACE
+    }
+
+    private static final long FLUSH_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(200);
+
+    private final ShulkerKingPlugin plugin;
+    private final File auditDir;
+    private final File auditFile;
+    private final Queue<AuditEvent> queue;
+    private final AtomicLong writtenEvents;
+
+    private volatile boolean enabled;
+    private volatile boolean running;
+    private volatile long maxSize;
+    private volatile int maxFiles;
+    private Thread writerThread;
+
+    public AuditManager(ShulkerKingPlugin plugin) {
+        this.plugin = plugin;
+        this.auditDir = new File(plugin.getDataFolder(), "audit");
+        this.auditFile = new File(auditDir, "audit.log");
+        this.queue = new ConcurrentLinkedQueue<>();
+        this.writtenEvents = new AtomicLong();
+    }
+
+    /**
+     * Start the writer if audit.enabled is set. Called again on reload, a
+     * running writer picks up new limits and is stopped when audit is turned off.
+     */
+    public synchronized void start() {
+        boolean wanted = plugin.getConfig().getBoolean("audit.enabled", false);
+        maxSize = plugin.getConfig().getLong("audit.max-size-kb", 10240L) * 1024L;
+        maxFiles = plugin.getConfig().getInt("audit.max-files", 10);
+        if (!wanted) {
+            try {
+                close();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return;
+        }
+
+        enabled = true;
+        if (writerThread != null && writerThread.isAlive()) {
+            return;
+        }
+        running = true;
+        writerThread = new Thread(this::runWriter, "ShulkerKing-Audit");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Write queued events and stop the writer
+     * @return number of events written while draining
+     */
+    public synchronized int close() throws InterruptedException {
+        if (writerThread == null) {
+            return 0;
+        }
+        enabled = false;
+        long before = writtenEvents.get();
+        running = false;
+        LockSupport.unpark(writerThread);
+        writerThread.join();
+        writerThread = null;
+        return (int) (writtenEvents.get() - before);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long getWrittenEvents() {
+        return writtenEvents.get();
+    }
+
+    /**
+     * Audit an action with the item and the contents it holds
+     * @param session open session the action belongs to, null for actions outside a session
+     * @param reason why the session was force-closed, null otherwise
+     */
+    public void log(Action action, Player player, ItemStack item, ShulkerInventoryManager.ShulkerSession session,
+                    ItemStack[] contents, String reason) {
+        if (!enabled) {
+            return;
+        }
+        queue.add(new AuditEvent(System.currentTimeMillis(), action, player.getName(), player.getUniqueId().toString(),
+            item != null ? item.getType().name() : "AIR",
+            // The cooldown display rewrites name and lore of the held item, the copy taken at open stays the same
+            identity(session != null ? session.getOriginalItem() : item), session != null ? session.getStartTime() : 0L,
+            digest(contents), countItems(contents), reason));
+    }
+
+    /**
+     * Hash of what identifies the item to a player: type, name, lore and
+     * model. Amount and contents are left out, so the same shulker gets the
+     * same hash in every session.
+     */
+    private static int identity(ItemStack item) {
+        if (item == null) {
+            return 0;
+        }
+        int hash = item.getType().name().hashCode();
+        if (item.hasItemMeta()) {
+            ItemMeta meta = item.getItemMeta();
+            hash = 31 * hash + (meta.hasDisplayName() ? meta.getDisplayName().hashCode() : 0);
+            hash = 31 * hash + (meta.hasLore() ? meta.getLore().hashCode() : 0);
+            hash = 31 * hash + (meta.hasCustomModelData() ? meta.getCustomModelData() : 0);
+        }
+        return hash;
+    }
+
+    /**
+     * Order-sensitive 64-bit digest of slot contents
+     */
+    private static long digest(ItemStack[] contents) {
+        if (contents == null) {
+            return 0L;
+        }
+        long hash = 1125899906842597L;
+        for (ItemStack stack : contents) {
+            hash = 31 * hash + (stack == null || stack.getType() == Material.AIR ? 0 : stack.hashCode());
+        }
+        return hash;
+    }
+
+    private static int countItems(ItemStack[] contents) {
+        if (contents == null) {
+            return 0;
+        }
+        int count = 0;
+        for (ItemStack stack : contents) {
+            if (stack != null && stack.getType() != Material.AIR) {
+                count += stack.getAmount();
+            }
+        }
+        return count;
+    }
+
+    private void runWriter() {
+        Writer writer = null;
+        try {
+            if (!auditDir.exists() && !auditDir.mkdirs()) {
+                throw new IOException("Cannot create " + auditDir);
+            }
+            writer = openWriter();
+            StringBuilder line = new StringBuilder(256);
+
+            while (true) {
+                boolean stopping = !running;
+                AuditEvent event;
+                int written = 0;
+                while ((event = queue.poll()) != null) {
+                    line.setLength(0);
+                    event.appendJson(line);
+                    writer.write(line.append('\n').toString());
+                    written++;
+                }
+                if (written > 0) {
+                    writer.flush();
+                    writtenEvents.addAndGet(written);
+                    if (auditFile.length() > maxSize) {
+                        writer.close();
+                        rotate();
+                        writer = openWriter();
+                    }
+                }
+                if (stopping) {
+                    break;
+                }
+                LockSupport.parkNanos(this, FLUSH_INTERVAL_NANOS);
+            }
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Ошибка записи журнала аудита, аудит отключен", e);
+            enabled = false;
+        } finally {
+            if (writer != null) {
+                try {
+                    writer.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    private Writer openWriter() throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(
+            new FileOutputStream(auditFile, true), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Compress the current file to audit-<time>-<n>.log.gz and drop the oldest rotated files.
+     * The sequence keeps names unique and sortable when several rotations happen in one second.
+     */
+    private void rotate() throws IOException {
+        String time = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+        File rotated;
+        int sequence = 0;
+        do {
+            rotated = new File(auditDir, String.format("audit-%s-%03d.log.gz", time, sequence++));
+        } while (rotated.exists());
+        try (InputStream in = new FileInputStream(auditFile);
+             OutputStream out = new GZIPOutputStream(new FileOutputStream(rotated))) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                out.write(buffer, 0, read);
+            }
+        }
+        Files.delete(auditFile.toPath());
+
+        File[] archives = auditDir.listFiles((dir, name) -> name.startsWith("audit-") && name.endsWith(".log.gz"));
+        if (archives != null && archives.length > maxFiles) {
+            Arrays.sort(archives);
+            for (int i = 0; i < archives.length - maxFiles; i++) {
+                Files.deleteIfExists(archives[i].toPath());
+            }
+        }
+    }
+
+    /**
+     * One audited action
+     */
+    private static class AuditEvent {
+        private final long timestamp;
+        private final Action action;
+        private final String playerName;
+        private final String playerId;
+        private final String itemType;
+        private final int itemHash;
+        private final long session;
+        private final long digest;
+        private final int items;
+        private final String reason;
+
+        AuditEvent(long timestamp, Action action, String playerName, String playerId, String itemType,
+                   int itemHash, long session, long digest, int items, String reason) {
+            this.timestamp = timestamp;
+            this.action = action;
+            this.playerName = playerName;
+            this.playerId = playerId;
+            this.itemType = itemType;
+            this.itemHash = itemHash;
+            this.session = session;
+            this.digest = digest;
+            this.items = items;
+            this.reason = reason;
+        }
+
+        void appendJson(StringBuilder out) {
+            out.append("{\"ts\":").append(timestamp)
+                .append(",\"action\":\"").append(action.name()).append('"')
+                .append(",\"player\":");
+            appendString(out, playerName);
+            out.append(",\"uuid\":\"").append(playerId).append('"')
+                .append(",\"item\":\"").append(itemType).append('"')
+                .append(",\"item_hash\":\"").append(Integer.toHexString(itemHash)).append('"');
+            if (session != 0L) {
+                out.append(",\"session\":").append(session);
+            }
+            out.append(",\"digest\":\"").append(Long.toHexString(digest)).append('"')
+                .append(",\"items\":").append(items);
+            if (reason != null) {
+                out.append(",\"reason\":");
+                appendString(out, reason);
+            }
+            out.append('}');
+        }
+
+        private static void appendString(StringBuilder out, String value) {
+            out.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"' || c == '\\') {
+                    out.append('\\').append(c);
+                } else if (c < 0x20) {
+                    out.append(String.format("\\u%04x", (int) c));
+                } else {
+                    out.append(c);
+                }
+            }
+            out.append('"');
+        }
+    }
+}
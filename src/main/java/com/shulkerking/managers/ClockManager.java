@@ -0,0 +1,124 @@
+package com.shulkerking.managers;
+
+import com.shulkerking.ShulkerKingPlugin;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Game-time clock for cooldowns, combat tags and throttles.
+ * A global task counts server ticks, so reading the time is a volatile read
+ * instead of a syscall and durations follow game time when the server lags.
+ * The counter is seeded from the wall clock, values read before the task runs
+ * and with clock.source: WALL use the wall clock instead. Switching sources
+ * continues from the last reading, so stored deadlines do not jump.
+ * Durations keep their millisecond units: one tick is 50 ms of game time.
+ */
+public class ClockManager {
+
+    public static final long MILLIS_PER_TICK = 50L;
+
+    /**
+     * Source of the current tick
+     */
+    public interface Clock {
+        long currentTick();
+    }
+
+    private final ShulkerKingPlugin plugin;
+    private final Clock serverClock;
+    private final Clock wallClock;
+
+    // Only written by the global tick task
+    private volatile long ticks;
+    // Added to the wall clock so it continues from the last tick count
+    private volatile long wallOffset;
+    private volatile Clock clock;
+    private SchedulerManager.Task tickTask;
+
+    public ClockManager(ShulkerKingPlugin plugin) {
+        this.plugin = plugin;
+        this.wallClock = () -> System.currentTimeMillis() / MILLIS_PER_TICK + wallOffset;
+        this.serverClock = () -> ticks;
+        this.clock = wallClock;
+    }
+
+    /**
+     * Start or stop counting ticks as clock.source says. A running counter
+     * is kept across reloads.
+     */
+    public synchronized void start() {
+        if (clock != wallClock && clock != serverClock) {
+            // Replaced by setClock()
+            return;
+        }
+        boolean tickBased = !"WALL".equalsIgnoreCase(plugin.getConfig().getString("clock.source", "TICK"));
+        if (tickBased && tickTask == null) {
+            // Continue from the current value so stored deadlines stay valid
+            ticks = clock.currentTick();
+            tickTask = plugin.getSchedulerManager().runGlobalTimer(() -> ticks++, 1L, 1L);
+            clock = serverClock;
+        } else if (!tickBased) {
+            stop();
+        }
+    }
+
+    public synchronized void stop() {
+        if (tickTask != null) {
+            tickTask.cancel();
+            tickTask = null;
+        }
+        if (clock == serverClock) {
+            // Ticks fall behind the wall clock while the server lags
+            wallOffset += ticks - wallClock.currentTick();
+            clock = wallClock;
+        }
+    }
+
+    /**
+     * Replace the clock, e.g. with a {@link VirtualClock} when the plugin is
+     * driven without a server. start() and stop() keep a replaced clock.
+     */
+    public synchronized void setClock(Clock clock) {
+        stop();
+        this.clock = clock;
+    }
+
+    public long currentTick() {
+        return clock.currentTick();
+    }
+
+    /**
+     * Current time in game milliseconds, only meaningful for differences
+     */
+    public long currentMillis() {
+        return clock.currentTick() * MILLIS_PER_TICK;
+    }
+
+    public boolean isTickBased() {
+        return clock == serverClock;
+    }
+
+    /**
+     * Manually advanced clock, lets hours of cooldowns pass instantly
+     */
+    public static class VirtualClock implements Clock {
+        private final AtomicLong tick;
+
+        public VirtualClock(long startTick) {
+            this.tick = new AtomicLong(startTick);
+        }
+
+        @Override
+        public long currentTick() {
+            return tick.get();
+        }
+
+        public void advance(long ticks) {
+            tick.addAndGet(ticks);
+        }
+
+        public void advanceMillis(long millis) {
+            advance(millis / MILLIS_PER_TICK);
+        }
+    }
+}
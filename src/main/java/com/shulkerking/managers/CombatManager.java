@@ -3,9 +3,9 @@ package com.shulkerking.managers;
 import com.shulkerking.ShulkerKingPlugin;
 import org.bukkit.entity.Player;
 
-import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class CombatManager {
     
@@ -14,12 +14,12 @@ public class CombatManager {
     
     public CombatManager(ShulkerKingPlugin plugin) {
         this.plugin = plugin;
-        this.combatData = new HashMap<>();
+        this.combatData = new ConcurrentHashMap<>();
     }
     
     public void markInCombat(Player player) {
-        combatData.put(player.getUniqueId(), System.currentTimeMillis());
-        plugin.debugLog("Player " + player.getName() + " marked as in combat");
+        combatData.put(player.getUniqueId(), plugin.getClockManager().currentMillis());
+        plugin.debugLog("Player {} marked as in combat", player.getName());
     }
     
     public boolean isInCombat(Player player) {
@@ -33,10 +33,11 @@ public class CombatManager {
         }
         
         long combatTimeout = plugin.getConfig().getLong("pvp-block.combat-time", 10) * 1000;
-        boolean inCombat = (System.currentTimeMillis() - lastCombatTime) < combatTimeout;
+        boolean inCombat = (plugin.getClockManager().currentMillis() - lastCombatTime) < combatTimeout;
         
         if (!inCombat) {
-            combatData.remove(player.getUniqueId());
+            // Не удаляем отметку, если игрока уже снова пометили в другом потоке
+            combatData.remove(player.getUniqueId(), lastCombatTime);
         }
         
         return inCombat;
@@ -44,7 +45,7 @@ public class CombatManager {
     
     public void removeCombat(Player player) {
         combatData.remove(player.getUniqueId());
-        plugin.debugLog("Player " + player.getName() + " removed from combat");
+        plugin.debugLog("Player {} removed from combat", player.getName());
     }
     
     public void clearCombatData() {
@@ -66,11 +67,10 @@ public class CombatManager {
      */
     public int getCombatPlayersCount() {
         // Remove expired combat entries
-        long currentTime = System.currentTimeMillis();
+        long currentTime = plugin.getClockManager().currentMillis();
         long combatTimeout = plugin.getConfig().getLong("pvp-block.combat-time", 10) * 1000;
         
-        combatData.entrySet().removeIf(entry -> 
-            (currentTime - entry.getValue()) >= combatTimeout);
+        removeExpired(currentTime, combatTimeout);
         
         return combatData.size();
     }
@@ -91,12 +91,22 @@ public class CombatManager {
             return;
         }
         
-        long currentTime = System.currentTimeMillis();
+        long currentTime = plugin.getClockManager().currentMillis();
         long combatTimeout = plugin.getConfig().getLong("pvp-block.combat-time", 10) * 1000;
         
-        combatData.entrySet().removeIf(entry -> 
-            (currentTime - entry.getValue()) >= combatTimeout);
+        removeExpired(currentTime, combatTimeout);
         
         plugin.debugLog("Cleaned up expired combat entries");
     }
+    
+    /**
+     * Remove expired tags without dropping ones refreshed concurrently
+     */
+    private void removeExpired(long currentTime, long combatTimeout) {
+        for (Map.Entry<UUID, Long> entry : combatData.entrySet()) {
+            if ((currentTime - entry.getValue()) >= combatTimeout) {
+                combatData.remove(entry.getKey(), entry.getValue());
+            }
+        }
+    }
 }
@@ -0,0 +1,216 @@
+package com.shulkerking.managers;
+
+import com.shulkerking.ShulkerKingPlugin;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+
+/**
+ * Watches config.yml and languages/*.yml for edits.
+ * Files are parsed and validated on a background thread, the result
+ * is applied on the main thread in a single task.
+ */
+public class ConfigWatchManager {
+
+    private final ShulkerKingPlugin plugin;
+    private WatchService watchService;
+    private Thread watchThread;
+    private volatile boolean running;
+    private long debounceMillis;
+
+    public ConfigWatchManager(ShulkerKingPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Start watching if enabled in config
+     */
+    public void start() {
+        if (running || !plugin.getConfig().getBoolean("auto-reload.enabled", false)) {
+            return;
+        }
+
+        debounceMillis = Math.max(0L, plugin.getConfig().getLong("auto-reload.debounce-ms", 500L));
+        Path dataFolder = plugin.getDataFolder().toPath();
+        Path languagesFolder = dataFolder.resolve("languages");
+
+        try {
+            Files.createDirectories(languagesFolder);
+            watchService = FileSystems.getDefault().newWatchService();
+            dataFolder.register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            languagesFolder.register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_DELETE);
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Failed to start config watcher", e);
+            closeWatchService();
+            return;
+        }
+
+        running = true;
+        watchThread = new Thread(this::watchLoop, "ShulkerKing-ConfigWatcher");
+        watchThread.setDaemon(true);
+        watchThread.start();
+        plugin.debugLog("Config watcher started");
+    }
+
+    /**
+     * Stop watching and wait for the watcher thread to exit
+     */
+    public void stop() {
+        if (!running) {
+            return;
+        }
+
+        running = false;
+        closeWatchService();
+        if (watchThread != null) {
+            watchThread.interrupt();
+            try {
+                watchThread.join(1000L);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            watchThread = null;
+        }
+        plugin.debugLog("Config watcher stopped");
+    }
+
+    /**
+     * Restart watcher so it follows the current auto-reload setting
+     */
+    public void restart() {
+        stop();
+        start();
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void closeWatchService() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException ignored) {
+            }
+            watchService = null;
+        }
+    }
+
+    private void watchLoop() {
+        WatchService service = watchService;
+
+        while (running) {
+            try {
+                WatchKey key = service.take();
+
+                // Editors often write a file in several steps, wait for them to finish
+                Thread.sleep(debounceMillis);
+
+                boolean configChanged = false;
+                Set<String> changedLanguages = new HashSet<>();
+
+                while (key != null) {
+                    Path folder = (Path) key.watchable();
+                    boolean isLanguages = folder.getFileName() != null &&
+                        folder.getFileName().toString().equals("languages");
+
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            continue;
+                        }
+                        String name = event.context().toString();
+                        if (isLanguages && name.endsWith(".yml")) {
+                            changedLanguages.add(name.substring(0, name.length() - 4).toLowerCase());
+                        } else if (!isLanguages && name.equals("config.yml")) {
+                            configChanged = true;
+                        }
+                    }
+                    key.reset();
+                    key = service.poll();
+                }
+
+                if (configChanged || !changedLanguages.isEmpty()) {
+                    parseAndApply(configChanged, changedLanguages);
+                }
+
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                break;
+            } catch (Exception e) {
+                plugin.getLogger().log(Level.WARNING, "Config watcher error", e);
+            }
+        }
+    }
+
+    /**
+     * Parse changed files on the watcher thread and hand them to the main thread.
+     * Invalid files are reported and the running state is kept.
+     */
+    private void parseAndApply(boolean configChanged, Set<String> changedLanguages) {
+        YamlConfiguration config = null;
+        if (configChanged) {
+            File configFile = new File(plugin.getDataFolder(), "config.yml");
+            try {
+                config = new YamlConfiguration();
+                config.load(configFile);
+            } catch (Exception e) {
+                plugin.getLogger().warning("config.yml was not reloaded: " + e.getMessage());
+                config = null;
+            }
+        }
+
+        Map<String, Map<String, String>> languages = new HashMap<>();
+        File languagesFolder = new File(plugin.getDataFolder(), "languages");
+        for (String languageCode : changedLanguages) {
+            File languageFile = new File(languagesFolder, languageCode + ".yml");
+            if (!languageFile.exists()) {
+                languages.put(languageCode, null);
+                continue;
+            }
+            try {
+                languages.put(languageCode, LocaleManager.parseLanguageFile(languageFile));
+            } catch (Exception e) {
+                plugin.getLogger().warning("Language " + languageCode + " was not reloaded: " + e.getMessage());
+            }
+        }
+
+        if (config == null && languages.isEmpty()) {
+            return;
+        }
+
+        final YamlConfiguration parsedConfig = config;
+        if (!running || !plugin.isEnabled()) {
+            return;
+        }
+        plugin.getSchedulerManager().runGlobal(() -> {
+            if (!running) {
+                return;
+            }
+            // Config first: it resets the language cache
+            if (parsedConfig != null) {
+                plugin.applyConfig(parsedConfig);
+            }
+            for (Map.Entry<String, Map<String, String>> entry : languages.entrySet()) {
+                plugin.getLocaleManager().applyLanguage(entry.getKey(), entry.getValue());
+            }
+            plugin.getLogger().info("Applied file changes: " +
+                (parsedConfig != null ? "config.yml " : "") + languages.keySet());
+        });
+    }
+}
@@ -1,23 +1,29 @@
 package com.shulkerking.managers;
 
 import com.shulkerking.ShulkerKingPlugin;
+import net.md_5.bungee.api.ChatMessageType;
+import net.md_5.bungee.api.chat.TextComponent;
 import org.bukkit.ChatColor;
 import org.bukkit.Material;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
-import org.bukkit.scheduler.BukkitRunnable;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 
 public class CooldownDisplayManager {
 
     private final ShulkerKingPlugin plugin;
     // Ключ: "UUID_игрока:уникальный_ID_предмета"
-    private final Map<String, BukkitRunnable> activeCountdowns;
+    private final Map<String, CountdownTask> activeCountdowns;
 
     public CooldownDisplayManager(ShulkerKingPlugin plugin) {
         this.plugin = plugin;
@@ -77,7 +83,7 @@ public class CooldownDisplayManager {
         // Сохраняем оригинальные данные предмета (без лора кулдауна)
         ItemStack currentItem = findItemInInventory(player, itemIdentifier);
         if (currentItem == null) {
-            plugin.debugLog("Предмет для кулдауна не найден в инвентаре " + player.getName() + ".");
+            plugin.debugLog("Предмет для кулдауна не найден в инвентаре {}.", player.getName());
             return;
         }
 
@@ -94,44 +100,11 @@ public class CooldownDisplayManager {
 
         originalLore.removeIf(line -> line.startsWith(cooldownPrefix) || line.equals(readyMessageTranslated));
 
-        BukkitRunnable countdownTask = new BukkitRunnable() {
-            @Override
-            public void run() {
-                if (!player.isOnline()) {
-                    cancelTask();
-                    return;
-                }
-
-                // Находим актуальный предмет в инвентаре
-                ItemStack currentItem = findItemInInventory(player, itemIdentifier);
-                if (currentItem == null) {
-                    plugin.debugLog("Предмет для кулдауна не найден в инвентаре " + player.getName() + ". Отмена таймера.");
-                    cancelTask();
-                    return;
-                }
-
-                double remainingSeconds = plugin.getCooldownManager().getRemainingCooldown(player, currentItem);
-
-                if (remainingSeconds <= 0) {
-                    showReadyMessage(player, currentItem, originalName, originalLore);
-                    cancelTask();
-                    return;
-                }
-
-                updateItemDisplay(currentItem, remainingSeconds, originalName, originalLore);
-                player.updateInventory(); // Обновляем инвентарь, чтобы игрок видел изменения
-            }
-
-            private void cancelTask() {
-                activeCountdowns.remove(displayKey);
-                if (!isCancelled()) {
-                    cancel();
-                }
-            }
-        };
-
+        CountdownTask countdownTask = new CountdownTask(player, itemIdentifier, displayKey, originalName, originalLore);
         activeCountdowns.put(displayKey, countdownTask);
-        countdownTask.runTaskTimer(plugin, 0, 20); // Запускаем каждую секунду
+        // Запускаем каждую секунду в потоке, владеющем игроком, в пределах бюджета тика
+        countdownTask.start(plugin.getWorkBudgetManager().submitForEntity(player,
+            WorkBudgetManager.Priority.NORMAL, countdownTask, 1));
     }
 
     /**
@@ -139,8 +112,8 @@ public class CooldownDisplayManager {
      */
     public void stopVisualCountdown(Player player, String itemIdentifier) {
         String displayKey = createDisplayKey(player, itemIdentifier);
-        BukkitRunnable task = activeCountdowns.remove(displayKey);
-        if (task != null && !task.isCancelled()) {
+        CountdownTask task = activeCountdowns.remove(displayKey);
+        if (task != null) {
             task.cancel();
         }
     }
@@ -149,14 +122,191 @@ public class CooldownDisplayManager {
      * Останавливает все активные визуальные кулдауны.
      */
     public void stopAllCountdowns() {
-        activeCountdowns.values().forEach(task -> {
-            if (!task.isCancelled()) {
-                task.cancel();
-            }
-        });
+        activeCountdowns.values().forEach(CountdownTask::cancel);
         activeCountdowns.clear();
     }
 
+    /**
+     * Применяет новые настройки отображения к активным кулдаунам CooldownManager.
+     * Предметам возвращается исходный лор, поэтому строки старого формата не остаются,
+     * затем таймеры запускаются заново, если отображение включено.
+     */
+    public void restartAllCountdowns() {
+        Map<UUID, List<CountdownTask>> previous = new HashMap<>();
+        for (CountdownTask task : activeCountdowns.values()) {
+            previous.computeIfAbsent(task.player.getUniqueId(), id -> new ArrayList<>()).add(task);
+        }
+        stopAllCountdowns();
+
+        boolean display = plugin.isCooldownEnabled() && plugin.isVisualCooldownEnabled() &&
+            plugin.getConfig().getBoolean("cooldown.visual-display.live-update", true);
+        Map<UUID, List<String>> cooldowns = display
+            ? plugin.getCooldownManager().getActiveCooldowns() : Collections.emptyMap();
+
+        Set<UUID> playerIds = new HashSet<>(previous.keySet());
+        playerIds.addAll(cooldowns.keySet());
+        int restarted = 0;
+        for (UUID playerId : playerIds) {
+            Player player = plugin.getServer().getPlayer(playerId);
+            if (player == null || !player.isOnline()) {
+                continue;
+            }
+            List<CountdownTask> tasks = previous.getOrDefault(playerId, Collections.emptyList());
+            List<String> identifiers = cooldowns.getOrDefault(playerId, Collections.emptyList());
+            restarted += identifiers.size();
+            // Инвентарь игрока можно трогать только из его потока
+            plugin.getWorkBudgetManager().submitForEntity(player, WorkBudgetManager.Priority.HIGH, () -> {
+                for (CountdownTask task : tasks) {
+                    ItemStack item = findItemInInventory(player, task.itemIdentifier);
+                    if (item != null) {
+                        restoreItemDisplay(item, task.originalName, task.originalLore);
+                    }
+                }
+                if (!tasks.isEmpty()) {
+                    player.updateInventory();
+                }
+                for (String itemIdentifier : identifiers) {
+                    startVisualCountdown(player, itemIdentifier);
+                }
+            }, 1);
+        }
+        plugin.debugLog("Перезапущено визуальных кулдаунов: {}, снято: {}", restarted, previous.size());
+    }
+
+    /**
+     * Получить количество активных визуальных кулдаунов.
+     */
+    public int getActiveCountdownsCount() {
+        return activeCountdowns.size();
+    }
+
+    /**
+     * Задача, обновляющая лор предмета каждую секунду.
+     * Хранит исходные имя и лор, чтобы их можно было восстановить.
+     */
+    private class CountdownTask implements Runnable {
+        private final Player player;
+        private final String itemIdentifier;
+        private final String displayKey;
+        private final String originalName;
+        private final List<String> originalLore;
+        private volatile SchedulerManager.Task handle;
+        private volatile boolean cancelled;
+        // Only touched by the thread that owns the player
+        private int runs;
+        private boolean loreShown;
+
+        CountdownTask(Player player, String itemIdentifier, String displayKey, String originalName, List<String> originalLore) {
+            this.player = player;
+            this.itemIdentifier = itemIdentifier;
+            this.displayKey = displayKey;
+            this.originalName = originalName;
+            this.originalLore = originalLore;
+        }
+
+        void start(SchedulerManager.Task handle) {
+            this.handle = handle;
+            if (cancelled) {
+                handle.cancel();
+            }
+        }
+
+        void cancel() {
+            cancelled = true;
+            SchedulerManager.Task current = handle;
+            if (current != null && !current.isCancelled()) {
+                current.cancel();
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                update();
+            } finally {
+                // Следующее обновление через секунду, пока таймер не отменён
+                if (!cancelled) {
+                    start(plugin.getWorkBudgetManager().submitForEntity(player,
+                        WorkBudgetManager.Priority.NORMAL, this, 20));
+                }
+            }
+        }
+
+        private void update() {
+            if (cancelled) {
+                cancel();
+                return;
+            }
+            if (!player.isOnline()) {
+                cancelTask();
+                return;
+            }
+
+            // При сильной нагрузке показываем кулдаун в action bar вместо перезаписи лора
+            LoadManager load = plugin.getLoadManager();
+            if (load.isCritical()) {
+                showActionBar();
+                return;
+            }
+            // При нагрузке лор обновляется реже
+            if (runs++ % load.getCountdownInterval() != 0) {
+                return;
+            }
+
+            // Находим актуальный предмет в инвентаре
+            ItemStack currentItem = findItemInInventory(player, itemIdentifier);
+            if (currentItem == null) {
+                plugin.debugLog("Предмет для кулдауна не найден в инвентаре {}. Отмена таймера.", player.getName());
+                cancelTask();
+                return;
+            }
+
+            double remainingSeconds = plugin.getCooldownManager().getRemainingCooldown(player, currentItem);
+
+            if (remainingSeconds <= 0) {
+                showReadyMessage(player, currentItem, originalName, originalLore);
+                cancelTask();
+                return;
+            }
+
+            plugin.getFlightRecorderManager().events().countdownTick(player, remainingSeconds);
+            updateItemDisplay(currentItem, remainingSeconds, originalName, originalLore);
+            loreShown = true;
+            player.updateInventory(); // Обновляем инвентарь, чтобы игрок видел изменения
+        }
+
+        /**
+         * Кулдаун по идентификатору без поиска предмета, лор возвращается один раз.
+         */
+        private void showActionBar() {
+            if (loreShown) {
+                ItemStack currentItem = findItemInInventory(player, itemIdentifier);
+                if (currentItem != null) {
+                    restoreItemDisplay(currentItem, originalName, originalLore);
+                    player.updateInventory();
+                }
+                loreShown = false;
+            }
+
+            double remainingSeconds = plugin.getCooldownManager().getRemainingCooldown(player, itemIdentifier);
+            if (remainingSeconds <= 0) {
+                String readyMessage = plugin.getConfig().getString("cooldown.visual-display.ready-message", "&aГотов к открытию");
+                player.spigot().sendMessage(ChatMessageType.ACTION_BAR,
+                    TextComponent.fromLegacyText(ChatColor.translateAlternateColorCodes('&', readyMessage)));
+                cancelTask();
+                return;
+            }
+
+            plugin.getFlightRecorderManager().events().countdownTick(player, remainingSeconds);
+            player.spigot().sendMessage(ChatMessageType.ACTION_BAR, TextComponent.fromLegacyText(formatCooldownLine(remainingSeconds)));
+        }
+
+        private void cancelTask() {
+            activeCountdowns.remove(displayKey, this);
+            cancel();
+        }
+    }
+
     /**
      * Обновляет лор предмета, отображая оставшееся время кулдауна.
      */
@@ -173,14 +323,28 @@ public class CooldownDisplayManager {
         if (newLore == null) {
             newLore = new ArrayList<>();
         }
-        String format = plugin.getConfig().getString("cooldown.visual-display.format", "&7Кулдаун: &c{time}с");
-        String cooldownLine = ChatColor.translateAlternateColorCodes('&', format.replace("{time}", String.format("%.0f", remainingSeconds)));
-        newLore.add(cooldownLine);
+        newLore.add(formatCooldownLine(remainingSeconds));
         meta.setLore(newLore);
 
         item.setItemMeta(meta);
     }
 
+    private String formatCooldownLine(double remainingSeconds) {
+        String format = plugin.getConfig().getString("cooldown.visual-display.format", "&7Кулдаун: &c{time}с");
+        return ChatColor.translateAlternateColorCodes('&', format.replace("{time}", String.format("%.0f", remainingSeconds)));
+    }
+
+    /**
+     * Возвращает предмету исходные имя и лор.
+     */
+    private void restoreItemDisplay(ItemStack item, String originalName, List<String> originalLore) {
+        ItemMeta meta = item.getItemMeta();
+        if (meta == null) return;
+        meta.setDisplayName(originalName);
+        meta.setLore(originalLore == null || originalLore.isEmpty() ? null : new ArrayList<>(originalLore));
+        item.setItemMeta(meta);
+    }
+
     /**
      * Показывает сообщение "Готов" и планирует его удаление.
      */
@@ -205,31 +369,20 @@ public class CooldownDisplayManager {
         player.updateInventory();
 
         // Планируем удаление сообщения "Готов"
-        new BukkitRunnable() {
-            @Override
-            public void run() {
-                // Находим предмет снова, чтобы убедиться, что он все еще существует
-                String itemIdentifier = plugin.getCooldownManager().getItemIdentifier(item);
-                ItemStack latestItem = findItemInInventory(player, itemIdentifier);
-                if (latestItem != null) {
-                    ItemMeta latestMeta = latestItem.getItemMeta();
-                    if (latestMeta != null) {
-                        latestMeta.setDisplayName(originalName);
-                        latestMeta.setLore(originalLore);
-                        latestItem.setItemMeta(latestMeta);
-                        player.updateInventory();
-                    }
+        plugin.getWorkBudgetManager().submitForEntity(player, WorkBudgetManager.Priority.LOW, () -> {
+            // Находим предмет снова, чтобы убедиться, что он все еще существует
+            String itemIdentifier = plugin.getCooldownManager().getItemIdentifier(item);
+            ItemStack latestItem = findItemInInventory(player, itemIdentifier);
+            if (latestItem != null) {
+                ItemMeta latestMeta = latestItem.getItemMeta();
+                if (latestMeta != null) {
+                    latestMeta.setDisplayName(originalName);
+                    latestMeta.setLore(originalLore);
+                    latestItem.setItemMeta(latestMeta);
+                    player.updateInventory();
                 }
             }
-        }.runTaskLater(plugin, plugin.getConfig().getInt("cooldown.visual-display.ready-message-duration", 40));
-    }
-
-    /**
-     * Очищает существующие строки кулдауна из метаданных предмета.
-     * Этот метод теперь не нужен, так как мы полностью восстанавливаем лор.
-     */
-    private void cleanExistingCooldownDisplay(ItemMeta meta) {
-        // Логика очистки больше не требуется, так как мы работаем с чистой копией лора
+        }, plugin.getConfig().getInt("cooldown.visual-display.ready-message-duration", 40));
     }
 
     private boolean isShulkerBox(ItemStack item) {
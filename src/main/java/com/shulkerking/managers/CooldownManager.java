@@ -2,32 +2,52 @@ package com.shulkerking.managers;
 
 import com.shulkerking.ShulkerKingPlugin;
 import org.bukkit.ChatColor;
+import org.bukkit.Material;
 import org.bukkit.block.ShulkerBox;
+import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.BlockStateMeta;
 import org.bukkit.inventory.meta.ItemMeta;
 
 import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class CooldownManager {
 
     private final ShulkerKingPlugin plugin;
     // Ключ: "UUID_игрока:уникальный_ID_предмета"
     private final Map<String, Long> cooldowns;
+    // Лестница уровней кулдауна, собирается в reloadTiers()
+    private volatile List<CooldownTier> tiers;
+    private volatile Map<Material, Double> colorMultipliers;
+    private volatile double defaultTime;
 
     public CooldownManager(ShulkerKingPlugin plugin) {
         this.plugin = plugin;
-        this.cooldowns = new HashMap<>();
+        this.cooldowns = new ConcurrentHashMap<>();
+        reloadTiers();
     }
 
     /**
      * Создает стабильный уникальный идентификатор для предмета, игнорируя лор с кулдауном.
      */
     public String getItemIdentifier(ItemStack item) {
+        SlowEventManager slow = plugin.getSlowEventManager();
+        long phase = slow.startPhase();
+        try {
+            return computeItemIdentifier(item);
+        } finally {
+            slow.endPhase(SlowEventManager.Phase.IDENTIFY, phase);
+        }
+    }
+
+    private String computeItemIdentifier(ItemStack item) {
         if (item == null || !item.hasItemMeta()) {
             return "null_item";
         }
@@ -75,42 +95,47 @@ public class CooldownManager {
     }
 
     public boolean hasCooldown(Player player, ItemStack item) {
-        if (item == null) return false;
-        String cooldownKey = createCooldownKey(player, item);
-        
-        if (!cooldowns.containsKey(cooldownKey)) {
-            return false;
-        }
-
-        long cooldownEnd = cooldowns.get(cooldownKey);
-        if (System.currentTimeMillis() >= cooldownEnd) {
-            cooldowns.remove(cooldownKey);
-            return false;
-        }
-        return true;
+        return getRemainingCooldown(player, item) > 0;
     }
 
     public double getRemainingCooldown(Player player, ItemStack item) {
-        if (!hasCooldown(player, item)) {
+        if (item == null) return 0.0;
+        return getRemainingCooldown(player.getUniqueId().toString() + ":" + getItemIdentifier(item));
+    }
+
+    /**
+     * Оставшийся кулдаун по уже вычисленному идентификатору, без чтения метаданных предмета.
+     */
+    public double getRemainingCooldown(Player player, String itemIdentifier) {
+        return getRemainingCooldown(player.getUniqueId().toString() + ":" + itemIdentifier);
+    }
+
+    private double getRemainingCooldown(String cooldownKey) {
+        // Одно чтение: запись может быть удалена задачей очистки из другого потока
+        Long cooldownEnd = cooldowns.get(cooldownKey);
+        if (cooldownEnd == null) {
             return 0.0;
         }
-        String cooldownKey = createCooldownKey(player, item);
-        long cooldownEnd = cooldowns.get(cooldownKey);
-        return (cooldownEnd - System.currentTimeMillis()) / 1000.0;
+        long remaining = cooldownEnd - plugin.getClockManager().currentMillis();
+        if (remaining <= 0) {
+            cooldowns.remove(cooldownKey, cooldownEnd);
+            return 0.0;
+        }
+        return remaining / 1000.0;
     }
 
     public void setCooldown(Player player, ItemStack item) {
         if (item == null) return;
         
-        double cooldownTime = getCooldownTime(player);
+        double cooldownTime = getCooldownTime(player, item);
         if (cooldownTime <= 0) {
             return; // Кулдаун не требуется
         }
 
         String cooldownKey = createCooldownKey(player, item);
-        long cooldownEnd = System.currentTimeMillis() + (long) (cooldownTime * 1000);
+        long cooldownEnd = plugin.getClockManager().currentMillis() + (long) (cooldownTime * 1000);
         cooldowns.put(cooldownKey, cooldownEnd);
-        plugin.debugLog("Установлен кулдаун для " + player.getName() + " на предмет " + getItemIdentifier(item) + " на " + cooldownTime + "с");
+        plugin.debugLog(() -> "Установлен кулдаун для " + player.getName() + " на предмет " + getItemIdentifier(item) + " на " + cooldownTime + "с");
     }
 
     /**
@@ -121,44 +146,140 @@ public class CooldownManager {
         plugin.debugLog("Все кулдауны были очищены.");
     }
 
+    /**
+     * Количество записей кулдаунов, включая ещё не очищенные истекшие.
+     */
+    public int getCooldownsCount() {
+        return cooldowns.size();
+    }
+
+    /**
+     * Идентификаторы предметов с неистекшим кулдауном по игрокам.
+     */
+    public Map<UUID, List<String>> getActiveCooldowns() {
+        long now = plugin.getClockManager().currentMillis();
+        Map<UUID, List<String>> result = new HashMap<>();
+        for (Map.Entry<String, Long> entry : cooldowns.entrySet()) {
+            if (entry.getValue() <= now) {
+                continue;
+            }
+            String key = entry.getKey();
+            int separator = key.indexOf(':');
+            UUID playerId = UUID.fromString(key.substring(0, separator));
+            result.computeIfAbsent(playerId, id -> new ArrayList<>()).add(key.substring(separator + 1));
+        }
+        return result;
+    }
+
     /**
      * Удаляет истекшие кулдауны для предотвращения утечек памяти.
      */
     public void cleanupExpiredCooldowns() {
-        long now = System.currentTimeMillis();
-        cooldowns.entrySet().removeIf(entry -> entry.getValue() <= now);
+        long now = plugin.getClockManager().currentMillis();
+        // Вызывается из асинхронной задачи: удаляем запись, только если ее не обновили
+        for (Map.Entry<String, Long> entry : cooldowns.entrySet()) {
+            if (entry.getValue() <= now) {
+                cooldowns.remove(entry.getKey(), entry.getValue());
+            }
+        }
     }
 
+    /**
+     * Получить время кулдауна игрока из кэша прав.
+     */
     public double getCooldownTime(Player player) {
-        // Проверка права на обход кулдауна
-        if (player.hasPermission("shulkerking.cooldown.bypass")) {
-             if (player.isOp() && !player.isPermissionSet("shulkerking.cooldown.bypass")) {
-                 // OP без явного права, используется стандартный кулдаун
-             } else {
-                plugin.debugLog("Игрок " + player.getName() + " имеет право на обход кулдауна.");
-                return 0.0;
-             }
+        return plugin.getPermissionManager().getSnapshot(player).getCooldownTime();
+    }
+
+    /**
+     * Время кулдауна для конкретного шалкера с учетом множителя цвета.
+     */
+    public double getCooldownTime(Player player, ItemStack item) {
+        double time = getCooldownTime(player);
+        Double multiplier = item != null ? colorMultipliers.get(item.getType()) : null;
+        return multiplier != null ? time * multiplier : time;
+    }
+
+    /**
+     * Собирает лестницу уровней кулдауна из конфига.
+     * Если cooldown.tiers не задан, используются старые ключи bypass/premium/vip.
+     */
+    public void reloadTiers() {
+        List<CooldownTier> ladder = new ArrayList<>();
+        List<Map<?, ?>> tierMaps = plugin.getConfig().getMapList("cooldown.tiers");
+
+        if (tierMaps.isEmpty()) {
+            ladder.add(new CooldownTier("shulkerking.cooldown.bypass", 0.0));
+            ladder.add(new CooldownTier("shulkerking.cooldown.premium", plugin.getConfig().getDouble("cooldown.premium", 1.0)));
+            ladder.add(new CooldownTier("shulkerking.cooldown.vip", plugin.getConfig().getDouble("cooldown.vip", 2.0)));
+        } else {
+            for (Map<?, ?> tierMap : tierMaps) {
+                Object permission = tierMap.get("permission");
+                Object seconds = tierMap.get("seconds");
+                if (permission == null || !(seconds instanceof Number)) {
+                    plugin.getLogger().warning("Неверный уровень кулдауна в cooldown.tiers: " + tierMap);
+                    continue;
+                }
+                ladder.add(new CooldownTier(permission.toString(), ((Number) seconds).doubleValue()));
+            }
         }
 
-        // Проверка прав на кастомные кулдауны
-        if (player.hasPermission("shulkerking.cooldown.premium")) {
-            if (!player.isOp() || player.isPermissionSet("shulkerking.cooldown.premium")) {
-                 double time = plugin.getConfig().getDouble("cooldown.premium", 1.0);
-                 plugin.debugLog("У игрока " + player.getName() + " премиум кулдаун: " + time + "с");
-                 return time;
+        Map<Material, Double> multipliers = new EnumMap<>(Material.class);
+        ConfigurationSection colorSection = plugin.getConfig().getConfigurationSection("cooldown.color-multipliers");
+        if (colorSection != null) {
+            for (String color : colorSection.getKeys(false)) {
+                String materialName = color.equalsIgnoreCase("NONE") ? "SHULKER_BOX" : color.toUpperCase() + "_SHULKER_BOX";
+                Material material = Material.matchMaterial(materialName);
+                if (material == null) {
+                    plugin.getLogger().warning("Неизвестный цвет в cooldown.color-multipliers: " + color);
+                    continue;
+                }
+                multipliers.put(material, colorSection.getDouble(color, 1.0));
+            }
+        }
+
+        tiers = ladder;
+        colorMultipliers = multipliers;
+        defaultTime = plugin.getConfig().getDouble("cooldown.default", 3.0);
+        plugin.debugLog("Загружено уровней кулдауна: {}", ladder.size());
+    }
+
+    /**
+     * Вычисляет время кулдауна по правам игрока и настройкам мира.
+     * Берется первый подходящий уровень лестницы.
+     * Вызывается только при обновлении кэша прав.
+     */
+    public double resolveCooldownTime(Player player) {
+        boolean op = player.isOp();
+        for (CooldownTier tier : tiers) {
+            // OP получает уровень только если право выдано явно
+            if (player.hasPermission(tier.getPermission()) &&
+                (!op || player.isPermissionSet(tier.getPermission()))) {
+                plugin.debugLog(() -> "Игрок " + player.getName() + " получил уровень кулдауна " + tier.getPermission() + ": " + tier.getSeconds() + "с");
+                return tier.getSeconds();
             }
         }
-        if (player.hasPermission("shulkerking.cooldown.vip")) {
-             if (!player.isOp() || player.isPermissionSet("shulkerking.cooldown.vip")) {
-                double time = plugin.getConfig().getDouble("cooldown.vip", 2.0);
-                plugin.debugLog("У игрока " + player.getName() + " VIP кулдаун: " + time + "с");
-                return time;
-             }
+
+        // Стандартный кулдаун (может быть переопределен для мира)
+        WorldManager.WorldPolicy policy = plugin.getWorldManager().getPolicy(player);
+        double time = policy.hasCooldownOverride() ? policy.getCooldownTime() : defaultTime;
+        plugin.debugLog(() -> "Игроку " + player.getName() + " назначен стандартный кулдаун: " + time + "с");
+        return time;
+    }
+
+    /**
+     * Уровень кулдауна: право и время в секундах.
+     */
+    public static class CooldownTier {
+        private final String permission;
+        private final double seconds;
+
+        public CooldownTier(String permission, double seconds) {
+            this.permission = permission;
+            this.seconds = seconds;
         }
 
-        // Стандартный кулдаун
-        double defaultTime = plugin.getConfig().getDouble("cooldown.default", 3.0);
-        plugin.debugLog("Игроку " + player.getName() + " назначен стандартный кулдаун: " + defaultTime + "с");
-        return defaultTime;
+        public String getPermission() { return permission; }
+        public double getSeconds() { return seconds; }
     }
 }
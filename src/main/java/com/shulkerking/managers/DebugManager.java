@@ -0,0 +1,153 @@
+package com.shulkerking.managers;
+
+import com.shulkerking.ShulkerKingPlugin;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * In-memory ring buffer for debug messages.
+ * Callers only store a message, a background task passes new entries to the
+ * server log once a second. The last entries can be dumped to a file with
+ * /shulkerking debug dump. When the buffer overruns between flushes, the
+ * oldest entries are skipped and the number of lost lines is logged.
+ */
+public class DebugManager {
+
+    private final ShulkerKingPlugin plugin;
+    private final AtomicLong sequence;
+    private volatile AtomicReferenceArray<Entry> ring;
+    // Next sequence to pass to the log, only changed by flush()
+    private long flushedSequence;
+    private SchedulerManager.Task flushTask;
+
+    public DebugManager(ShulkerKingPlugin plugin) {
+        this.plugin = plugin;
+        this.sequence = new AtomicLong();
+        resize(plugin.getConfig().getInt("settings.debug-buffer-size", 2048));
+    }
+
+    private void resize(int requested) {
+        int capacity = Integer.highestOneBit(Math.max(64, Math.min(requested, 1 << 20)) - 1) << 1;
+        if (ring != null && ring.length() == capacity) {
+            return;
+        }
+        ring = new AtomicReferenceArray<>(capacity);
+        flushedSequence = sequence.get();
+    }
+
+    /**
+     * Start flushing to the log if debug is enabled
+     */
+    public synchronized void start() {
+        stop();
+        resize(plugin.getConfig().getInt("settings.debug-buffer-size", 2048));
+        if (plugin.isDebugEnabled()) {
+            flushTask = plugin.getSchedulerManager().runAsyncTimer(this::flush, 20L, 20L);
+        }
+    }
+
+    /**
+     * Stop the flush task and pass remaining entries to the log
+     */
+    public synchronized void stop() {
+        if (flushTask != null) {
+            flushTask.cancel();
+            flushTask = null;
+        }
+        flush();
+    }
+
+    /**
+     * Store a message, called from any thread
+     */
+    public void record(String message) {
+        AtomicReferenceArray<Entry> buffer = ring;
+        long seq = sequence.getAndIncrement();
+        buffer.set(index(buffer, seq), new Entry(seq, System.currentTimeMillis(), Thread.currentThread().getName(), message));
+    }
+
+    private synchronized void flush() {
+        AtomicReferenceArray<Entry> buffer = ring;
+        long end = sequence.get();
+        long start = flushedSequence;
+        if (end - start > buffer.length()) {
+            long skipped = end - start - buffer.length();
+            plugin.getLogger().warning("[DEBUG] Буфер переполнен, пропущено строк: " + skipped);
+            start = end - buffer.length();
+        }
+
+        long seq = start;
+        for (; seq < end; seq++) {
+            Entry entry = buffer.get(index(buffer, seq));
+            if (entry == null || entry.sequence != seq) {
+                // Slot was reserved but not written yet, continue on the next flush
+                break;
+            }
+            plugin.getLogger().info("[DEBUG] " + entry.message);
+        }
+        flushedSequence = seq;
+    }
+
+    /**
+     * Write all buffered entries, oldest first, to debug-<time>.log in the plugin folder
+     * @return written file
+     */
+    public File dump() throws IOException {
+        AtomicReferenceArray<Entry> buffer = ring;
+        long end = sequence.get();
+        long start = Math.max(0L, end - buffer.length());
+
+        File file = new File(plugin.getDataFolder(), "debug-" +
+            new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + ".log");
+        SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm:ss.SSS");
+        try (Writer writer = new BufferedWriter(Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8))) {
+            for (long seq = start; seq < end; seq++) {
+                Entry entry = buffer.get(index(buffer, seq));
+                if (entry == null || entry.sequence != seq) {
+                    continue;
+                }
+                writer.write(timeFormat.format(new Date(entry.timestamp)) + " [" + entry.thread + "] " + entry.message);
+                writer.write('\n');
+            }
+        }
+        return file;
+    }
+
+    private static int index(AtomicReferenceArray<Entry> buffer, long seq) {
+        return (int) (seq & (buffer.length() - 1));
+    }
+
+    public int getCapacity() {
+        return ring.length();
+    }
+
+    public long getRecordedCount() {
+        return sequence.get();
+    }
+
+    /**
+     * One buffered message
+     */
+    private static class Entry {
+        private final long sequence;
+        private final long timestamp;
+        private final String thread;
+        private final String message;
+
+        Entry(long sequence, long timestamp, String thread, String message) {
+            this.sequence = sequence;
+            this.timestamp = timestamp;
+            this.thread = thread;
+            this.message = message;
+        }
+    }
+}
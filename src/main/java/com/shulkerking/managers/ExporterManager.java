@@ -0,0 +1,202 @@
+package com.shulkerking.managers;
+
+import com.shulkerking.ShulkerKingPlugin;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+
+/**
+ * Prometheus text-format export of the plugin counters.
+ * exporter.mode HTTP serves /metrics on a localhost-bound port, TEXTFILE
+ * rewrites metrics.prom in the plugin folder for node_exporter's textfile
+ * collector. Both render from MetricsManager snapshots off the main thread.
+ */
+public class ExporterManager {
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+
+    private final ShulkerKingPlugin plugin;
+    private HttpServer server;
+    private ExecutorService executor;
+    private SchedulerManager.Task textfileTask;
+    private String mode = "OFF";
+
+    public ExporterManager(ShulkerKingPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Start the endpoint or textfile writer selected by exporter.mode
+     */
+    public synchronized void start() {
+        stop();
+        mode = plugin.getConfig().getString("exporter.mode", "OFF").toUpperCase(Locale.ROOT);
+        if (mode.equals("HTTP")) {
+            startHttp();
+        } else if (mode.equals("TEXTFILE")) {
+            long interval = Math.max(1L, plugin.getConfig().getLong("exporter.interval-seconds", 15L)) * 20L;
+            textfileTask = plugin.getSchedulerManager().runAsyncTimer(this::writeTextfile, interval, interval);
+        } else {
+            mode = "OFF";
+        }
+    }
+
+    private void startHttp() {
+        String bind = plugin.getConfig().getString("exporter.bind", "127.0.0.1");
+        int port = plugin.getConfig().getInt("exporter.port", 9464);
+        try {
+            server = HttpServer.create(new InetSocketAddress(bind, port), 0);
+            server.createContext("/metrics", exchange -> {
+                byte[] body = render().getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            });
+            executor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "ShulkerKing-Exporter");
+                thread.setDaemon(true);
+                return thread;
+            });
+            server.setExecutor(executor);
+            server.start();
+            plugin.getLogger().info("Метрики доступны на http://" + bind + ":" + port + "/metrics");
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Не удалось запустить экспорт метрик на " + bind + ":" + port, e);
+            server = null;
+            mode = "OFF";
+        }
+    }
+
+    public synchronized void stop() {
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        if (textfileTask != null) {
+            textfileTask.cancel();
+            textfileTask = null;
+        }
+        mode = "OFF";
+    }
+
+    public synchronized String getMode() {
+        return mode;
+    }
+
+    /**
+     * Write to a temp file and move it over metrics.prom so readers never see a partial file
+     */
+    private void writeTextfile() {
+        File target = new File(plugin.getDataFolder(), "metrics.prom");
+        File temp = new File(plugin.getDataFolder(), "metrics.prom.tmp");
+        try {
+            Files.write(temp.toPath(), render().getBytes(StandardCharsets.UTF_8));
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Ошибка записи metrics.prom", e);
+        }
+    }
+
+    /**
+     * Render all metrics in Prometheus text format
+     */
+    public String render() {
+        MetricsManager metrics = plugin.getMetricsManager();
+        MetricsManager.Snapshot snapshot = metrics.snapshot(false);
+        StringBuilder out = new StringBuilder(4096);
+
+        header(out, "shulkerking_sessions_open", "gauge", "Open shulker sessions");
+        sample(out, "shulkerking_sessions_open", null, plugin.getInventoryManager().getActiveSessionsCount());
+        header(out, "shulkerking_combat_players", "gauge", "Players tagged in combat");
+        sample(out, "shulkerking_combat_players", null, plugin.getCombatManager().getCombatPlayersCount());
+        header(out, "shulkerking_cooldowns", "gauge", "Stored cooldown entries");
+        sample(out, "shulkerking_cooldowns", null, plugin.getCooldownManager().getCooldownsCount());
+
+        header(out, "shulkerking_mspt", "gauge", "Server milliseconds per tick seen by the load watcher");
+        sample(out, "shulkerking_mspt", null, plugin.getLoadManager().getMspt());
+        header(out, "shulkerking_load_level", "gauge", "Degradation level: 0 normal, 1 degraded, 2 critical");
+        sample(out, "shulkerking_load_level", null, plugin.getLoadManager().getLevel().ordinal());
+
+        header(out, "shulkerking_work_queued", "gauge", "Deferred tasks waiting for a tick budget");
+        sample(out, "shulkerking_work_queued", null, plugin.getWorkBudgetManager().getQueuedCount());
+
+        header(out, "shulkerking_saves_total", "counter", "Shulker content saves by result");
+        sample(out, "shulkerking_saves_total", "result=\"ok\"", snapshot.get(MetricsManager.Counter.SAVE_OK));
+        sample(out, "shulkerking_saves_total", "result=\"failed\"", snapshot.get(MetricsManager.Counter.SAVE_FAILED));
+        sample(out, "shulkerking_saves_total", "result=\"throttled\"", snapshot.get(MetricsManager.Counter.SAVE_THROTTLED));
+
+        header(out, "shulkerking_cooldown_denials_total", "counter", "Opens denied by cooldown");
+        sample(out, "shulkerking_cooldown_denials_total", null, snapshot.get(MetricsManager.Counter.COOLDOWN_DENIED));
+
+        header(out, "shulkerking_slow_events_total", "counter", "Handlers that ran over slow-events.budget-ms");
+        sample(out, "shulkerking_slow_events_total", null, snapshot.get(MetricsManager.Counter.SLOW_EVENT));
+
+        header(out, "shulkerking_forced_closes_total", "counter", "Anti-dupe forced closes by reason");
+        for (Map.Entry<String, Long> entry : metrics.getForcedCloses().entrySet()) {
+            sample(out, "shulkerking_forced_closes_total", "reason=\"" + escape(entry.getKey()) + "\"", entry.getValue());
+        }
+
+        header(out, "shulkerking_cache_lookups_total", "counter", "Cache lookups by cache and result");
+        sample(out, "shulkerking_cache_lookups_total", "cache=\"permission\",result=\"hit\"",
+            snapshot.get(MetricsManager.Counter.PERMISSION_CACHE_HIT));
+        sample(out, "shulkerking_cache_lookups_total", "cache=\"permission\",result=\"miss\"",
+            snapshot.get(MetricsManager.Counter.PERMISSION_CACHE_MISS));
+        sample(out, "shulkerking_cache_lookups_total", "cache=\"world\",result=\"hit\"",
+            snapshot.get(MetricsManager.Counter.WORLD_CACHE_HIT));
+        sample(out, "shulkerking_cache_lookups_total", "cache=\"world\",result=\"miss\"",
+            snapshot.get(MetricsManager.Counter.WORLD_CACHE_MISS));
+
+        header(out, "shulkerking_handler_seconds", "summary", "Handler latency since startup");
+        for (MetricsManager.Probe probe : MetricsManager.Probe.values()) {
+            MetricsManager.HistogramSnapshot histogram = snapshot.get(probe);
+            String handler = "handler=\"" + probe.getLabel() + "\"";
+            for (double quantile : QUANTILES) {
+                sample(out, "shulkerking_handler_seconds", handler + ",quantile=\"" + quantile + "\"",
+                    histogram.getPercentile(quantile) / 1e9);
+            }
+            sample(out, "shulkerking_handler_seconds_sum", handler, histogram.getTotal() / 1e9);
+            sample(out, "shulkerking_handler_seconds_count", handler, histogram.getCount());
+        }
+        return out.toString();
+    }
+
+    private static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, double value) {
+        out.append(name);
+        if (labels != null) {
+            out.append('{').append(labels).append('}');
+        }
+        out.append(' ');
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            out.append((long) value);
+        } else {
+            out.append(String.format(Locale.ROOT, "%.9g", value));
+        }
+        out.append('\n');
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
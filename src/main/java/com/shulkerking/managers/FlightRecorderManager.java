@@ -0,0 +1,89 @@
+package com.shulkerking.managers;
+
+import com.shulkerking.ShulkerKingPlugin;
+import org.bukkit.block.Block;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.logging.Level;
+
+/**
+ * Custom Java Flight Recorder events for session open, save, forced close,
+ * cooldown denial, countdown ticks and shift-place.
+ * The event classes live in com.shulkerking.jfr and are only loaded when the
+ * JVM has jdk.jfr, otherwise every call goes to a no-op sink. Events are
+ * only allocated while a recording has them enabled.
+ */
+public class FlightRecorderManager {
+
+    /**
+     * Event sink, implemented by com.shulkerking.jfr.JfrSink
+     */
+    public interface Sink {
+        /**
+         * @return event token to pass to commitOpen, null when the event is off
+         */
+        Object beginOpen();
+        void commitOpen(Object token, Player player, boolean mainHand, boolean opened);
+        Object beginSave();
+        boolean isSaveEnabled();
+        void commitSave(Object token, Player player, int changedSlots, boolean saved);
+        void forcedClose(Player player, String reason);
+        void cooldownDenied(Player player, double remainingSeconds);
+        void countdownTick(Player player, double remainingSeconds);
+        void shiftPlace(Player player, Block block, ItemStack[] contents);
+    }
+
+    private static final Sink NOOP = new Sink() {
+        @Override public Object beginOpen() { return null; }
+        @Override public void commitOpen(Object token, Player player, boolean mainHand, boolean opened) { }
+        @Override public Object beginSave() { return null; }
+        @Override public boolean isSaveEnabled() { return false; }
+        @Override public void commitSave(Object token, Player player, int changedSlots, boolean saved) { }
+        @Override public void forcedClose(Player player, String reason) { }
+        @Override public void cooldownDenied(Player player, double remainingSeconds) { }
+        @Override public void countdownTick(Player player, double remainingSeconds) { }
+        @Override public void shiftPlace(Player player, Block block, ItemStack[] contents) { }
+    };
+
+    private final ShulkerKingPlugin plugin;
+    private volatile Sink sink;
+
+    public FlightRecorderManager(ShulkerKingPlugin plugin) {
+        this.plugin = plugin;
+        this.sink = NOOP;
+    }
+
+    /**
+     * Register the JFR events if jfr.enabled is set and the JVM supports it
+     */
+    public void start() {
+        if (!plugin.getConfig().getBoolean("jfr.enabled", true)) {
+            sink = NOOP;
+            return;
+        }
+        if (sink != NOOP) {
+            return;
+        }
+        try {
+            Class.forName("jdk.jfr.FlightRecorder");
+        } catch (ClassNotFoundException e) {
+            plugin.debugLog("JFR недоступен в этой JVM, события отключены");
+            return;
+        }
+        try {
+            sink = (Sink) Class.forName("com.shulkerking.jfr.JfrSink").getConstructor().newInstance();
+            plugin.debugLog("JFR события зарегистрированы");
+        } catch (ReflectiveOperationException | LinkageError e) {
+            plugin.getLogger().log(Level.WARNING, "Не удалось зарегистрировать JFR события", e);
+        }
+    }
+
+    public boolean isAvailable() {
+        return sink != NOOP;
+    }
+
+    public Sink events() {
+        return sink;
+    }
+}
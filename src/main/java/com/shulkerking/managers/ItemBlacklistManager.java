@@ -2,98 +2,411 @@ package com.shulkerking.managers;
 
 import com.shulkerking.ShulkerKingPlugin;
 import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.enchantments.Enchantment;
 import org.bukkit.entity.Player;
 import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryDragEvent;
 import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.EnchantmentStorageMeta;
+import org.bukkit.inventory.meta.ItemMeta;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 public class ItemBlacklistManager {
-    
+
     private final ShulkerKingPlugin plugin;
-    
+
+    // Compiled from config by reloadBlacklist()
+    private volatile CompiledBlacklist blacklist;
+
     public ItemBlacklistManager(ShulkerKingPlugin plugin) {
         this.plugin = plugin;
+        reloadBlacklist();
     }
-    
+
     /**
-     * Check if item is blacklisted from being placed in shulker boxes
+     * Compile item-blacklist.items and item-blacklist.rules into a matcher.
+     * Unknown materials, enchantments and bad regexes are reported once here.
+     */
+    public void reloadBlacklist() {
+        boolean enabled = plugin.getConfig().getBoolean("item-blacklist.enabled", false);
+        String mode = plugin.getConfig().getString("item-blacklist.mode", "BLOCK").toUpperCase();
+        String message = plugin.getColorManager().error(
+            plugin.getConfig().getString("item-blacklist.message", "&cThis item cannot be placed in shulker boxes!"));
+
+        Set<Material> materials = EnumSet.noneOf(Material.class);
+        for (String name : plugin.getConfig().getStringList("item-blacklist.items")) {
+            Material material = Material.matchMaterial(name);
+            if (material == null) {
+                plugin.getLogger().warning("Unknown material in item-blacklist.items: " + name);
+                continue;
+            }
+            materials.add(material);
+        }
+
+        Map<Material, List<BlacklistRule>> rulesByMaterial = new EnumMap<>(Material.class);
+        List<BlacklistRule> anyMaterialRules = new ArrayList<>();
+        List<Map<?, ?>> ruleMaps = plugin.getConfig().getMapList("item-blacklist.rules");
+        for (int i = 0; i < ruleMaps.size(); i++) {
+            BlacklistRule rule = compileRule(ruleMaps.get(i), "item-blacklist.rules[" + i + "]");
+            if (rule == null) {
+                continue;
+            }
+            if (rule.materials.isEmpty()) {
+                anyMaterialRules.add(rule);
+            } else {
+                for (Material material : rule.materials) {
+                    rulesByMaterial.computeIfAbsent(material, m -> new ArrayList<>()).add(rule);
+                }
+            }
+        }
+
+        blacklist = new CompiledBlacklist(enabled, mode, message, materials, rulesByMaterial, anyMaterialRules);
+        plugin.debugLog("Compiled item blacklist: {} materials, {} rules", materials.size(), ruleMaps.size());
+    }
+
+    private BlacklistRule compileRule(Map<?, ?> map, String path) {
+        Set<Material> materials = EnumSet.noneOf(Material.class);
+        for (String name : toStringList(map.get("materials"))) {
+            Material material = Material.matchMaterial(name);
+            if (material == null) {
+                plugin.getLogger().warning("Unknown material in " + path + ": " + name);
+                continue;
+            }
+            materials.add(material);
+        }
+
+        Set<String> enchantments = new HashSet<>();
+        for (String name : toStringList(map.get("enchantments"))) {
+            String key = name.toLowerCase();
+            if (key.startsWith("minecraft:")) {
+                key = key.substring("minecraft:".length());
+            }
+            NamespacedKey enchantmentKey;
+            try {
+                enchantmentKey = NamespacedKey.minecraft(key);
+            } catch (IllegalArgumentException e) {
+                plugin.getLogger().warning("Invalid enchantment key in " + path + ": " + name);
+                return null;
+            }
+            if (Enchantment.getByKey(enchantmentKey) == null) {
+                plugin.getLogger().warning("Unknown enchantment in " + path + ": " + name);
+                continue;
+            }
+            enchantments.add(key);
+        }
+
+        Set<Integer> customModelData = new HashSet<>();
+        for (String value : toStringList(map.get("custom-model-data"))) {
+            try {
+                customModelData.add(Integer.parseInt(value.trim()));
+            } catch (NumberFormatException e) {
+                plugin.getLogger().warning("Invalid custom-model-data in " + path + ": " + value);
+            }
+        }
+
+        Set<String> pdcKeys = new HashSet<>();
+        for (String key : toStringList(map.get("pdc-keys"))) {
+            pdcKeys.add(key.toLowerCase());
+        }
+
+        Pattern namePattern = null;
+        Object regex = map.get("name-regex");
+        if (regex != null) {
+            try {
+                namePattern = Pattern.compile(regex.toString());
+            } catch (PatternSyntaxException e) {
+                plugin.getLogger().warning("Invalid name-regex in " + path + ": " + e.getDescription());
+                return null;
+            }
+        }
+
+        boolean exclude = Boolean.parseBoolean(String.valueOf(map.get("exclude")));
+
+        if (materials.isEmpty() && enchantments.isEmpty() && customModelData.isEmpty() &&
+            pdcKeys.isEmpty() && namePattern == null) {
+            plugin.getLogger().warning("Ignoring empty blacklist rule " + path);
+            return null;
+        }
+
+        return new BlacklistRule(materials, enchantments, customModelData, pdcKeys, namePattern, exclude);
+    }
+
+    private static List<String> toStringList(Object value) {
+        if (value == null) {
+            return Collections.emptyList();
+        }
+        List<String> result = new ArrayList<>();
+        if (value instanceof List) {
+            for (Object element : (List<?>) value) {
+                result.add(String.valueOf(element));
+            }
+        } else {
+            result.add(String.valueOf(value));
+        }
+        return result;
+    }
+
+    /**
+     * Check if item is blacklisted from being placed in shulker boxes.
+     * Only rules that can apply to the item's material are evaluated.
      */
     public boolean isBlacklisted(ItemStack item) {
-        if (!plugin.getConfig().getBoolean("item-blacklist.enabled", false)) {
+        CompiledBlacklist current = blacklist;
+        if (!current.enabled) {
             return false;
         }
-        
+
         if (item == null || item.getType() == Material.AIR) {
             return false;
         }
-        
-        List<String> blacklistedItems = plugin.getConfig().getStringList("item-blacklist.items");
-        String itemType = item.getType().name();
-        
-        return blacklistedItems.contains(itemType);
+
+        return current.matches(item);
     }
-    
+
     /**
      * Handle blacklisted item placement attempt
+     * @param fromCursor true if the item is on the cursor, false if it is in the clicked slot
      */
-    public void handleBlacklistedItem(Player player, ItemStack item, InventoryClickEvent event) {
-        String action = plugin.getConfig().getString("item-blacklist.mode", "BLOCK");
-        String message = getBlacklistMessage();
-        
-        switch (action.toUpperCase()) {
+    public void handleBlacklistedItem(Player player, ItemStack item, InventoryClickEvent event, boolean fromCursor) {
+        CompiledBlacklist current = blacklist;
+        String message = current.message;
+
+        switch (current.mode) {
             case "BLOCK":
-                // Item placement will be cancelled by the calling method
+                event.setCancelled(true);
                 player.sendMessage(message);
                 plugin.getSoundManager().playBlockedSound(player);
                 break;
-                
+
             case "REMOVE":
-                // Remove the item from inventory
-                player.getInventory().remove(item);
+                // Remove only the stack that was being moved
+                event.setCancelled(true);
+                if (fromCursor) {
+                    event.getView().setCursor(null);
+                } else {
+                    event.setCurrentItem(null);
+                }
                 player.sendMessage(message);
                 plugin.getSoundManager().playBlockedSound(player);
-                plugin.debugLog("Removed blacklisted item " + item.getType() + " from " + player.getName());
+                plugin.debugLog("Removed blacklisted item {} from {}", item.getType(), player.getName());
                 break;
-                
+
             case "WARN":
                 // Just warn the player but allow the action
                 player.sendMessage(message);
                 break;
-                
+
             default:
+                event.setCancelled(true);
                 player.sendMessage(message);
                 plugin.getSoundManager().playBlockedSound(player);
                 break;
         }
     }
-    
+
+    /**
+     * Handle blacklisted item dragged from the cursor, same modes as for clicks
+     */
+    public void handleBlacklistedItem(Player player, ItemStack item, InventoryDragEvent event) {
+        CompiledBlacklist current = blacklist;
+        String message = current.message;
+
+        switch (current.mode) {
+            case "REMOVE":
+                // A denied drag gives the old cursor back after the event, so clear it on the next tick
+                event.setCancelled(true);
+                ItemStack dragged = item.clone();
+                plugin.getSchedulerManager().runForEntityLater(player, () -> {
+                    if (dragged.equals(player.getItemOnCursor())) {
+                        player.setItemOnCursor(null);
+                    }
+                }, 1L);
+                player.sendMessage(message);
+                plugin.getSoundManager().playBlockedSound(player);
+                plugin.debugLog("Removed blacklisted item {} from {}", item.getType(), player.getName());
+                break;
+
+            case "WARN":
+                // Just warn the player but allow the action
+                player.sendMessage(message);
+                break;
+
+            case "BLOCK":
+            default:
+                event.setCancelled(true);
+                player.sendMessage(message);
+                plugin.getSoundManager().playBlockedSound(player);
+                break;
+        }
+    }
+
     /**
      * Get blacklisted item message
      */
     public String getBlacklistMessage() {
-        String message = plugin.getConfig().getString("item-blacklist.message", "&cThis item cannot be placed in shulker boxes!");
-        return plugin.getColorManager().error(message);
+        return blacklist.message;
     }
-    
+
     /**
      * Check if item blacklist is enabled
      */
     public boolean isBlacklistEnabled() {
-        return plugin.getConfig().getBoolean("item-blacklist.enabled", false);
+        return blacklist.enabled;
     }
-    
+
     /**
      * Get list of blacklisted items
      */
     public List<String> getBlacklistedItems() {
         return plugin.getConfig().getStringList("item-blacklist.items");
     }
-    
+
     /**
      * Get blacklist action type
      */
     public String getBlacklistAction() {
-        return plugin.getConfig().getString("item-blacklist.mode", "BLOCK");
+        return blacklist.mode;
+    }
+
+    /**
+     * Immutable blacklist built from config
+     */
+    private static class CompiledBlacklist {
+        private final boolean enabled;
+        private final String mode;
+        private final String message;
+        private final Set<Material> materials;
+        private final Map<Material, List<BlacklistRule>> rulesByMaterial;
+        private final List<BlacklistRule> anyMaterialRules;
+
+        CompiledBlacklist(boolean enabled, String mode, String message, Set<Material> materials,
+                          Map<Material, List<BlacklistRule>> rulesByMaterial, List<BlacklistRule> anyMaterialRules) {
+            this.enabled = enabled;
+            this.mode = mode;
+            this.message = message;
+            this.materials = materials;
+            this.rulesByMaterial = rulesByMaterial;
+            this.anyMaterialRules = anyMaterialRules;
+        }
+
+        boolean matches(ItemStack item) {
+            List<BlacklistRule> materialRules = rulesByMaterial.get(item.getType());
+            if (materialRules == null && anyMaterialRules.isEmpty()) {
+                return materials.contains(item.getType());
+            }
+
+            // Meta is fetched at most once and only if a rule needs it
+            ItemMeta[] meta = new ItemMeta[1];
+            boolean included = materials.contains(item.getType()) ||
+                anyMatch(materialRules, item, meta, false) ||
+                anyMatch(anyMaterialRules, item, meta, false);
+            if (!included) {
+                return false;
+            }
+
+            return !anyMatch(materialRules, item, meta, true) &&
+                !anyMatch(anyMaterialRules, item, meta, true);
+        }
+
+        private static boolean anyMatch(List<BlacklistRule> rules, ItemStack item, ItemMeta[] meta, boolean exclude) {
+            if (rules == null) {
+                return false;
+            }
+            for (BlacklistRule rule : rules) {
+                if (rule.exclude == exclude && rule.test(item, meta)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * One rule from item-blacklist.rules. All configured conditions must match,
+     * any value inside a condition is enough.
+     */
+    private static class BlacklistRule {
+        private final Set<Material> materials;
+        private final Set<String> enchantments;
+        private final Set<Integer> customModelData;
+        private final Set<String> pdcKeys;
+        private final Pattern namePattern;
+        private final boolean exclude;
+
+        BlacklistRule(Set<Material> materials, Set<String> enchantments, Set<Integer> customModelData,
+                      Set<String> pdcKeys, Pattern namePattern, boolean exclude) {
+            this.materials = materials;
+            this.enchantments = enchantments;
+            this.customModelData = customModelData;
+            this.pdcKeys = pdcKeys;
+            this.namePattern = namePattern;
+            this.exclude = exclude;
+        }
+
+        boolean test(ItemStack item, ItemMeta[] metaHolder) {
+            if (!materials.isEmpty() && !materials.contains(item.getType())) {
+                return false;
+            }
+            if (enchantments.isEmpty() && customModelData.isEmpty() && pdcKeys.isEmpty() && namePattern == null) {
+                return true;
+            }
+            if (!item.hasItemMeta()) {
+                return false;
+            }
+            if (metaHolder[0] == null) {
+                metaHolder[0] = item.getItemMeta();
+            }
+            ItemMeta meta = metaHolder[0];
+
+            // Enchanted books keep their enchantments as stored enchants
+            if (!enchantments.isEmpty() && !hasEnchantment(meta.getEnchants())
+                && !(meta instanceof EnchantmentStorageMeta
+                    && hasEnchantment(((EnchantmentStorageMeta) meta).getStoredEnchants()))) {
+                return false;
+            }
+
+            if (!customModelData.isEmpty() &&
+                (!meta.hasCustomModelData() || !customModelData.contains(meta.getCustomModelData()))) {
+                return false;
+            }
+
+            if (!pdcKeys.isEmpty()) {
+                boolean found = false;
+                for (NamespacedKey key : meta.getPersistentDataContainer().getKeys()) {
+                    if (pdcKeys.contains(key.toString())) {
+                        found = true;
+                        break;
+                    }
+                }
+                if (!found) return false;
+            }
+
+            if (namePattern != null &&
+                (!meta.hasDisplayName() || !namePattern.matcher(meta.getDisplayName()).find())) {
+                return false;
+            }
+
+            return true;
+        }
+
+        private boolean hasEnchantment(Map<Enchantment, Integer> present) {
+            for (Enchantment enchantment : present.keySet()) {
+                if (enchantments.contains(enchantment.getKey().getKey())) {
+                    return true;
+                }
+            }
+            return false;
+        }
     }
 }
@@ -0,0 +1,577 @@
+package com.shulkerking.managers;
+
+import com.shulkerking.ShulkerKingPlugin;
+import com.shulkerking.holders.ShulkerInventoryHolder;
+import org.bukkit.Material;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead journal of shulker sessions.
+ * Open, slot change and close records are appended to journal/sessions.wal by
+ * a background writer, so the contents of a shulker that was open during a
+ * crash can be recovered. Every record carries a CRC32, a torn tail left by a
+ * crash is detected and ignored. The file is compacted when it grows and
+ * removed on clean shutdown. Sessions left open by a crash are reported on the
+ * next start.
+ */
+public class JournalManager {
+
+    private static final byte RECORD_OPEN = 1;
+    private static final byte RECORD_SLOT = 2;
+    private static final byte RECORD_CLOSE = 3;
+    private static final int MAX_RECORD_SIZE = 8 * 1024 * 1024;
+    private static final int MAX_BATCH = 512;
+    private static final Record STOP = new Record((byte) 0, null, 0L, null, null, -1, null);
+
+    private final ShulkerKingPlugin plugin;
+    private final File journalDir;
+    private final File journalFile;
+    private final LinkedBlockingQueue<Record> queue;
+    // Last journaled contents per open session, only touched on the player's thread
+    private final Map<UUID, ItemStack[]> journaledContents;
+    private final Set<UUID> pendingCaptures;
+    private final AtomicLong writtenRecords;
+
+    private volatile boolean enabled;
+    private volatile boolean fsync;
+    private volatile long compactThreshold;
+    private Thread writerThread;
+
+    // Writer thread state
+    private FileChannel channel;
+    private final Map<String, LiveSession> liveSessions;
+
+    public JournalManager(ShulkerKingPlugin plugin) {
+        this.plugin = plugin;
+        this.journalDir = new File(plugin.getDataFolder(), "journal");
+        this.journalFile = new File(journalDir, "sessions.wal");
+        this.queue = new LinkedBlockingQueue<>();
+        this.journaledContents = new ConcurrentHashMap<>();
+        this.pendingCaptures = ConcurrentHashMap.newKeySet();
+        this.writtenRecords = new AtomicLong();
+        this.liveSessions = new LinkedHashMap<>();
+    }
+
+    /**
+     * Report sessions left open by a crash and start the writer
+     */
+    public void start() {
+        enabled = plugin.getConfig().getBoolean("journal.enabled", true);
+        fsync = plugin.getConfig().getBoolean("journal.fsync", true);
+        compactThreshold = plugin.getConfig().getLong("journal.compact-size-kb", 4096L) * 1024L;
+
+        recoverUnclosedSessions();
+        if (!enabled) {
+            return;
+        }
+
+        try {
+            if (!journalDir.exists() && !journalDir.mkdirs()) {
+                throw new IOException("Cannot create " + journalDir);
+            }
+            channel = FileChannel.open(journalFile.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Журнал сессий отключен: не удалось открыть файл", e);
+            enabled = false;
+            return;
+        }
+
+        writerThread = new Thread(this::runWriter, "ShulkerKing-Journal");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Write pending records and compact the journal. Sessions that are still
+     * open are kept, an empty journal is deleted.
+     * @return number of records written while draining
+     */
+    public int close() throws InterruptedException {
+        if (writerThread == null) {
+            return 0;
+        }
+        enabled = false;
+        long before = writtenRecords.get();
+        queue.add(STOP);
+        writerThread.join();
+        writerThread = null;
+        return (int) (writtenRecords.get() - before);
+    }
+
+    /**
+     * Apply changed journal settings. fsync and compaction apply in place,
+     * turning the journal on or off waits for a restart because the running
+     * journal holds the state of open sessions.
+     */
+    public void reload() {
+        fsync = plugin.getConfig().getBoolean("journal.fsync", true);
+        compactThreshold = plugin.getConfig().getLong("journal.compact-size-kb", 4096L) * 1024L;
+        if (plugin.getConfig().getBoolean("journal.enabled", true) != (writerThread != null)) {
+            plugin.getLogger().warning("journal.enabled вступит в силу после перезапуска сервера");
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    public long getWrittenRecords() {
+        return writtenRecords.get();
+    }
+
+    /**
+     * Journal a newly opened session with its initial contents
+     */
+    public void recordOpen(Player player, ShulkerInventoryManager.ShulkerSession session, ItemStack[] contents) {
+        if (!enabled) {
+            return;
+        }
+        ItemStack[] snapshot = new ItemStack[contents.length];
+        queue.add(new Record(RECORD_OPEN, session.getPlayerId(), session.getStartTime(),
+            player.getName(), session.getOriginalItem().getType().name(), -1, null));
+        for (int slot = 0; slot < contents.length; slot++) {
+            if (!isEmpty(contents[slot])) {
+                snapshot[slot] = contents[slot].clone();
+                queue.add(slotRecord(session, slot, snapshot[slot]));
+            }
+        }
+        journaledContents.put(session.getPlayerId(), snapshot);
+    }
+
+    /**
+     * Schedule a diff of the player's open shulker on the next tick,
+     * when the click or drag has been applied to the inventory
+     */
+    public void markDirty(Player player) {
+        if (!enabled || !pendingCaptures.add(player.getUniqueId())) {
+            return;
+        }
+        plugin.getSchedulerManager().runForEntityLater(player, () -> {
+            pendingCaptures.remove(player.getUniqueId());
+            captureChanges(player);
+        }, 1L);
+    }
+
+    /**
+     * Journal slots that changed since the last capture
+     */
+    public void captureChanges(Player player) {
+        ItemStack[] journaled = journaledContents.get(player.getUniqueId());
+        ShulkerInventoryManager.ShulkerSession session = plugin.getInventoryManager().getSession(player);
+        if (!enabled || journaled == null || session == null) {
+            return;
+        }
+
+        Inventory top = player.getOpenInventory().getTopInventory();
+        if (!(top.getHolder() instanceof ShulkerInventoryHolder) ||
+            !((ShulkerInventoryHolder) top.getHolder()).isActiveFor(session)) {
+            return;
+        }
+
+        ItemStack[] contents = top.getContents();
+        for (int slot = 0; slot < contents.length && slot < journaled.length; slot++) {
+            ItemStack current = isEmpty(contents[slot]) ? null : contents[slot];
+            if (!Objects.equals(current, journaled[slot])) {
+                journaled[slot] = current != null ? current.clone() : null;
+                queue.add(slotRecord(session, slot, journaled[slot]));
+            }
+        }
+    }
+
+    /**
+     * Journal that a session's contents are now stored in its item
+     */
+    public void recordClose(ShulkerInventoryManager.ShulkerSession session) {
+        journaledContents.remove(session.getPlayerId());
+        if (!enabled) {
+            return;
+        }
+        queue.add(new Record(RECORD_CLOSE, session.getPlayerId(), session.getStartTime(), null, null, -1, null));
+    }
+
+    private static Record slotRecord(ShulkerInventoryManager.ShulkerSession session, int slot, ItemStack item) {
+        return new Record(RECORD_SLOT, session.getPlayerId(), session.getStartTime(), null, null, slot, item);
+    }
+
+    private static boolean isEmpty(ItemStack item) {
+        return item == null || item.getType() == Material.AIR;
+    }
+
+    private void runWriter() {
+        List<Record> batch = new ArrayList<>();
+        boolean stopping = false;
+        try {
+            while (!stopping) {
+                batch.add(queue.take());
+                queue.drainTo(batch, MAX_BATCH);
+                stopping = batch.remove(STOP);
+                // Records enqueued before close() are still written
+                if (stopping) {
+                    queue.drainTo(batch);
+                    batch.remove(STOP);
+                }
+                writeBatch(batch);
+                batch.clear();
+
+                if (channel.size() > compactThreshold) {
+                    compact();
+                }
+            }
+
+            if (liveSessions.isEmpty()) {
+                channel.close();
+                Files.deleteIfExists(journalFile.toPath());
+            } else {
+                compact();
+                channel.close();
+                plugin.getLogger().warning("В журнале остались открытые сессии: " + liveSessions.size());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Ошибка записи журнала сессий, журнал отключен", e);
+            enabled = false;
+        }
+    }
+
+    private void writeBatch(List<Record> batch) throws IOException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        for (Record record : batch) {
+            byte[] frame = encodeFrame(record);
+            buffer.write(frame);
+            track(record, frame);
+        }
+        writeFully(channel, buffer.toByteArray());
+        if (fsync) {
+            channel.force(false);
+        }
+        writtenRecords.addAndGet(batch.size());
+    }
+
+    /**
+     * Keep the frames needed to rebuild open sessions during compaction
+     */
+    private void track(Record record, byte[] frame) {
+        String key = record.sessionKey();
+        switch (record.type) {
+            case RECORD_OPEN:
+                liveSessions.put(key, new LiveSession(frame));
+                break;
+            case RECORD_SLOT:
+                LiveSession live = liveSessions.get(key);
+                if (live != null) {
+                    if (record.item == null) {
+                        live.slotFrames.remove(record.slot);
+                    } else {
+                        live.slotFrames.put(record.slot, frame);
+                    }
+                }
+                break;
+            case RECORD_CLOSE:
+                liveSessions.remove(key);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Rewrite the journal with only the state of open sessions
+     */
+    private void compact() throws IOException {
+        File tempFile = new File(journalDir, "sessions.wal.tmp");
+        try (FileChannel temp = FileChannel.open(tempFile.toPath(),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (LiveSession live : liveSessions.values()) {
+                writeFully(temp, live.openFrame);
+                for (byte[] slotFrame : live.slotFrames.values()) {
+                    writeFully(temp, slotFrame);
+                }
+            }
+            temp.force(true);
+        }
+        channel.close();
+        Files.move(tempFile.toPath(), journalFile.toPath(),
+            StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(journalFile.toPath(), StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        plugin.debugLog("Журнал сжат, открытых сессий: {}", liveSessions.size());
+    }
+
+    private static void writeFully(FileChannel target, byte[] data) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        while (buffer.hasRemaining()) {
+            target.write(buffer);
+        }
+    }
+
+    /**
+     * Frame layout: int payload length, int CRC32 of payload, payload
+     */
+    private static byte[] encodeFrame(Record record) throws IOException {
+        ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream();
+        DataOutputStream payload = new DataOutputStream(payloadBytes);
+        payload.writeByte(record.type);
+        payload.writeLong(record.playerId.getMostSignificantBits());
+        payload.writeLong(record.playerId.getLeastSignificantBits());
+        payload.writeLong(record.sessionStart);
+        payload.writeLong(record.timestamp);
+        if (record.type == RECORD_OPEN) {
+            payload.writeUTF(record.playerName);
+            payload.writeUTF(record.itemType);
+        } else if (record.type == RECORD_SLOT) {
+            payload.writeShort(record.slot);
+            byte[] item = serializeItem(record.item);
+            payload.writeInt(item.length);
+            payload.write(item);
+        }
+        payload.flush();
+        byte[] data = payloadBytes.toByteArray();
+
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length);
+
+        ByteArrayOutputStream frameBytes = new ByteArrayOutputStream(data.length + 8);
+        DataOutputStream frame = new DataOutputStream(frameBytes);
+        frame.writeInt(data.length);
+        frame.writeInt((int) crc.getValue());
+        frame.write(data);
+        frame.flush();
+        return frameBytes.toByteArray();
+    }
+
+    private static byte[] serializeItem(ItemStack item) {
+        if (item == null) {
+            return new byte[0];
+        }
+        YamlConfiguration yaml = new YamlConfiguration();
+        yaml.set("item", item);
+        return yaml.saveToString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static ItemStack deserializeItem(byte[] data) {
+        if (data.length == 0) {
+            return null;
+        }
+        try {
+            YamlConfiguration yaml = new YamlConfiguration();
+            yaml.loadFromString(new String(data, StandardCharsets.UTF_8));
+            return yaml.getItemStack("item");
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * Read the journal left by the previous run and write every session that
+     * was never closed to journal/unclosed-<time>.yml for admin review
+     */
+    private void recoverUnclosedSessions() {
+        if (!journalFile.exists()) {
+            return;
+        }
+
+        Map<String, RecoveredSession> sessions = new LinkedHashMap<>();
+        int records = 0;
+        boolean torn = false;
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(journalFile.toPath())))) {
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                if (length <= 0 || length > MAX_RECORD_SIZE || in.available() < length + 4) {
+                    torn = true;
+                    break;
+                }
+                int checksum = in.readInt();
+                byte[] data = new byte[length];
+                in.readFully(data);
+                CRC32 crc = new CRC32();
+                crc.update(data, 0, data.length);
+                if ((int) crc.getValue() != checksum) {
+                    torn = true;
+                    break;
+                }
+                applyRecovered(sessions, data);
+                records++;
+            }
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Не удалось прочитать журнал сессий", e);
+            return;
+        }
+
+        if (torn) {
+            plugin.getLogger().warning("Журнал сессий обрезан после записи " + records + ", остаток проигнорирован");
+        }
+
+        if (!sessions.isEmpty()) {
+            writeReport(sessions);
+        }
+
+        try {
+            Files.deleteIfExists(journalFile.toPath());
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Не удалось удалить старый журнал сессий", e);
+        }
+    }
+
+    private static void applyRecovered(Map<String, RecoveredSession> sessions, byte[] data) throws IOException {
+        DataInputStream payload = new DataInputStream(new ByteArrayInputStream(data));
+        byte type = payload.readByte();
+        UUID playerId = new UUID(payload.readLong(), payload.readLong());
+        long sessionStart = payload.readLong();
+        long timestamp = payload.readLong();
+        String key = playerId + ":" + sessionStart;
+
+        if (type == RECORD_OPEN) {
+            sessions.put(key, new RecoveredSession(playerId, payload.readUTF(), payload.readUTF(), sessionStart));
+        } else if (type == RECORD_SLOT) {
+            RecoveredSession session = sessions.get(key);
+            int slot = payload.readShort();
+            byte[] item = new byte[payload.readInt()];
+            payload.readFully(item);
+            if (session != null) {
+                session.lastChange = timestamp;
+                if (item.length == 0) {
+                    session.slots.remove(slot);
+                } else {
+                    session.slots.put(slot, item);
+                }
+            }
+        } else if (type == RECORD_CLOSE) {
+            sessions.remove(key);
+        }
+    }
+
+    private void writeReport(Map<String, RecoveredSession> sessions) {
+        String time = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+        File reportFile = new File(journalDir, "unclosed-" + time + ".yml");
+        YamlConfiguration report = new YamlConfiguration();
+
+        int index = 0;
+        for (RecoveredSession session : sessions.values()) {
+            ConfigurationSection section = report.createSection("sessions." + index++);
+            section.set("player", session.playerName);
+            section.set("uuid", session.playerId.toString());
+            section.set("item", session.itemType);
+            section.set("opened", new Date(session.sessionStart).toString());
+            section.set("last-change", new Date(session.lastChange).toString());
+            for (Map.Entry<Integer, byte[]> slot : session.slots.entrySet()) {
+                section.set("slots." + slot.getKey(), deserializeItem(slot.getValue()));
+            }
+            plugin.getLogger().warning("Шалкер " + session.itemType + " игрока " + session.playerName +
+                " не был закрыт до остановки сервера, предметов в слотах: " + session.slots.size());
+        }
+
+        try {
+            report.save(reportFile);
+            plugin.getLogger().warning("Незакрытых сессий: " + sessions.size() + ", отчет: " + reportFile.getPath());
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Не удалось сохранить отчет о незакрытых сессиях", e);
+        }
+    }
+
+    /**
+     * Journal entry built on the player's thread and encoded by the writer
+     */
+    private static class Record {
+        private final byte type;
+        private final UUID playerId;
+        private final long sessionStart;
+        private final long timestamp;
+        private final String playerName;
+        private final String itemType;
+        private final int slot;
+        private final ItemStack item;
+
+        Record(byte type, UUID playerId, long sessionStart, String playerName, String itemType, int slot, ItemStack item) {
+            this.type = type;
+            this.playerId = playerId;
+            this.sessionStart = sessionStart;
+            this.timestamp = System.currentTimeMillis();
+            this.playerName = playerName;
+            this.itemType = itemType;
+            this.slot = slot;
+            this.item = item;
+        }
+
+        String sessionKey() {
+            return playerId + ":" + sessionStart;
+        }
+    }
+
+    /**
+     * Frames of an open session, used to compact the journal
+     */
+    private static class LiveSession {
+        private final byte[] openFrame;
+        private final Map<Integer, byte[]> slotFrames = new TreeMap<>();
+
+        LiveSession(byte[] openFrame) {
+            this.openFrame = openFrame;
+        }
+    }
+
+    /**
+     * Session read back from the journal of the previous run
+     */
+    private static class RecoveredSession {
+        private final UUID playerId;
+        private final String playerName;
+        private final String itemType;
+        private final long sessionStart;
+        private final Map<Integer, byte[]> slots = new TreeMap<>();
+        private long lastChange;
+
+        RecoveredSession(UUID playerId, String playerName, String itemType, long sessionStart) {
+            this.playerId = playerId;
+            this.playerName = playerName;
+            this.itemType = itemType;
+            this.sessionStart = sessionStart;
+            this.lastChange = sessionStart;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.shulkerking.managers;
+
+import com.shulkerking.ShulkerKingPlugin;
+
+import java.lang.reflect.Method;
+
+/**
+ * Server load watcher that lets cosmetic work back off while the server lags.
+ * MSPT is taken from Paper's average tick time when the server has it,
+ * otherwise from a smoothed interval between global ticks, which never goes
+ * below 50 ms. Higher levels are entered as soon as MSPT passes a threshold
+ * and left only after it stays below the threshold minus load.hysteresis-mspt
+ * for load.recover-seconds.
+ */
+public class LoadManager {
+
+    /**
+     * Degradation levels, ordered by severity
+     */
+    public enum Level {
+        NORMAL, DEGRADED, CRITICAL
+    }
+
+    private static final long EVALUATE_TICKS = 20L;
+    // Weight of the newest tick interval, about one second of smoothing
+    private static final double SMOOTHING = 0.05;
+
+    private final ShulkerKingPlugin plugin;
+    private Method averageTickTime;
+    private SchedulerManager.Task tickTask;
+
+    private volatile Level level = Level.NORMAL;
+    private volatile double mspt = ClockManager.MILLIS_PER_TICK;
+
+    // Only touched by the global tick task
+    private long lastTickNanos;
+    private double smoothedInterval;
+    private long ticks;
+    private int belowSeconds;
+
+    private volatile boolean enabled;
+    private double degradedMspt;
+    private double criticalMspt;
+    private double hysteresisMspt;
+    private int recoverSeconds;
+    private volatile int countdownInterval;
+    private volatile long degradedSaveThrottle;
+    private volatile long criticalSaveThrottle;
+
+    public LoadManager(ShulkerKingPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Read load settings and start watching tick times
+     */
+    public synchronized void start() {
+        stop();
+        enabled = plugin.getConfig().getBoolean("load.enabled", true);
+        degradedMspt = plugin.getConfig().getDouble("load.degraded-mspt", 55.0);
+        criticalMspt = Math.max(degradedMspt, plugin.getConfig().getDouble("load.critical-mspt", 75.0));
+        hysteresisMspt = Math.max(0.0, plugin.getConfig().getDouble("load.hysteresis-mspt", 5.0));
+        recoverSeconds = Math.max(1, plugin.getConfig().getInt("load.recover-seconds", 10));
+        countdownInterval = Math.max(1, plugin.getConfig().getInt("load.countdown-interval-seconds", 5));
+        degradedSaveThrottle = Math.max(0L, plugin.getConfig().getLong("load.degraded-save-throttle-ms", 250L));
+        criticalSaveThrottle = Math.max(0L, plugin.getConfig().getLong("load.critical-save-throttle-ms", 1000L));
+        level = Level.NORMAL;
+        if (!enabled) {
+            return;
+        }
+
+        try {
+            averageTickTime = plugin.getServer().getClass().getMethod("getAverageTickTime");
+        } catch (NoSuchMethodException e) {
+            averageTickTime = null;
+        }
+        lastTickNanos = 0L;
+        smoothedInterval = ClockManager.MILLIS_PER_TICK;
+        ticks = 0L;
+        belowSeconds = 0;
+        tickTask = plugin.getSchedulerManager().runGlobalTimer(this::tick, 1L, 1L);
+    }
+
+    public synchronized void stop() {
+        if (tickTask != null) {
+            tickTask.cancel();
+            tickTask = null;
+        }
+        level = Level.NORMAL;
+    }
+
+    private void tick() {
+        long now = System.nanoTime();
+        if (lastTickNanos != 0L) {
+            double interval = (now - lastTickNanos) / 1_000_000.0;
+            smoothedInterval += (interval - smoothedInterval) * SMOOTHING;
+        }
+        lastTickNanos = now;
+        if (++ticks % EVALUATE_TICKS == 0) {
+            evaluate(readMspt());
+        }
+    }
+
+    private double readMspt() {
+        if (averageTickTime != null) {
+            try {
+                return ((Number) averageTickTime.invoke(plugin.getServer())).doubleValue();
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                plugin.debugLog("getAverageTickTime недоступен, MSPT по интервалу тиков: {}", e.getMessage());
+                averageTickTime = null;
+            }
+        }
+        return smoothedInterval;
+    }
+
+    private void evaluate(double current) {
+        mspt = current;
+        Level target = current >= criticalMspt ? Level.CRITICAL
+            : current >= degradedMspt ? Level.DEGRADED : Level.NORMAL;
+        Level previous = level;
+        if (target.compareTo(previous) > 0) {
+            belowSeconds = 0;
+            setLevel(target, current);
+            return;
+        }
+        // Step down one level once MSPT stayed clearly below the current threshold
+        double threshold = previous == Level.CRITICAL ? criticalMspt : degradedMspt;
+        if (previous != Level.NORMAL && current < threshold - hysteresisMspt) {
+            if (++belowSeconds >= recoverSeconds) {
+                belowSeconds = 0;
+                setLevel(Level.values()[previous.ordinal() - 1], current);
+            }
+        } else {
+            belowSeconds = 0;
+        }
+    }
+
+    private void setLevel(Level next, double current) {
+        Level previous = level;
+        level = next;
+        plugin.getLogger().info(String.format("Нагрузка сервера: %s -> %s (MSPT %.1f)", previous, next, current));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Level getLevel() {
+        return level;
+    }
+
+    public double getMspt() {
+        return mspt;
+    }
+
+    public boolean isDegraded() {
+        return level != Level.NORMAL;
+    }
+
+    public boolean isCritical() {
+        return level == Level.CRITICAL;
+    }
+
+    /**
+     * Seconds between visual countdown lore updates at the current level
+     */
+    public int getCountdownInterval() {
+        return level == Level.NORMAL ? 1 : countdownInterval;
+    }
+
+    /**
+     * Minimal time between click saves at the current level
+     */
+    public long getSaveThrottleMillis(long normal) {
+        switch (level) {
+            case CRITICAL:
+                return Math.max(normal, criticalSaveThrottle);
+            case DEGRADED:
+                return Math.max(normal, degradedSaveThrottle);
+            default:
+                return normal;
+        }
+    }
+}
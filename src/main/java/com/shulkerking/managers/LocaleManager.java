@@ -1,6 +1,7 @@
 package com.shulkerking.managers;
 
 import com.shulkerking.ShulkerKingPlugin;
+import org.bukkit.configuration.InvalidConfigurationException;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.entity.Player;
@@ -9,169 +10,271 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.Reader;
 import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 
 public class LocaleManager {
-    
+
+    // Languages bundled inside the plugin jar, checked against the jar on scan
+    private static final String[] BUNDLED_LANGUAGES = {
+        "en_us", "ru_ru", "es_es", "de_de", "fr_fr"
+    };
+
     private final ShulkerKingPlugin plugin;
-    private final Map<String, FileConfiguration> languages;
-    private final String defaultLanguage;
-    
+    // Parsed and colorized messages per language, filled on first use
+    private final Map<String, Map<String, String>> languages;
+    // Languages that were requested but could not be found anywhere
+    private final Set<String> missingLanguages;
+    private volatile Set<String> availableLanguages;
+    private volatile String defaultLanguage;
+    private volatile boolean autoDetect;
+
     public LocaleManager(ShulkerKingPlugin plugin) {
         this.plugin = plugin;
-        this.languages = new HashMap<>();
-        this.defaultLanguage = plugin.getConfig().getString("language.default", "en_us");
-        
-        loadLanguages();
-    }
-    
-    private void loadLanguages() {
-        // Supported languages
-        String[] supportedLanguages = {
-            "en_us", "ru_ru", "es_es", "de_de", "fr_fr", 
-            "zh_cn", "ja_jp", "pt_br", "it_it", "pl_pl"
-        };
-        
-        for (String lang : supportedLanguages) {
-            loadLanguage(lang);
+        this.languages = new ConcurrentHashMap<>();
+        this.missingLanguages = ConcurrentHashMap.newKeySet();
+
+        loadSettings();
+        scanLanguages();
+    }
+
+    private void loadSettings() {
+        this.defaultLanguage = plugin.getConfig().getString("language.default", "en_us").toLowerCase();
+        this.autoDetect = plugin.getConfig().getBoolean("language.auto-detect", true);
+    }
+
+    /**
+     * Collect language codes available in the data folder and in the jar
+     * without parsing any of them
+     */
+    private void scanLanguages() {
+        Set<String> available = new LinkedHashSet<>();
+        for (String code : BUNDLED_LANGUAGES) {
+            if (hasBundledLanguage(code)) {
+                available.add(code);
+            }
+        }
+
+        File[] files = new File(plugin.getDataFolder(), "languages").listFiles((dir, name) -> name.endsWith(".yml"));
+        if (files != null) {
+            for (File file : files) {
+                String name = file.getName();
+                available.add(name.substring(0, name.length() - 4).toLowerCase());
+            }
         }
-        
-        plugin.getLogger().info("Loaded " + languages.size() + " language files");
+
+        availableLanguages = Collections.unmodifiableSet(available);
+        plugin.debugLog("Found {} language candidates", available.size());
     }
-    
-    private void loadLanguage(String languageCode) {
+
+    private boolean hasBundledLanguage(String languageCode) {
+        try (InputStream stream = plugin.getResource("languages/" + languageCode + ".yml")) {
+            return stream != null;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Get parsed messages for a language, loading it on first request
+     * @return messages or null if the language does not exist
+     */
+    private Map<String, String> getLanguage(String languageCode) {
+        Map<String, String> messages = languages.get(languageCode);
+        if (messages != null || missingLanguages.contains(languageCode)) {
+            return messages;
+        }
+
+        messages = loadLanguage(languageCode);
+        if (messages == null) {
+            missingLanguages.add(languageCode);
+            return null;
+        }
+
+        Map<String, String> existing = languages.putIfAbsent(languageCode, messages);
+        return existing != null ? existing : messages;
+    }
+
+    private Map<String, String> loadLanguage(String languageCode) {
         try {
-            // Try to load from plugin data folder first
+            // Files in the data folder override the bundled ones
             File langFile = new File(plugin.getDataFolder(), "languages/" + languageCode + ".yml");
             FileConfiguration config;
-            
+
             if (langFile.exists()) {
                 config = YamlConfiguration.loadConfiguration(langFile);
             } else {
-                // Load from resources
+                // Read bundled defaults straight from the jar
                 InputStream stream = plugin.getResource("languages/" + languageCode + ".yml");
                 if (stream == null) {
-                    plugin.getLogger().warning("Language file not found: " + languageCode + ".yml");
-                    return;
+                    plugin.debugLog("Language file not found: {}.yml", languageCode);
+                    return null;
+                }
+
+                try (Reader reader = new InputStreamReader(stream, StandardCharsets.UTF_8)) {
+                    config = YamlConfiguration.loadConfiguration(reader);
                 }
-                
-                config = YamlConfiguration.loadConfiguration(new InputStreamReader(stream, StandardCharsets.UTF_8));
-                
-                // Save to data folder for customization
-                saveLanguageFile(languageCode, config);
             }
-            
-            languages.put(languageCode, config);
-            plugin.debugLog("Loaded language: " + languageCode);
-            
+
+            plugin.debugLog("Loaded language: {}", languageCode);
+            return toMessages(config);
+
         } catch (Exception e) {
             plugin.getLogger().log(Level.WARNING, "Failed to load language: " + languageCode, e);
+            return null;
         }
     }
-    
-    private void saveLanguageFile(String languageCode, FileConfiguration config) {
-        try {
-            File langDir = new File(plugin.getDataFolder(), "languages");
-            if (!langDir.exists()) {
-                langDir.mkdirs();
+
+    /**
+     * Parse and validate a language file. Safe to call off the main thread.
+     * @throws IOException if the file cannot be read
+     * @throws InvalidConfigurationException if the file is not valid YAML
+     */
+    public static Map<String, String> parseLanguageFile(File file) throws IOException, InvalidConfigurationException {
+        YamlConfiguration config = new YamlConfiguration();
+        config.load(file);
+        return toMessages(config);
+    }
+
+    private static Map<String, String> toMessages(FileConfiguration config) {
+        Map<String, String> messages = new HashMap<>();
+        for (String key : config.getKeys(true)) {
+            if (config.isString(key)) {
+                messages.put(key, colorize(config.getString(key)));
             }
-            
-            File langFile = new File(langDir, languageCode + ".yml");
-            config.save(langFile);
-        } catch (IOException e) {
-            plugin.getLogger().log(Level.WARNING, "Failed to save language file: " + languageCode, e);
         }
+        return messages;
+    }
+
+    /**
+     * Swap in messages parsed elsewhere, e.g. by the file watcher
+     * @param languageCode language code
+     * @param messages parsed messages, or null if the file was deleted
+     */
+    public void applyLanguage(String languageCode, Map<String, String> messages) {
+        missingLanguages.remove(languageCode);
+        if (messages == null) {
+            // Fall back to the bundled file on next use
+            languages.remove(languageCode);
+            return;
+        }
+
+        languages.put(languageCode, messages);
+        if (!availableLanguages.contains(languageCode)) {
+            Set<String> available = new LinkedHashSet<>(availableLanguages);
+            available.add(languageCode);
+            availableLanguages = Collections.unmodifiableSet(available);
+        }
+        plugin.debugLog("Applied language: {}", languageCode);
     }
-    
+
     public String getMessage(Player player, String key) {
         String locale = getPlayerLocale(player);
         return getMessage(locale, key);
     }
-    
+
     public String getMessage(String locale, String key) {
         // Check if auto-detect is disabled
-        boolean autoDetect = plugin.getConfig().getBoolean("language.auto-detect", true);
         if (!autoDetect) {
             locale = defaultLanguage;
         }
-        
+
         // Try player's locale first
-        FileConfiguration langConfig = languages.get(locale.toLowerCase());
-        
-        if (langConfig != null && langConfig.contains(key)) {
-            return colorize(langConfig.getString(key));
+        Map<String, String> messages = getLanguage(locale.toLowerCase());
+        String message = messages != null ? messages.get(key) : null;
+        if (message != null) {
+            return message;
         }
-        
+
         // Fallback to default language
-        langConfig = languages.get(defaultLanguage);
-        if (langConfig != null && langConfig.contains(key)) {
-            return colorize(langConfig.getString(key));
+        messages = getLanguage(defaultLanguage);
+        message = messages != null ? messages.get(key) : null;
+        if (message != null) {
+            return message;
         }
-        
+
         // Final fallback to English
-        langConfig = languages.get("en_us");
-        if (langConfig != null && langConfig.contains(key)) {
-            return colorize(langConfig.getString(key));
+        messages = getLanguage("en_us");
+        message = messages != null ? messages.get(key) : null;
+        if (message != null) {
+            return message;
         }
-        
+
         // Return key if nothing found
         return "&cMessage not found: " + key;
     }
-    
+
     public String getPlayerLocale(Player player) {
         try {
             // Try to get client locale using reflection (works on Paper/Spigot 1.12+)
             String locale = player.getLocale();
             if (locale != null && !locale.isEmpty()) {
                 String normalizedLocale = locale.toLowerCase().replace("-", "_");
-                plugin.debugLog("Player " + player.getName() + " locale: " + locale + " -> " + normalizedLocale);
-                
+                plugin.debugLog("Player {} locale: {} -> {}", player.getName(), locale, normalizedLocale);
+
                 // Map common Russian locales
                 if (normalizedLocale.startsWith("ru")) {
                     return "ru_ru";
                 }
-                
+
                 // Check if we have this exact locale
-                if (languages.containsKey(normalizedLocale)) {
+                Set<String> available = availableLanguages;
+                if (available.contains(normalizedLocale)) {
                     return normalizedLocale;
                 }
-                
+
                 // Try language code only (e.g., "en" from "en_us")
                 String langCode = normalizedLocale.split("_")[0];
-                for (String supportedLang : languages.keySet()) {
+                for (String supportedLang : available) {
                     if (supportedLang.startsWith(langCode + "_")) {
                         return supportedLang;
                     }
                 }
-                
+
                 return normalizedLocale;
             }
         } catch (Exception e) {
-            plugin.debugLog("Failed to get player locale for " + player.getName() + ": " + e.getMessage());
+            plugin.debugLog("Failed to get player locale for {}: {}", player.getName(), e.getMessage());
         }
-        
+
         // Fallback to default language
         return defaultLanguage;
     }
-    
-    private String colorize(String message) {
+
+    private static String colorize(String message) {
         if (message == null) return "";
         return message.replace('&', '§');
     }
-    
+
+    /**
+     * Drop all parsed languages; they are loaded again on next use
+     */
     public void reloadLanguages() {
         languages.clear();
-        loadLanguages();
+        missingLanguages.clear();
+        loadSettings();
+        scanLanguages();
     }
-    
+
     public boolean isLanguageSupported(String locale) {
-        return languages.containsKey(locale.toLowerCase());
+        return availableLanguages.contains(locale.toLowerCase());
     }
-    
+
     public String[] getSupportedLanguages() {
-        return languages.keySet().toArray(new String[0]);
+        return availableLanguages.toArray(new String[0]);
+    }
+
+    /**
+     * Get number of languages parsed so far
+     */
+    public int getLoadedLanguagesCount() {
+        return languages.size();
     }
 }
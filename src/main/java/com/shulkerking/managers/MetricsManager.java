@@ -0,0 +1,528 @@
+package com.shulkerking.managers;
+
+import com.shulkerking.ShulkerKingPlugin;
+import org.bukkit.entity.Entity;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Low-overhead timings and counters for listeners and shulker sessions.
+ * Counters are LongAdders so concurrent region threads on Folia do not fight
+ * over one cache line. Latencies go to log-linear histograms (16 sub-buckets
+ * per power of two, about 6% error), both since startup and over a sliding
+ * window made of slices that are rotated by an async timer.
+ * With metrics.allocations the bytes allocated by the handler thread are
+ * recorded per probe too, using the per-thread counter of the JVM.
+ */
+public class MetricsManager {
+
+    /**
+     * Timed entry points
+     */
+    public enum Probe {
+        INVENTORY_CLICK("click"),
+        INVENTORY_DRAG("drag"),
+        INVENTORY_MOVE_ITEM("move-item"),
+        INTERACT_OPEN("interact-open"),
+        INTERACT_PLACE("interact-place"),
+        DAMAGE("damage"),
+        DAMAGE_BY_ENTITY("damage-by-entity"),
+        OPEN("open"),
+        SAVE("save"),
+        CLOSE("close");
+
+        private final String label;
+
+        Probe(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() { return label; }
+    }
+
+    /**
+     * Plain event counters
+     */
+    public enum Counter {
+        SAVE_OK,
+        SAVE_FAILED,
+        SAVE_THROTTLED,
+        COOLDOWN_DENIED,
+        SLOW_EVENT,
+        PERMISSION_CACHE_HIT,
+        PERMISSION_CACHE_MISS,
+        WORLD_CACHE_HIT,
+        WORLD_CACHE_MISS
+    }
+
+    private static final int SLICES = 6;
+
+    private final ShulkerKingPlugin plugin;
+    private final Map<Probe, Timer> timers;
+    private final Map<Counter, SlicedCounter> counters;
+    // Forced closes by reason, reasons are a small fixed set of strings
+    private final Map<String, LongAdder> forcedCloses;
+    private final long startedNanos;
+    // Handed out while nothing is measured, so disabled handlers do not allocate
+    private final Scope noopScope;
+
+    private volatile boolean enabled;
+    private volatile com.sun.management.ThreadMXBean allocationBean;
+    private volatile Map<Probe, Long> allocationBudgets;
+    private volatile int slice;
+    private volatile long sliceStartedNanos;
+    private long sliceNanos;
+    private SchedulerManager.Task rotateTask;
+
+    public MetricsManager(ShulkerKingPlugin plugin) {
+        this.plugin = plugin;
+        this.timers = new EnumMap<>(Probe.class);
+        for (Probe probe : Probe.values()) {
+            timers.put(probe, new Timer());
+        }
+        this.counters = new EnumMap<>(Counter.class);
+        for (Counter counter : Counter.values()) {
+            counters.put(counter, new SlicedCounter());
+        }
+        this.forcedCloses = new ConcurrentHashMap<>();
+        this.startedNanos = System.nanoTime();
+        this.noopScope = new Scope();
+        this.sliceStartedNanos = startedNanos;
+        this.allocationBudgets = new EnumMap<>(Probe.class);
+    }
+
+    /**
+     * Read settings and start rotating window slices
+     */
+    public synchronized void start() {
+        stop();
+        enabled = plugin.getConfig().getBoolean("metrics.enabled", true);
+        long windowSeconds = Math.max(SLICES, plugin.getConfig().getLong("metrics.window-seconds", 60L));
+        long sliceTicks = windowSeconds * 20L / SLICES;
+        sliceNanos = TimeUnit.MILLISECONDS.toNanos(sliceTicks * 50L);
+        if (enabled) {
+            rotateTask = plugin.getSchedulerManager().runAsyncTimer(this::rotate, sliceTicks, sliceTicks);
+        }
+        allocationBean = enabled && plugin.getConfig().getBoolean("metrics.allocations", false)
+            ? resolveAllocationBean() : null;
+
+        Map<Probe, Long> budgets = new EnumMap<>(Probe.class);
+        for (Probe probe : Probe.values()) {
+            long budget = plugin.getConfig().getLong("metrics.allocation-budgets." + probe.getLabel(), -1L);
+            if (budget >= 0) {
+                budgets.put(probe, budget);
+            }
+        }
+        allocationBudgets = budgets;
+    }
+
+    private com.sun.management.ThreadMXBean resolveAllocationBean() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) bean;
+            if (allocations.isThreadAllocatedMemorySupported()) {
+                allocations.setThreadAllocatedMemoryEnabled(true);
+                return allocations;
+            }
+        }
+        plugin.getLogger().warning("metrics.allocations: JVM does not support per-thread allocation counters");
+        return null;
+    }
+
+    public synchronized void stop() {
+        if (rotateTask != null) {
+            rotateTask.cancel();
+            rotateTask = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isAllocationTracking() {
+        return allocationBean != null;
+    }
+
+    /**
+     * @return allocation budget in bytes per event, -1 if none
+     */
+    public long getAllocationBudget(Probe probe) {
+        Long budget = allocationBudgets.get(probe);
+        return budget != null ? budget : -1L;
+    }
+
+    /**
+     * Start timing, pass the result to {@link #record(Probe, long)}
+     * @return start time or 0 when metrics are disabled
+     */
+    public long startTimer() {
+        return enabled ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * Record time elapsed since {@link #startTimer()}
+     */
+    public void record(Probe probe, long startNanos) {
+        if (startNanos == 0L) {
+            return;
+        }
+        long elapsed = System.nanoTime() - startNanos;
+        timers.get(probe).latency.record(slice, elapsed);
+    }
+
+    /**
+     * Start counting allocations, pass the result to {@link #recordAllocation(Probe, long)}
+     * @return bytes allocated by this thread so far or -1 when tracking is off
+     */
+    public long startAllocation() {
+        com.sun.management.ThreadMXBean bean = allocationBean;
+        return bean != null ? bean.getThreadAllocatedBytes(Thread.currentThread().getId()) : -1L;
+    }
+
+    /**
+     * Record bytes allocated by this thread since {@link #startAllocation()}.
+     * Nested probes are included in the outer one.
+     */
+    public void recordAllocation(Probe probe, long startBytes) {
+        com.sun.management.ThreadMXBean bean = allocationBean;
+        if (startBytes < 0 || bean == null) {
+            return;
+        }
+        long allocated = bean.getThreadAllocatedBytes(Thread.currentThread().getId()) - startBytes;
+        timers.get(probe).allocation.record(slice, allocated);
+    }
+
+    /**
+     * Time a handler with latency, allocations and slow-event tracing.
+     * Use in try-with-resources, everything is recorded on close. With
+     * metrics and slow events both off a shared scope that does nothing is returned.
+     */
+    public Scope enter(Probe probe, Entity entity) {
+        if (!enabled && !plugin.getSlowEventManager().isEnabled()) {
+            return noopScope;
+        }
+        return new Scope(probe, entity);
+    }
+
+    public void increment(Counter counter) {
+        if (enabled) {
+            SlicedCounter sliced = counters.get(counter);
+            sliced.total.increment();
+            sliced.slices[slice].increment();
+        }
+    }
+
+    /**
+     * Count an anti-dupe close, since startup only
+     */
+    public void incrementForcedClose(String reason) {
+        if (enabled) {
+            forcedCloses.computeIfAbsent(reason, r -> new LongAdder()).increment();
+        }
+    }
+
+    /**
+     * @return forced closes by reason since startup
+     */
+    public Map<String, Long> getForcedCloses() {
+        Map<String, Long> result = new TreeMap<>();
+        for (Map.Entry<String, LongAdder> entry : forcedCloses.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().sum());
+        }
+        return result;
+    }
+
+    /**
+     * Drop the oldest slice and make it current
+     */
+    private void rotate() {
+        int next = (slice + 1) % SLICES;
+        for (Timer timer : timers.values()) {
+            timer.latency.slices[next].reset();
+            timer.allocation.slices[next].reset();
+        }
+        for (SlicedCounter counter : counters.values()) {
+            counter.slices[next].reset();
+        }
+        sliceStartedNanos = System.nanoTime();
+        slice = next;
+    }
+
+    /**
+     * Capture current values
+     * @param window true for the sliding window, false for everything since startup
+     */
+    public Snapshot snapshot(boolean window) {
+        long now = System.nanoTime();
+        long elapsed = window
+            ? Math.min(now - startedNanos, (SLICES - 1) * sliceNanos + (now - sliceStartedNanos))
+            : now - startedNanos;
+
+        Map<Probe, HistogramSnapshot> histograms = new EnumMap<>(Probe.class);
+        Map<Probe, HistogramSnapshot> allocations = new EnumMap<>(Probe.class);
+        for (Map.Entry<Probe, Timer> entry : timers.entrySet()) {
+            histograms.put(entry.getKey(), entry.getValue().latency.merge(window));
+            allocations.put(entry.getKey(), entry.getValue().allocation.merge(window));
+        }
+
+        Map<Counter, Long> values = new EnumMap<>(Counter.class);
+        for (Map.Entry<Counter, SlicedCounter> entry : counters.entrySet()) {
+            SlicedCounter counter = entry.getValue();
+            long value = 0L;
+            if (window) {
+                for (LongAdder adder : counter.slices) {
+                    value += adder.sum();
+                }
+            } else {
+                value = counter.total.sum();
+            }
+            values.put(entry.getKey(), value);
+        }
+        return new Snapshot(elapsed, histograms, allocations, values);
+    }
+
+    /**
+     * One timed handler, see {@link #enter(Probe, Entity)}
+     */
+    public final class Scope implements AutoCloseable {
+        private final Probe probe;
+        private final SlowEventManager slow;
+        private final long startNanos;
+        private final long startBytes;
+
+        private Scope(Probe probe, Entity entity) {
+            this.probe = probe;
+            this.slow = plugin.getSlowEventManager();
+            this.startNanos = startTimer();
+            this.startBytes = startAllocation();
+            slow.begin(probe, entity);
+        }
+
+        /**
+         * Scope that records nothing
+         */
+        private Scope() {
+            this.probe = null;
+            this.slow = null;
+            this.startNanos = 0L;
+            this.startBytes = -1L;
+        }
+
+        @Override
+        public void close() {
+            if (probe == null) {
+                return;
+            }
+            slow.end();
+            record(probe, startNanos);
+            recordAllocation(probe, startBytes);
+        }
+    }
+
+    /**
+     * Latency and allocation histograms for one probe
+     */
+    private static class Timer {
+        private final SlicedHistogram latency = new SlicedHistogram();
+        private final SlicedHistogram allocation = new SlicedHistogram();
+    }
+
+    /**
+     * Histogram since startup and per window slice
+     */
+    private static class SlicedHistogram {
+        private final Histogram total = new Histogram();
+        private final Histogram[] slices = new Histogram[SLICES];
+
+        SlicedHistogram() {
+            for (int i = 0; i < SLICES; i++) {
+                slices[i] = new Histogram();
+            }
+        }
+
+        void record(int slice, long value) {
+            total.record(value);
+            slices[slice].record(value);
+        }
+
+        HistogramSnapshot merge(boolean window) {
+            HistogramSnapshot merged = new HistogramSnapshot();
+            if (window) {
+                for (Histogram histogram : slices) {
+                    merged.add(histogram);
+                }
+            } else {
+                merged.add(total);
+            }
+            return merged;
+        }
+    }
+
+    private static class SlicedCounter {
+        private final LongAdder total = new LongAdder();
+        private final LongAdder[] slices = new LongAdder[SLICES];
+
+        SlicedCounter() {
+            for (int i = 0; i < SLICES; i++) {
+                slices[i] = new LongAdder();
+            }
+        }
+    }
+
+    /**
+     * Log-linear histogram of nanoseconds or bytes
+     */
+    static class Histogram {
+        private static final int SUB_BITS = 4;
+        private static final int SUB_COUNT = 1 << SUB_BITS;
+        // Values above ~18 minutes are clamped
+        private static final long MAX_VALUE = (1L << 40) - 1;
+        static final int BUCKETS = bucket(MAX_VALUE) + 1;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0L);
+
+        void record(long nanos) {
+            long value = Math.min(Math.max(nanos, 0L), MAX_VALUE);
+            buckets.incrementAndGet(bucket(value));
+            count.increment();
+            sum.add(value);
+            max.accumulate(value);
+        }
+
+        void reset() {
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets.set(i, 0L);
+            }
+            count.reset();
+            sum.reset();
+            max.reset();
+        }
+
+        static int bucket(long value) {
+            if (value < SUB_COUNT) {
+                return (int) value;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1);
+            return (exponent - SUB_BITS + 1) * SUB_COUNT + sub;
+        }
+
+        /**
+         * Highest value that falls into a bucket
+         */
+        static long upperBound(int bucket) {
+            if (bucket < SUB_COUNT) {
+                return bucket;
+            }
+            int shift = bucket / SUB_COUNT - 1;
+            long lower = (long) (SUB_COUNT + bucket % SUB_COUNT) << shift;
+            return lower + (1L << shift) - 1;
+        }
+    }
+
+    /**
+     * Merged copy of one or more histograms
+     */
+    public static class HistogramSnapshot {
+        private final long[] buckets = new long[Histogram.BUCKETS];
+        private long count;
+        private long sum;
+        private long max;
+
+        void add(Histogram histogram) {
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] += histogram.buckets.get(i);
+            }
+            count += histogram.count.sum();
+            sum += histogram.sum.sum();
+            max = Math.max(max, histogram.max.get());
+        }
+
+        public long getCount() { return count; }
+        public long getMax() { return max; }
+        public long getMean() { return count == 0 ? 0L : sum / count; }
+        public long getTotal() { return sum; }
+
+        /**
+         * @param quantile 0..1
+         * @return upper bound of the bucket holding the quantile
+         */
+        public long getPercentile(double quantile) {
+            long total = 0L;
+            for (long bucket : buckets) {
+                total += bucket;
+            }
+            if (total == 0L) {
+                return 0L;
+            }
+            long rank = Math.max(1L, (long) Math.ceil(quantile * total));
+            long seen = 0L;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= rank) {
+                    return Math.min(Histogram.upperBound(i), max);
+                }
+            }
+            return max;
+        }
+    }
+
+    /**
+     * All histograms and counters at one point in time
+     */
+    public static class Snapshot {
+        private final long elapsedNanos;
+        private final Map<Probe, HistogramSnapshot> histograms;
+        private final Map<Probe, HistogramSnapshot> allocations;
+        private final Map<Counter, Long> counters;
+
+        Snapshot(long elapsedNanos, Map<Probe, HistogramSnapshot> histograms,
+                 Map<Probe, HistogramSnapshot> allocations, Map<Counter, Long> counters) {
+            this.elapsedNanos = elapsedNanos;
+            this.histograms = histograms;
+            this.allocations = allocations;
+            this.counters = counters;
+        }
+
+        public long getElapsedNanos() { return elapsedNanos; }
+
+        public HistogramSnapshot get(Probe probe) { return histograms.get(probe); }
+
+        /**
+         * Bytes allocated per event, empty unless metrics.allocations is on
+         */
+        public HistogramSnapshot getAllocations(Probe probe) { return allocations.get(probe); }
+
+        public long get(Counter counter) { return counters.get(counter); }
+
+        /**
+         * @return events per second over the covered period
+         */
+        public double getRate(Probe probe) {
+            double seconds = elapsedNanos / 1_000_000_000.0;
+            return seconds <= 0 ? 0.0 : histograms.get(probe).getCount() / seconds;
+        }
+
+        /**
+         * @return hits / (hits + misses), or -1 when nothing was looked up
+         */
+        public double getRatio(Counter hits, Counter misses) {
+            long hit = get(hits);
+            long total = hit + get(misses);
+            return total == 0 ? -1.0 : (double) hit / total;
+        }
+    }
+}
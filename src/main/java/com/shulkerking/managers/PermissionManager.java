@@ -0,0 +1,150 @@
+package com.shulkerking.managers;
+
+import com.shulkerking.ShulkerKingPlugin;
+import org.bukkit.entity.Player;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches the plugin's permissions per player as a bitset together with the
+ * resolved cooldown time, so hot paths do bit tests instead of hasPermission.
+ * Snapshots are built on join, on world change, on reload and periodically,
+ * because Bukkit has no event for permission changes.
+ */
+public class PermissionManager {
+
+    /**
+     * Permissions checked by the plugin
+     */
+    public enum Node {
+        OPEN("shulkerking.open"),
+        OFFHAND("shulkerking.offhand"),
+        PLACE("shulkerking.place"),
+        ADMIN("shulkerking.admin");
+
+        private final String permission;
+
+        Node(String permission) {
+            this.permission = permission;
+        }
+
+        public String getPermission() { return permission; }
+
+        int bit() { return 1 << ordinal(); }
+    }
+
+    private final ShulkerKingPlugin plugin;
+    private final Map<UUID, PermissionSnapshot> snapshots;
+    private SchedulerManager.Task refreshTask;
+
+    public PermissionManager(ShulkerKingPlugin plugin) {
+        this.plugin = plugin;
+        this.snapshots = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Start periodic refresh to pick up permission changes made by other plugins
+     */
+    public void start() {
+        stop();
+        long interval = plugin.getConfig().getLong("permissions.refresh-interval", 30L) * 20L;
+        if (interval > 0) {
+            refreshTask = plugin.getSchedulerManager().runGlobalTimer(this::refreshAll, interval, interval);
+        }
+        refreshAll();
+    }
+
+    public void stop() {
+        if (refreshTask != null) {
+            refreshTask.cancel();
+            refreshTask = null;
+        }
+    }
+
+    /**
+     * Get cached snapshot, building it if the player has none yet
+     */
+    public PermissionSnapshot getSnapshot(Player player) {
+        PermissionSnapshot snapshot = snapshots.get(player.getUniqueId());
+        if (snapshot == null) {
+            plugin.getMetricsManager().increment(MetricsManager.Counter.PERMISSION_CACHE_MISS);
+            snapshot = refresh(player);
+        } else {
+            plugin.getMetricsManager().increment(MetricsManager.Counter.PERMISSION_CACHE_HIT);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Check a plugin permission using the cached snapshot
+     */
+    public boolean has(Player player, Node node) {
+        return getSnapshot(player).has(node);
+    }
+
+    /**
+     * Recalculate snapshot for a player
+     */
+    public PermissionSnapshot refresh(Player player) {
+        int bits = 0;
+        for (Node node : Node.values()) {
+            if (player.hasPermission(node.getPermission())) {
+                bits |= node.bit();
+            }
+        }
+        double cooldownTime = plugin.getCooldownManager().resolveCooldownTime(player);
+
+        PermissionSnapshot snapshot = new PermissionSnapshot(bits, cooldownTime);
+        snapshots.put(player.getUniqueId(), snapshot);
+        return snapshot;
+    }
+
+    /**
+     * Recalculate snapshots for all online players.
+     * On Folia each player is refreshed on the thread that owns it.
+     */
+    public void refreshAll() {
+        SchedulerManager scheduler = plugin.getSchedulerManager();
+        for (Player player : plugin.getServer().getOnlinePlayers()) {
+            if (scheduler.isFolia()) {
+                scheduler.runForEntityLater(player, () -> refresh(player), 1);
+            } else {
+                refresh(player);
+            }
+        }
+    }
+
+    /**
+     * Drop snapshot, e.g. when the player leaves
+     */
+    public void invalidate(UUID playerId) {
+        snapshots.remove(playerId);
+    }
+
+    public int getSnapshotsCount() {
+        return snapshots.size();
+    }
+
+    /**
+     * Immutable permission state of one player
+     */
+    public static class PermissionSnapshot {
+        private final int bits;
+        private final double cooldownTime;
+
+        public PermissionSnapshot(int bits, double cooldownTime) {
+            this.bits = bits;
+            this.cooldownTime = cooldownTime;
+        }
+
+        public boolean has(Node node) {
+            return (bits & node.bit()) != 0;
+        }
+
+        public double getCooldownTime() {
+            return cooldownTime;
+        }
+    }
+}
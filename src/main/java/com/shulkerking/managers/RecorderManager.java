@@ -0,0 +1,407 @@
+package com.shulkerking.managers;
+
+import com.shulkerking.ShulkerKingPlugin;
+import org.bukkit.entity.Player;
+import org.bukkit.event.entity.EntityDamageByEntityEvent;
+import org.bukkit.event.entity.EntityDamageEvent;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryCloseEvent;
+import org.bukkit.event.inventory.InventoryDragEvent;
+import org.bukkit.event.player.PlayerDropItemEvent;
+import org.bukkit.event.player.PlayerInteractEvent;
+import org.bukkit.inventory.ItemStack;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Opt-in capture of shulker-relevant player events for offline analysis.
+ * Listeners only put a small event on a lock-free queue, a background thread
+ * writes them to recordings/capture-<time>.skrec:
+ * gzip of a header (magic, version, start time), then records of
+ * [type][delta ms][player ref][name count][name refs][value count][zigzag values]
+ * with all numbers as varints. Strings (player ids, enum names, materials)
+ * are written once as DEFINE records and referenced by index afterwards.
+ * Deltas are game milliseconds from the plugin clock, so a replay advances
+ * cooldowns and combat tags the way the recorded session did.
+ */
+public class RecorderManager {
+
+    /**
+     * Recorded event kinds
+     */
+    public enum Type {
+        INTERACT, CLICK, DRAG, DROP, CLOSE, DAMAGE
+    }
+
+    private static final int MAGIC = 0x534B5245; // "SKRE"
+    private static final int VERSION = 1;
+    private static final int DEFINE = 0xFF;
+    private static final long FLUSH_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+    private final ShulkerKingPlugin plugin;
+    private final File recordingsDir;
+    private final Queue<RecordedEvent> queue;
+    private final AtomicLong writtenEvents;
+
+    private volatile boolean recording;
+    private volatile boolean running;
+    private Thread writerThread;
+    private File currentFile;
+
+    public RecorderManager(ShulkerKingPlugin plugin) {
+        this.plugin = plugin;
+        this.recordingsDir = new File(plugin.getDataFolder(), "recordings");
+        this.queue = new ConcurrentLinkedQueue<>();
+        this.writtenEvents = new AtomicLong();
+    }
+
+    /**
+     * Start a new capture
+     * @return capture file
+     */
+    public synchronized File start() throws IOException {
+        if (writerThread != null) {
+            if (recording) {
+                return currentFile;
+            }
+            // Previous capture hit the size limit
+            try {
+                stop();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while closing previous capture", e);
+            }
+        }
+        if (!recordingsDir.exists() && !recordingsDir.mkdirs()) {
+            throw new IOException("Cannot create " + recordingsDir);
+        }
+        File file = new File(recordingsDir, "capture-" +
+            new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + ".skrec");
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+            new GZIPOutputStream(new FileOutputStream(file), 8192, true), 16384));
+        long startedAt = System.currentTimeMillis();
+        long startedClock = plugin.getClockManager().currentMillis();
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeLong(startedAt);
+
+        long maxSize = plugin.getConfig().getLong("recorder.max-size-kb", 51200L) * 1024L;
+        queue.clear();
+        writtenEvents.set(0L);
+        currentFile = file;
+        running = true;
+        recording = true;
+        writerThread = new Thread(() -> runWriter(out, file, startedClock, maxSize), "ShulkerKing-Recorder");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        plugin.getLogger().info("Запись событий начата: " + file.getName());
+        return file;
+    }
+
+    /**
+     * Write queued events and close the capture
+     * @return number of events in the capture
+     */
+    public int stop() throws InterruptedException {
+        Thread thread;
+        synchronized (this) {
+            thread = writerThread;
+            if (thread == null) {
+                return 0;
+            }
+            recording = false;
+            running = false;
+            writerThread = null;
+        }
+        LockSupport.unpark(thread);
+        thread.join();
+        return (int) writtenEvents.get();
+    }
+
+    public boolean isRecording() {
+        return recording;
+    }
+
+    public File getCurrentFile() {
+        return currentFile;
+    }
+
+    public void recordInteract(PlayerInteractEvent event) {
+        if (recording && isShulker(event.getItem())) {
+            record(Type.INTERACT, event.getPlayer().getUniqueId(),
+                new String[] {event.getAction().name(), event.getHand() != null ? event.getHand().name() : "NONE",
+                    material(event.getItem())},
+                event.getPlayer().isSneaking() ? 1 : 0);
+        }
+    }
+
+    public void recordClick(InventoryClickEvent event) {
+        if (!recording || !(event.getWhoClicked() instanceof Player)) {
+            return;
+        }
+        boolean session = plugin.getInventoryManager().hasActiveSession((Player) event.getWhoClicked());
+        if (session || isShulker(event.getCurrentItem()) || isShulker(event.getCursor())) {
+            record(Type.CLICK, event.getWhoClicked().getUniqueId(),
+                new String[] {event.getClick().name(), event.getAction().name(), event.getSlotType().name(),
+                    material(event.getCurrentItem()), material(event.getCursor())},
+                event.getRawSlot(), event.getHotbarButton(), session ? 1 : 0);
+        }
+    }
+
+    public void recordDrag(InventoryDragEvent event) {
+        if (!recording || !(event.getWhoClicked() instanceof Player)) {
+            return;
+        }
+        boolean session = plugin.getInventoryManager().hasActiveSession((Player) event.getWhoClicked());
+        if (session || isShulker(event.getOldCursor())) {
+            // Slot count and session flag first, the raw slots follow
+            Set<Integer> rawSlots = event.getRawSlots();
+            int[] values = new int[2 + rawSlots.size()];
+            values[0] = rawSlots.size();
+            values[1] = session ? 1 : 0;
+            int i = 2;
+            for (int rawSlot : rawSlots) {
+                values[i++] = rawSlot;
+            }
+            record(Type.DRAG, event.getWhoClicked().getUniqueId(),
+                new String[] {event.getType().name(), material(event.getOldCursor())}, values);
+        }
+    }
+
+    public void recordDrop(PlayerDropItemEvent event) {
+        if (!recording) {
+            return;
+        }
+        ItemStack item = event.getItemDrop().getItemStack();
+        boolean session = plugin.getInventoryManager().hasActiveSession(event.getPlayer());
+        if (session || isShulker(item)) {
+            record(Type.DROP, event.getPlayer().getUniqueId(), new String[] {material(item)}, session ? 1 : 0);
+        }
+    }
+
+    public void recordClose(InventoryCloseEvent event) {
+        if (recording && event.getPlayer() instanceof Player
+            && plugin.getInventoryManager().hasActiveSession((Player) event.getPlayer())) {
+            record(Type.CLOSE, event.getPlayer().getUniqueId(), new String[] {event.getInventory().getType().name()});
+        }
+    }
+
+    public void recordDamage(EntityDamageEvent event) {
+        if (recording && event.getEntity() instanceof Player) {
+            boolean byPlayer = event instanceof EntityDamageByEntityEvent
+                && ((EntityDamageByEntityEvent) event).getDamager() instanceof Player;
+            boolean session = plugin.getInventoryManager().hasActiveSession((Player) event.getEntity());
+            // The attacker is tagged for combat too, so its id is kept for replays
+            String[] names = byPlayer
+                ? new String[] {event.getCause().name(), ((EntityDamageByEntityEvent) event).getDamager().getUniqueId().toString()}
+                : new String[] {event.getCause().name()};
+            record(Type.DAMAGE, event.getEntity().getUniqueId(), names, byPlayer ? 1 : 0, session ? 1 : 0);
+        }
+    }
+
+    private static boolean isShulker(ItemStack item) {
+        return item != null && ShulkerInventoryManager.isShulkerMaterial(item.getType());
+    }
+
+    private static String material(ItemStack item) {
+        return item != null ? item.getType().name() : "AIR";
+    }
+
+    /**
+     * Queue an event, called from the thread that owns the player
+     * @param names enum names and materials, written once and referenced afterwards
+     * @param values small integers such as slots and flags
+     */
+    public void record(Type type, UUID playerId, String[] names, int... values) {
+        if (recording) {
+            queue.add(new RecordedEvent(type, plugin.getClockManager().currentMillis(), playerId.toString(), names, values));
+        }
+    }
+
+    private void runWriter(DataOutputStream out, File file, long startedClock, long maxSize) {
+        Map<String, Integer> strings = new HashMap<>();
+        long lastTime = startedClock;
+        try {
+            while (true) {
+                boolean stopping = !running;
+                RecordedEvent event;
+                int written = 0;
+                while ((event = queue.poll()) != null) {
+                    int player = define(out, strings, event.player);
+                    int[] names = new int[event.names.length];
+                    for (int i = 0; i < names.length; i++) {
+                        names[i] = define(out, strings, event.names[i]);
+                    }
+                    out.writeByte(event.type.ordinal());
+                    writeVarLong(out, Math.max(0L, event.time - lastTime));
+                    lastTime = Math.max(lastTime, event.time);
+                    writeVarLong(out, player);
+                    writeVarLong(out, names.length);
+                    for (int name : names) {
+                        writeVarLong(out, name);
+                    }
+                    writeVarLong(out, event.values.length);
+                    for (int value : event.values) {
+                        writeVarLong(out, ((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL);
+                    }
+                    written++;
+                }
+                if (written > 0) {
+                    out.flush();
+                    writtenEvents.addAndGet(written);
+                    if (file.length() > maxSize) {
+                        plugin.getLogger().warning("Запись событий остановлена: достигнут recorder.max-size-kb");
+                        recording = false;
+                        stopping = true;
+                    }
+                }
+                if (stopping) {
+                    break;
+                }
+                LockSupport.parkNanos(this, FLUSH_INTERVAL_NANOS);
+            }
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Ошибка записи событий, запись остановлена", e);
+            recording = false;
+        } finally {
+            try {
+                out.close();
+            } catch (IOException ignored) {
+            }
+            queue.clear();
+        }
+    }
+
+    private static int define(DataOutputStream out, Map<String, Integer> strings, String value) throws IOException {
+        Integer index = strings.get(value);
+        if (index == null) {
+            index = strings.size();
+            strings.put(value, index);
+            out.writeByte(DEFINE);
+            out.writeUTF(value);
+        }
+        return index;
+    }
+
+    private static void writeVarLong(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(InputStream in) throws IOException {
+        long value = 0L;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException();
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    /**
+     * Decode a capture, events are passed in recorded order with timestamps
+     * counted from the capture start time in game milliseconds
+     * @return number of decoded events
+     */
+    public static int read(File file, Consumer<RecordedEvent> consumer) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+            new GZIPInputStream(new FileInputStream(file))))) {
+            if (in.readInt() != MAGIC || in.readUnsignedByte() != VERSION) {
+                throw new IOException("Not a ShulkerKing capture: " + file);
+            }
+            long time = in.readLong();
+            List<String> strings = new ArrayList<>();
+            Type[] types = Type.values();
+            int count = 0;
+
+            try {
+                int tag;
+                while ((tag = in.read()) >= 0) {
+                    if (tag == DEFINE) {
+                        strings.add(in.readUTF());
+                        continue;
+                    }
+                    if (tag >= types.length) {
+                        throw new IOException("Unknown record type " + tag);
+                    }
+                    time += readVarLong(in);
+                    String player = strings.get((int) readVarLong(in));
+                    String[] names = new String[(int) readVarLong(in)];
+                    for (int i = 0; i < names.length; i++) {
+                        names[i] = strings.get((int) readVarLong(in));
+                    }
+                    int[] values = new int[(int) readVarLong(in)];
+                    for (int i = 0; i < values.length; i++) {
+                        int zigzag = (int) readVarLong(in);
+                        values[i] = (zigzag >>> 1) ^ -(zigzag & 1);
+                    }
+                    consumer.accept(new RecordedEvent(types[tag], time, player, names, values));
+                    count++;
+                }
+            } catch (EOFException e) {
+                // Capture cut off by a crash, every complete record before it is valid
+            }
+            return count;
+        }
+    }
+
+    /**
+     * One recorded event
+     */
+    public static class RecordedEvent {
+        private final Type type;
+        private final long time;
+        private final String player;
+        private final String[] names;
+        private final int[] values;
+
+        RecordedEvent(Type type, long time, String player, String[] names, int[] values) {
+            this.type = type;
+            this.time = time;
+            this.player = player;
+            this.names = names;
+            this.values = values;
+        }
+
+        public Type getType() { return type; }
+        public long getTime() { return time; }
+        public String getPlayer() { return player; }
+        public String[] getNames() { return names; }
+        public int[] getValues() { return values; }
+    }
+}
@@ -0,0 +1,322 @@
+package com.shulkerking.managers;
+
+import com.shulkerking.ShulkerKingPlugin;
+import org.bukkit.Location;
+import org.bukkit.Server;
+import org.bukkit.entity.Entity;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.lang.reflect.Method;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+
+/**
+ * Runs plugin tasks on the right thread.
+ * On Folia entity work goes to the entity scheduler, block work to the region
+ * scheduler and global work to the global region scheduler. Everywhere else
+ * the Bukkit scheduler is used. Folia classes are looked up reflectively
+ * because the plugin is compiled against the Spigot API.
+ */
+public class SchedulerManager {
+
+    /**
+     * Handle of a scheduled task
+     */
+    public interface Task {
+        void cancel();
+        boolean isCancelled();
+    }
+
+    private final ShulkerKingPlugin plugin;
+    private final boolean folia;
+    // Folia tasks that the global/async cancelTasks() calls do not cover
+    private final Set<FoliaTask> foliaTasks;
+
+    private Method entityGetScheduler;
+    private Method entityRunDelayed;
+    private Method entityRunAtFixedRate;
+    private Object regionScheduler;
+    private Method regionRunDelayed;
+    private Object globalScheduler;
+    private Method globalRunDelayed;
+    private Method globalRunAtFixedRate;
+    private Method globalCancelTasks;
+    private Object asyncScheduler;
+    private Method asyncRunNow;
+    private Method asyncRunAtFixedRate;
+    private Method asyncCancelTasks;
+    private Method taskCancel;
+
+    public SchedulerManager(ShulkerKingPlugin plugin) {
+        this.plugin = plugin;
+        this.foliaTasks = ConcurrentHashMap.newKeySet();
+        this.folia = detectFolia() && lookupFoliaApi();
+
+        if (folia) {
+            plugin.getLogger().info("Folia detected, using region schedulers");
+        }
+    }
+
+    private static boolean detectFolia() {
+        try {
+            Class.forName("io.papermc.paper.threadedregions.RegionizedServer");
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    private boolean lookupFoliaApi() {
+        try {
+            String base = "io.papermc.paper.threadedregions.scheduler.";
+            Class<?> entitySchedulerClass = Class.forName(base + "EntityScheduler");
+            Class<?> regionSchedulerClass = Class.forName(base + "RegionScheduler");
+            Class<?> globalSchedulerClass = Class.forName(base + "GlobalRegionScheduler");
+            Class<?> asyncSchedulerClass = Class.forName(base + "AsyncScheduler");
+            Class<?> scheduledTaskClass = Class.forName(base + "ScheduledTask");
+            Server server = plugin.getServer();
+
+            entityGetScheduler = Entity.class.getMethod("getScheduler");
+            entityRunDelayed = entitySchedulerClass.getMethod("runDelayed",
+                Plugin.class, Consumer.class, Runnable.class, long.class);
+            entityRunAtFixedRate = entitySchedulerClass.getMethod("runAtFixedRate",
+                Plugin.class, Consumer.class, Runnable.class, long.class, long.class);
+
+            regionScheduler = Server.class.getMethod("getRegionScheduler").invoke(server);
+            regionRunDelayed = regionSchedulerClass.getMethod("runDelayed",
+                Plugin.class, Location.class, Consumer.class, long.class);
+
+            globalScheduler = Server.class.getMethod("getGlobalRegionScheduler").invoke(server);
+            globalRunDelayed = globalSchedulerClass.getMethod("runDelayed",
+                Plugin.class, Consumer.class, long.class);
+            globalRunAtFixedRate = globalSchedulerClass.getMethod("runAtFixedRate",
+                Plugin.class, Consumer.class, long.class, long.class);
+            globalCancelTasks = globalSchedulerClass.getMethod("cancelTasks", Plugin.class);
+
+            asyncScheduler = Server.class.getMethod("getAsyncScheduler").invoke(server);
+            asyncRunNow = asyncSchedulerClass.getMethod("runNow", Plugin.class, Consumer.class);
+            asyncRunAtFixedRate = asyncSchedulerClass.getMethod("runAtFixedRate",
+                Plugin.class, Consumer.class, long.class, long.class, TimeUnit.class);
+            asyncCancelTasks = asyncSchedulerClass.getMethod("cancelTasks", Plugin.class);
+
+            taskCancel = scheduledTaskClass.getMethod("cancel");
+            return true;
+        } catch (Exception e) {
+            plugin.getLogger().log(Level.WARNING, "Folia detected but its scheduler API is not available", e);
+            return false;
+        }
+    }
+
+    public boolean isFolia() {
+        return folia;
+    }
+
+    /**
+     * Run task on the thread that owns the entity after a delay
+     */
+    public Task runForEntityLater(Entity entity, Runnable task, long delayTicks) {
+        if (!folia) {
+            return new BukkitTaskHandle(plugin.getServer().getScheduler().runTaskLater(plugin, task, delayTicks));
+        }
+        FoliaTask handle = new FoliaTask(true);
+        handle.schedule(consumer -> entityRunDelayed.invoke(entityGetScheduler.invoke(entity),
+            plugin, consumer, (Runnable) handle::retire, Math.max(1L, delayTicks)), task);
+        return handle;
+    }
+
+    /**
+     * Run task on the entity's thread repeatedly
+     */
+    public Task runForEntityTimer(Entity entity, Runnable task, long delayTicks, long periodTicks) {
+        if (!folia) {
+            return new BukkitTaskHandle(plugin.getServer().getScheduler().runTaskTimer(plugin, task, delayTicks, periodTicks));
+        }
+        FoliaTask handle = new FoliaTask(false);
+        handle.schedule(consumer -> entityRunAtFixedRate.invoke(entityGetScheduler.invoke(entity),
+            plugin, consumer, (Runnable) handle::retire, Math.max(1L, delayTicks), Math.max(1L, periodTicks)), task);
+        return handle;
+    }
+
+    /**
+     * Run task on the thread that owns the location after a delay
+     */
+    public Task runAtLocationLater(Location location, Runnable task, long delayTicks) {
+        if (!folia) {
+            return new BukkitTaskHandle(plugin.getServer().getScheduler().runTaskLater(plugin, task, delayTicks));
+        }
+        FoliaTask handle = new FoliaTask(true);
+        handle.schedule(consumer -> regionRunDelayed.invoke(regionScheduler,
+            plugin, location, consumer, Math.max(1L, delayTicks)), task);
+        return handle;
+    }
+
+    /**
+     * Run task that is not bound to a world position on the next tick
+     */
+    public Task runGlobal(Runnable task) {
+        return runGlobalLater(task, 1L);
+    }
+
+    /**
+     * Run task that is not bound to a world position after a delay
+     */
+    public Task runGlobalLater(Runnable task, long delayTicks) {
+        if (!folia) {
+            return new BukkitTaskHandle(plugin.getServer().getScheduler().runTaskLater(plugin, task, delayTicks));
+        }
+        FoliaTask handle = new FoliaTask(true);
+        handle.schedule(consumer -> globalRunDelayed.invoke(globalScheduler,
+            plugin, consumer, Math.max(1L, delayTicks)), task);
+        return handle;
+    }
+
+    /**
+     * Run task that is not bound to a world position repeatedly
+     */
+    public Task runGlobalTimer(Runnable task, long delayTicks, long periodTicks) {
+        if (!folia) {
+            return new BukkitTaskHandle(plugin.getServer().getScheduler().runTaskTimer(plugin, task, delayTicks, periodTicks));
+        }
+        FoliaTask handle = new FoliaTask(false);
+        handle.schedule(consumer -> globalRunAtFixedRate.invoke(globalScheduler,
+            plugin, consumer, Math.max(1L, delayTicks), Math.max(1L, periodTicks)), task);
+        return handle;
+    }
+
+    /**
+     * Run task off the server threads
+     */
+    public Task runAsync(Runnable task) {
+        if (!folia) {
+            return new BukkitTaskHandle(plugin.getServer().getScheduler().runTaskAsynchronously(plugin, task));
+        }
+        FoliaTask handle = new FoliaTask(true);
+        handle.schedule(consumer -> asyncRunNow.invoke(asyncScheduler, plugin, consumer), task);
+        return handle;
+    }
+
+    /**
+     * Run task off the server threads repeatedly
+     */
+    public Task runAsyncTimer(Runnable task, long delayTicks, long periodTicks) {
+        if (!folia) {
+            return new BukkitTaskHandle(plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin, task, delayTicks, periodTicks));
+        }
+        FoliaTask handle = new FoliaTask(false);
+        handle.schedule(consumer -> asyncRunAtFixedRate.invoke(asyncScheduler,
+            plugin, consumer, Math.max(1L, delayTicks) * 50L, Math.max(1L, periodTicks) * 50L, TimeUnit.MILLISECONDS), task);
+        return handle;
+    }
+
+    /**
+     * Cancel every task scheduled by the plugin
+     */
+    public void cancelAll() {
+        if (!folia) {
+            plugin.getServer().getScheduler().cancelTasks(plugin);
+            return;
+        }
+        for (FoliaTask task : foliaTasks) {
+            task.cancel();
+        }
+        foliaTasks.clear();
+        try {
+            globalCancelTasks.invoke(globalScheduler, plugin);
+            asyncCancelTasks.invoke(asyncScheduler, plugin);
+        } catch (Exception e) {
+            plugin.getLogger().log(Level.WARNING, "Failed to cancel Folia tasks", e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface FoliaCall {
+        Object invoke(Consumer<Object> consumer) throws Exception;
+    }
+
+    private static final class BukkitTaskHandle implements Task {
+        private final BukkitTask task;
+
+        BukkitTaskHandle(BukkitTask task) {
+            this.task = task;
+        }
+
+        @Override
+        public void cancel() {
+            task.cancel();
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return task.isCancelled();
+        }
+    }
+
+    private final class FoliaTask implements Task {
+        private final boolean oneShot;
+        private volatile Object scheduledTask;
+        private volatile boolean cancelled;
+
+        FoliaTask(boolean oneShot) {
+            this.oneShot = oneShot;
+        }
+
+        void schedule(FoliaCall call, Runnable task) {
+            foliaTasks.add(this);
+            try {
+                Object result = call.invoke(scheduled -> {
+                    scheduledTask = scheduled;
+                    if (cancelled) {
+                        cancelScheduled();
+                        return;
+                    }
+                    try {
+                        task.run();
+                    } finally {
+                        if (oneShot) {
+                            retire();
+                        }
+                    }
+                });
+                if (result == null) {
+                    // Entity was already removed
+                    retire();
+                } else if (scheduledTask == null) {
+                    scheduledTask = result;
+                }
+            } catch (Exception e) {
+                retire();
+                plugin.getLogger().log(Level.WARNING, "Failed to schedule Folia task", e);
+            }
+        }
+
+        void retire() {
+            cancelled = true;
+            foliaTasks.remove(this);
+        }
+
+        private void cancelScheduled() {
+            Object scheduled = scheduledTask;
+            if (scheduled != null) {
+                try {
+                    taskCancel.invoke(scheduled);
+                } catch (Exception ignored) {
+                }
+            }
+        }
+
+        @Override
+        public void cancel() {
+            retire();
+            cancelScheduled();
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+}
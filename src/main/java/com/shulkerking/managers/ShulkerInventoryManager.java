@@ -11,25 +11,51 @@ import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.BlockStateMeta;
 import org.bukkit.inventory.meta.ItemMeta;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ShulkerInventoryManager {
     
+    private static final Set<Material> SHULKER_BOXES = EnumSet.of(
+        Material.SHULKER_BOX, Material.WHITE_SHULKER_BOX, Material.ORANGE_SHULKER_BOX,
+        Material.MAGENTA_SHULKER_BOX, Material.LIGHT_BLUE_SHULKER_BOX, Material.YELLOW_SHULKER_BOX,
+        Material.LIME_SHULKER_BOX, Material.PINK_SHULKER_BOX, Material.GRAY_SHULKER_BOX,
+        Material.LIGHT_GRAY_SHULKER_BOX, Material.CYAN_SHULKER_BOX, Material.PURPLE_SHULKER_BOX,
+        Material.BLUE_SHULKER_BOX, Material.BROWN_SHULKER_BOX, Material.GREEN_SHULKER_BOX,
+        Material.RED_SHULKER_BOX, Material.BLACK_SHULKER_BOX);
+    
     private final ShulkerKingPlugin plugin;
     private final Map<UUID, ShulkerSession> activeSessions;
     private final Map<UUID, Long> placementActions;
     
     public ShulkerInventoryManager(ShulkerKingPlugin plugin) {
         this.plugin = plugin;
-        this.activeSessions = new HashMap<>();
-        this.placementActions = new HashMap<>();
+        // Sessions are touched from several region threads on Folia
+        this.activeSessions = new ConcurrentHashMap<>();
+        this.placementActions = new ConcurrentHashMap<>();
     }
     
+    @SuppressWarnings("try")
     public boolean openShulkerInventory(Player player, ItemStack shulkerItem, boolean isMainHand) {
+        Object jfrEvent = plugin.getFlightRecorderManager().events().beginOpen();
+        boolean opened = false;
+        MetricsManager metrics = plugin.getMetricsManager();
+        try (MetricsManager.Scope scope = metrics.enter(MetricsManager.Probe.OPEN, player)) {
+            opened = openSession(player, shulkerItem, isMainHand);
+            return opened;
+        } finally {
+            plugin.getFlightRecorderManager().events().commitOpen(jfrEvent, player, isMainHand, opened);
+        }
+    }
+    
+    private boolean openSession(Player player, ItemStack shulkerItem, boolean isMainHand) {
         if (!isShulkerBox(shulkerItem)) {
-            plugin.debugLog("Failed to open: not a shulker box for " + player.getName());
+            plugin.debugLog("Failed to open: not a shulker box for {}", player.getName());
             return false;
         }
         
@@ -40,25 +66,28 @@ public class ShulkerInventoryManager {
         }
         
         if (shulkerItem.getAmount() != 1) {
-            plugin.debugLog("Failed to open: shulker stack size is not 1 for " + player.getName());
+            plugin.debugLog("Failed to open: shulker stack size is not 1 for {}", player.getName());
             return false;
         }
         
         // Check if player already has a session open
         if (hasActiveSession(player)) {
-            plugin.debugLog("Closing existing session for " + player.getName());
-            closeShulkerInventory(player);
+            plugin.debugLog("Closing existing session for {}", player.getName());
+            closeShulkerInventory(player, "reopened");
         }
         
+        SlowEventManager slow = plugin.getSlowEventManager();
+        long decode = slow.startPhase();
         BlockStateMeta meta = (BlockStateMeta) shulkerItem.getItemMeta();
+        ShulkerBox shulkerBox = meta != null ? (ShulkerBox) meta.getBlockState() : null;
+        slow.endPhase(SlowEventManager.Phase.DECODE, decode);
         if (meta == null) {
-            plugin.debugLog("Failed to open: no meta for " + player.getName());
+            plugin.debugLog("Failed to open: no meta for {}", player.getName());
             return false;
         }
         
-        ShulkerBox shulkerBox = (ShulkerBox) meta.getBlockState();
         if (shulkerBox == null) {
-            plugin.debugLog("Failed to open: no shulker state for " + player.getName());
+            plugin.debugLog("Failed to open: no shulker state for {}", player.getName());
             return false;
         }
         
@@ -78,27 +107,54 @@ public class ShulkerInventoryManager {
         holder.setInventory(inventory);
         inventory.setContents(shulkerBox.getInventory().getContents());
         
-        activeSessions.put(player.getUniqueId(), session);
-        
-        plugin.debugLog("Opening shulker inventory for " + player.getName() + 
-                       " (main hand: " + isMainHand + ")");
+        plugin.debugLog(() -> "Opening shulker inventory for " + player.getName() + " (main hand: " + isMainHand + ")");
         
+        // Register the session only once its view is open, a flush running
+        // in between must not claim a session that has nothing to save yet
         player.openInventory(inventory);
+        if (player.getOpenInventory().getTopInventory().getHolder() != holder) {
+            plugin.debugLog("Failed to open: inventory view was not opened for {}", player.getName());
+            return false;
+        }
+        
+        activeSessions.put(player.getUniqueId(), session);
+        plugin.getJournalManager().recordOpen(player, session, inventory.getContents());
+        plugin.getAuditManager().log(AuditManager.Action.OPEN, player, shulkerItem, session, inventory.getContents(), null);
         return true;
     }
     
     public void closeShulkerInventory(Player player) {
+        closeShulkerInventory(player, null);
+    }
+    
+    /**
+     * Save and close the player's shulker session
+     * @param reason why the session is force-closed, null for a normal close
+     */
+    @SuppressWarnings("try")
+    public void closeShulkerInventory(Player player, String reason) {
+        MetricsManager metrics = plugin.getMetricsManager();
+        try (MetricsManager.Scope scope = metrics.enter(MetricsManager.Probe.CLOSE, player)) {
+            closeSession(player, reason);
+        }
+    }
+    
+    private void closeSession(Player player, String reason) {
         ShulkerSession session = activeSessions.remove(player.getUniqueId());
         if (session == null) {
-            plugin.debugLog("[CLOSE] No active session found for " + player.getName());
+            plugin.debugLog("[CLOSE] No active session found for {}", player.getName());
             return;
         }
+        if (reason != null) {
+            plugin.getFlightRecorderManager().events().forcedClose(player, reason);
+            plugin.getMetricsManager().incrementForcedClose(reason);
+        }
         
-        plugin.debugLog("[CLOSE] Closing shulker inventory for " + player.getName());
+        plugin.debugLog("[CLOSE] Closing shulker inventory for {}", player.getName());
         
         // Save inventory contents back to the item
         Inventory openInventory = player.getOpenInventory().getTopInventory();
-        plugin.debugLog("[CLOSE] Open inventory size: " + openInventory.getSize());
+        plugin.debugLog("[CLOSE] Open inventory size: {}", openInventory.getSize());
         
         if (openInventory.getSize() == 27) {
             plugin.debugLog("[CLOSE] Saving contents from 27-slot inventory");
@@ -106,46 +162,79 @@ public class ShulkerInventoryManager {
         } else {
             plugin.debugLog("[CLOSE] WARNING: Inventory size is not 27, skipping save");
         }
+        plugin.getJournalManager().recordClose(session);
+        plugin.getAuditManager().log(reason == null ? AuditManager.Action.CLOSE : AuditManager.Action.FORCED_CLOSE,
+            player, session.getOriginalItem(), session, openInventory.getContents(), reason);
         
         player.closeInventory();
-        plugin.debugLog("[CLOSE] Closed inventory for " + player.getName());
+        plugin.debugLog("[CLOSE] Closed inventory for {}", player.getName());
+    }
+    
+    /**
+     * Save inventory contents back to the held shulker item
+     * @return true if the contents were written to the item
+     */
+    public boolean saveShulkerContents(Player player, ShulkerSession session, Inventory inventory) {
+        return saveShulkerContents(player, session, inventory, null);
+    }
+    
+    /**
+     * Save inventory contents to a shulker that is out of the player's hand,
+     * like a thrown one that a cancelled drop puts back
+     * @param item stack to write to, null for the item in the session's hand
+     * @return true if the contents were written to the item
+     */
+    @SuppressWarnings("try")
+    public boolean saveShulkerContents(Player player, ShulkerSession session, Inventory inventory, ItemStack item) {
+        MetricsManager metrics = plugin.getMetricsManager();
+        SlowEventManager slow = plugin.getSlowEventManager();
+        Object jfrEvent = plugin.getFlightRecorderManager().events().beginSave();
+        int changedSlots = -1;
+        try (MetricsManager.Scope scope = metrics.enter(MetricsManager.Probe.SAVE, player)) {
+            long phase = slow.startPhase();
+            changedSlots = writeContents(player, session, inventory, item);
+            slow.endPhase(SlowEventManager.Phase.SAVE, phase);
+            return changedSlots >= 0;
+        } finally {
+            metrics.increment(changedSlots >= 0 ? MetricsManager.Counter.SAVE_OK : MetricsManager.Counter.SAVE_FAILED);
+            plugin.getFlightRecorderManager().events().commitSave(jfrEvent, player, changedSlots, changedSlots >= 0);
+        }
     }
     
-    public void saveShulkerContents(Player player, ShulkerSession session, Inventory inventory) {
-        ItemStack currentItem = session.isMainHand() ? 
+    /**
+     * @return number of changed slots (only counted while the JFR save event is on, 0 otherwise), -1 if not saved
+     */
+    private int writeContents(Player player, ShulkerSession session, Inventory inventory, ItemStack item) {
+        boolean inHand = item == null;
+        ItemStack currentItem = !inHand ? item : session.isMainHand() ? 
             player.getInventory().getItemInMainHand() : 
             player.getInventory().getItemInOffHand();
         
         // Debug логирование
-        plugin.debugLog("[SAVE] Starting to save shulker contents for " + player.getName());
-        plugin.debugLog("[SAVE] Current item: " + (currentItem != null ? currentItem.getType() : "null"));
-        plugin.debugLog("[SAVE] Is main hand: " + session.isMainHand());
+        plugin.debugLog("[SAVE] Starting to save shulker contents for {}", player.getName());
+        plugin.debugLog("[SAVE] Current item: {}", (currentItem != null ? currentItem.getType() : "null"));
+        plugin.debugLog("[SAVE] Is main hand: {}", session.isMainHand());
         
         // Verify the item is still the same shulker box
         if (!isSameShulkerBox(currentItem, session.getOriginalItem())) {
-            plugin.debugLog("[SAVE] ERROR: Shulker item changed, cannot save contents for " + player.getName());
+            plugin.debugLog("[SAVE] ERROR: Shulker item changed, cannot save contents for {}", player.getName());
             player.sendMessage(plugin.getMessage(player, "messages.item-changed"));
-            return;
+            return -1;
         }
         
-        // Count items in inventory before saving
-        int itemCount = 0;
         ItemStack[] contents = inventory.getContents();
-        for (ItemStack stack : contents) {
-            if (stack != null && stack.getType() != Material.AIR) {
-                itemCount += stack.getAmount();
-            }
-        }
-        plugin.debugLog("[SAVE] Items to save: " + itemCount + " total items in " + contents.length + " slots");
+        plugin.debugLog(() -> "[SAVE] Items to save: " + countItems(contents) + " total items in " + contents.length + " slots");
         
         // Update the shulker box contents
         if (currentItem != null && currentItem.getItemMeta() instanceof BlockStateMeta) {
             BlockStateMeta meta = (BlockStateMeta) currentItem.getItemMeta();
-            plugin.debugLog("[SAVE] Got BlockStateMeta: " + meta.getClass().getSimpleName());
+            plugin.debugLog(() -> "[SAVE] Got BlockStateMeta: " + meta.getClass().getSimpleName());
             
             if (meta.getBlockState() instanceof ShulkerBox) {
                 ShulkerBox shulkerBox = (ShulkerBox) meta.getBlockState();
-                plugin.debugLog("[SAVE] Got ShulkerBox state: " + shulkerBox.getClass().getSimpleName());
+                plugin.debugLog(() -> "[SAVE] Got ShulkerBox state: " + shulkerBox.getClass().getSimpleName());
+                int changedSlots = plugin.getFlightRecorderManager().events().isSaveEnabled()
+                    ? countChangedSlots(shulkerBox.getInventory().getContents(), contents) : 0;
                 
                 // Clear and set new contents
                 shulkerBox.getInventory().clear();
@@ -153,13 +242,7 @@ public class ShulkerInventoryManager {
                 plugin.debugLog("[SAVE] Set contents to shulker box inventory");
                 
                 // Verify contents were set
-                int savedCount = 0;
-                for (ItemStack stack : shulkerBox.getInventory().getContents()) {
-                    if (stack != null && stack.getType() != Material.AIR) {
-                        savedCount += stack.getAmount();
-                    }
-                }
-                plugin.debugLog("[SAVE] Verified saved items: " + savedCount + " items in shulker inventory");
+                plugin.debugLog(() -> "[SAVE] Verified saved items: " + countItems(shulkerBox.getInventory().getContents()) + " items in shulker inventory");
                 
                 // Update the item meta
                 meta.setBlockState(shulkerBox);
@@ -167,41 +250,46 @@ public class ShulkerInventoryManager {
                 plugin.debugLog("[SAVE] Updated item meta with new block state");
                 
                 // Update the item in player's hand
-                if (session.isMainHand()) {
+                if (!inHand) {
+                    plugin.debugLog("[SAVE] Item is not in hand, updated the given stack only");
+                } else if (session.isMainHand()) {
                     player.getInventory().setItemInMainHand(currentItem);
                 } else {
                     player.getInventory().setItemInOffHand(currentItem);
                 }
                 plugin.debugLog("[SAVE] Updated item in player's hand");
                 
-                // Final verification - check if the item actually has the contents
-                ItemStack finalItem = session.isMainHand() ? 
-                    player.getInventory().getItemInMainHand() : 
-                    player.getInventory().getItemInOffHand();
+                // Final verification - check if the item actually has the contents (debug only)
+                if (inHand && plugin.isDebugEnabled()) {
+                    ItemStack finalItem = session.isMainHand() ? 
+                        player.getInventory().getItemInMainHand() : 
+                        player.getInventory().getItemInOffHand();
                     
-                if (finalItem != null && finalItem.getItemMeta() instanceof BlockStateMeta) {
-                    BlockStateMeta finalMeta = (BlockStateMeta) finalItem.getItemMeta();
-                    if (finalMeta.getBlockState() instanceof ShulkerBox) {
-                        ShulkerBox finalShulker = (ShulkerBox) finalMeta.getBlockState();
-                        int finalCount = 0;
-                        for (ItemStack stack : finalShulker.getInventory().getContents()) {
-                            if (stack != null && stack.getType() != Material.AIR) {
-                                finalCount += stack.getAmount();
+                    if (finalItem != null && finalItem.getItemMeta() instanceof BlockStateMeta) {
+                        BlockStateMeta finalMeta = (BlockStateMeta) finalItem.getItemMeta();
+                        if (finalMeta.getBlockState() instanceof ShulkerBox) {
+                            ShulkerBox finalShulker = (ShulkerBox) finalMeta.getBlockState();
+                            int finalCount = 0;
+                            for (ItemStack stack : finalShulker.getInventory().getContents()) {
+                                if (stack != null && stack.getType() != Material.AIR) {
+                                    finalCount += stack.getAmount();
+                                }
                             }
+                            plugin.debugLog("[SAVE] FINAL VERIFICATION: {} items in final shulker", finalCount);
                         }
-                                plugin.debugLog("[SAVE] FINAL VERIFICATION: " + finalCount + " items in final shulker");
                     }
                 }
                 
-                plugin.debugLog("[SAVE] Successfully saved shulker contents for " + player.getName());
+                plugin.debugLog("[SAVE] Successfully saved shulker contents for {}", player.getName());
+                plugin.getAuditManager().log(AuditManager.Action.SAVE, player, currentItem, session, contents, null);
+                return changedSlots;
             } else {
-                plugin.debugLog("[SAVE] ERROR: BlockState is not a ShulkerBox: " + meta.getBlockState().getClass().getSimpleName());
+                plugin.debugLog(() -> "[SAVE] ERROR: BlockState is not a ShulkerBox: " + meta.getBlockState().getClass().getSimpleName());
             }
         } else {
-            plugin.debugLog("[SAVE] ERROR: ItemMeta is not BlockStateMeta: " + 
-                (currentItem != null && currentItem.getItemMeta() != null ? 
-                    currentItem.getItemMeta().getClass().getSimpleName() : "null"));
+            plugin.debugLog(() -> "[SAVE] ERROR: ItemMeta is not BlockStateMeta: " + (currentItem != null && currentItem.getItemMeta() != null ? currentItem.getItemMeta().getClass().getSimpleName() : "null"));
         }
+        return -1;
     }
     
     public boolean hasActiveSession(Player player) {
@@ -213,13 +301,82 @@ public class ShulkerInventoryManager {
     }
     
     public void closeAllInventories() {
-        for (UUID playerId : activeSessions.keySet()) {
-            Player player = Bukkit.getPlayer(playerId);
-            if (player != null && player.isOnline()) {
-                closeShulkerInventory(player);
+        flushAllSessions();
+    }
+    
+    /**
+     * Save every open session to its item and close the inventories in one pass.
+     * Each session is claimed by removing exactly that entry, so a session
+     * opened meanwhile is not dropped unsaved and one closed meanwhile is not
+     * saved twice. The close events fired here find no session left.
+     * @return number of sessions whose contents were saved
+     */
+    public int flushAllSessions() {
+        List<ShulkerSession> sessions = new ArrayList<>();
+        for (Map.Entry<UUID, ShulkerSession> entry : activeSessions.entrySet()) {
+            if (activeSessions.remove(entry.getKey(), entry.getValue())) {
+                sessions.add(entry.getValue());
             }
         }
-        activeSessions.clear();
+        
+        int flushed = 0;
+        for (ShulkerSession session : sessions) {
+            Player player = Bukkit.getPlayer(session.getPlayerId());
+            if (player == null || !player.isOnline()) {
+                continue;
+            }
+            
+            Inventory top = player.getOpenInventory().getTopInventory();
+            if (top.getHolder() instanceof ShulkerInventoryHolder &&
+                ((ShulkerInventoryHolder) top.getHolder()).isActiveFor(session) &&
+                saveShulkerContents(player, session, top)) {
+                flushed++;
+                plugin.getJournalManager().recordClose(session);
+            }
+            plugin.getAuditManager().log(AuditManager.Action.FORCED_CLOSE, player, session.getOriginalItem(),
+                session, top.getContents(), "shutdown");
+            if (top.getHolder() instanceof ShulkerInventoryHolder &&
+                ((ShulkerInventoryHolder) top.getHolder()).isActiveFor(session)) {
+                player.closeInventory();
+            }
+        }
+        
+        if (flushed != sessions.size()) {
+            plugin.getLogger().warning("Could not save " + (sessions.size() - flushed) + " of " +
+                sessions.size() + " open shulker sessions");
+        }
+        return flushed;
+    }
+    
+    private static int countChangedSlots(ItemStack[] before, ItemStack[] after) {
+        int changed = 0;
+        for (int i = 0; i < Math.max(before.length, after.length); i++) {
+            ItemStack old = i < before.length ? before[i] : null;
+            ItemStack now = i < after.length ? after[i] : null;
+            boolean oldEmpty = old == null || old.getType() == Material.AIR;
+            boolean nowEmpty = now == null || now.getType() == Material.AIR;
+            if (oldEmpty != nowEmpty || (!oldEmpty && !old.equals(now))) {
+                changed++;
+            }
+        }
+        return changed;
+    }
+    
+    private static int countItems(ItemStack[] contents) {
+        int count = 0;
+        for (ItemStack stack : contents) {
+            if (stack != null && stack.getType() != Material.AIR) {
+                count += stack.getAmount();
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * Material-only check, does not look at item meta
+     */
+    public static boolean isShulkerMaterial(Material type) {
+        return SHULKER_BOXES.contains(type);
     }
     
     public boolean isShulkerBox(ItemStack item) {
@@ -228,24 +385,7 @@ public class ShulkerInventoryManager {
         }
         
         // Check if it's a shulker box material - more efficient than string operations
-        Material type = item.getType();
-        if (type != Material.SHULKER_BOX && 
-            type != Material.WHITE_SHULKER_BOX &&
-            type != Material.ORANGE_SHULKER_BOX &&
-            type != Material.MAGENTA_SHULKER_BOX &&
-            type != Material.LIGHT_BLUE_SHULKER_BOX &&
-            type != Material.YELLOW_SHULKER_BOX &&
-            type != Material.LIME_SHULKER_BOX &&
-            type != Material.PINK_SHULKER_BOX &&
-            type != Material.GRAY_SHULKER_BOX &&
-            type != Material.LIGHT_GRAY_SHULKER_BOX &&
-            type != Material.CYAN_SHULKER_BOX &&
-            type != Material.PURPLE_SHULKER_BOX &&
-            type != Material.BLUE_SHULKER_BOX &&
-            type != Material.BROWN_SHULKER_BOX &&
-            type != Material.GREEN_SHULKER_BOX &&
-            type != Material.RED_SHULKER_BOX &&
-            type != Material.BLACK_SHULKER_BOX) {
+        if (!SHULKER_BOXES.contains(item.getType())) {
             return false;
         }
         
@@ -260,6 +400,16 @@ public class ShulkerInventoryManager {
     }
     
     public boolean isSameShulkerBox(ItemStack current, ItemStack original) {
+        SlowEventManager slow = plugin.getSlowEventManager();
+        long phase = slow.startPhase();
+        try {
+            return compareShulkerBoxes(current, original);
+        } finally {
+            slow.endPhase(SlowEventManager.Phase.VERIFY, phase);
+        }
+    }
+    
+    private boolean compareShulkerBoxes(ItemStack current, ItemStack original) {
         if (current == null || original == null) {
             return false;
         }
@@ -310,7 +460,7 @@ public class ShulkerInventoryManager {
     
     // Methods for placement action tracking
     public void markPlacementAction(Player player) {
-        placementActions.put(player.getUniqueId(), System.currentTimeMillis());
+        placementActions.put(player.getUniqueId(), plugin.getClockManager().currentMillis());
     }
     
     public boolean isRecentPlacementAction(Player player) {
@@ -320,10 +470,25 @@ public class ShulkerInventoryManager {
         }
         
         // Consider it recent if within 500ms to prevent false item-changed messages
-        boolean isRecent = (System.currentTimeMillis() - timestamp) < 500;
+        boolean isRecent = (plugin.getClockManager().currentMillis() - timestamp) < 500;
         if (!isRecent) {
-            placementActions.remove(player.getUniqueId());
+            placementActions.remove(player.getUniqueId(), timestamp);
         }
         return isRecent;
     }
+    
+    /**
+     * Forget placement state, e.g. when the player leaves
+     */
+    public void clearPlacementAction(UUID playerId) {
+        placementActions.remove(playerId);
+    }
+    
+    public int getActiveSessionsCount() {
+        return activeSessions.size();
+    }
+    
+    public int getPlacementActionsCount() {
+        return placementActions.size();
+    }
 }
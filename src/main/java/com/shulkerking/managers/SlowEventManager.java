@@ -0,0 +1,275 @@
+package com.shulkerking.managers;
+
+import com.shulkerking.ShulkerKingPlugin;
+import org.bukkit.entity.Entity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sampler for handlers that run over slow-events.budget-ms.
+ * Every handler thread owns a reusable trace, so the fast path only stores
+ * a start time and adds phase durations. When a handler ends over budget the
+ * event type, player and phase timings go to a bounded ring. A watchdog
+ * thread takes the stack of a handler that is still running past the budget,
+ * at most once per slow-events.stack-interval-seconds.
+ */
+public class SlowEventManager {
+
+    /**
+     * Measured parts of a handler. Phases may nest, a decode inside a save
+     * counts towards both.
+     */
+    public enum Phase {
+        DECODE("decode"),
+        IDENTIFY("identify"),
+        SAVE("save"),
+        VERIFY("verify"),
+        RAYTRACE("raytrace"),
+        MESSAGES("messages");
+
+        private final String label;
+
+        Phase(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() { return label; }
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+
+    private final ShulkerKingPlugin plugin;
+    private final ThreadLocal<Trace> local;
+    private final List<Trace> traces;
+    private final AtomicLong sequence;
+    private final AtomicReferenceArray<SlowEvent> ring;
+
+    private volatile boolean enabled;
+    private volatile boolean running;
+    private volatile long budgetNanos;
+    private long stackIntervalNanos;
+    private long lastStackNanos;
+    private volatile Thread watchdog;
+
+    public SlowEventManager(ShulkerKingPlugin plugin) {
+        this.plugin = plugin;
+        this.traces = new CopyOnWriteArrayList<>();
+        this.local = ThreadLocal.withInitial(() -> {
+            Trace trace = new Trace(Thread.currentThread());
+            traces.add(trace);
+            return trace;
+        });
+        this.sequence = new AtomicLong();
+        int capacity = Math.max(8, Math.min(plugin.getConfig().getInt("slow-events.max-entries", 64), 4096));
+        this.ring = new AtomicReferenceArray<>(capacity);
+    }
+
+    /**
+     * Read slow-events settings and start the stack watchdog
+     */
+    public synchronized void start() {
+        stop();
+        enabled = plugin.getConfig().getBoolean("slow-events.enabled", true);
+        budgetNanos = Math.max(100_000L, (long) (plugin.getConfig().getDouble("slow-events.budget-ms", 2.0) * 1_000_000L));
+        stackIntervalNanos = TimeUnit.SECONDS.toNanos(Math.max(0L, plugin.getConfig().getLong("slow-events.stack-interval-seconds", 10L)));
+        lastStackNanos = System.nanoTime() - stackIntervalNanos;
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        watchdog = new Thread(this::runWatchdog, "ShulkerKing-SlowEvents");
+        watchdog.setDaemon(true);
+        watchdog.start();
+    }
+
+    public synchronized void stop() {
+        enabled = false;
+        running = false;
+        if (watchdog != null) {
+            LockSupport.unpark(watchdog);
+            watchdog = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long getBudgetNanos() {
+        return budgetNanos;
+    }
+
+    public long getSlowEventsCount() {
+        return sequence.get();
+    }
+
+    /**
+     * Start tracing a handler on this thread. Nested calls only count depth,
+     * the outermost handler owns the trace and fixes whether it is sampled,
+     * so a reload in the middle of a handler cannot unbalance it. Must be
+     * paired with {@link #end()}.
+     */
+    public void begin(MetricsManager.Probe probe, Entity player) {
+        Trace trace = local.get();
+        if (trace.depth++ > 0) {
+            return;
+        }
+        trace.active = enabled;
+        if (!trace.active) {
+            return;
+        }
+        trace.probe = probe;
+        trace.player = player;
+        for (int i = 0; i < trace.phases.length; i++) {
+            trace.phases[i] = 0L;
+        }
+        trace.seq++;
+        trace.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Finish the handler started by {@link #begin}, recording it when over budget
+     */
+    public void end() {
+        Trace trace = local.get();
+        if (trace.depth == 0 || --trace.depth > 0 || !trace.active) {
+            return;
+        }
+        trace.active = false;
+        long elapsed = System.nanoTime() - trace.startNanos;
+        trace.startNanos = 0L;
+        if (elapsed > budgetNanos && trace.probe != null) {
+            StackTraceElement[] stack = trace.stackSeq == trace.seq ? trace.stack : null;
+            record(new SlowEvent(System.currentTimeMillis(), trace.probe.getLabel(),
+                trace.player != null ? trace.player.getName() : null, elapsed, trace.phases.clone(), stack));
+        }
+        trace.stack = null;
+        trace.player = null;
+        trace.probe = null;
+    }
+
+    /**
+     * @return start time to pass to {@link #endPhase}, 0 when no handler is traced
+     */
+    public long startPhase() {
+        Trace trace = local.get();
+        return trace.depth > 0 && trace.active ? System.nanoTime() : 0L;
+    }
+
+    public void endPhase(Phase phase, long startNanos) {
+        if (startNanos == 0L) {
+            return;
+        }
+        Trace trace = local.get();
+        if (trace.depth > 0 && trace.active) {
+            trace.phases[phase.ordinal()] += System.nanoTime() - startNanos;
+        }
+    }
+
+    private void record(SlowEvent event) {
+        long seq = sequence.getAndIncrement();
+        ring.set((int) (seq % ring.length()), event);
+        plugin.getMetricsManager().increment(MetricsManager.Counter.SLOW_EVENT);
+        plugin.debugLog(() -> "[SLOW] " + event.getProbe() + " " + event.getPlayer() + " "
+            + TimeUnit.NANOSECONDS.toMicros(event.getTotalNanos()) + "us");
+    }
+
+    /**
+     * @return recorded slow events, newest first
+     */
+    public List<SlowEvent> getRecent(int limit) {
+        List<SlowEvent> result = new ArrayList<>();
+        long last = sequence.get() - 1;
+        for (long seq = last; seq >= 0 && seq > last - ring.length() && result.size() < limit; seq--) {
+            SlowEvent event = ring.get((int) (seq % ring.length()));
+            if (event != null) {
+                result.add(event);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Sample the stacks of handlers that are still running past the budget
+     */
+    private void runWatchdog() {
+        while (running && Thread.currentThread() == watchdog) {
+            LockSupport.parkNanos(this, budgetNanos);
+            long now = System.nanoTime();
+            for (Trace trace : traces) {
+                if (!trace.thread.isAlive()) {
+                    traces.remove(trace);
+                    continue;
+                }
+                long seq = trace.seq;
+                long start = trace.startNanos;
+                if (start == 0L || now - start <= budgetNanos || trace.stackSeq == seq
+                    || now - lastStackNanos < stackIntervalNanos) {
+                    continue;
+                }
+                StackTraceElement[] stack = trace.thread.getStackTrace();
+                // The handler may have finished while the stack was taken
+                if (trace.seq == seq && trace.startNanos == start) {
+                    trace.stack = stack;
+                    trace.stackSeq = seq;
+                    lastStackNanos = now;
+                }
+            }
+        }
+    }
+
+    /**
+     * Per-thread state of the handler being traced. Plain fields are only
+     * touched by the owning thread, the volatile ones are read by the watchdog.
+     */
+    private static class Trace {
+        private final Thread thread;
+        private final long[] phases = new long[PHASES.length];
+        private int depth;
+        private boolean active;
+        private MetricsManager.Probe probe;
+        private Entity player;
+        private volatile long seq;
+        private volatile long startNanos;
+        private volatile long stackSeq = -1L;
+        private volatile StackTraceElement[] stack;
+
+        private Trace(Thread thread) {
+            this.thread = thread;
+        }
+    }
+
+    /**
+     * One handler that ran over budget
+     */
+    public static class SlowEvent {
+        private final long timestamp;
+        private final String probe;
+        private final String player;
+        private final long totalNanos;
+        private final long[] phaseNanos;
+        private final StackTraceElement[] stack;
+
+        SlowEvent(long timestamp, String probe, String player, long totalNanos, long[] phaseNanos, StackTraceElement[] stack) {
+            this.timestamp = timestamp;
+            this.probe = probe;
+            this.player = player;
+            this.totalNanos = totalNanos;
+            this.phaseNanos = phaseNanos;
+            this.stack = stack;
+        }
+
+        public long getTimestamp() { return timestamp; }
+        public String getProbe() { return probe; }
+        public String getPlayer() { return player; }
+        public long getTotalNanos() { return totalNanos; }
+        public long getPhaseNanos(Phase phase) { return phaseNanos[phase.ordinal()]; }
+        public StackTraceElement[] getStack() { return stack; }
+    }
+}
@@ -4,72 +4,177 @@ import com.shulkerking.ShulkerKingPlugin;
 import org.bukkit.Sound;
 import org.bukkit.entity.Player;
 
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
 public class SoundManager {
-    
+
+    /**
+     * Sound events with their config path and default sound name
+     */
+    public enum SoundType {
+        OPEN("open", "", true),
+        CLOSE("close", "", true),
+        COOLDOWN("cooldown", "", false),
+        BLOCKED("blocked", "", false),
+        PLACE("place", "BLOCK_STONE_PLACE", true);
+
+        private final String configKey;
+        private final String defaultSound;
+        // Cosmetic sounds are skipped while the server is under load
+        private final boolean cosmetic;
+
+        SoundType(String configKey, String defaultSound, boolean cosmetic) {
+            this.configKey = configKey;
+            this.defaultSound = defaultSound;
+            this.cosmetic = cosmetic;
+        }
+
+        public String getConfigKey() { return configKey; }
+        public boolean isCosmetic() { return cosmetic; }
+    }
+
     private final ShulkerKingPlugin plugin;
-    
+    private volatile Map<SoundType, SoundProfile> profiles;
+    // Last tick a sound type was played per player, indexed by SoundType ordinal
+    private final Map<UUID, long[]> lastPlayedTicks;
+    private volatile boolean soundsEnabled;
+
     public SoundManager(ShulkerKingPlugin plugin) {
         this.plugin = plugin;
+        this.lastPlayedTicks = new ConcurrentHashMap<>();
+
+        reloadSounds();
     }
-    
+
     /**
-     * Play sound if sounds are enabled
+     * Resolve all configured sounds once. Invalid names are reported here
+     * and the sound is disabled instead of failing on every play.
      */
-    private void playSound(Player player, String soundType) {
-        if (!plugin.getConfig().getBoolean("sounds.enabled", true)) {
+    public void reloadSounds() {
+        Map<SoundType, SoundProfile> resolved = new EnumMap<>(SoundType.class);
+
+        for (SoundType type : SoundType.values()) {
+            String soundPath = "sounds." + type.getConfigKey();
+            String soundName = plugin.getConfig().getString(soundPath + ".sound", type.defaultSound);
+            float volume = (float) plugin.getConfig().getDouble(soundPath + ".volume", 1.0);
+            float pitch = (float) plugin.getConfig().getDouble(soundPath + ".pitch", 1.0);
+
+            if (soundName == null || soundName.isEmpty()) {
+                continue;
+            }
+
+            try {
+                resolved.put(type, new SoundProfile(Sound.valueOf(soundName.toUpperCase()), volume, pitch));
+            } catch (IllegalArgumentException e) {
+                plugin.getLogger().warning("Invalid sound name for " + soundPath + ": " + soundName);
+            }
+        }
+
+        profiles = resolved;
+        soundsEnabled = plugin.getConfig().getBoolean("sounds.enabled", true);
+        plugin.debugLog("Resolved {} sound profiles", resolved.size());
+    }
+
+    /**
+     * Play sound if sounds are enabled. The same sound is sent to a player
+     * at most once per tick.
+     */
+    private void playSound(Player player, SoundType type) {
+        if (!soundsEnabled || (type.isCosmetic() && plugin.getLoadManager().isDegraded())) {
             return;
         }
-        
-        String soundPath = "sounds." + soundType;
-        String soundName = plugin.getConfig().getString(soundPath + ".sound", "");
-        float volume = (float) plugin.getConfig().getDouble(soundPath + ".volume", 1.0);
-        float pitch = (float) plugin.getConfig().getDouble(soundPath + ".pitch", 1.0);
-        
-        if (soundName.isEmpty()) {
+
+        SoundProfile profile = profiles.get(type);
+        if (profile == null) {
             return;
         }
-        
-        try {
-            Sound sound = Sound.valueOf(soundName);
-            player.playSound(player.getLocation(), sound, volume, pitch);
-            plugin.debugLog("Played sound " + soundName + " for " + player.getName());
-        } catch (IllegalArgumentException e) {
-            plugin.getLogger().warning("Invalid sound name: " + soundName);
+
+        long tick = plugin.getClockManager().currentTick();
+        long[] lastTicks = lastPlayedTicks.computeIfAbsent(player.getUniqueId(), id -> new long[SoundType.values().length]);
+        if (lastTicks[type.ordinal()] == tick) {
+            return;
         }
+        lastTicks[type.ordinal()] = tick;
+
+        player.playSound(player.getLocation(), profile.getSound(), profile.getVolume(), profile.getPitch());
+        plugin.debugLog("Played sound {} for {}", profile.getSound(), player.getName());
     }
-    
+
     /**
      * Play shulker box opening sound
      */
     public void playOpenSound(Player player) {
-        playSound(player, "open");
+        playSound(player, SoundType.OPEN);
     }
-    
+
     /**
      * Play shulker box closing sound
      */
     public void playCloseSound(Player player) {
-        playSound(player, "close");
+        playSound(player, SoundType.CLOSE);
     }
-    
+
     /**
      * Play cooldown active sound
      */
     public void playCooldownSound(Player player) {
-        playSound(player, "cooldown");
+        playSound(player, SoundType.COOLDOWN);
     }
-    
+
     /**
      * Play blocked action sound
      */
     public void playBlockedSound(Player player) {
-        playSound(player, "blocked");
+        playSound(player, SoundType.BLOCKED);
     }
-    
+
+    /**
+     * Play shulker box placement sound
+     */
+    public void playPlaceSound(Player player) {
+        playSound(player, SoundType.PLACE);
+    }
+
+    /**
+     * Forget per-player dedup state
+     */
+    public void clearPlayer(UUID playerId) {
+        lastPlayedTicks.remove(playerId);
+    }
+
+    /**
+     * Number of players with dedup state
+     */
+    public int getTrackedPlayersCount() {
+        return lastPlayedTicks.size();
+    }
+
     /**
      * Check if sounds are enabled
      */
     public boolean isSoundsEnabled() {
-        return plugin.getConfig().getBoolean("sounds.enabled", true);
+        return soundsEnabled;
+    }
+
+    /**
+     * Sound resolved from config
+     */
+    public static class SoundProfile {
+        private final Sound sound;
+        private final float volume;
+        private final float pitch;
+
+        public SoundProfile(Sound sound, float volume, float pitch) {
+            this.sound = sound;
+            this.volume = volume;
+            this.pitch = pitch;
+        }
+
+        public Sound getSound() { return sound; }
+        public float getVolume() { return volume; }
+        public float getPitch() { return pitch; }
     }
 }
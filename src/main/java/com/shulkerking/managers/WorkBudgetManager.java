@@ -0,0 +1,228 @@
+package com.shulkerking.managers;
+
+import com.shulkerking.ShulkerKingPlugin;
+import org.bukkit.Location;
+import org.bukkit.entity.Entity;
+
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+/**
+ * Per-tick budget for non-critical plugin work.
+ * Countdown updates, lore cleanup and verification tasks are queued by
+ * priority and a global task runs them until work-budget.budget-micros is
+ * used up, leaving the rest for the next tick. A burst such as hundreds of
+ * players reopening shulkers after a restart is then spread over several
+ * ticks. At least one task runs per tick so the queue always drains.
+ * On Folia entity and block work must stay on its region thread, so tasks
+ * go to the region schedulers directly, as they do with the budget disabled.
+ */
+public class WorkBudgetManager {
+
+    /**
+     * Queue priority, higher priorities are drained first
+     */
+    public enum Priority {
+        HIGH, NORMAL, LOW
+    }
+
+    private final ShulkerKingPlugin plugin;
+    private final Queue<Work> incoming;
+    private final AtomicLong sequence;
+    // Only touched by the global tick task
+    private final PriorityQueue<Work> delayed;
+    private final Map<Priority, ArrayDeque<Work>> ready;
+    private long tick;
+
+    private volatile boolean enabled;
+    private volatile long budgetNanos;
+    private volatile int queuedCount;
+    private SchedulerManager.Task tickTask;
+
+    public WorkBudgetManager(ShulkerKingPlugin plugin) {
+        this.plugin = plugin;
+        this.incoming = new ConcurrentLinkedQueue<>();
+        this.sequence = new AtomicLong();
+        this.delayed = new PriorityQueue<>(Comparator.comparingLong((Work work) -> work.dueTick)
+            .thenComparingLong(work -> work.seq));
+        this.ready = new EnumMap<>(Priority.class);
+        for (Priority priority : Priority.values()) {
+            ready.put(priority, new ArrayDeque<>());
+        }
+    }
+
+    /**
+     * Read work-budget settings and start or stop draining. Queued work is
+     * kept across restarts and handed to the scheduler when the budget is
+     * turned off.
+     */
+    public synchronized void start() {
+        budgetNanos = Math.max(50L, plugin.getConfig().getLong("work-budget.budget-micros", 1000L)) * 1000L;
+        boolean wanted = plugin.getConfig().getBoolean("work-budget.enabled", true)
+            && !plugin.getSchedulerManager().isFolia();
+        if (wanted && tickTask == null) {
+            enabled = true;
+            tickTask = plugin.getSchedulerManager().runGlobalTimer(this::tick, 1L, 1L);
+        } else if (!wanted && tickTask != null) {
+            stop();
+            plugin.getSchedulerManager().runGlobal(this::handOver);
+        }
+    }
+
+    /**
+     * Stop draining, queued work is dropped like scheduler tasks on shutdown
+     */
+    public synchronized void stop() {
+        enabled = false;
+        if (tickTask != null) {
+            tickTask.cancel();
+            tickTask = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getQueuedCount() {
+        return queuedCount;
+    }
+
+    /**
+     * Run work for an entity within the tick budget, on the entity's thread on Folia
+     */
+    public SchedulerManager.Task submitForEntity(Entity entity, Priority priority, Runnable task, long delayTicks) {
+        if (!enabled) {
+            return plugin.getSchedulerManager().runForEntityLater(entity, task, Math.max(1L, delayTicks));
+        }
+        return enqueue(new Work(priority, entity, null, task, delayTicks));
+    }
+
+    /**
+     * Run work for a block within the tick budget, on the region's thread on Folia
+     */
+    public SchedulerManager.Task submitAtLocation(Location location, Priority priority, Runnable task, long delayTicks) {
+        if (!enabled) {
+            return plugin.getSchedulerManager().runAtLocationLater(location, task, Math.max(1L, delayTicks));
+        }
+        return enqueue(new Work(priority, null, location, task, delayTicks));
+    }
+
+    private Work enqueue(Work work) {
+        work.seq = sequence.getAndIncrement();
+        incoming.add(work);
+        return work;
+    }
+
+    private void tick() {
+        tick++;
+        Work work;
+        while ((work = incoming.poll()) != null) {
+            work.dueTick = tick + Math.max(0L, work.delayTicks - 1L);
+            delayed.add(work);
+        }
+        while ((work = delayed.peek()) != null && work.dueTick <= tick) {
+            delayed.poll();
+            ready.get(work.priority).add(work);
+        }
+
+        long deadline = System.nanoTime() + budgetNanos;
+        drain:
+        for (ArrayDeque<Work> queue : ready.values()) {
+            while ((work = queue.poll()) != null) {
+                if (work.cancelled) {
+                    continue;
+                }
+                run(work);
+                if (System.nanoTime() >= deadline) {
+                    break drain;
+                }
+            }
+        }
+
+        int queued = delayed.size();
+        for (ArrayDeque<Work> queue : ready.values()) {
+            queued += queue.size();
+        }
+        queuedCount = queued;
+    }
+
+    private void run(Work work) {
+        work.cancelled = true;
+        try {
+            work.task.run();
+        } catch (RuntimeException e) {
+            plugin.getLogger().log(Level.WARNING, "Ошибка в отложенной задаче", e);
+        }
+    }
+
+    /**
+     * Pass everything still queued to the scheduler with its remaining delay
+     */
+    private void handOver() {
+        Work work;
+        while ((work = incoming.poll()) != null) {
+            reschedule(work, work.delayTicks);
+        }
+        while ((work = delayed.poll()) != null) {
+            reschedule(work, work.dueTick - tick);
+        }
+        for (ArrayDeque<Work> queue : ready.values()) {
+            while ((work = queue.poll()) != null) {
+                reschedule(work, 1L);
+            }
+        }
+        queuedCount = 0;
+    }
+
+    private void reschedule(Work work, long delayTicks) {
+        if (work.cancelled) {
+            return;
+        }
+        long delay = Math.max(1L, delayTicks);
+        if (work.entity != null) {
+            plugin.getSchedulerManager().runForEntityLater(work.entity, () -> run(work), delay);
+        } else {
+            plugin.getSchedulerManager().runAtLocationLater(work.location, () -> run(work), delay);
+        }
+    }
+
+    /**
+     * Queued task, cancelling it only marks it to be skipped
+     */
+    private static class Work implements SchedulerManager.Task {
+        private final Priority priority;
+        private final Entity entity;
+        private final Location location;
+        private final Runnable task;
+        private final long delayTicks;
+        private long seq;
+        private long dueTick;
+        private volatile boolean cancelled;
+
+        Work(Priority priority, Entity entity, Location location, Runnable task, long delayTicks) {
+            this.priority = priority;
+            this.entity = entity;
+            this.location = location;
+            this.task = task;
+            this.delayTicks = delayTicks;
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+}
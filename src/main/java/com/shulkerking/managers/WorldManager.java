@@ -2,51 +2,163 @@ package com.shulkerking.managers;
 
 import com.shulkerking.ShulkerKingPlugin;
 import org.bukkit.World;
+import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.entity.Player;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class WorldManager {
-    
+
     private final ShulkerKingPlugin plugin;
-    
+    // Policy per loaded world, keyed by world UID
+    private final Map<UUID, WorldPolicy> policies;
+    private volatile String blacklistMessage;
+
     public WorldManager(ShulkerKingPlugin plugin) {
         this.plugin = plugin;
+        this.policies = new ConcurrentHashMap<>();
+
+        reloadPolicies();
+    }
+
+    /**
+     * Rebuild policies for all loaded worlds from config
+     */
+    public void reloadPolicies() {
+        blacklistMessage = plugin.getColorManager().colorize(
+            plugin.getConfig().getString("world-blacklist.message", "&cShulker boxes cannot be opened in this world!"));
+
+        policies.clear();
+        for (World world : plugin.getServer().getWorlds()) {
+            updateWorld(world);
+        }
+        plugin.debugLog("World policies rebuilt for {} worlds", policies.size());
+    }
+
+    /**
+     * Compute and store policy for a single world, e.g. after it was loaded
+     */
+    public WorldPolicy updateWorld(World world) {
+        WorldPolicy policy = buildPolicy(world.getName());
+        policies.put(world.getUID(), policy);
+        return policy;
+    }
+
+    /**
+     * Forget policy of an unloaded world
+     */
+    public void removeWorld(World world) {
+        policies.remove(world.getUID());
+    }
+
+    private WorldPolicy buildPolicy(String worldName) {
+        boolean blacklistEnabled = plugin.getConfig().getBoolean("world-blacklist.enabled", false);
+        Set<String> blacklistedWorlds = new HashSet<>(plugin.getConfig().getStringList("world-blacklist.worlds"));
+        boolean allowed = !blacklistEnabled || !blacklistedWorlds.contains(worldName);
+
+        boolean mainHand = plugin.getConfig().getBoolean("settings.main-hand", true);
+        boolean offhand = plugin.getConfig().getBoolean("settings.offhand", true);
+        boolean shiftPlace = plugin.getConfig().getBoolean("settings.shift-place", true);
+        boolean pvpBlock = plugin.getConfig().getBoolean("settings.pvp-block", false);
+        double cooldownTime = -1.0;
+
+        // Per-world overrides
+        ConfigurationSection override = plugin.getConfig().getConfigurationSection("world-overrides." + worldName);
+        if (override != null) {
+            allowed = override.getBoolean("enabled", allowed);
+            mainHand = override.getBoolean("main-hand", mainHand);
+            offhand = override.getBoolean("offhand", offhand);
+            shiftPlace = override.getBoolean("shift-place", shiftPlace);
+            pvpBlock = override.getBoolean("pvp-block", pvpBlock);
+            cooldownTime = override.getDouble("cooldown", cooldownTime);
+        }
+
+        return new WorldPolicy(allowed, mainHand, offhand, shiftPlace, pvpBlock, cooldownTime);
+    }
+
+    /**
+     * Get policy for a world
+     */
+    public WorldPolicy getPolicy(World world) {
+        WorldPolicy policy = policies.get(world.getUID());
+        if (policy == null) {
+            // World loaded before we could see its load event
+            plugin.getMetricsManager().increment(MetricsManager.Counter.WORLD_CACHE_MISS);
+            policy = updateWorld(world);
+        } else {
+            plugin.getMetricsManager().increment(MetricsManager.Counter.WORLD_CACHE_HIT);
+        }
+        return policy;
     }
-    
+
+    /**
+     * Get policy for player's current world
+     */
+    public WorldPolicy getPolicy(Player player) {
+        return getPolicy(player.getWorld());
+    }
+
     /**
      * Check if shulker functionality is allowed in player's current world
      */
     public boolean isWorldAllowed(Player player) {
-        if (!plugin.getConfig().getBoolean("world-blacklist.enabled", false)) {
-            return true;
-        }
-        
-        World world = player.getWorld();
-        List<String> blacklistedWorlds = plugin.getConfig().getStringList("world-blacklist.worlds");
-        
-        return !blacklistedWorlds.contains(world.getName());
+        return getPolicy(player).isAllowed();
     }
-    
+
     /**
      * Get blacklisted world message
      */
     public String getBlacklistMessage() {
-        String message = plugin.getConfig().getString("world-blacklist.message", "&cShulker boxes cannot be opened in this world!");
-        return plugin.getColorManager().colorize(message);
+        return blacklistMessage;
     }
-    
+
     /**
      * Check if world blacklist is enabled
      */
     public boolean isBlacklistEnabled() {
         return plugin.getConfig().getBoolean("world-blacklist.enabled", false);
     }
-    
+
     /**
      * Get list of blacklisted worlds
      */
     public List<String> getBlacklistedWorlds() {
         return plugin.getConfig().getStringList("world-blacklist.worlds");
     }
+
+    /**
+     * Settings resolved for one world
+     */
+    public static class WorldPolicy {
+        private final boolean allowed;
+        private final boolean mainHand;
+        private final boolean offhand;
+        private final boolean shiftPlace;
+        private final boolean pvpBlock;
+        private final double cooldownTime;
+
+        public WorldPolicy(boolean allowed, boolean mainHand, boolean offhand, boolean shiftPlace,
+                           boolean pvpBlock, double cooldownTime) {
+            this.allowed = allowed;
+            this.mainHand = mainHand;
+            this.offhand = offhand;
+            this.shiftPlace = shiftPlace;
+            this.pvpBlock = pvpBlock;
+            this.cooldownTime = cooldownTime;
+        }
+
+        public boolean isAllowed() { return allowed; }
+        public boolean isMainHandAllowed() { return mainHand; }
+        public boolean isOffhandAllowed() { return offhand; }
+        public boolean isShiftPlaceAllowed() { return shiftPlace; }
+        public boolean isPvpBlock() { return pvpBlock; }
+        public boolean hasCooldownOverride() { return cooldownTime >= 0; }
+        /** Default cooldown for this world in seconds, negative if not overridden */
+        public double getCooldownTime() { return cooldownTime; }
+    }
 }
@@ -0,0 +1,84 @@
+package com.shulkerking;
+
+import com.shulkerking.testing.FakeItems;
+import com.shulkerking.testing.FakePlayer;
+import com.shulkerking.testing.PluginHarness;
+import org.bukkit.Material;
+import org.bukkit.event.inventory.ClickType;
+import org.bukkit.inventory.EquipmentSlot;
+import org.bukkit.inventory.ItemStack;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Audit lines of one session can be linked while its contents change
+ */
+class AuditLogTest {
+
+    private static final Pattern ITEM_HASH = Pattern.compile("\"item_hash\":\"([0-9a-f]+)\"");
+    private static final Pattern SESSION = Pattern.compile("\"session\":(\\d+)");
+    private static final Pattern DIGEST = Pattern.compile("\"digest\":\"([0-9a-f]+)\"");
+
+    private PluginHarness harness;
+
+    @BeforeEach
+    void start() {
+        harness = PluginHarness.start(Collections.singletonMap("audit.enabled", true));
+    }
+
+    @AfterEach
+    void stop() {
+        harness.close();
+    }
+
+    @Test
+    void sessionKeepsItsKeysWhileContentsChange() throws Exception {
+        FakePlayer player = harness.getServer().addPlayer("audit");
+        player.getInventory().setItemInMainHand(FakeItems.shulker(Material.SHULKER_BOX, new ItemStack(Material.DIRT, 16)));
+        player.getInventory().setItem(9, new ItemStack(Material.IRON_INGOT, 5));
+        player.rightClick(EquipmentSlot.HAND);
+        // Move the ingots into the shulker, each click saves it
+        player.click(player.rawSlot(9), ClickType.LEFT);
+        harness.tick(3);
+        player.click(1, ClickType.LEFT);
+        harness.tick(3);
+        player.closeInventory();
+        harness.getPlugin().getAuditManager().close();
+
+        List<String> lines = Files.readAllLines(harness.getDataFolder().resolve("audit/audit.log"), StandardCharsets.UTF_8);
+        assertTrue(lines.stream().anyMatch(line -> line.contains("\"action\":\"OPEN\"")), () -> "no OPEN in " + lines);
+        assertTrue(lines.stream().anyMatch(line -> line.contains("\"action\":\"SAVE\"")), () -> "no SAVE in " + lines);
+        assertTrue(lines.stream().anyMatch(line -> line.contains("\"action\":\"CLOSE\"")), () -> "no CLOSE in " + lines);
+
+        Set<String> itemHashes = new HashSet<>();
+        Set<String> sessions = new HashSet<>();
+        Set<String> digests = new HashSet<>();
+        for (String line : lines) {
+            itemHashes.add(group(ITEM_HASH, line));
+            sessions.add(group(SESSION, line));
+            digests.add(group(DIGEST, line));
+        }
+        assertEquals(1, itemHashes.size(), () -> "item_hash changed within the session: " + lines);
+        assertEquals(1, sessions.size(), () -> "session changed within the session: " + lines);
+        assertTrue(digests.size() > 1, () -> "contents digest did not follow the contents: " + lines);
+    }
+
+    private static String group(Pattern pattern, String line) {
+        Matcher matcher = pattern.matcher(line);
+        assertTrue(matcher.find(), () -> pattern + " missing in " + line);
+        return matcher.group(1);
+    }
+}
@@ -0,0 +1,101 @@
+package com.shulkerking;
+
+import com.shulkerking.testing.FakeItems;
+import com.shulkerking.testing.FakePlayer;
+import com.shulkerking.testing.PluginHarness;
+import org.bukkit.Material;
+import org.bukkit.event.inventory.ClickType;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryDragEvent;
+import org.bukkit.inventory.EquipmentSlot;
+import org.bukkit.inventory.ItemStack;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * item-blacklist.mode acts the same whether the blacklisted stack is
+ * clicked or dragged into an open shulker
+ */
+class BlacklistModeTest {
+
+    private static final int DIAMONDS = 8;
+
+    private PluginHarness harness;
+    private FakePlayer player;
+
+    @AfterEach
+    void stop() {
+        harness.close();
+    }
+
+    @Test
+    void blockKeepsTheCursor() {
+        start("BLOCK");
+        assertTrue(place().isCancelled());
+        InventoryDragEvent drag = dragDiamonds();
+        assertTrue(drag.isCancelled());
+        harness.tick(1);
+        assertEquals(0, FakeItems.countItems(player.getTopInventory().getContents()));
+        assertEquals(DIAMONDS, player.getCursor().getAmount());
+    }
+
+    @Test
+    void removeDeletesTheDraggedStack() {
+        start("REMOVE");
+        InventoryDragEvent drag = dragDiamonds();
+        assertTrue(drag.isCancelled());
+        harness.tick(1);
+        assertEquals(0, FakeItems.countItems(player.getTopInventory().getContents()));
+        assertEquals(Material.AIR, player.getPlayer().getItemOnCursor().getType(), "dragged stack left on the cursor");
+    }
+
+    @Test
+    void warnAllowsTheDrag() {
+        start("WARN");
+        InventoryDragEvent drag = dragDiamonds();
+        assertFalse(drag.isCancelled());
+        harness.tick(1);
+        assertEquals(DIAMONDS, FakeItems.countItems(player.getTopInventory().getContents()));
+        assertTrue(player.getMessages().size() >= 1, "no warning sent");
+    }
+
+    private void start(String mode) {
+        Map<String, Object> settings = new LinkedHashMap<>();
+        settings.put("item-blacklist.enabled", true);
+        settings.put("item-blacklist.mode", mode);
+        settings.put("item-blacklist.items", Collections.singletonList("DIAMOND"));
+        harness = PluginHarness.start(settings);
+        player = harness.getServer().addPlayer("blacklist");
+        player.getInventory().setItemInMainHand(FakeItems.shulker(Material.SHULKER_BOX));
+        player.getInventory().setItem(9, new ItemStack(Material.DIAMOND, DIAMONDS));
+        player.rightClick(EquipmentSlot.HAND);
+        assertTrue(harness.getPlugin().getInventoryManager().hasActiveSession(player.getPlayer()));
+        // Pick the diamonds up onto the cursor
+        player.click(player.rawSlot(9), ClickType.LEFT);
+        assertEquals(DIAMONDS, player.getCursor().getAmount());
+        harness.tick(2);
+    }
+
+    /**
+     * Put the whole cursor into the first shulker slot
+     */
+    private InventoryClickEvent place() {
+        return player.click(0, ClickType.LEFT);
+    }
+
+    private InventoryDragEvent dragDiamonds() {
+        player.clearMessages();
+        InventoryDragEvent event = player.drag(0, 1);
+        assertNotNull(event, "drag did not happen");
+        return event;
+    }
+}
@@ -0,0 +1,120 @@
+package com.shulkerking;
+
+import com.shulkerking.managers.ClockManager;
+import com.shulkerking.managers.CooldownManager;
+import com.shulkerking.testing.FakeItems;
+import com.shulkerking.testing.PluginHarness;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Game clock sources: the server tick counter, the wall clock and a virtual
+ * clock set by tests. Readings must not jump when the source changes.
+ */
+class ClockManagerTest {
+
+    // The wall clock keeps running between two readings
+    private static final long WALL_SLACK_TICKS = 2L;
+
+    private PluginHarness harness;
+    private ClockManager clockManager;
+
+    @BeforeEach
+    void start() {
+        harness = PluginHarness.start();
+        clockManager = harness.getPlugin().getClockManager();
+    }
+
+    @AfterEach
+    void stop() {
+        harness.close();
+    }
+
+    @Test
+    void tickClockFollowsServerTicks() {
+        assertTrue(clockManager.isTickBased());
+        long before = clockManager.currentTick();
+        harness.tick(40);
+        assertEquals(before + 40, clockManager.currentTick());
+        assertEquals(40 * ClockManager.MILLIS_PER_TICK, clockManager.currentMillis() - before * ClockManager.MILLIS_PER_TICK);
+    }
+
+    @Test
+    void virtualClockDrivesCooldowns() {
+        ClockManager.VirtualClock clock = harness.useVirtualClock();
+        CooldownManager cooldowns = harness.getPlugin().getCooldownManager();
+        Player player = harness.getServer().addPlayer("clock").getPlayer();
+        ItemStack item = FakeItems.shulker(Material.SHULKER_BOX);
+
+        cooldowns.setCooldown(player, item);
+        assertEquals(0.5, cooldowns.getRemainingCooldown(player, item), 1e-9);
+        clock.advance(4L);
+        assertEquals(0.3, cooldowns.getRemainingCooldown(player, item), 1e-9);
+        clock.advanceMillis(300L);
+        assertEquals(0.0, cooldowns.getRemainingCooldown(player, item), 1e-9);
+        assertEquals(0, cooldowns.getCooldownsCount(), "expired cooldown removed on read");
+    }
+
+    @Test
+    void replacedClockSurvivesStartAndStop() {
+        ClockManager.VirtualClock clock = harness.useVirtualClock();
+        long reading = clockManager.currentTick();
+        assertFalse(clockManager.isTickBased());
+
+        harness.getServer().tick();
+        clockManager.stop();
+        clockManager.start();
+        harness.getPlugin().getConfig().set("clock.source", "WALL");
+        clockManager.start();
+        harness.getServer().tick();
+
+        assertEquals(reading, clockManager.currentTick(), "only the virtual clock moves the reading");
+        clock.advance(7L);
+        assertEquals(reading + 7L, clockManager.currentTick());
+        assertFalse(clockManager.isTickBased());
+    }
+
+    @Test
+    void switchingSourcesContinuesFromLastReading() {
+        harness.tick(100);
+        long ticked = clockManager.currentTick();
+
+        harness.getPlugin().getConfig().set("clock.source", "WALL");
+        clockManager.start();
+        assertFalse(clockManager.isTickBased());
+        long wall = clockManager.currentTick();
+        assertTrue(wall >= ticked && wall - ticked <= WALL_SLACK_TICKS, () -> "TICK to WALL jumped by " + (wall - ticked));
+
+        harness.getPlugin().getConfig().set("clock.source", "TICK");
+        clockManager.start();
+        assertTrue(clockManager.isTickBased());
+        long resumed = clockManager.currentTick();
+        assertTrue(resumed >= wall && resumed - wall <= WALL_SLACK_TICKS, () -> "WALL to TICK jumped by " + (resumed - wall));
+        harness.tick(20);
+        assertEquals(resumed + 20, clockManager.currentTick());
+    }
+
+    @Test
+    void cooldownKeepsItsDeadlineAcrossSourceSwitch() {
+        CooldownManager cooldowns = harness.getPlugin().getCooldownManager();
+        Player player = harness.getServer().addPlayer("clock").getPlayer();
+        ItemStack item = FakeItems.shulker(Material.SHULKER_BOX);
+        // The server ran ahead of the wall clock, e.g. after catching up on ticks
+        harness.tick(1000);
+        cooldowns.setCooldown(player, item);
+
+        harness.getPlugin().getConfig().set("clock.source", "WALL");
+        clockManager.start();
+        double remaining = cooldowns.getRemainingCooldown(player, item);
+        assertTrue(remaining > 0.5 - WALL_SLACK_TICKS * 0.05 && remaining <= 0.5,
+            () -> "remaining cooldown changed to " + remaining + "s");
+    }
+}
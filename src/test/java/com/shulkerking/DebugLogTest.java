@@ -0,0 +1,58 @@
+package com.shulkerking;
+
+import com.shulkerking.testing.PluginHarness;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Debug templates get exactly the arguments that were passed
+ */
+class DebugLogTest {
+
+    private PluginHarness harness;
+
+    @BeforeEach
+    void start() {
+        harness = PluginHarness.start(Collections.singletonMap("settings.debug", true));
+    }
+
+    @AfterEach
+    void stop() {
+        harness.close();
+    }
+
+    @Test
+    void missingArgumentsKeepTheirPlaceholders() throws Exception {
+        ShulkerKingPlugin plugin = harness.getPlugin();
+        plugin.debugLog("one {} two {} three {}", "a");
+        plugin.debugLog("one {} two {} three {}", "a", "b");
+        plugin.debugLog("null {} stays", (Object) null);
+        plugin.debugLog("count {} of {} left {}", 3, 27);
+        plugin.debugLog("main hand {} then {}", true);
+
+        List<String> lines = dump(plugin);
+        assertLogged(lines, "one a two {} three {}");
+        assertLogged(lines, "one a two b three {}");
+        assertLogged(lines, "null null stays");
+        assertLogged(lines, "count 3 of 27 left {}");
+        assertLogged(lines, "main hand true then {}");
+    }
+
+    private static List<String> dump(ShulkerKingPlugin plugin) throws Exception {
+        File file = plugin.getDebugManager().dump();
+        return Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+    }
+
+    private static void assertLogged(List<String> lines, String message) {
+        assertTrue(lines.stream().anyMatch(line -> line.endsWith("] " + message)), () -> "\"" + message + "\" not in " + lines);
+    }
+}
@@ -0,0 +1,406 @@
+package com.shulkerking;
+
+import com.shulkerking.managers.ClockManager;
+import com.shulkerking.managers.CombatManager;
+import com.shulkerking.managers.CooldownManager;
+import com.shulkerking.managers.ShulkerInventoryManager;
+import com.shulkerking.testing.FakeItems;
+import com.shulkerking.testing.FakePlayer;
+import com.shulkerking.testing.PluginHarness;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Races the expiry paths against refreshes. Cleanup and readers remove an
+ * entry they saw expired, and must not drop it when a refresh replaced the
+ * value in between. The stress run lets the clock race on its own thread so
+ * entries expire all the time, run it longer with -Dshulkerking.race.millis.
+ * The window between the read and the remove is short, so the reader paths
+ * are also checked with a clock that stops the reader inside it.
+ * Sessions opened and closed by their owners race a flush the same way,
+ * while placement marks on the same players are set, read and cleared.
+ */
+class ExpiryRaceTest {
+
+    private static final long DURATION_MILLIS = Long.getLong("shulkerking.race.millis", 2000L);
+    private static final int PLAYERS_PER_REFRESHER = 4;
+    private static final int REFRESHERS = 4;
+    private static final int READERS = 2;
+    private static final int OWNERS = 3;
+    private static final int MARKERS = 2;
+
+    private static final Pattern ACTION = Pattern.compile("\"action\":\"([A-Z_]+)\"");
+    private static final Pattern SESSION_KEY = Pattern.compile(
+        "\"uuid\":\"([^\"]+)\".*\"item_hash\":\"([0-9a-f]+)\",\"session\":(\\d+)");
+
+    // pvp-block.combat-time 1 and cooldown.default 0.5 in ticks
+    private static final long COMBAT_TICKS = 20L;
+    private static final long COOLDOWN_TICKS = 10L;
+    // Placement marks stay recent for 500 ms
+    private static final long PLACEMENT_TICKS = 10L;
+
+    private PluginHarness harness;
+    private ClockManager.VirtualClock clock;
+
+    @BeforeEach
+    void start() {
+        Map<String, Object> settings = new LinkedHashMap<>();
+        settings.put("audit.enabled", true);
+        settings.put("audit.max-size-kb", 1024L * 1024L);
+        harness = PluginHarness.start(settings);
+        clock = harness.useVirtualClock();
+    }
+
+    @AfterEach
+    void stop() {
+        harness.close();
+    }
+
+    @Test
+    void readerKeepsCombatTagRefreshedWhileItChecked() throws Exception {
+        CombatManager combat = harness.getPlugin().getCombatManager();
+        Player player = harness.getServer().addPlayer("reader").getPlayer();
+        combat.markInCombat(player);
+        clock.advance(COMBAT_TICKS);
+
+        PausingClock pausing = new PausingClock(clock);
+        harness.getPlugin().getClockManager().setClock(pausing);
+        Thread reader = pausing.pauseIn(() -> combat.isInCombat(player));
+        combat.markInCombat(player);
+        pausing.resume(reader);
+
+        assertTrue(combat.isInCombat(player), "combat tag refreshed during the check was dropped");
+    }
+
+    @Test
+    void readerKeepsCooldownRefreshedWhileItChecked() throws Exception {
+        CooldownManager cooldowns = harness.getPlugin().getCooldownManager();
+        Player player = harness.getServer().addPlayer("reader").getPlayer();
+        ItemStack item = FakeItems.shulker(Material.SHULKER_BOX);
+        String identifier = cooldowns.getItemIdentifier(item);
+        cooldowns.setCooldown(player, item);
+        clock.advance(COOLDOWN_TICKS);
+
+        PausingClock pausing = new PausingClock(clock);
+        harness.getPlugin().getClockManager().setClock(pausing);
+        Thread reader = pausing.pauseIn(() -> cooldowns.getRemainingCooldown(player, identifier));
+        cooldowns.setCooldown(player, item);
+        pausing.resume(reader);
+
+        assertTrue(cooldowns.getRemainingCooldown(player, identifier) > 0, "cooldown refreshed during the check was dropped");
+    }
+
+    @Test
+    void refreshedEntriesSurviveConcurrentCleanup() throws InterruptedException {
+        CombatManager combat = harness.getPlugin().getCombatManager();
+        CooldownManager cooldowns = harness.getPlugin().getCooldownManager();
+        List<Player> all = new ArrayList<>();
+        List<List<Player>> owned = new ArrayList<>();
+        for (int r = 0; r < REFRESHERS; r++) {
+            List<Player> players = new ArrayList<>();
+            for (int i = 0; i < PLAYERS_PER_REFRESHER; i++) {
+                FakePlayer player = harness.getServer().addPlayer("race" + r + "-" + i);
+                players.add(player.getPlayer());
+            }
+            owned.add(players);
+            all.addAll(players);
+        }
+
+        // Every refresher holds a plain shulker, so they all share one identifier
+        String identifier = cooldowns.getItemIdentifier(FakeItems.shulker(Material.SHULKER_BOX));
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        AtomicLong lostCombat = new AtomicLong();
+        AtomicLong lostCooldowns = new AtomicLong();
+        AtomicLong refreshes = new AtomicLong();
+        AtomicLong cleanups = new AtomicLong();
+        List<Thread> threads = new ArrayList<>();
+
+        threads.add(worker("clock", running, failure, () -> {
+            clock.advance(1L);
+            Thread.yield();
+        }));
+        threads.add(worker("cleanup", running, failure, () -> {
+            combat.cleanupExpiredCombat();
+            cooldowns.cleanupExpiredCooldowns();
+            cleanups.incrementAndGet();
+        }));
+        for (int r = 0; r < READERS; r++) {
+            threads.add(worker("reader-" + r, running, failure, () -> {
+                Player player = all.get(ThreadLocalRandom.current().nextInt(all.size()));
+                combat.isInCombat(player);
+                cooldowns.getRemainingCooldown(player, identifier);
+            }));
+        }
+        for (int r = 0; r < REFRESHERS; r++) {
+            List<Player> players = owned.get(r);
+            // Items are not shared between threads, like on a live server
+            ItemStack item = FakeItems.shulker(Material.SHULKER_BOX);
+            threads.add(worker("refresher-" + r, running, failure, () -> {
+                Player player = players.get(ThreadLocalRandom.current().nextInt(players.size()));
+                long before = clock.currentTick();
+                combat.markInCombat(player);
+                cooldowns.setCooldown(player, item);
+                boolean inCombat = combat.isInCombat(player);
+                boolean onCooldown = cooldowns.getRemainingCooldown(player, item) > 0;
+                long elapsed = clock.currentTick() - before;
+                // Only a refresh that could not have expired yet counts as lost
+                if (!inCombat && elapsed < COMBAT_TICKS) {
+                    lostCombat.incrementAndGet();
+                }
+                if (!onCooldown && elapsed < COOLDOWN_TICKS) {
+                    lostCooldowns.incrementAndGet();
+                }
+                refreshes.incrementAndGet();
+            }));
+        }
+
+        threads.forEach(Thread::start);
+        TimeUnit.MILLISECONDS.sleep(DURATION_MILLIS);
+        running.set(false);
+        for (Thread thread : threads) {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        }
+
+        if (failure.get() != null) {
+            throw new AssertionError("worker failed", failure.get());
+        }
+        assertTrue(refreshes.get() > 0 && cleanups.get() > 0, "race did not run");
+        assertEquals(0L, lostCombat.get(), "combat tags dropped right after a refresh");
+        assertEquals(0L, lostCooldowns.get(), "cooldowns dropped right after a refresh");
+
+        clock.advance(COMBAT_TICKS);
+        combat.cleanupExpiredCombat();
+        cooldowns.cleanupExpiredCooldowns();
+        assertEquals(0, combat.getCombatPlayersCount(), "expired combat tags left");
+        assertEquals(0, cooldowns.getCooldownsCount(), "expired cooldowns left");
+    }
+
+    @Test
+    void flushClaimsEverySessionOnceWhilePlacementsRace() throws Exception {
+        ShulkerInventoryManager inventories = harness.getPlugin().getInventoryManager();
+        List<FakePlayer> all = new ArrayList<>();
+        List<List<FakePlayer>> owned = new ArrayList<>();
+        for (int o = 0; o < OWNERS; o++) {
+            List<FakePlayer> players = new ArrayList<>();
+            for (int i = 0; i < PLAYERS_PER_REFRESHER; i++) {
+                players.add(harness.getServer().addPlayer("session" + o + "-" + i));
+            }
+            owned.add(players);
+            all.addAll(players);
+        }
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        AtomicLong opens = new AtomicLong();
+        AtomicLong failedOpens = new AtomicLong();
+        AtomicLong flushed = new AtomicLong();
+        AtomicLong lostMarks = new AtomicLong();
+        AtomicLong leftMarks = new AtomicLong();
+        AtomicLong marks = new AtomicLong();
+        List<Thread> threads = new ArrayList<>();
+
+        threads.add(worker("clock", running, failure, () -> {
+            clock.advance(1L);
+            Thread.yield();
+        }));
+        threads.add(worker("flush", running, failure, () -> {
+            flushed.addAndGet(inventories.flushAllSessions());
+            // Let some sessions be closed by their owners in between
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(200));
+        }));
+        threads.add(worker("reader", running, failure, () -> {
+            FakePlayer player = all.get(ThreadLocalRandom.current().nextInt(all.size()));
+            inventories.isRecentPlacementAction(player.getPlayer());
+        }));
+        for (int o = 0; o < OWNERS; o++) {
+            List<FakePlayer> players = owned.get(o);
+            AtomicLong names = new AtomicLong();
+            threads.add(worker("owner-" + o, running, failure, () -> {
+                FakePlayer player = players.get(ThreadLocalRandom.current().nextInt(players.size()));
+                if (player.hasCustomView()) {
+                    inventories.closeShulkerInventory(player.getPlayer());
+                    return;
+                }
+                // A new name per open keeps the audit lines of every session apart
+                ItemStack item = FakeItems.shulker(Material.SHULKER_BOX, new ItemStack(Material.DIRT, 1));
+                ItemMeta meta = item.getItemMeta();
+                meta.setDisplayName(player.getPlayer().getName() + "#" + names.incrementAndGet());
+                item.setItemMeta(meta);
+                player.getInventory().setItemInMainHand(item);
+                if (inventories.openShulkerInventory(player.getPlayer(), player.getInventory().getItemInMainHand(), true)) {
+                    opens.incrementAndGet();
+                } else {
+                    failedOpens.incrementAndGet();
+                }
+            }));
+        }
+        for (int m = 0; m < MARKERS; m++) {
+            // Each marker owns every MARKERS-th player across all session owners
+            List<FakePlayer> players = new ArrayList<>();
+            for (int i = m; i < all.size(); i += MARKERS) {
+                players.add(all.get(i));
+            }
+            threads.add(worker("marker-" + m, running, failure, () -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                Player player = players.get(random.nextInt(players.size())).getPlayer();
+                long before = clock.currentTick();
+                inventories.markPlacementAction(player);
+                if (random.nextInt(4) == 0) {
+                    // The player quits right after placing
+                    inventories.clearPlacementAction(player.getUniqueId());
+                    if (inventories.isRecentPlacementAction(player)) {
+                        leftMarks.incrementAndGet();
+                    }
+                } else if (!inventories.isRecentPlacementAction(player) &&
+                    clock.currentTick() - before < PLACEMENT_TICKS) {
+                    lostMarks.incrementAndGet();
+                }
+                marks.incrementAndGet();
+            }));
+        }
+
+        threads.forEach(Thread::start);
+        TimeUnit.MILLISECONDS.sleep(DURATION_MILLIS);
+        running.set(false);
+        for (Thread thread : threads) {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        }
+
+        if (failure.get() != null) {
+            throw new AssertionError("worker failed", failure.get());
+        }
+        assertTrue(opens.get() > 0 && marks.get() > 0, "race did not run");
+        assertEquals(0L, failedOpens.get(), "held shulkers that did not open");
+        assertEquals(0L, lostMarks.get(), "placement marks dropped right after they were set");
+        assertEquals(0L, leftMarks.get(), "placement marks left after the player quit");
+
+        // The final flush stands for the plugin being disabled
+        flushed.addAndGet(inventories.flushAllSessions());
+        assertEquals(0, inventories.getActiveSessionsCount(), "sessions left after the flush");
+        for (FakePlayer player : all) {
+            assertFalse(player.hasCustomView(), () -> player.getPlayer().getName() + " kept a view without a session");
+        }
+
+        harness.getPlugin().getAuditManager().close();
+        List<String> lines = Files.readAllLines(harness.getDataFolder().resolve("audit/audit.log"), StandardCharsets.UTF_8);
+        Map<String, Map<String, Integer>> sessions = new HashMap<>();
+        long shutdowns = 0;
+        for (String line : lines) {
+            Matcher action = ACTION.matcher(line);
+            Matcher key = SESSION_KEY.matcher(line);
+            assertTrue(action.find() && key.find(), () -> "unexpected audit line " + line);
+            String name = line.contains("\"reason\":\"shutdown\"") ? "SHUTDOWN" : action.group(1);
+            if ("SHUTDOWN".equals(name)) {
+                shutdowns++;
+            }
+            sessions.computeIfAbsent(key.group(1) + "/" + key.group(2) + "/" + key.group(3), k -> new HashMap<>())
+                .merge(name, 1, Integer::sum);
+        }
+        assertEquals(opens.get(), sessions.size(), "audited sessions differ from the opened ones");
+        for (Map.Entry<String, Map<String, Integer>> session : sessions.entrySet()) {
+            Map<String, Integer> actions = session.getValue();
+            String where = session.getKey() + " " + actions;
+            assertEquals(1, (int) actions.getOrDefault("OPEN", 0), () -> "opened more than once: " + where);
+            assertEquals(1, actions.getOrDefault("CLOSE", 0) + actions.getOrDefault("SHUTDOWN", 0),
+                () -> "session lost or closed twice: " + where);
+            assertEquals(1, (int) actions.getOrDefault("SAVE", 0), () -> "not saved exactly once: " + where);
+        }
+        assertTrue(shutdowns > 0 && shutdowns < opens.get(), "flush and owners did not both close sessions");
+        assertEquals(shutdowns, flushed.get(), "flushed sessions differ from the saved ones");
+
+        clock.advance(PLACEMENT_TICKS);
+        for (FakePlayer player : all) {
+            inventories.isRecentPlacementAction(player.getPlayer());
+        }
+        assertEquals(0, inventories.getPlacementActionsCount(), "expired placement marks left");
+    }
+
+    /**
+     * Clock that stops one thread on its first reading, which both readers
+     * take after loading the stored value and before removing it
+     */
+    private static final class PausingClock implements ClockManager.Clock {
+        private final ClockManager.Clock delegate;
+        private final CountDownLatch paused = new CountDownLatch(1);
+        private final CountDownLatch resumed = new CountDownLatch(1);
+        private volatile Thread target;
+
+        PausingClock(ClockManager.Clock delegate) {
+            this.delegate = delegate;
+        }
+
+        /**
+         * Start the check on a new thread and wait until it reads the clock
+         */
+        Thread pauseIn(Runnable check) throws InterruptedException {
+            Thread thread = new Thread(check, "ExpiryRace-reader");
+            target = thread;
+            thread.setDaemon(true);
+            thread.start();
+            assertTrue(paused.await(10, TimeUnit.SECONDS), "reader never read the clock");
+            return thread;
+        }
+
+        void resume(Thread thread) throws InterruptedException {
+            resumed.countDown();
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        }
+
+        @Override
+        public long currentTick() {
+            if (Thread.currentThread() == target) {
+                target = null;
+                paused.countDown();
+                try {
+                    resumed.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return delegate.currentTick();
+        }
+    }
+
+    private static Thread worker(String name, AtomicBoolean running, AtomicReference<Throwable> failure, Runnable step) {
+        Thread thread = new Thread(() -> {
+            try {
+                while (running.get()) {
+                    step.run();
+                }
+            } catch (Throwable t) {
+                failure.compareAndSet(null, t);
+                running.set(false);
+            }
+        }, "ExpiryRace-" + name);
+        thread.setDaemon(true);
+        return thread;
+    }
+}
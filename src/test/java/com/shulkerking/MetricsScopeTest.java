@@ -0,0 +1,55 @@
+package com.shulkerking;
+
+import com.shulkerking.managers.MetricsManager;
+import com.shulkerking.testing.PluginHarness;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Handler scopes cost nothing while metrics and slow events are off
+ */
+class MetricsScopeTest {
+
+    private PluginHarness harness;
+
+    @AfterEach
+    void stop() {
+        harness.close();
+    }
+
+    @Test
+    void disabledScopesAreShared() {
+        start(false, false);
+        MetricsManager metrics = harness.getPlugin().getMetricsManager();
+        MetricsManager.Scope click = metrics.enter(MetricsManager.Probe.INVENTORY_CLICK, null);
+        MetricsManager.Scope save = metrics.enter(MetricsManager.Probe.SAVE, null);
+        assertSame(click, save);
+        save.close();
+        click.close();
+        assertEquals(0L, metrics.snapshot(false).get(MetricsManager.Probe.INVENTORY_CLICK).getCount());
+    }
+
+    @Test
+    void slowEventsAloneStillGetAScope() {
+        start(false, true);
+        MetricsManager metrics = harness.getPlugin().getMetricsManager();
+        try (MetricsManager.Scope outer = metrics.enter(MetricsManager.Probe.INVENTORY_CLICK, null);
+             MetricsManager.Scope inner = metrics.enter(MetricsManager.Probe.SAVE, null)) {
+            assertNotSame(outer, inner);
+        }
+    }
+
+    private void start(boolean metrics, boolean slowEvents) {
+        Map<String, Object> settings = new LinkedHashMap<>();
+        settings.put("metrics.enabled", metrics);
+        settings.put("slow-events.enabled", slowEvents);
+        harness = PluginHarness.start(settings);
+    }
+}
@@ -0,0 +1,204 @@
+package com.shulkerking;
+
+import com.shulkerking.managers.MetricsManager;
+import com.shulkerking.managers.RecorderManager;
+import com.shulkerking.testing.FakeItems;
+import com.shulkerking.testing.FakePlayer;
+import com.shulkerking.testing.PluginHarness;
+import com.shulkerking.testing.ReplayDriver;
+import org.bukkit.Material;
+import org.bukkit.event.inventory.ClickType;
+import org.bukkit.inventory.EquipmentSlot;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.PlayerInventory;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Replays captures of the event recorder through the plugin listeners.
+ * A scripted session is recorded, replayed on a fresh plugin and recorded
+ * again, and both captures must match. A capture taken on a live server can
+ * be replayed with -Dshulkerking.replay=&lt;file&gt;.
+ */
+class ReplayTest {
+
+    private static final int PLAYERS = 6;
+    private static final int ROUNDS = 200;
+    private static final long SEED = 20261019L;
+
+    // Cleanup runs every minute, cooldowns and combat end after a second
+    private static final int DRAIN_TICKS = 20 * 65;
+
+    // The work budget is measured in wall time, so how much queued work runs
+    // in a tick depends on the machine. Without it both runs do the same work per tick.
+    private static final Map<String, Object> SETTINGS = Collections.singletonMap("work-budget.enabled", false);
+
+    @Test
+    void replayReproducesTheRecordedSession() throws Exception {
+        File original;
+        Map<MetricsManager.Probe, Long> recordedCounts;
+        try (PluginHarness harness = PluginHarness.start(SETTINGS)) {
+            List<FakePlayer> players = new ArrayList<>();
+            for (int i = 0; i < PLAYERS; i++) {
+                FakePlayer player = harness.getServer().addPlayer("rec" + i);
+                fill(player);
+                players.add(player);
+            }
+            RecorderManager recorder = harness.getPlugin().getRecorderManager();
+            recorder.start();
+            Random random = new Random(SEED);
+            for (int round = 0; round < ROUNDS; round++) {
+                for (FakePlayer player : players) {
+                    act(player, players, random);
+                }
+                harness.tick(1);
+            }
+            int written = recorder.stop();
+            assertTrue(written > 0, "nothing recorded");
+            original = copy(recorder.getCurrentFile());
+            recordedCounts = counts(harness.getPlugin());
+        }
+
+        List<RecorderManager.RecordedEvent> expected = read(original);
+        File replayed;
+        try (PluginHarness harness = PluginHarness.start(SETTINGS)) {
+            RecorderManager recorder = harness.getPlugin().getRecorderManager();
+            recorder.start();
+            ReplayDriver driver = new ReplayDriver(harness, ReplayTest::fill);
+            assertEquals(expected.size(), driver.replay(original));
+            recorder.stop();
+            replayed = copy(recorder.getCurrentFile());
+
+            assertEquals(PLAYERS, driver.getPlayers().size(), "replayed players");
+            assertEquals(0, driver.getDivergences(), "events with a different session state");
+            assertEquals(recordedCounts, counts(harness.getPlugin()), "opens, saves and closes");
+            assertTrue(harness.getServer().getWarnings().isEmpty(), "warnings logged");
+        }
+
+        List<RecorderManager.RecordedEvent> actual = read(replayed);
+        assertEquals(expected.size(), actual.size(), "events in the replayed capture");
+        long expectedStart = expected.get(0).getTime();
+        long actualStart = actual.get(0).getTime();
+        for (int i = 0; i < expected.size(); i++) {
+            RecorderManager.RecordedEvent want = expected.get(i);
+            RecorderManager.RecordedEvent got = actual.get(i);
+            String at = "event " + i + " " + want.getType();
+            assertEquals(want.getType(), got.getType(), at);
+            assertEquals(want.getPlayer(), got.getPlayer(), at);
+            assertArrayEquals(want.getNames(), got.getNames(), at);
+            assertArrayEquals(want.getValues(), got.getValues(), at);
+            assertEquals(want.getTime() - expectedStart, got.getTime() - actualStart, at);
+        }
+        Files.deleteIfExists(original.toPath());
+        Files.deleteIfExists(replayed.toPath());
+    }
+
+    /**
+     * Replays -Dshulkerking.replay=&lt;file&gt;. Live inventories are not in the
+     * capture, so only checks that nothing fails and that no state is left.
+     */
+    @Test
+    void replayCaptureFromProperty() throws Exception {
+        String path = System.getProperty("shulkerking.replay");
+        assumeTrue(path != null && !path.isEmpty(), "no -Dshulkerking.replay given");
+        try (PluginHarness harness = PluginHarness.start(SETTINGS)) {
+            ReplayDriver driver = new ReplayDriver(harness, ReplayTest::fill);
+            int events = driver.replay(new File(path));
+            for (FakePlayer player : driver.getPlayers()) {
+                player.quit();
+            }
+            harness.tick(DRAIN_TICKS);
+
+            ShulkerKingPlugin plugin = harness.getPlugin();
+            System.out.println("Replayed " + events + " events of " + driver.getPlayers().size() + " players, "
+                + driver.getSkipped() + " skipped, " + driver.getDivergences() + " with a different session state");
+            assertEquals(0, plugin.getInventoryManager().getActiveSessionsCount(), "open sessions");
+            assertEquals(0, plugin.getInventoryManager().getPlacementActionsCount(), "placement actions");
+            assertEquals(0, plugin.getCombatManager().getCombatPlayersCount(), "combat entries");
+            assertEquals(0, plugin.getCooldownManager().getCooldownsCount(), "cooldowns");
+            assertTrue(harness.getServer().getWarnings().isEmpty(), "warnings logged");
+        }
+    }
+
+    private static void fill(FakePlayer player) {
+        PlayerInventory inventory = player.getInventory();
+        inventory.setItem(0, FakeItems.shulker(Material.SHULKER_BOX,
+            new ItemStack(Material.DIRT, 32), new ItemStack(Material.IRON_INGOT, 7)));
+        inventory.setItem(9, new ItemStack(Material.COBBLESTONE, 64));
+        inventory.setItem(10, new ItemStack(Material.ARROW, 33));
+        inventory.setItemInOffHand(FakeItems.shulker(Material.BLUE_SHULKER_BOX, new ItemStack(Material.EMERALD, 3)));
+    }
+
+    /**
+     * Only actions the recorder captures, anything else would change state the replay cannot know about
+     */
+    private static void act(FakePlayer player, List<FakePlayer> players, Random random) {
+        int roll = random.nextInt(100);
+        if (!player.hasCustomView()) {
+            if (roll < 50) {
+                player.rightClick(random.nextInt(4) == 0 ? EquipmentSlot.OFF_HAND : EquipmentSlot.HAND);
+            } else if (roll < 52) {
+                FakePlayer damager = players.get(random.nextInt(players.size()));
+                player.damage(damager != player ? damager : null);
+            }
+            return;
+        }
+        int rawSlots = player.getTopInventory().getSize() + 36;
+        ItemStack cursor = player.getCursor();
+        if (cursor != null && cursor.getType() != Material.AIR && roll < 40) {
+            player.drag(random.nextInt(27), random.nextInt(27));
+        } else if (roll < 55) {
+            ClickType[] clicks = {ClickType.LEFT, ClickType.RIGHT, ClickType.SHIFT_LEFT};
+            player.click(random.nextInt(rawSlots), clicks[random.nextInt(clicks.length)]);
+        } else if (roll < 62) {
+            player.hotbarSwap(random.nextInt(rawSlots), random.nextInt(9));
+        } else if (roll < 65) {
+            player.drop();
+        } else if (roll < 95) {
+            player.closeInventory();
+        } else {
+            FakePlayer damager = players.get(random.nextInt(players.size()));
+            player.damage(damager != player ? damager : null);
+        }
+    }
+
+    private static Map<MetricsManager.Probe, Long> counts(ShulkerKingPlugin plugin) {
+        MetricsManager.Snapshot snapshot = plugin.getMetricsManager().snapshot(false);
+        Map<MetricsManager.Probe, Long> counts = new EnumMap<>(MetricsManager.Probe.class);
+        for (MetricsManager.Probe probe : Arrays.asList(MetricsManager.Probe.OPEN, MetricsManager.Probe.SAVE,
+                MetricsManager.Probe.CLOSE)) {
+            counts.put(probe, snapshot.get(probe).getCount());
+        }
+        return counts;
+    }
+
+    private static List<RecorderManager.RecordedEvent> read(File capture) throws Exception {
+        List<RecorderManager.RecordedEvent> events = new ArrayList<>();
+        RecorderManager.read(capture, events::add);
+        return events;
+    }
+
+    /**
+     * The harness deletes its data folder on close
+     */
+    private static File copy(File capture) throws Exception {
+        File copy = File.createTempFile("shulkerking-capture", ".skrec");
+        Files.copy(capture.toPath(), copy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        return copy;
+    }
+}
@@ -0,0 +1,379 @@
+package com.shulkerking;
+
+import com.shulkerking.managers.MetricsManager;
+import com.shulkerking.testing.FakeItems;
+import com.shulkerking.testing.FakePlayer;
+import com.shulkerking.testing.FakeServer;
+import com.shulkerking.testing.PluginHarness;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
+import org.bukkit.block.ShulkerBox;
+import org.bukkit.event.inventory.ClickType;
+import org.bukkit.inventory.EquipmentSlot;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.PlayerInventory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.LogRecord;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Headless run of many players opening, clicking in, dropping from, placing
+ * and closing shulkers through the real listeners. Checks that no state
+ * outlives the players, that no item is created or lost and that handlers
+ * stay within a latency budget. Size it with -Dshulkerking.simulator.players,
+ * .rounds, .seed and .p99-ms. Allocation tracking is on, so per-event
+ * allocations are checked against metrics.allocation-budgets as well. The
+ * handler time and allocations per kind of event are printed per tick.
+ */
+class SimulatorTest {
+
+    private static final int PLAYERS = Integer.getInteger("shulkerking.simulator.players", 100);
+    private static final int ROUNDS = Integer.getInteger("shulkerking.simulator.rounds", 300);
+    private static final long SEED = Long.getLong("shulkerking.simulator.seed", 20261019L);
+    private static final long P99_NANOS = TimeUnit.MILLISECONDS.toNanos(Long.getLong("shulkerking.simulator.p99-ms", 10L));
+
+    // Bytes per event at p99. Stand-in items and inventories are proxies and
+    // allocate more than CraftBukkit does, so these are looser than a live server needs.
+    private static final Map<String, Object> ALLOCATION_BUDGETS = new LinkedHashMap<>();
+
+    static {
+        ALLOCATION_BUDGETS.put("metrics.allocation-budgets.click", 32768);
+        ALLOCATION_BUDGETS.put("metrics.allocation-budgets.drag", 32768);
+        ALLOCATION_BUDGETS.put("metrics.allocation-budgets.interact-open", 131072);
+        ALLOCATION_BUDGETS.put("metrics.allocation-budgets.open", 16384);
+        ALLOCATION_BUDGETS.put("metrics.allocation-budgets.save", 32768);
+        ALLOCATION_BUDGETS.put("metrics.allocation-budgets.close", 32768);
+    }
+
+    // Cleanup runs every minute, cooldowns and combat end after a second
+    private static final int DRAIN_TICKS = 20 * 65;
+
+    // Shift-placed shulkers go on the ground in a row per player
+    private static final int GROUND_Y = 63;
+
+    private enum Kind { OPEN, CLICK, HOTBAR, DRAG, CLOSE, HELD, SWAP, DROP, SHIFT_PLACE, DAMAGE, QUIT }
+
+    private PluginHarness harness;
+    private final Map<Kind, KindStats> stats = new EnumMap<>(Kind.class);
+    private final Map<UUID, Integer> rows = new HashMap<>();
+    private final Map<UUID, List<Block>> placed = new HashMap<>();
+    private final Map<UUID, Map<Material, Integer>> before = new HashMap<>();
+
+    @BeforeEach
+    void start() {
+        Map<String, Object> overrides = new LinkedHashMap<>(ALLOCATION_BUDGETS);
+        overrides.put("metrics.allocations", true);
+        harness = PluginHarness.start(overrides);
+        for (Kind kind : Kind.values()) {
+            stats.put(kind, new KindStats());
+        }
+    }
+
+    @AfterEach
+    void stop() {
+        harness.close();
+    }
+
+    @Test
+    void playersLeaveNoStateAndKeepTheirItems() {
+        ShulkerKingPlugin plugin = harness.getPlugin();
+        FakeServer server = harness.getServer();
+        Random random = new Random(SEED);
+
+        List<FakePlayer> players = new ArrayList<>();
+        for (int i = 0; i < PLAYERS; i++) {
+            FakePlayer player = server.addPlayer("sim" + i);
+            fill(player);
+            before.put(player.getUniqueId(), countAll(player));
+            rows.put(player.getUniqueId(), i);
+            placed.put(player.getUniqueId(), new ArrayList<>());
+            players.add(player);
+        }
+
+        int peakPlacements = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            for (FakePlayer player : players) {
+                act(player, players, random);
+            }
+            peakPlacements = Math.max(peakPlacements, plugin.getInventoryManager().getPlacementActionsCount());
+            harness.tick(1);
+        }
+
+        for (FakePlayer player : players) {
+            timed(Kind.QUIT, player::quit);
+        }
+        harness.tick(DRAIN_TICKS);
+        // Placed shulkers get their contents a tick after the placement
+        Map<UUID, Map<Material, Integer>> after = new HashMap<>();
+        for (FakePlayer player : players) {
+            Map<Material, Integer> counts = countAll(player);
+            for (Block block : placed.get(player.getUniqueId())) {
+                countPlaced(block, counts);
+            }
+            after.put(player.getUniqueId(), counts);
+        }
+        System.out.println(summary());
+
+        assertEquals(0, plugin.getInventoryManager().getActiveSessionsCount(), "open sessions");
+        assertEquals(0, plugin.getInventoryManager().getPlacementActionsCount(), "placement actions");
+        assertEquals(0, plugin.getInventoryListener().getThrottledPlayersCount(), "click throttle entries");
+        assertEquals(0, plugin.getSoundManager().getTrackedPlayersCount(), "sound throttle entries");
+        assertEquals(0, plugin.getPermissionManager().getSnapshotsCount(), "permission snapshots");
+        assertEquals(0, plugin.getCombatManager().getCombatPlayersCount(), "combat entries");
+        assertEquals(0, plugin.getCooldownManager().getCooldownsCount(), "cooldowns");
+        assertEquals(0, plugin.getCooldownDisplayManager().getActiveCountdownsCount(), "countdowns");
+        assertEquals(0, plugin.getWorkBudgetManager().getQueuedCount(), "queued work");
+        List<String> changed = new ArrayList<>();
+        for (FakePlayer player : players) {
+            Map<Material, Integer> had = before.get(player.getUniqueId());
+            Map<Material, Integer> has = after.get(player.getUniqueId());
+            if (!had.equals(has)) {
+                changed.add(player.getName() + " had " + had + " has " + has);
+            }
+        }
+        assertTrue(changed.isEmpty(), () -> changed.size() + " players with other item totals, first " + changed.get(0));
+        assertTrue(peakPlacements > 0, "no shift-place was tracked");
+        for (Kind kind : Kind.values()) {
+            assertTrue(stats.get(kind).count > 0, () -> kind + " never ran");
+        }
+
+        List<LogRecord> warnings = server.getWarnings();
+        assertTrue(warnings.isEmpty(), () -> "warnings logged: " + warnings.get(0).getMessage());
+
+        for (Map.Entry<Kind, KindStats> entry : stats.entrySet()) {
+            long p99 = percentile(entry.getValue().latencies, 0.99);
+            assertTrue(p99 <= P99_NANOS, () -> entry.getKey() + " p99 " + p99 + "ns over budget");
+        }
+        MetricsManager.Snapshot snapshot = plugin.getMetricsManager().snapshot(false);
+        for (MetricsManager.Probe probe : Arrays.asList(MetricsManager.Probe.INTERACT_OPEN,
+                MetricsManager.Probe.INVENTORY_CLICK, MetricsManager.Probe.SAVE, MetricsManager.Probe.CLOSE)) {
+            MetricsManager.HistogramSnapshot histogram = snapshot.get(probe);
+            assertTrue(histogram.getCount() > 0, () -> probe + " never ran");
+            assertTrue(histogram.getPercentile(0.99) <= P99_NANOS, () -> probe + " p99 over budget");
+        }
+
+        MetricsManager metrics = plugin.getMetricsManager();
+        assumeTrue(metrics.isAllocationTracking(), "JVM has no per-thread allocation counters");
+        for (MetricsManager.Probe probe : MetricsManager.Probe.values()) {
+            long budget = metrics.getAllocationBudget(probe);
+            MetricsManager.HistogramSnapshot allocations = snapshot.getAllocations(probe);
+            if (budget < 0 || allocations.getCount() == 0) {
+                continue;
+            }
+            long p99 = allocations.getPercentile(0.99);
+            assertTrue(p99 <= budget, () -> probe.getLabel() + " allocates " + p99 + " bytes at p99, budget " + budget);
+        }
+    }
+
+    /**
+     * Two shulkers in the hotbar, one in the off hand and a few loose stacks
+     */
+    private static void fill(FakePlayer player) {
+        PlayerInventory inventory = player.getInventory();
+        inventory.setItem(0, FakeItems.shulker(Material.SHULKER_BOX,
+            new ItemStack(Material.DIRT, 32), new ItemStack(Material.IRON_INGOT, 7), new ItemStack(Material.DIAMOND_SWORD)));
+        inventory.setItem(1, FakeItems.shulker(Material.RED_SHULKER_BOX, new ItemStack(Material.BREAD, 12)));
+        inventory.setItem(9, new ItemStack(Material.COBBLESTONE, 64));
+        inventory.setItem(10, new ItemStack(Material.OAK_LOG, 20));
+        inventory.setItem(11, new ItemStack(Material.ARROW, 33));
+        inventory.setItem(12, new ItemStack(Material.GOLD_INGOT, 5));
+        inventory.setItemInOffHand(FakeItems.shulker(Material.BLUE_SHULKER_BOX, new ItemStack(Material.EMERALD, 3)));
+    }
+
+    private void act(FakePlayer player, List<FakePlayer> players, Random random) {
+        int roll = random.nextInt(100);
+        if (!player.hasCustomView()) {
+            if (roll < 60) {
+                EquipmentSlot hand = random.nextInt(5) == 0 ? EquipmentSlot.OFF_HAND : EquipmentSlot.HAND;
+                timed(Kind.OPEN, () -> player.rightClick(hand));
+            } else if (roll < 70) {
+                timed(Kind.HELD, () -> player.selectHotbar(random.nextInt(2)));
+            } else if (roll < 75) {
+                timed(Kind.SWAP, player::swapHands);
+            } else if (roll < 77) {
+                FakePlayer damager = players.get(random.nextInt(players.size()));
+                timed(Kind.DAMAGE, () -> player.damage(damager != player ? damager : null));
+            } else if (roll < 79) {
+                timed(Kind.DROP, player::drop);
+                restock(player);
+            } else if (roll < 82) {
+                shiftPlace(player);
+                restock(player);
+            }
+            return;
+        }
+        int rawSlots = player.getTopInventory().getSize() + 36;
+        if (roll < 55) {
+            ClickType[] clicks = {ClickType.LEFT, ClickType.RIGHT, ClickType.SHIFT_LEFT};
+            ClickType click = clicks[random.nextInt(clicks.length)];
+            int slot = random.nextInt(rawSlots);
+            timed(Kind.CLICK, () -> player.click(slot, click));
+        } else if (roll < 62) {
+            int slot = random.nextInt(rawSlots);
+            timed(Kind.HOTBAR, () -> player.hotbarSwap(slot, random.nextInt(9)));
+        } else if (roll < 70) {
+            int first = random.nextInt(27);
+            int second = random.nextInt(27);
+            timed(Kind.DRAG, () -> player.drag(first, second));
+        } else if (roll < 88) {
+            timed(Kind.CLOSE, player::closeInventory);
+        } else if (roll < 92) {
+            timed(Kind.HELD, () -> player.selectHotbar(random.nextInt(2)));
+        } else if (roll < 96) {
+            timed(Kind.SWAP, player::swapHands);
+        } else if (roll < 98) {
+            // Mostly the shulker of the open session, the drop must not take its contents along
+            timed(Kind.DROP, player::drop);
+        } else {
+            FakePlayer damager = players.get(random.nextInt(players.size()));
+            timed(Kind.DAMAGE, () -> player.damage(damager != player ? damager : null));
+        }
+    }
+
+    /**
+     * Sneak and right click the ground in the player's own row, so every
+     * placement lands on a free block
+     */
+    private void shiftPlace(FakePlayer player) {
+        List<Block> row = placed.get(player.getUniqueId());
+        World world = harness.getServer().getDefaultWorld();
+        Block ground = world.getBlockAt(rows.get(player.getUniqueId()), GROUND_Y, row.size() + 2);
+        Block target = ground.getRelative(BlockFace.UP);
+        player.setSneaking(true);
+        timed(Kind.SHIFT_PLACE, () -> player.rightClickBlock(EquipmentSlot.HAND, ground, BlockFace.UP));
+        player.setSneaking(false);
+        if (target.getType() != Material.AIR) {
+            row.add(target);
+        }
+    }
+
+    /**
+     * Hand the player a new shulker once the held one was dropped or placed,
+     * so long runs keep opening shulkers
+     */
+    private void restock(FakePlayer player) {
+        PlayerInventory inventory = player.getInventory();
+        ItemStack held = inventory.getItemInMainHand();
+        if (held != null && held.getType() != Material.AIR) {
+            return;
+        }
+        ItemStack shulker = FakeItems.shulker(Material.GREEN_SHULKER_BOX, new ItemStack(Material.DIRT, 9));
+        inventory.setItemInMainHand(shulker);
+        Map<Material, Integer> counts = before.get(player.getUniqueId());
+        counts.merge(Material.GREEN_SHULKER_BOX, 1, Integer::sum);
+        counts.merge(Material.DIRT, 9, Integer::sum);
+    }
+
+    private void timed(Kind kind, Runnable action) {
+        MetricsManager metrics = harness.getPlugin().getMetricsManager();
+        long bytes = metrics.startAllocation();
+        long start = System.nanoTime();
+        action.run();
+        long elapsed = System.nanoTime() - start;
+        stats.get(kind).record(elapsed, bytes < 0 ? -1L : metrics.startAllocation() - bytes);
+    }
+
+    /**
+     * Events, latency and the handler time and allocations they add to every tick, per kind
+     */
+    String summary() {
+        StringBuilder out = new StringBuilder(String.format("Simulated %d players for %d ticks, seed %d%n",
+            PLAYERS, ROUNDS, SEED));
+        out.append(String.format("%-12s %8s %9s %9s %11s %12s %12s%n",
+            "kind", "events", "p50 us", "p99 us", "us/tick", "bytes/event", "KB/tick"));
+        for (Map.Entry<Kind, KindStats> entry : stats.entrySet()) {
+            KindStats kind = entry.getValue();
+            out.append(String.format("%-12s %8d %9.1f %9.1f %11.1f %12s %12s%n", entry.getKey(), kind.count,
+                percentile(kind.latencies, 0.5) / 1000.0, percentile(kind.latencies, 0.99) / 1000.0,
+                kind.nanos / 1000.0 / ROUNDS,
+                kind.bytes < 0 ? "-" : String.valueOf(kind.count > 0 ? kind.bytes / kind.count : 0),
+                kind.bytes < 0 ? "-" : String.format("%.1f", kind.bytes / 1024.0 / ROUNDS)));
+        }
+        return out.toString();
+    }
+
+    /**
+     * Items per material the player owns, counting shulker contents, the cursor and dropped stacks.
+     * Only meaningful while no shulker is open, the open inventory holds the live copy.
+     */
+    private static Map<Material, Integer> countAll(FakePlayer player) {
+        Map<Material, Integer> counts = new EnumMap<>(Material.class);
+        List<ItemStack> stacks = new ArrayList<>(Arrays.asList(player.getInventory().getContents()));
+        stacks.add(player.getCursor());
+        stacks.addAll(player.getDropped());
+        for (ItemStack stack : stacks) {
+            if (stack == null || stack.getType() == Material.AIR) {
+                continue;
+            }
+            counts.merge(stack.getType(), stack.getAmount(), Integer::sum);
+            if (FakeItems.countContents(stack) > 0) {
+                for (ItemStack inner : FakeItems.contents(stack)) {
+                    if (inner != null) {
+                        counts.merge(inner.getType(), inner.getAmount(), Integer::sum);
+                    }
+                }
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * The placed shulker block and what its block entity holds
+     */
+    private static void countPlaced(Block block, Map<Material, Integer> counts) {
+        if (!(block.getState() instanceof ShulkerBox)) {
+            return;
+        }
+        counts.merge(block.getType(), 1, Integer::sum);
+        for (ItemStack inner : ((ShulkerBox) block.getState()).getInventory().getContents()) {
+            if (inner != null && inner.getType() != Material.AIR) {
+                counts.merge(inner.getType(), inner.getAmount(), Integer::sum);
+            }
+        }
+    }
+
+    private static final class KindStats {
+        private final List<Long> latencies = new ArrayList<>();
+        private int count;
+        private long nanos;
+        // -1 once the JVM had no allocation counter
+        private long bytes;
+
+        void record(long elapsed, long allocated) {
+            latencies.add(elapsed);
+            count++;
+            nanos += elapsed;
+            bytes = bytes < 0 || allocated < 0 ? -1L : bytes + allocated;
+        }
+    }
+
+    private static long percentile(List<Long> values, double quantile) {
+        if (values.isEmpty()) {
+            return 0L;
+        }
+        long[] sorted = new long[values.size()];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = values.get(i);
+        }
+        Arrays.sort(sorted);
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(quantile * sorted.length) - 1)];
+    }
+}
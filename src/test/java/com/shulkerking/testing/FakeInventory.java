@@ -0,0 +1,251 @@
+package com.shulkerking.testing;
+
+import org.bukkit.Material;
+import org.bukkit.entity.HumanEntity;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.inventory.EquipmentSlot;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryHolder;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.PlayerInventory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Inventory of the stand-in server. Like CraftInventory, getItem() and
+ * getContents() hand out the stored stacks while setItem() and setContents()
+ * store copies.
+ */
+final class FakeInventory implements Proxies.Handler {
+
+    static final int PLAYER_SIZE = 41;
+    static final int OFF_HAND_SLOT = 40;
+
+    private final InventoryType type;
+    private final ItemStack[] items;
+    private final Supplier<InventoryHolder> holder;
+    private final List<HumanEntity> viewers = new ArrayList<>();
+    private int heldSlot;
+    private Inventory proxy;
+
+    FakeInventory(InventoryType type, int size, Supplier<InventoryHolder> holder) {
+        this.type = type;
+        this.items = new ItemStack[size];
+        this.holder = holder;
+    }
+
+    static boolean isEmpty(ItemStack item) {
+        return item == null || item.getType() == Material.AIR || item.getAmount() <= 0;
+    }
+
+    static ItemStack air() {
+        return new ItemStack(Material.AIR, 0);
+    }
+
+    Inventory proxy() {
+        if (proxy == null) {
+            if (type == InventoryType.PLAYER) {
+                proxy = Proxies.create(PlayerInventory.class, "PlayerInventory", this);
+            } else {
+                proxy = Proxies.create(Inventory.class, type + " inventory", this);
+            }
+        }
+        return proxy;
+    }
+
+    /**
+     * The stand-in behind an inventory created by the fake server
+     */
+    static FakeInventory of(Inventory inventory) {
+        Proxies.Handler handler = Proxies.handlerOf(inventory);
+        if (handler instanceof FakeInventory) {
+            return (FakeInventory) handler;
+        }
+        throw new IllegalArgumentException("Unknown inventory " + inventory);
+    }
+
+    List<HumanEntity> viewers() {
+        return viewers;
+    }
+
+    ItemStack[] items() {
+        return items;
+    }
+
+    int getHeldSlot() {
+        return heldSlot;
+    }
+
+    void setItem(int slot, ItemStack item) {
+        items[slot] = isEmpty(item) ? null : item.clone();
+    }
+
+    void setContents(ItemStack[] contents) {
+        if (contents.length > items.length) {
+            throw new IllegalArgumentException("Invalid inventory size (" + contents.length + "); expected " + items.length + " or less");
+        }
+        for (int i = 0; i < items.length; i++) {
+            setItem(i, i < contents.length ? contents[i] : null);
+        }
+    }
+
+    private ItemStack itemOrAir(int slot) {
+        ItemStack item = items[slot];
+        return item != null ? item : air();
+    }
+
+    @Override
+    public Object invoke(Object proxy, String name, Object[] args) {
+        switch (name) {
+            case "getSize":
+                return items.length;
+            case "getMaxStackSize":
+                return 64;
+            case "getType":
+                return type;
+            case "getHolder":
+                return holder != null ? holder.get() : null;
+            case "getViewers":
+                return new ArrayList<>(viewers);
+            case "getLocation":
+                return null;
+            case "getContents":
+                return items.clone();
+            case "getStorageContents":
+                return Arrays.copyOfRange(items, 0, type == InventoryType.PLAYER ? 36 : items.length);
+            case "setContents":
+            case "setStorageContents":
+                setContents((ItemStack[]) args[0]);
+                return null;
+            case "getItem":
+                if (args[0] instanceof EquipmentSlot) {
+                    return getEquipment((EquipmentSlot) args[0]);
+                }
+                return items[(Integer) args[0]];
+            case "setItem":
+                if (args[0] instanceof EquipmentSlot) {
+                    setEquipment((EquipmentSlot) args[0], (ItemStack) args[1]);
+                } else {
+                    setItem((Integer) args[0], (ItemStack) args[1]);
+                }
+                return null;
+            case "clear":
+                if (args.length == 0) {
+                    Arrays.fill(items, null);
+                } else {
+                    items[(Integer) args[0]] = null;
+                }
+                return null;
+            case "firstEmpty":
+                return firstEmpty();
+            case "isEmpty":
+                for (ItemStack item : items) {
+                    if (!isEmpty(item)) {
+                        return false;
+                    }
+                }
+                return true;
+            case "contains":
+                if (args.length == 1 && args[0] instanceof Material) {
+                    for (ItemStack item : items) {
+                        if (item != null && item.getType() == args[0]) {
+                            return true;
+                        }
+                    }
+                    return false;
+                }
+                return Proxies.UNHANDLED;
+            case "addItem":
+                return addItems((ItemStack[]) args[0]);
+            case "iterator":
+                return Arrays.asList(items.clone()).iterator();
+            case "getItemInMainHand":
+                return itemOrAir(heldSlot);
+            case "setItemInMainHand":
+                setItem(heldSlot, (ItemStack) args[0]);
+                return null;
+            case "getItemInOffHand":
+                return itemOrAir(OFF_HAND_SLOT);
+            case "setItemInOffHand":
+                setItem(OFF_HAND_SLOT, (ItemStack) args[0]);
+                return null;
+            case "getHeldItemSlot":
+                return heldSlot;
+            case "setHeldItemSlot":
+                int slot = (Integer) args[0];
+                if (slot < 0 || slot > 8) {
+                    throw new IllegalArgumentException("Slot is not between 0 and 8 inclusive");
+                }
+                heldSlot = slot;
+                return null;
+            case "getArmorContents":
+                return Arrays.copyOfRange(items, 36, 40);
+            case "getExtraContents":
+                return Arrays.copyOfRange(items, 40, 41);
+            default:
+                return Proxies.UNHANDLED;
+        }
+    }
+
+    private ItemStack getEquipment(EquipmentSlot slot) {
+        switch (slot) {
+            case HAND:
+                return itemOrAir(heldSlot);
+            case OFF_HAND:
+                return itemOrAir(OFF_HAND_SLOT);
+            default:
+                return air();
+        }
+    }
+
+    private void setEquipment(EquipmentSlot slot, ItemStack item) {
+        if (slot == EquipmentSlot.HAND) {
+            setItem(heldSlot, item);
+        } else if (slot == EquipmentSlot.OFF_HAND) {
+            setItem(OFF_HAND_SLOT, item);
+        }
+    }
+
+    private int firstEmpty() {
+        int limit = type == InventoryType.PLAYER ? 36 : items.length;
+        for (int i = 0; i < limit; i++) {
+            if (isEmpty(items[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private HashMap<Integer, ItemStack> addItems(ItemStack[] stacks) {
+        HashMap<Integer, ItemStack> leftover = new HashMap<>();
+        int limit = type == InventoryType.PLAYER ? 36 : items.length;
+        for (int index = 0; index < stacks.length; index++) {
+            ItemStack stack = stacks[index].clone();
+            int max = Math.min(64, stack.getMaxStackSize());
+            for (int i = 0; i < limit && stack.getAmount() > 0; i++) {
+                ItemStack current = items[i];
+                if (current != null && current.isSimilar(stack) && current.getAmount() < max) {
+                    int moved = Math.min(max - current.getAmount(), stack.getAmount());
+                    current.setAmount(current.getAmount() + moved);
+                    stack.setAmount(stack.getAmount() - moved);
+                }
+            }
+            while (stack.getAmount() > 0) {
+                int free = firstEmpty();
+                if (free < 0) {
+                    leftover.put(index, stack);
+                    break;
+                }
+                ItemStack placed = stack.clone();
+                placed.setAmount(Math.min(max, stack.getAmount()));
+                items[free] = placed;
+                stack.setAmount(stack.getAmount() - placed.getAmount());
+            }
+        }
+        return leftover;
+    }
+}
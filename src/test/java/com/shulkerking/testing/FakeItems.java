@@ -0,0 +1,346 @@
+package com.shulkerking.testing;
+
+import com.shulkerking.managers.ShulkerInventoryManager;
+import org.bukkit.Material;
+import org.bukkit.block.ShulkerBox;
+import org.bukkit.enchantments.Enchantment;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemFactory;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.BlockStateMeta;
+import org.bukkit.inventory.meta.Damageable;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.persistence.PersistentDataContainer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Item meta for the stand-in server. Shulker items carry their contents the
+ * way CraftBukkit keeps the block entity tag: every getBlockState() returns a
+ * fresh snapshot and setBlockState() copies it back.
+ */
+public final class FakeItems {
+
+    private FakeItems() {
+    }
+
+    static ItemFactory createFactory() {
+        return Proxies.create(ItemFactory.class, "FakeItemFactory", (proxy, name, args) -> {
+            switch (name) {
+                case "getItemMeta":
+                    return args[0] == Material.AIR ? null : new MetaState((Material) args[0]).proxy();
+                case "isApplicable":
+                    return args[0] == null || material(args[1]) != Material.AIR;
+                case "equals":
+                    if (args.length != 2) {
+                        return Proxies.UNHANDLED;
+                    }
+                    return metaEquals((ItemMeta) args[0], (ItemMeta) args[1]);
+                case "asMetaFor":
+                    return asMetaFor((ItemMeta) args[0], material(args[1]));
+                case "updateMaterial":
+                    return args[1];
+                default:
+                    return Proxies.UNHANDLED;
+            }
+        });
+    }
+
+    /**
+     * Shulker box item holding the given stacks from the first slot on
+     */
+    public static ItemStack shulker(Material type, ItemStack... contents) {
+        ItemStack item = new ItemStack(type);
+        BlockStateMeta meta = (BlockStateMeta) item.getItemMeta();
+        ShulkerBox box = (ShulkerBox) meta.getBlockState();
+        for (int i = 0; i < contents.length; i++) {
+            box.getInventory().setItem(i, contents[i]);
+        }
+        meta.setBlockState(box);
+        item.setItemMeta(meta);
+        return item;
+    }
+
+    /**
+     * Stacks stored in a shulker item, empty for anything else
+     */
+    public static ItemStack[] contents(ItemStack item) {
+        if (item == null || !ShulkerInventoryManager.isShulkerMaterial(item.getType())
+            || !(item.getItemMeta() instanceof BlockStateMeta)) {
+            return new ItemStack[0];
+        }
+        ShulkerBox box = (ShulkerBox) ((BlockStateMeta) item.getItemMeta()).getBlockState();
+        return box.getInventory().getContents();
+    }
+
+    /**
+     * Number of items stored in a shulker item, 0 for anything else
+     */
+    public static int countContents(ItemStack item) {
+        return countItems(contents(item));
+    }
+
+    public static int countItems(ItemStack[] stacks) {
+        int count = 0;
+        for (ItemStack stack : stacks) {
+            if (stack != null && stack.getType() != Material.AIR) {
+                count += stack.getAmount();
+            }
+        }
+        return count;
+    }
+
+    private static Material material(Object target) {
+        return target instanceof ItemStack ? ((ItemStack) target).getType() : (Material) target;
+    }
+
+    private static boolean metaEquals(ItemMeta first, ItemMeta second) {
+        if (first == second) {
+            return true;
+        }
+        if (first == null) {
+            return stateOf(second).isEmpty();
+        }
+        if (second == null) {
+            return stateOf(first).isEmpty();
+        }
+        return stateOf(first).equals(stateOf(second));
+    }
+
+    private static ItemMeta asMetaFor(ItemMeta meta, Material type) {
+        MetaState state = stateOf(meta);
+        if (state.isShulker() == ShulkerInventoryManager.isShulkerMaterial(type)) {
+            return meta;
+        }
+        MetaState converted = state.copy(type);
+        converted.contents = null;
+        return converted.proxy();
+    }
+
+    static MetaState stateOf(ItemMeta meta) {
+        Proxies.Handler handler = Proxies.handlerOf(meta);
+        if (handler instanceof MetaHandler) {
+            return ((MetaHandler) handler).state;
+        }
+        throw new IllegalArgumentException("Unknown meta " + meta);
+    }
+
+    /**
+     * Fields of one item meta
+     */
+    static final class MetaState {
+        private final Material type;
+        private String displayName;
+        private List<String> lore;
+        private Integer customModelData;
+        private final Map<Enchantment, Integer> enchants = new LinkedHashMap<>();
+        private int damage;
+        // Shulker block entity contents, null while the item has no block state
+        private ItemStack[] contents;
+        private PersistentDataContainer persistentData;
+
+        MetaState(Material type) {
+            this.type = type;
+        }
+
+        boolean isShulker() {
+            return ShulkerInventoryManager.isShulkerMaterial(type);
+        }
+
+        boolean isEmpty() {
+            return displayName == null && lore == null && customModelData == null && enchants.isEmpty()
+                && damage == 0 && contents == null;
+        }
+
+        MetaState copy(Material target) {
+            MetaState copy = new MetaState(target);
+            copy.displayName = displayName;
+            copy.lore = lore != null ? new ArrayList<>(lore) : null;
+            copy.customModelData = customModelData;
+            copy.enchants.putAll(enchants);
+            copy.damage = damage;
+            copy.contents = contents != null ? copyStacks(contents) : null;
+            return copy;
+        }
+
+        ItemMeta proxy() {
+            MetaHandler handler = new MetaHandler(this);
+            if (isShulker()) {
+                return Proxies.create(BlockStateMeta.class, "BlockStateMeta", handler, Damageable.class);
+            }
+            return Proxies.create(ItemMeta.class, "ItemMeta", handler, Damageable.class);
+        }
+
+        ShulkerBox createBlockState() {
+            ShulkerBox[] box = new ShulkerBox[1];
+            FakeInventory inventory = new FakeInventory(InventoryType.SHULKER_BOX, 27, () -> box[0]);
+            if (contents != null) {
+                inventory.setContents(copyStacks(contents));
+            }
+            Inventory view = inventory.proxy();
+            box[0] = Proxies.create(ShulkerBox.class, "ShulkerBox", (proxy, name, args) -> {
+                switch (name) {
+                    case "getInventory":
+                    case "getSnapshotInventory":
+                        return view;
+                    case "getType":
+                        return type;
+                    case "update":
+                        return true;
+                    default:
+                        return Proxies.UNHANDLED;
+                }
+            });
+            return box[0];
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof MetaState)) {
+                return false;
+            }
+            MetaState other = (MetaState) o;
+            return isShulker() == other.isShulker() && Objects.equals(displayName, other.displayName)
+                && Objects.equals(lore, other.lore) && Objects.equals(customModelData, other.customModelData)
+                && enchants.equals(other.enchants) && damage == other.damage
+                && Arrays.equals(contents, other.contents);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(isShulker(), displayName, lore, customModelData, enchants, damage, Arrays.hashCode(contents));
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder out = new StringBuilder(isShulker() ? "TILE_ENTITY_META:{" : "UNSPECIFIC_META:{");
+            out.append("meta-type=").append(isShulker() ? "TILE_ENTITY" : "UNSPECIFIC");
+            if (displayName != null) {
+                out.append(", display-name=").append(displayName);
+            }
+            if (lore != null) {
+                out.append(", lore=").append(lore);
+            }
+            if (customModelData != null) {
+                out.append(", custom-model-data=").append(customModelData);
+            }
+            if (!enchants.isEmpty()) {
+                out.append(", enchants=").append(enchants);
+            }
+            if (damage != 0) {
+                out.append(", Damage=").append(damage);
+            }
+            if (contents != null) {
+                out.append(", internal=").append(Arrays.toString(contents));
+            }
+            return out.append('}').toString();
+        }
+    }
+
+    private static final class MetaHandler implements Proxies.Handler {
+        private final MetaState state;
+
+        MetaHandler(MetaState state) {
+            this.state = state;
+        }
+
+        @Override
+        public Object invoke(Object proxy, String name, Object[] args) {
+            switch (name) {
+                case "hasDisplayName":
+                    return state.displayName != null;
+                case "getDisplayName":
+                    return state.displayName != null ? state.displayName : "";
+                case "setDisplayName":
+                    state.displayName = args[0] == null || ((String) args[0]).isEmpty() ? null : (String) args[0];
+                    return null;
+                case "hasLore":
+                    return state.lore != null;
+                case "getLore":
+                    return state.lore != null ? new ArrayList<>(state.lore) : null;
+                case "setLore":
+                    if (args[0] instanceof List) {
+                        List<?> lore = (List<?>) args[0];
+                        state.lore = lore.isEmpty() ? null : copyLore(lore);
+                        return null;
+                    }
+                    return Proxies.UNHANDLED;
+                case "hasCustomModelData":
+                    return state.customModelData != null;
+                case "getCustomModelData":
+                    return state.customModelData != null ? state.customModelData : 0;
+                case "setCustomModelData":
+                    state.customModelData = (Integer) args[0];
+                    return null;
+                case "hasEnchants":
+                    return !state.enchants.isEmpty();
+                case "getEnchants":
+                    return Collections.unmodifiableMap(new LinkedHashMap<>(state.enchants));
+                case "hasEnchant":
+                    return state.enchants.containsKey(args[0]);
+                case "getEnchantLevel":
+                    return state.enchants.getOrDefault(args[0], 0);
+                case "addEnchant":
+                    return state.enchants.put((Enchantment) args[0], (Integer) args[1]) == null;
+                case "removeEnchant":
+                    return state.enchants.remove(args[0]) != null;
+                case "hasDamage":
+                    return state.damage > 0;
+                case "getDamage":
+                    return state.damage;
+                case "setDamage":
+                    state.damage = (Integer) args[0];
+                    return null;
+                case "hasBlockState":
+                    return state.contents != null;
+                case "getBlockState":
+                    return state.createBlockState();
+                case "setBlockState":
+                    state.contents = copyStacks(((ShulkerBox) args[0]).getInventory().getContents());
+                    return null;
+                case "getPersistentDataContainer":
+                    if (state.persistentData == null) {
+                        state.persistentData = Proxies.dummy(PersistentDataContainer.class);
+                    }
+                    return state.persistentData;
+                case "clone":
+                    return state.copy(state.type).proxy();
+                case "equals":
+                    if (args.length == 1) {
+                        Proxies.Handler other = Proxies.handlerOf(args[0]);
+                        return other instanceof MetaHandler && state.equals(((MetaHandler) other).state);
+                    }
+                    return Proxies.UNHANDLED;
+                case "hashCode":
+                    return args.length == 0 ? state.hashCode() : Proxies.UNHANDLED;
+                case "toString":
+                    return args.length == 0 ? state.toString() : Proxies.UNHANDLED;
+                default:
+                    return Proxies.UNHANDLED;
+            }
+        }
+    }
+
+    private static List<String> copyLore(List<?> lore) {
+        List<String> copy = new ArrayList<>(lore.size());
+        for (Object line : lore) {
+            copy.add(line == null ? "" : line.toString());
+        }
+        return copy;
+    }
+
+    static ItemStack[] copyStacks(ItemStack[] stacks) {
+        ItemStack[] copy = new ItemStack[stacks.length];
+        for (int i = 0; i < stacks.length; i++) {
+            copy[i] = FakeInventory.isEmpty(stacks[i]) ? null : stacks[i].clone();
+        }
+        return copy;
+    }
+}
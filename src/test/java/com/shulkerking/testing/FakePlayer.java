@@ -0,0 +1,619 @@
+package com.shulkerking.testing;
+
+import net.md_5.bungee.api.ChatMessageType;
+import net.md_5.bungee.api.chat.BaseComponent;
+import org.bukkit.GameMode;
+import org.bukkit.Location;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
+import org.bukkit.entity.HumanEntity;
+import org.bukkit.entity.Item;
+import org.bukkit.entity.Player;
+import org.bukkit.event.block.Action;
+import org.bukkit.event.entity.EntityDamageByEntityEvent;
+import org.bukkit.event.entity.EntityDamageEvent;
+import org.bukkit.event.inventory.ClickType;
+import org.bukkit.event.inventory.InventoryAction;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryCloseEvent;
+import org.bukkit.event.inventory.InventoryDragEvent;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.event.player.PlayerDropItemEvent;
+import org.bukkit.event.player.PlayerInteractEvent;
+import org.bukkit.event.player.PlayerItemHeldEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerSwapHandItemsEvent;
+import org.bukkit.inventory.EquipmentSlot;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryView;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.PlayerInventory;
+import org.bukkit.persistence.PersistentDataContainer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Player of the stand-in server. Inventory actions fire the same events in
+ * the same order as CraftBukkit and apply their effect only when the event
+ * was not cancelled. Click effects cover the plain pickup, place, swap,
+ * shift-move and hotbar cases.
+ */
+public final class FakePlayer implements Proxies.Handler {
+
+    private static final List<String> DEFAULT_PERMISSIONS = Collections.unmodifiableList(Arrays.asList(
+        "shulkerking.open", "shulkerking.offhand", "shulkerking.place"));
+
+    private final FakeServer server;
+    private final String name;
+    private final UUID id;
+    private final FakeInventory inventory;
+    private final FakeInventory crafting;
+    private final View defaultView;
+    private final Player proxy;
+    private final Player.Spigot spigot;
+    private final Map<String, Boolean> permissions = new HashMap<>();
+    private final List<String> messages = new ArrayList<>();
+    private final List<ItemStack> dropped = new ArrayList<>();
+
+    private volatile View view;
+    private volatile ItemStack cursor;
+    private volatile boolean online = true;
+    private boolean sneaking;
+    private boolean op;
+    private String locale = "en_us";
+    private int actionBars;
+    private int sounds;
+    private int inventoryUpdates;
+
+    FakePlayer(FakeServer server, String name, UUID id) {
+        this.server = server;
+        this.name = name;
+        this.id = id;
+        this.proxy = Proxies.create(Player.class, "FakePlayer{" + name + "}", this);
+        this.inventory = new FakeInventory(InventoryType.PLAYER, FakeInventory.PLAYER_SIZE, () -> proxy);
+        this.crafting = new FakeInventory(InventoryType.CRAFTING, InventoryType.CRAFTING.getDefaultSize(), () -> proxy);
+        this.defaultView = new View(crafting, "Crafting");
+        this.view = defaultView;
+        this.spigot = new Player.Spigot() {
+            @Override
+            public void sendMessage(ChatMessageType position, BaseComponent... components) {
+                recordActionBar();
+            }
+
+            @Override
+            public void sendMessage(ChatMessageType position, BaseComponent component) {
+                recordActionBar();
+            }
+        };
+    }
+
+    public Player getPlayer() {
+        return proxy;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public UUID getUniqueId() {
+        return id;
+    }
+
+    public boolean isOnline() {
+        return online;
+    }
+
+    public PlayerInventory getInventory() {
+        return (PlayerInventory) inventory.proxy();
+    }
+
+    public boolean hasCustomView() {
+        return view != defaultView;
+    }
+
+    /**
+     * Top inventory of the open view, the crafting grid when nothing is open
+     */
+    public Inventory getTopInventory() {
+        return view.getTopInventory();
+    }
+
+    public ItemStack getCursor() {
+        return cursor;
+    }
+
+    public void setSneaking(boolean sneaking) {
+        this.sneaking = sneaking;
+    }
+
+    public void setOp(boolean op) {
+        this.op = op;
+    }
+
+    public void setLocale(String locale) {
+        this.locale = locale;
+    }
+
+    public void setPermission(String permission, boolean value) {
+        permissions.put(permission, value);
+    }
+
+    public synchronized List<String> getMessages() {
+        return new ArrayList<>(messages);
+    }
+
+    public synchronized void clearMessages() {
+        messages.clear();
+    }
+
+    /**
+     * Stacks thrown with the drop key or that did not fit back into the inventory
+     */
+    public List<ItemStack> getDropped() {
+        return dropped;
+    }
+
+    public synchronized int getActionBars() {
+        return actionBars;
+    }
+
+    public synchronized int getSounds() {
+        return sounds;
+    }
+
+    public synchronized int getInventoryUpdates() {
+        return inventoryUpdates;
+    }
+
+    /**
+     * Raw slot of a player inventory slot (0-35) in the open view
+     */
+    public int rawSlot(int playerSlot) {
+        int top = view.getTopInventory().getSize();
+        return playerSlot < 9 ? top + 27 + playerSlot : top + playerSlot - 9;
+    }
+
+    /**
+     * Right click the air with the item in the given hand
+     */
+    public PlayerInteractEvent rightClick(EquipmentSlot hand) {
+        ItemStack item = hand == EquipmentSlot.HAND ? getInventory().getItemInMainHand() : getInventory().getItemInOffHand();
+        PlayerInteractEvent event = new PlayerInteractEvent(proxy, Action.RIGHT_CLICK_AIR,
+            FakeInventory.isEmpty(item) ? null : item, null, BlockFace.SELF, hand);
+        return server.call(event);
+    }
+
+    /**
+     * Right click a face of a block with the item in the given hand
+     */
+    public PlayerInteractEvent rightClickBlock(EquipmentSlot hand, Block clicked, BlockFace face) {
+        ItemStack item = hand == EquipmentSlot.HAND ? getInventory().getItemInMainHand() : getInventory().getItemInOffHand();
+        PlayerInteractEvent event = new PlayerInteractEvent(proxy, Action.RIGHT_CLICK_BLOCK,
+            FakeInventory.isEmpty(item) ? null : item, clicked, face, hand);
+        return server.call(event);
+    }
+
+    /**
+     * Click a raw slot of the open view, the action is derived from the slot and the cursor
+     */
+    public InventoryClickEvent click(int rawSlot, ClickType click) {
+        View clicked = view;
+        ItemStack current = clicked.getItem(rawSlot);
+        InventoryAction action = actionFor(click, current);
+        InventoryClickEvent event = server.call(new InventoryClickEvent(clicked, slotType(clicked, rawSlot), rawSlot, click, action));
+        if (!event.isCancelled() && view == clicked) {
+            apply(clicked, rawSlot, action);
+        }
+        return event;
+    }
+
+    /**
+     * Press a number key over a raw slot, swapping it with a hotbar slot
+     */
+    public InventoryClickEvent hotbarSwap(int rawSlot, int key) {
+        View clicked = view;
+        ItemStack current = clicked.getItem(rawSlot);
+        ItemStack hotbar = inventory.items()[key];
+        InventoryAction action = FakeInventory.isEmpty(current) && FakeInventory.isEmpty(hotbar)
+            ? InventoryAction.NOTHING : InventoryAction.HOTBAR_SWAP;
+        InventoryClickEvent event = server.call(new InventoryClickEvent(clicked, slotType(clicked, rawSlot), rawSlot,
+            ClickType.NUMBER_KEY, action, key));
+        if (!event.isCancelled() && view == clicked && action == InventoryAction.HOTBAR_SWAP) {
+            FakeInventory target = FakeInventory.of(clicked.getInventory(rawSlot));
+            int slot = clicked.convertSlot(rawSlot);
+            ItemStack moved = target.items()[slot];
+            target.items()[slot] = inventory.items()[key];
+            inventory.items()[key] = moved;
+        }
+        return event;
+    }
+
+    /**
+     * Drag the cursor evenly over the given raw slots, skipping slots that are not empty
+     */
+    public InventoryDragEvent drag(int... rawSlots) {
+        View dragged = view;
+        Map<Integer, ItemStack> added = new LinkedHashMap<>();
+        for (int rawSlot : rawSlots) {
+            if (FakeInventory.isEmpty(dragged.getItem(rawSlot))) {
+                added.put(rawSlot, null);
+            }
+        }
+        if (FakeInventory.isEmpty(cursor) || added.isEmpty()) {
+            return null;
+        }
+        int each = Math.max(1, cursor.getAmount() / added.size());
+        int remaining = cursor.getAmount();
+        for (Map.Entry<Integer, ItemStack> entry : added.entrySet()) {
+            int amount = Math.min(each, remaining);
+            ItemStack stack = cursor.clone();
+            stack.setAmount(amount);
+            entry.setValue(amount > 0 ? stack : null);
+            remaining -= amount;
+        }
+        added.values().removeIf(stack -> stack == null);
+        ItemStack newCursor = remaining > 0 ? cursor.clone() : null;
+        if (newCursor != null) {
+            newCursor.setAmount(remaining);
+        }
+        InventoryDragEvent event = server.call(new InventoryDragEvent(dragged, newCursor, cursor.clone(), false, added));
+        if (!event.isCancelled() && view == dragged) {
+            for (Map.Entry<Integer, ItemStack> entry : added.entrySet()) {
+                dragged.setItem(entry.getKey(), entry.getValue());
+            }
+            cursor = event.getCursor();
+        }
+        return event;
+    }
+
+    /**
+     * Change the selected hotbar slot
+     */
+    public PlayerItemHeldEvent selectHotbar(int slot) {
+        PlayerItemHeldEvent event = server.call(new PlayerItemHeldEvent(proxy, inventory.getHeldSlot(), slot));
+        if (!event.isCancelled()) {
+            getInventory().setHeldItemSlot(slot);
+        }
+        return event;
+    }
+
+    public PlayerSwapHandItemsEvent swapHands() {
+        ItemStack main = getInventory().getItemInMainHand();
+        ItemStack off = getInventory().getItemInOffHand();
+        PlayerSwapHandItemsEvent event = server.call(new PlayerSwapHandItemsEvent(proxy, off, main));
+        if (!event.isCancelled()) {
+            int held = inventory.getHeldSlot();
+            ItemStack moved = inventory.items()[held];
+            inventory.items()[held] = inventory.items()[FakeInventory.OFF_HAND_SLOT];
+            inventory.items()[FakeInventory.OFF_HAND_SLOT] = moved;
+        }
+        return event;
+    }
+
+    /**
+     * Press the drop key, throwing one item of the main hand stack.
+     * The item leaves the hand first and comes back when the event is cancelled.
+     */
+    public PlayerDropItemEvent drop() {
+        int held = inventory.getHeldSlot();
+        ItemStack stack = inventory.items()[held];
+        if (FakeInventory.isEmpty(stack)) {
+            return null;
+        }
+        ItemStack thrown = stack.clone();
+        thrown.setAmount(1);
+        stack.setAmount(stack.getAmount() - 1);
+        if (stack.getAmount() == 0) {
+            inventory.items()[held] = null;
+        }
+        ItemStack[] entity = {thrown};
+        Item item = Proxies.create(Item.class, "Item{" + thrown.getType() + "}", (itemProxy, method, args) -> {
+            switch (method) {
+                case "getItemStack":
+                    return entity[0];
+                case "setItemStack":
+                    entity[0] = (ItemStack) args[0];
+                    return null;
+                default:
+                    return Proxies.UNHANDLED;
+            }
+        });
+        PlayerDropItemEvent event = server.call(new PlayerDropItemEvent(proxy, item));
+        if (event.isCancelled()) {
+            dropped.addAll(getInventory().addItem(entity[0]).values());
+        } else {
+            dropped.add(entity[0]);
+        }
+        return event;
+    }
+
+    /**
+     * Take damage, from another player when damager is not null
+     */
+    public EntityDamageEvent damage(FakePlayer damager) {
+        EntityDamageEvent event = damager != null
+            ? new EntityDamageByEntityEvent(damager.getPlayer(), proxy, EntityDamageEvent.DamageCause.ENTITY_ATTACK, 1.0)
+            : new EntityDamageEvent(proxy, EntityDamageEvent.DamageCause.FALL, 1.0);
+        return server.call(event);
+    }
+
+    public void join() {
+        online = true;
+        server.call(new PlayerJoinEvent(proxy, name + " joined the game"));
+    }
+
+    /**
+     * Leave the server, closing the open inventory first like the server does
+     */
+    public void quit() {
+        if (view != defaultView) {
+            closeInventory();
+        }
+        server.call(new PlayerQuitEvent(proxy, name + " left the game"));
+        online = false;
+        server.removePlayer(this);
+    }
+
+    public void closeInventory() {
+        View closing = view;
+        server.call(new InventoryCloseEvent(closing));
+        if (view != closing) {
+            // Closed again from inside the close handler
+            return;
+        }
+        FakeInventory.of(closing.getTopInventory()).viewers().remove(proxy);
+        view = defaultView;
+        returnCursor();
+    }
+
+    private InventoryView openInventory(Inventory top) {
+        if (view != defaultView) {
+            closeInventory();
+        }
+        View opened = new View(FakeInventory.of(top), top.getType().getDefaultTitle());
+        FakeInventory.of(top).viewers().add(proxy);
+        view = opened;
+        return opened;
+    }
+
+    private void returnCursor() {
+        if (FakeInventory.isEmpty(cursor)) {
+            cursor = null;
+            return;
+        }
+        Map<Integer, ItemStack> leftover = getInventory().addItem(cursor);
+        dropped.addAll(leftover.values());
+        cursor = null;
+    }
+
+    private synchronized void recordActionBar() {
+        actionBars++;
+    }
+
+    private InventoryAction actionFor(ClickType click, ItemStack current) {
+        boolean slotEmpty = FakeInventory.isEmpty(current);
+        boolean cursorEmpty = FakeInventory.isEmpty(cursor);
+        if (click.isShiftClick()) {
+            return slotEmpty ? InventoryAction.NOTHING : InventoryAction.MOVE_TO_OTHER_INVENTORY;
+        }
+        if (slotEmpty && cursorEmpty) {
+            return InventoryAction.NOTHING;
+        }
+        boolean right = click == ClickType.RIGHT;
+        if (cursorEmpty) {
+            return right ? InventoryAction.PICKUP_HALF : InventoryAction.PICKUP_ALL;
+        }
+        if (slotEmpty) {
+            return right ? InventoryAction.PLACE_ONE : InventoryAction.PLACE_ALL;
+        }
+        if (current.isSimilar(cursor)) {
+            if (current.getAmount() >= current.getMaxStackSize()) {
+                return InventoryAction.NOTHING;
+            }
+            return right ? InventoryAction.PLACE_ONE : InventoryAction.PLACE_SOME;
+        }
+        return InventoryAction.SWAP_WITH_CURSOR;
+    }
+
+    private static InventoryType.SlotType slotType(InventoryView view, int rawSlot) {
+        if (rawSlot < view.getTopInventory().getSize()) {
+            return InventoryType.SlotType.CONTAINER;
+        }
+        return view.convertSlot(rawSlot) < 9 ? InventoryType.SlotType.QUICKBAR : InventoryType.SlotType.CONTAINER;
+    }
+
+    private void apply(View clicked, int rawSlot, InventoryAction action) {
+        FakeInventory target = FakeInventory.of(clicked.getInventory(rawSlot));
+        int slot = clicked.convertSlot(rawSlot);
+        ItemStack current = target.items()[slot];
+        switch (action) {
+            case PICKUP_ALL:
+                cursor = current;
+                target.items()[slot] = null;
+                break;
+            case PICKUP_HALF:
+                int taken = (current.getAmount() + 1) / 2;
+                cursor = current.clone();
+                cursor.setAmount(taken);
+                current.setAmount(current.getAmount() - taken);
+                if (current.getAmount() == 0) {
+                    target.items()[slot] = null;
+                }
+                break;
+            case PLACE_ALL:
+                target.items()[slot] = cursor;
+                cursor = null;
+                break;
+            case PLACE_SOME:
+                int moved = Math.min(current.getMaxStackSize() - current.getAmount(), cursor.getAmount());
+                current.setAmount(current.getAmount() + moved);
+                takeFromCursor(moved);
+                break;
+            case PLACE_ONE:
+                if (current == null) {
+                    ItemStack one = cursor.clone();
+                    one.setAmount(1);
+                    target.items()[slot] = one;
+                } else {
+                    current.setAmount(current.getAmount() + 1);
+                }
+                takeFromCursor(1);
+                break;
+            case SWAP_WITH_CURSOR:
+                target.items()[slot] = cursor;
+                cursor = current;
+                break;
+            case MOVE_TO_OTHER_INVENTORY:
+                Inventory other = target == inventory ? clicked.getTopInventory() : getInventory();
+                target.items()[slot] = null;
+                Map<Integer, ItemStack> leftover = other.addItem(current);
+                if (!leftover.isEmpty()) {
+                    target.items()[slot] = leftover.get(0);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void takeFromCursor(int amount) {
+        cursor.setAmount(cursor.getAmount() - amount);
+        if (cursor.getAmount() <= 0) {
+            cursor = null;
+        }
+    }
+
+    @Override
+    public Object invoke(Object proxy, String method, Object[] args) {
+        switch (method) {
+            case "getName":
+            case "getDisplayName":
+                return name;
+            case "getUniqueId":
+                return id;
+            case "isOnline":
+            case "isValid":
+                return online;
+            case "getServer":
+                return server.getServer();
+            case "getWorld":
+                return server.getDefaultWorld();
+            case "getLocation":
+                return args.length == 0 ? new Location(server.getDefaultWorld(), 0.5, 64, 0.5) : Proxies.UNHANDLED;
+            case "getEyeLocation":
+                return new Location(server.getDefaultWorld(), 0.5, 65.62, 0.5);
+            case "getLocale":
+                return locale;
+            case "getGameMode":
+                return GameMode.SURVIVAL;
+            case "isSneaking":
+                return sneaking;
+            case "isOp":
+                return op;
+            case "hasPermission":
+                if (args[0] instanceof String) {
+                    Boolean value = permissions.get(args[0]);
+                    return value != null ? value : DEFAULT_PERMISSIONS.contains(args[0])
+                        || (op && "shulkerking.admin".equals(args[0]));
+                }
+                return Proxies.UNHANDLED;
+            case "isPermissionSet":
+                return args[0] instanceof String ? permissions.containsKey(args[0]) : Proxies.UNHANDLED;
+            case "sendMessage":
+                if (args.length == 1 && args[0] instanceof String) {
+                    synchronized (this) {
+                        messages.add((String) args[0]);
+                    }
+                    return null;
+                }
+                return Proxies.UNHANDLED;
+            case "playSound":
+                synchronized (this) {
+                    sounds++;
+                }
+                return null;
+            case "updateInventory":
+                synchronized (this) {
+                    inventoryUpdates++;
+                }
+                return null;
+            case "spigot":
+                return spigot;
+            case "getInventory":
+                return getInventory();
+            case "getOpenInventory":
+                return view;
+            case "openInventory":
+                return args[0] instanceof Inventory ? openInventory((Inventory) args[0]) : Proxies.UNHANDLED;
+            case "closeInventory":
+                closeInventory();
+                return null;
+            case "getItemOnCursor":
+                return cursor != null ? cursor : FakeInventory.air();
+            case "setItemOnCursor":
+                ItemStack item = (ItemStack) args[0];
+                cursor = FakeInventory.isEmpty(item) ? null : item.clone();
+                return null;
+            case "getPersistentDataContainer":
+                return Proxies.dummy(PersistentDataContainer.class);
+            default:
+                return Proxies.UNHANDLED;
+        }
+    }
+
+    /**
+     * Open view of this player over one top inventory and the player inventory
+     */
+    private final class View extends InventoryView {
+        private final FakeInventory top;
+        private String title;
+
+        View(FakeInventory top, String title) {
+            this.top = top;
+            this.title = title;
+        }
+
+        @Override
+        public Inventory getTopInventory() {
+            return top.proxy();
+        }
+
+        @Override
+        public Inventory getBottomInventory() {
+            return inventory.proxy();
+        }
+
+        @Override
+        public HumanEntity getPlayer() {
+            return proxy;
+        }
+
+        @Override
+        public InventoryType getType() {
+            return top.proxy().getType();
+        }
+
+        @Override
+        public String getTitle() {
+            return title;
+        }
+
+        @Override
+        public String getOriginalTitle() {
+            return title;
+        }
+
+        @Override
+        public void setTitle(String title) {
+            this.title = title;
+        }
+    }
+}
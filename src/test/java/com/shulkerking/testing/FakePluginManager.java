@@ -0,0 +1,126 @@
+package com.shulkerking.testing;
+
+import org.bukkit.event.Cancellable;
+import org.bukkit.event.Event;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.Listener;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.PluginManager;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Event dispatch of the stand-in server: handlers run by priority, then in
+ * registration order, and exceptions reach the caller instead of being logged.
+ */
+final class FakePluginManager {
+
+    private final List<Registration> handlers = new ArrayList<>();
+    private final List<Plugin> disabled = new ArrayList<>();
+    private final PluginManager proxy;
+
+    FakePluginManager() {
+        this.proxy = Proxies.create(PluginManager.class, "FakePluginManager", this::invoke);
+    }
+
+    PluginManager proxy() {
+        return proxy;
+    }
+
+    synchronized List<Plugin> getDisabled() {
+        return new ArrayList<>(disabled);
+    }
+
+    synchronized void reset() {
+        handlers.clear();
+        disabled.clear();
+    }
+
+    /**
+     * Register the handlers of a listener outside of a plugin, like a replay driver does
+     */
+    synchronized void register(Listener listener) {
+        for (Method method : listener.getClass().getMethods()) {
+            EventHandler annotation = method.getAnnotation(EventHandler.class);
+            if (annotation == null || method.getParameterCount() != 1
+                || !Event.class.isAssignableFrom(method.getParameterTypes()[0])) {
+                continue;
+            }
+            method.setAccessible(true);
+            handlers.add(new Registration(listener, method, annotation, handlers.size()));
+        }
+        handlers.sort(Comparator.comparingInt((Registration handler) -> handler.annotation.priority().ordinal())
+            .thenComparingInt(handler -> handler.order));
+    }
+
+    <T extends Event> T call(T event) {
+        List<Registration> snapshot;
+        synchronized (this) {
+            snapshot = new ArrayList<>(handlers);
+        }
+        for (Registration handler : snapshot) {
+            if (!handler.eventType.isInstance(event)) {
+                continue;
+            }
+            if (handler.annotation.ignoreCancelled() && event instanceof Cancellable
+                && ((Cancellable) event).isCancelled()) {
+                continue;
+            }
+            try {
+                handler.method.invoke(handler.listener, event);
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new IllegalStateException(cause);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return event;
+    }
+
+    private Object invoke(Object proxy, String name, Object[] args) {
+        switch (name) {
+            case "registerEvents":
+                register((Listener) args[0]);
+                return null;
+            case "callEvent":
+                call((Event) args[0]);
+                return null;
+            case "disablePlugin":
+                synchronized (this) {
+                    disabled.add((Plugin) args[0]);
+                }
+                return null;
+            case "isPluginEnabled":
+                return false;
+            default:
+                return Proxies.UNHANDLED;
+        }
+    }
+
+    private static final class Registration {
+        private final Listener listener;
+        private final Method method;
+        private final EventHandler annotation;
+        private final Class<?> eventType;
+        private final int order;
+
+        Registration(Listener listener, Method method, EventHandler annotation, int order) {
+            this.listener = listener;
+            this.method = method;
+            this.annotation = annotation;
+            this.eventType = method.getParameterTypes()[0];
+            this.order = order;
+        }
+    }
+}
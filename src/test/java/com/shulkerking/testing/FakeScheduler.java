@@ -0,0 +1,157 @@
+package com.shulkerking.testing;
+
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitScheduler;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Scheduler driven by {@link FakeServer#tick()}. Async tasks run on the
+ * ticking thread as well, so a simulation is deterministic.
+ */
+final class FakeScheduler {
+
+    private final List<Task> tasks = new ArrayList<>();
+    private final BukkitScheduler proxy;
+    private long currentTick;
+    private int nextId = 1;
+
+    FakeScheduler() {
+        this.proxy = Proxies.create(BukkitScheduler.class, "FakeScheduler", this::invoke);
+    }
+
+    BukkitScheduler proxy() {
+        return proxy;
+    }
+
+    synchronized long getCurrentTick() {
+        return currentTick;
+    }
+
+    synchronized int getPendingCount() {
+        int count = 0;
+        for (Task task : tasks) {
+            if (!task.cancelled) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Advance one tick and run the tasks that are due, in scheduling order
+     */
+    void tick() {
+        List<Task> due = new ArrayList<>();
+        synchronized (this) {
+            currentTick++;
+            Iterator<Task> iterator = tasks.iterator();
+            while (iterator.hasNext()) {
+                Task task = iterator.next();
+                if (task.cancelled) {
+                    iterator.remove();
+                } else if (task.nextTick <= currentTick) {
+                    due.add(task);
+                }
+            }
+        }
+        for (Task task : due) {
+            if (task.cancelled) {
+                continue;
+            }
+            if (task.period > 0) {
+                task.nextTick = getCurrentTick() + task.period;
+            } else {
+                task.cancelled = true;
+            }
+            task.runnable.run();
+        }
+    }
+
+    synchronized void cancelAll() {
+        for (Task task : tasks) {
+            task.cancelled = true;
+        }
+        tasks.clear();
+    }
+
+    private Object invoke(Object proxy, String name, Object[] args) {
+        switch (name) {
+            case "runTask":
+                return schedule((Runnable) args[1], 0L, -1L, true);
+            case "runTaskAsynchronously":
+                return schedule((Runnable) args[1], 0L, -1L, false);
+            case "runTaskLater":
+                return schedule((Runnable) args[1], (Long) args[2], -1L, true);
+            case "runTaskLaterAsynchronously":
+                return schedule((Runnable) args[1], (Long) args[2], -1L, false);
+            case "runTaskTimer":
+                return schedule((Runnable) args[1], (Long) args[2], (Long) args[3], true);
+            case "runTaskTimerAsynchronously":
+                return schedule((Runnable) args[1], (Long) args[2], (Long) args[3], false);
+            case "cancelTasks":
+                cancelTasks((Plugin) args[0]);
+                return null;
+            case "cancelTask":
+                cancelTask((Integer) args[0]);
+                return null;
+            case "isCurrentlyRunning":
+            case "isQueued":
+                return false;
+            default:
+                return Proxies.UNHANDLED;
+        }
+    }
+
+    private synchronized BukkitTask schedule(Runnable runnable, long delay, long period, boolean sync) {
+        Task task = new Task(nextId++, runnable, sync);
+        task.nextTick = currentTick + Math.max(1L, delay);
+        task.period = period > 0 ? period : 0L;
+        tasks.add(task);
+        return task.handle;
+    }
+
+    private synchronized void cancelTasks(Plugin plugin) {
+        cancelAll();
+    }
+
+    private synchronized void cancelTask(int id) {
+        for (Task task : tasks) {
+            if (task.id == id) {
+                task.cancelled = true;
+            }
+        }
+    }
+
+    private static final class Task {
+        private final int id;
+        private final Runnable runnable;
+        private final BukkitTask handle;
+        private volatile long nextTick;
+        private volatile long period;
+        private volatile boolean cancelled;
+
+        Task(int id, Runnable runnable, boolean sync) {
+            this.id = id;
+            this.runnable = runnable;
+            this.handle = Proxies.create(BukkitTask.class, "BukkitTask#" + id, (proxy, name, args) -> {
+                switch (name) {
+                    case "getTaskId":
+                        return id;
+                    case "isSync":
+                        return sync;
+                    case "isCancelled":
+                        return cancelled;
+                    case "cancel":
+                        cancelled = true;
+                        return null;
+                    default:
+                        return Proxies.UNHANDLED;
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package com.shulkerking.testing;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Keyed;
+import org.bukkit.Registry;
+import org.bukkit.Server;
+import org.bukkit.UnsafeValues;
+import org.bukkit.World;
+import org.bukkit.command.PluginCommand;
+import org.bukkit.entity.Player;
+import org.bukkit.event.Event;
+import org.bukkit.event.Listener;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryHolder;
+import org.bukkit.inventory.ItemFactory;
+import org.bukkit.plugin.Plugin;
+
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+/**
+ * Headless stand-in for the Bukkit server. It is installed once per JVM,
+ * because Bukkit.setServer() cannot be called twice, and is reset between
+ * tests. Ticks only advance when a test calls {@link #tick()}.
+ */
+public final class FakeServer {
+
+    private static FakeServer instance;
+
+    private final Logger logger;
+    private final List<LogRecord> warnings = Collections.synchronizedList(new ArrayList<>());
+    private final Map<UUID, FakePlayer> players = new ConcurrentHashMap<>();
+    private final Map<String, PluginCommand> commands = new ConcurrentHashMap<>();
+    private final ItemFactory itemFactory;
+    private final UnsafeValues unsafe;
+    private final FakeScheduler scheduler;
+    private final FakePluginManager pluginManager;
+    private final Server proxy;
+    private FakeWorld world;
+
+    private FakeServer() {
+        this.logger = Logger.getLogger("FakeServer");
+        logger.setUseParentHandlers(false);
+        logger.addHandler(new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                if (record.getLevel().intValue() >= Level.WARNING.intValue()) {
+                    warnings.add(record);
+                    System.err.println("[" + record.getLevel() + "] " + record.getMessage());
+                    if (record.getThrown() != null) {
+                        record.getThrown().printStackTrace();
+                    }
+                }
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        this.itemFactory = FakeItems.createFactory();
+        this.unsafe = Proxies.dummy(UnsafeValues.class);
+        this.scheduler = new FakeScheduler();
+        this.pluginManager = new FakePluginManager();
+        this.world = new FakeWorld("world");
+        this.proxy = Proxies.create(Server.class, "FakeServer", this::invoke);
+    }
+
+    /**
+     * Install the stand-in as the Bukkit server, once per JVM
+     */
+    public static synchronized FakeServer install() {
+        if (instance == null) {
+            instance = new FakeServer();
+            Bukkit.setServer(instance.proxy);
+        }
+        return instance;
+    }
+
+    /**
+     * Drop players, tasks, listeners and recorded warnings
+     */
+    public synchronized void reset() {
+        players.clear();
+        commands.clear();
+        scheduler.cancelAll();
+        pluginManager.reset();
+        warnings.clear();
+        world = new FakeWorld("world");
+    }
+
+    public Server getServer() {
+        return proxy;
+    }
+
+    public World getDefaultWorld() {
+        return world.proxy();
+    }
+
+    public FakePlayer addPlayer(String name) {
+        return addPlayer(name, UUID.nameUUIDFromBytes(("player:" + name).getBytes()));
+    }
+
+    public FakePlayer addPlayer(String name, UUID id) {
+        FakePlayer player = new FakePlayer(this, name, id);
+        players.put(player.getUniqueId(), player);
+        player.join();
+        return player;
+    }
+
+    void removePlayer(FakePlayer player) {
+        players.remove(player.getUniqueId());
+    }
+
+    public List<FakePlayer> getPlayers() {
+        return new ArrayList<>(players.values());
+    }
+
+    /**
+     * Register listeners that are not owned by a plugin
+     */
+    public void registerListener(Listener listener) {
+        pluginManager.register(listener);
+    }
+
+    /**
+     * Fire an event through the registered handlers and return it
+     */
+    public <T extends Event> T call(T event) {
+        return pluginManager.call(event);
+    }
+
+    /**
+     * Create the commands a plugin declares in plugin.yml, as the plugin loader does
+     */
+    public void registerCommands(Plugin plugin) {
+        try {
+            Constructor<PluginCommand> constructor = PluginCommand.class.getDeclaredConstructor(String.class, Plugin.class);
+            constructor.setAccessible(true);
+            for (String name : plugin.getDescription().getCommands().keySet()) {
+                commands.put(name.toLowerCase(Locale.ROOT), constructor.newInstance(name, plugin));
+            }
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not create commands of " + plugin.getName(), e);
+        }
+    }
+
+    public PluginCommand getCommand(String name) {
+        return commands.get(name.toLowerCase(Locale.ROOT));
+    }
+
+    public void tick() {
+        scheduler.tick();
+    }
+
+    public long getCurrentTick() {
+        return scheduler.getCurrentTick();
+    }
+
+    public int getPendingTasks() {
+        return scheduler.getPendingCount();
+    }
+
+    public List<Plugin> getDisabledPlugins() {
+        return pluginManager.getDisabled();
+    }
+
+    /**
+     * Log records at WARNING or above since the last reset
+     */
+    public List<LogRecord> getWarnings() {
+        synchronized (warnings) {
+            return new ArrayList<>(warnings);
+        }
+    }
+
+    private Inventory createInventory(InventoryHolder holder, InventoryType type, int size) {
+        return new FakeInventory(type, size, () -> holder).proxy();
+    }
+
+    private Object invoke(Object proxy, String name, Object[] args) {
+        switch (name) {
+            case "getName":
+                return "FakeServer";
+            case "getVersion":
+                return "git-FakeServer (MC: 1.20.4)";
+            case "getBukkitVersion":
+                return "1.20.4-R0.1-SNAPSHOT";
+            case "getLogger":
+                return logger;
+            case "getItemFactory":
+                return itemFactory;
+            case "getUnsafe":
+                return unsafe;
+            case "getScheduler":
+                return scheduler.proxy();
+            case "getPluginManager":
+                return pluginManager.proxy();
+            case "isPrimaryThread":
+                return true;
+            case "getOnlinePlayers":
+                List<Player> online = new ArrayList<>();
+                for (FakePlayer player : players.values()) {
+                    online.add(player.getPlayer());
+                }
+                return online;
+            case "getPlayer":
+            case "getPlayerExact":
+                return findPlayer(args[0]);
+            case "getWorlds":
+                return new ArrayList<>(Collections.singletonList(world.proxy()));
+            case "getWorld":
+                return world.getName().equals(args[0]) || world.getId().equals(args[0]) ? world.proxy() : null;
+            case "getPluginCommand":
+                return getCommand((String) args[0]);
+            case "getRegistry":
+                return registry((Class<?>) args[0]);
+            case "createInventory":
+                InventoryHolder holder = (InventoryHolder) args[0];
+                if (args[1] instanceof InventoryType) {
+                    InventoryType type = (InventoryType) args[1];
+                    return createInventory(holder, type, type.getDefaultSize());
+                }
+                return createInventory(holder, InventoryType.CHEST, (Integer) args[1]);
+            default:
+                return Proxies.UNHANDLED;
+        }
+    }
+
+    private Player findPlayer(Object key) {
+        if (key instanceof UUID) {
+            FakePlayer player = players.get(key);
+            return player != null ? player.getPlayer() : null;
+        }
+        for (FakePlayer player : players.values()) {
+            if (player.getName().equalsIgnoreCase((String) key)) {
+                return player.getPlayer();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Registry whose lookups return empty stand-ins, enough for API statics such as DamageType
+     */
+    private static Registry<?> registry(Class<?> type) {
+        return Proxies.create(Registry.class, "Registry<" + type.getSimpleName() + ">", (proxy, name, args) -> {
+            if ("get".equals(name) && Keyed.class.isAssignableFrom(type) && type.isInterface()) {
+                return Proxies.dummy(type);
+            }
+            if ("iterator".equals(name)) {
+                return Collections.emptyIterator();
+            }
+            return Proxies.UNHANDLED;
+        });
+    }
+}
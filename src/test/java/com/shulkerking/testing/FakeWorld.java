@@ -0,0 +1,156 @@
+package com.shulkerking.testing;
+
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
+import org.bukkit.block.BlockState;
+import org.bukkit.block.ShulkerBox;
+import org.bukkit.event.inventory.InventoryType;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Flat world: stone below y 64, air above, changed blocks are kept in a map.
+ * Placed shulker boxes keep their inventory until the block is replaced, and
+ * like a placed CraftShulkerBox their state hands out that live inventory.
+ */
+final class FakeWorld {
+
+    private static final int GROUND = 64;
+
+    private final String name;
+    private final UUID id;
+    private final Map<String, Material> blocks = new HashMap<>();
+    private final Map<String, FakeInventory> containers = new HashMap<>();
+    private final World proxy;
+
+    FakeWorld(String name) {
+        this.name = name;
+        this.id = UUID.nameUUIDFromBytes(("world:" + name).getBytes());
+        this.proxy = Proxies.create(World.class, "FakeWorld{" + name + "}", this::invoke);
+    }
+
+    World proxy() {
+        return proxy;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    UUID getId() {
+        return id;
+    }
+
+    private Object invoke(Object proxy, String method, Object[] args) {
+        switch (method) {
+            case "getName":
+                return name;
+            case "getUID":
+                return id;
+            case "getBlockAt":
+                if (args.length == 1) {
+                    Location location = (Location) args[0];
+                    return block(location.getBlockX(), location.getBlockY(), location.getBlockZ());
+                }
+                return block((Integer) args[0], (Integer) args[1], (Integer) args[2]);
+            case "rayTraceBlocks":
+                return null;
+            case "equals":
+                return args.length == 1 ? proxy == args[0] : Proxies.UNHANDLED;
+            default:
+                return Proxies.UNHANDLED;
+        }
+    }
+
+    private synchronized Material getType(int x, int y, int z) {
+        Material type = blocks.get(x + "," + y + "," + z);
+        if (type != null) {
+            return type;
+        }
+        return y < GROUND ? Material.STONE : Material.AIR;
+    }
+
+    private synchronized void setType(int x, int y, int z, Material type) {
+        String key = x + "," + y + "," + z;
+        if (blocks.put(key, type) != type) {
+            containers.remove(key);
+        }
+    }
+
+    private synchronized BlockState getState(Block block) {
+        Material type = getType(block.getX(), block.getY(), block.getZ());
+        if (!type.name().endsWith("SHULKER_BOX")) {
+            return Proxies.create(BlockState.class, "BlockState{" + type + "}",
+                (state, name, args) -> "getType".equals(name) ? getType(block.getX(), block.getY(), block.getZ()) : Proxies.UNHANDLED);
+        }
+        ShulkerBox[] box = new ShulkerBox[1];
+        FakeInventory inventory = containers.computeIfAbsent(block.getX() + "," + block.getY() + "," + block.getZ(),
+            key -> new FakeInventory(InventoryType.SHULKER_BOX, 27, () -> box[0]));
+        String[] customName = new String[1];
+        box[0] = Proxies.create(ShulkerBox.class, "ShulkerBox{" + type + "}", (proxy, name, args) -> {
+            switch (name) {
+                case "getInventory":
+                case "getSnapshotInventory":
+                    return inventory.proxy();
+                case "getType":
+                    return type;
+                case "getBlock":
+                    return block;
+                case "getLocation":
+                    return args.length == 0 ? block.getLocation() : Proxies.UNHANDLED;
+                case "getCustomName":
+                    return customName[0];
+                case "setCustomName":
+                    customName[0] = (String) args[0];
+                    return null;
+                case "update":
+                    return true;
+                default:
+                    return Proxies.UNHANDLED;
+            }
+        });
+        return box[0];
+    }
+
+    private Block block(int x, int y, int z) {
+        return Proxies.create(Block.class, "Block{" + x + "," + y + "," + z + "}", (proxy, method, args) -> {
+            switch (method) {
+                case "getType":
+                    return getType(x, y, z);
+                case "setType":
+                    setType(x, y, z, (Material) args[0]);
+                    return null;
+                case "getX":
+                    return x;
+                case "getY":
+                    return y;
+                case "getZ":
+                    return z;
+                case "getWorld":
+                    return this.proxy;
+                case "getLocation":
+                    return args.length == 0 ? new Location(this.proxy, x, y, z) : Proxies.UNHANDLED;
+                case "getRelative":
+                    if (args.length == 3) {
+                        return block(x + (Integer) args[0], y + (Integer) args[1], z + (Integer) args[2]);
+                    }
+                    BlockFace face = (BlockFace) args[0];
+                    return block(x + face.getModX(), y + face.getModY(), z + face.getModZ());
+                case "getState":
+                    return getState((Block) proxy);
+                case "equals":
+                    return args.length == 1 && args[0] instanceof Block && ((Block) args[0]).getX() == x
+                        && ((Block) args[0]).getY() == y && ((Block) args[0]).getZ() == z;
+                case "hashCode":
+                    return (x * 31 + y) * 31 + z;
+                default:
+                    return Proxies.UNHANDLED;
+            }
+        });
+    }
+}
@@ -0,0 +1,182 @@
+package com.shulkerking.testing;
+
+import com.shulkerking.ShulkerKingPlugin;
+import com.shulkerking.managers.ClockManager;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.plugin.InvalidDescriptionException;
+import org.bukkit.plugin.PluginDescriptionFile;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.plugin.java.JavaPluginLoader;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Loads and enables ShulkerKing on the {@link FakeServer} with a config.yml
+ * written to a temporary data folder. Writers, file watchers and the
+ * exporter are off by default so a test only touches its own folder.
+ */
+public final class PluginHarness implements AutoCloseable {
+
+    private final FakeServer server;
+    private final Path dataFolder;
+    private final ShulkerKingPlugin plugin;
+    private ClockManager.VirtualClock virtualClock;
+
+    private PluginHarness(FakeServer server, Path dataFolder, ShulkerKingPlugin plugin) {
+        this.server = server;
+        this.dataFolder = dataFolder;
+        this.plugin = plugin;
+    }
+
+    /**
+     * Settings the simulator runs with, override single keys with {@link #start(Map)}
+     */
+    public static Map<String, Object> defaultSettings() {
+        Map<String, Object> settings = new LinkedHashMap<>();
+        settings.put("settings.pvp-block", true);
+        settings.put("pvp-block.enabled", true);
+        settings.put("pvp-block.combat-time", 1);
+        settings.put("cooldown.default", 0.5);
+        settings.put("journal.enabled", false);
+        settings.put("audit.enabled", false);
+        settings.put("jfr.enabled", false);
+        settings.put("load.enabled", false);
+        settings.put("auto-reload.enabled", false);
+        settings.put("exporter.mode", "OFF");
+        settings.put("sounds.open.sound", "BLOCK_SHULKER_BOX_OPEN");
+        settings.put("sounds.close.sound", "BLOCK_SHULKER_BOX_CLOSE");
+        return settings;
+    }
+
+    public static PluginHarness start() {
+        return start(new LinkedHashMap<>());
+    }
+
+    /**
+     * Enable the plugin with the default settings plus the given overrides
+     */
+    public static PluginHarness start(Map<String, Object> overrides) {
+        FakeServer server = FakeServer.install();
+        server.reset();
+        try {
+            Path dataFolder = Files.createTempDirectory("shulkerking-test");
+            YamlConfiguration config = new YamlConfiguration();
+            Map<String, Object> settings = defaultSettings();
+            settings.putAll(overrides);
+            for (Map.Entry<String, Object> entry : settings.entrySet()) {
+                config.set(entry.getKey(), entry.getValue());
+            }
+            config.save(dataFolder.resolve("config.yml").toFile());
+
+            PluginDescriptionFile description;
+            try (InputStream in = PluginHarness.class.getClassLoader().getResourceAsStream("plugin.yml")) {
+                if (in == null) {
+                    throw new IllegalStateException("plugin.yml is not on the test classpath");
+                }
+                description = new PluginDescriptionFile(in);
+            }
+
+            Constructor<ShulkerKingPlugin> constructor = ShulkerKingPlugin.class.getDeclaredConstructor(
+                JavaPluginLoader.class, PluginDescriptionFile.class, File.class, File.class);
+            constructor.setAccessible(true);
+            @SuppressWarnings("deprecation")
+            JavaPluginLoader loader = new JavaPluginLoader(server.getServer());
+            ShulkerKingPlugin plugin = constructor.newInstance(loader, description, dataFolder.toFile(),
+                dataFolder.resolve("ShulkerKing.jar").toFile());
+
+            PluginHarness harness = new PluginHarness(server, dataFolder, plugin);
+            server.registerCommands(plugin);
+            plugin.onLoad();
+            harness.setEnabled(true);
+            if (!server.getDisabledPlugins().isEmpty()) {
+                throw new IllegalStateException("ShulkerKing disabled itself while enabling: " + server.getWarnings().get(0).getMessage());
+            }
+            return harness;
+        } catch (IOException | InvalidDescriptionException | ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not start ShulkerKing", e);
+        }
+    }
+
+    public ShulkerKingPlugin getPlugin() {
+        return plugin;
+    }
+
+    public FakeServer getServer() {
+        return server;
+    }
+
+    public Path getDataFolder() {
+        return dataFolder;
+    }
+
+    /**
+     * Drive the plugin clock by hand, it then only moves in {@link #tick(int)} and {@link #advanceClock(long)}
+     */
+    public ClockManager.VirtualClock useVirtualClock() {
+        virtualClock = new ClockManager.VirtualClock(plugin.getClockManager().currentTick());
+        plugin.getClockManager().setClock(virtualClock);
+        return virtualClock;
+    }
+
+    /**
+     * Move the clock forward without running scheduled tasks
+     */
+    public void advanceClock(long ticks) {
+        if (virtualClock == null) {
+            throw new IllegalStateException("Call useVirtualClock() first");
+        }
+        virtualClock.advance(ticks);
+    }
+
+    /**
+     * Run the given number of server ticks
+     */
+    public void tick(int ticks) {
+        for (int i = 0; i < ticks; i++) {
+            if (virtualClock != null) {
+                virtualClock.advance(1L);
+            }
+            server.tick();
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (plugin.isEnabled()) {
+                setEnabled(false);
+            }
+        } finally {
+            server.reset();
+            deleteDataFolder();
+        }
+    }
+
+    private void setEnabled(boolean enabled) {
+        try {
+            Method method = JavaPlugin.class.getDeclaredMethod("setEnabled", boolean.class);
+            method.setAccessible(true);
+            method.invoke(plugin, enabled);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not " + (enabled ? "enable" : "disable") + " ShulkerKing", e);
+        }
+    }
+
+    private void deleteDataFolder() {
+        try (Stream<Path> paths = Files.walk(dataFolder)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            // Left for the OS to clean up
+        }
+    }
+}
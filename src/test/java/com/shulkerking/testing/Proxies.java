@@ -0,0 +1,152 @@
+package com.shulkerking.testing;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Dynamic proxies for the Bukkit interfaces the stand-in server implements.
+ * Only the methods the plugin calls are handled, everything else returns an
+ * empty default, so the stand-ins keep compiling as the API grows.
+ */
+final class Proxies {
+
+    /**
+     * Returned by a handler for methods it does not implement
+     */
+    static final Object UNHANDLED = new Object();
+
+    interface Handler {
+        Object invoke(Object proxy, String name, Object[] args) throws Throwable;
+    }
+
+    private Proxies() {
+    }
+
+    static <T> T create(Class<T> type, String description, Handler handler, Class<?>... extra) {
+        Class<?>[] interfaces = new Class<?>[extra.length + 1];
+        interfaces[0] = type;
+        System.arraycopy(extra, 0, interfaces, 1, extra.length);
+        Invocation invocation = new Invocation(handler, description);
+        return type.cast(Proxy.newProxyInstance(Proxies.class.getClassLoader(), interfaces, invocation));
+    }
+
+    /**
+     * Proxy that answers every call with an empty default
+     */
+    static <T> T dummy(Class<T> type) {
+        return create(type, type.getSimpleName(), (proxy, name, args) -> UNHANDLED);
+    }
+
+    /**
+     * The handler behind a proxy created here, or null
+     */
+    static Handler handlerOf(Object object) {
+        if (object == null || !Proxy.isProxyClass(object.getClass())) {
+            return null;
+        }
+        InvocationHandler invocation = Proxy.getInvocationHandler(object);
+        return invocation instanceof Invocation ? ((Invocation) invocation).handler : null;
+    }
+
+    private static Object fallback(Object proxy, Method method, Object[] args, String description) {
+        switch (method.getName()) {
+            case "equals":
+                if (args.length == 1) {
+                    return proxy == args[0];
+                }
+                break;
+            case "hashCode":
+                if (args.length == 0) {
+                    return System.identityHashCode(proxy);
+                }
+                break;
+            case "toString":
+                if (args.length == 0) {
+                    return description;
+                }
+                break;
+            default:
+                break;
+        }
+        return defaultValue(method.getReturnType());
+    }
+
+    static Object defaultValue(Class<?> type) {
+        if (type == void.class) {
+            return null;
+        }
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == char.class) {
+            return '\0';
+        }
+        if (type == byte.class) {
+            return (byte) 0;
+        }
+        if (type == short.class) {
+            return (short) 0;
+        }
+        if (type == int.class) {
+            return 0;
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        if (type == float.class) {
+            return 0f;
+        }
+        if (type == double.class) {
+            return 0d;
+        }
+        if (type.isArray()) {
+            return Array.newInstance(type.getComponentType(), 0);
+        }
+        if (type == List.class || type == Collection.class) {
+            return new ArrayList<>();
+        }
+        if (type == Set.class) {
+            return new HashSet<>();
+        }
+        if (type == Map.class) {
+            return new HashMap<>();
+        }
+        if (type == Optional.class) {
+            return Optional.empty();
+        }
+        if (type.isInterface() && type.getName().startsWith("org.bukkit.")) {
+            return dummy(type);
+        }
+        return null;
+    }
+
+    private static final class Invocation implements InvocationHandler {
+        private final Handler handler;
+        private final String description;
+
+        Invocation(Handler handler, String description) {
+            this.handler = handler;
+            this.description = description;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object[] arguments = args != null ? args : new Object[0];
+            Object result = handler.invoke(proxy, method.getName(), arguments);
+            if (result != UNHANDLED) {
+                return result;
+            }
+            return fallback(proxy, method, arguments, description);
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.shulkerking.testing;
+
+import com.shulkerking.ShulkerKingPlugin;
+import com.shulkerking.managers.ClockManager;
+import com.shulkerking.managers.RecorderManager;
+import org.bukkit.Material;
+import org.bukkit.event.inventory.ClickType;
+import org.bukkit.inventory.EquipmentSlot;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Feeds a capture decoded by {@link RecorderManager#read(File, Consumer)}
+ * back through the plugin listeners. Every recorded player gets a fake player
+ * with the same UUID, the server runs the recorded game time between events
+ * and each event is turned into the player action that fires it.
+ * Captures hold no inventories: new players get the loadout passed in, and an
+ * interact puts an empty shulker of the recorded material in the hand when
+ * the hand holds something else. Closes the plugin already made itself, e.g.
+ * on damage, are not repeated.
+ */
+public final class ReplayDriver implements Consumer<RecorderManager.RecordedEvent> {
+
+    private final PluginHarness harness;
+    private final Consumer<FakePlayer> loadout;
+    private final Map<String, FakePlayer> players = new LinkedHashMap<>();
+    private final Map<RecorderManager.Type, Integer> replayed = new EnumMap<>(RecorderManager.Type.class);
+    private int skipped;
+    private int divergences;
+    private long lastTime = Long.MIN_VALUE;
+
+    public ReplayDriver(PluginHarness harness, Consumer<FakePlayer> loadout) {
+        this.harness = harness;
+        this.loadout = loadout;
+    }
+
+    /**
+     * Replay a capture file
+     * @return number of events read
+     */
+    public int replay(File capture) throws IOException {
+        return RecorderManager.read(capture, this);
+    }
+
+    @Override
+    public void accept(RecorderManager.RecordedEvent event) {
+        advanceTo(event.getTime());
+        FakePlayer player = player(event.getPlayer());
+        String[] names = event.getNames();
+        int[] values = event.getValues();
+        switch (event.getType()) {
+            case INTERACT:
+                checkSession(player, -1);
+                replayed(event, interact(player, names, values));
+                break;
+            case CLICK:
+                checkSession(player, values[2]);
+                replayed(event, click(player, names, values));
+                break;
+            case DRAG:
+                checkSession(player, values[1]);
+                replayed(event, drag(player, values));
+                break;
+            case DROP:
+                checkSession(player, values[0]);
+                replayed(event, player.drop() != null);
+                break;
+            case CLOSE:
+                if (player.hasCustomView()) {
+                    player.closeInventory();
+                    replayed(event, true);
+                } else {
+                    replayed(event, false);
+                }
+                break;
+            case DAMAGE:
+                checkSession(player, values[1]);
+                player.damage(values[0] == 1 ? attacker(player, names) : null);
+                replayed(event, true);
+                break;
+            default:
+                replayed(event, false);
+                break;
+        }
+    }
+
+    /**
+     * Fake players created for recorded players, in order of first appearance
+     */
+    public List<FakePlayer> getPlayers() {
+        return new ArrayList<>(players.values());
+    }
+
+    public int getReplayed(RecorderManager.Type type) {
+        return replayed.getOrDefault(type, 0);
+    }
+
+    /**
+     * Events that had no action to replay, e.g. a left click or a slot outside the open view
+     */
+    public int getSkipped() {
+        return skipped;
+    }
+
+    /**
+     * Events whose recorded session flag did not match the replayed state
+     */
+    public int getDivergences() {
+        return divergences;
+    }
+
+    private void advanceTo(long time) {
+        if (lastTime == Long.MIN_VALUE) {
+            lastTime = time;
+            return;
+        }
+        long ticks = (time - lastTime) / ClockManager.MILLIS_PER_TICK;
+        if (ticks > 0) {
+            harness.tick((int) ticks);
+            lastTime += ticks * ClockManager.MILLIS_PER_TICK;
+        }
+    }
+
+    private FakePlayer player(String id) {
+        FakePlayer player = players.get(id);
+        if (player == null) {
+            player = harness.getServer().addPlayer("replay" + players.size(), UUID.fromString(id));
+            loadout.accept(player);
+            players.put(id, player);
+        }
+        return player;
+    }
+
+    /**
+     * Recorded attacker, or any other player for captures that did not keep it
+     */
+    private FakePlayer attacker(FakePlayer victim, String[] names) {
+        if (names.length > 1) {
+            return player(names[1]);
+        }
+        for (FakePlayer player : players.values()) {
+            if (player != victim) {
+                return player;
+            }
+        }
+        return player(UUID.nameUUIDFromBytes("replay:attacker".getBytes()).toString());
+    }
+
+    private void checkSession(FakePlayer player, int recorded) {
+        if (recorded < 0) {
+            return;
+        }
+        ShulkerKingPlugin plugin = harness.getPlugin();
+        boolean session = plugin.getInventoryManager().hasActiveSession(player.getPlayer());
+        if (session != (recorded == 1)) {
+            divergences++;
+        }
+    }
+
+    private boolean interact(FakePlayer player, String[] names, int[] values) {
+        if (!names[0].startsWith("RIGHT_CLICK") || "NONE".equals(names[1])) {
+            return false;
+        }
+        EquipmentSlot hand = EquipmentSlot.valueOf(names[1]);
+        Material material = Material.matchMaterial(names[2]);
+        ItemStack held = hand == EquipmentSlot.HAND
+            ? player.getInventory().getItemInMainHand() : player.getInventory().getItemInOffHand();
+        if (material != null && held.getType() != material) {
+            ItemStack shulker = FakeItems.shulker(material);
+            if (hand == EquipmentSlot.HAND) {
+                player.getInventory().setItemInMainHand(shulker);
+            } else {
+                player.getInventory().setItemInOffHand(shulker);
+            }
+        }
+        player.setSneaking(values[0] == 1);
+        player.rightClick(hand);
+        return true;
+    }
+
+    private boolean click(FakePlayer player, String[] names, int[] values) {
+        int rawSlot = values[0];
+        if (rawSlot < 0 || rawSlot >= player.getTopInventory().getSize() + 36) {
+            return false;
+        }
+        ClickType click = ClickType.valueOf(names[0]);
+        if (click == ClickType.NUMBER_KEY) {
+            player.hotbarSwap(rawSlot, values[1]);
+            return true;
+        }
+        if (click != ClickType.LEFT && click != ClickType.RIGHT && !click.isShiftClick()) {
+            return false;
+        }
+        player.click(rawSlot, click);
+        return true;
+    }
+
+    /**
+     * Drag over the recorded raw slots. Older captures only have the slot
+     * count, the cursor is then spread over the first empty top slots.
+     */
+    private boolean drag(FakePlayer player, int[] values) {
+        int slots = values[0];
+        if (values.length == 2 + slots) {
+            return player.drag(Arrays.copyOfRange(values, 2, values.length)) != null;
+        }
+        Inventory top = player.getTopInventory();
+        int[] rawSlots = new int[slots];
+        int found = 0;
+        for (int slot = 0; slot < top.getSize() && found < slots; slot++) {
+            if (FakeInventory.isEmpty(top.getItem(slot))) {
+                rawSlots[found++] = slot;
+            }
+        }
+        return found == slots && player.drag(rawSlots) != null;
+    }
+
+    private void replayed(RecorderManager.RecordedEvent event, boolean done) {
+        if (done) {
+            replayed.merge(event.getType(), 1, Integer::sum);
+        } else {
+            skipped++;
+        }
+    }
+}